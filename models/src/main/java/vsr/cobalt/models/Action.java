@@ -210,6 +210,15 @@ public abstract class Action {
     return equals(action);
   }
 
+  /**
+   * Get the atomic actions constituting this action, regardless of how they are grouped by nested compositions.
+   *
+   * @return a set containing only this action if atomic, the atomic constituent actions if composite
+   */
+  public Set<Action> getAtomicActions() {
+    return Collections.singleton(this);
+  }
+
   /**
    * @return the widget this action belongs to
    */
@@ -515,6 +524,15 @@ public abstract class Action {
       return false;
     }
 
+    @Override
+    public Set<Action> getAtomicActions() {
+      final ImmutableSet.Builder<Action> as = ImmutableSet.builder();
+      for (final Action a : actions) {
+        as.addAll(a.getAtomicActions());
+      }
+      return as.build();
+    }
+
     private static class Builder {
 
       private final ImmutableSet.Builder<Action> actions = ImmutableSet.builder();
@@ -400,6 +400,39 @@ public class ActionTest {
 
   }
 
+  @Test
+  public static class GetAtomicActions {
+
+    @Test
+    public void returnSelfWhenAtomic() {
+      final Action a = make(aMinimalAction());
+      assertEquals(a.getAtomicActions(), setOf(a));
+    }
+
+    @Test
+    public void returnConstituentsRegardlessOfGrouping() {
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+      final Property p3 = make(aMinimalProperty().withName("p3"));
+
+      final Action a1 = make(aMinimalAction()
+          .withPre(aPropositionSet().withCleared(p1)));
+
+      final Action a2 = make(aMinimalAction()
+          .withPre(aPropositionSet().withCleared(p2)));
+
+      final Action a3 = make(aMinimalAction()
+          .withPre(aPropositionSet().withCleared(p3)));
+
+      final Action a4 = Action.compose(Action.compose(a1, a2), a3);
+      final Action a5 = Action.compose(a1, Action.compose(a2, a3));
+
+      assertEquals(a4.getAtomicActions(), setOf(a1, a2, a3));
+      assertEquals(a5.getAtomicActions(), setOf(a1, a2, a3));
+    }
+
+  }
+
   @Test
   public static class IsEnabled {
 
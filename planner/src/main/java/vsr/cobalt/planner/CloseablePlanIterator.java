@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An iterator of extracted plans which can be closed before it is exhausted.
+ * <p/>
+ * Consumers not exhausting the plans (e.g. when a collector stops early, or a subscriber cancels) close the iterator,
+ * so that it reports the statistics of its partial search to its {@link PlanningListener}.
+ *
+ * @author Erik Wienhold
+ */
+public interface CloseablePlanIterator extends Iterator<Plan>, Closeable {
+
+  /**
+   * Stop the search and report its statistics. The iterator must not be used after closing it. Closing an exhausted
+   * or closed iterator has no effect.
+   */
+  @Override
+  void close();
+
+}
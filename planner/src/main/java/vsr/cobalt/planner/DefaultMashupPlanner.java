@@ -8,17 +8,23 @@
 package vsr.cobalt.planner;
 
 import java.util.Iterator;
+import java.util.concurrent.Executor;
 
 import vsr.cobalt.models.Mashup;
+import vsr.cobalt.planner.extractors.DynamicProgrammingPlanCounter;
 import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.streams.PlanningPublisher;
+import vsr.cobalt.planner.streams.Publisher;
 
 /**
  * The default mashup planner realizes its behaviour by using an individual planning graph factory, extender,
- * and plan extractor.
+ * plan extractor, and plan counter.
+ * <p/>
+ * Counting plans is not part of {@link MashupPlanner}, so that other planners need not support it.
  *
  * @author Erik Wienhold
  */
-public class DefaultMashupPlanner implements MashupPlanner {
+public class DefaultMashupPlanner implements MashupPlanner, PlanCounter {
 
   private final GraphFactory factory;
 
@@ -26,17 +32,35 @@ public class DefaultMashupPlanner implements MashupPlanner {
 
   private final PlanExtractor extractor;
 
+  private final PlanCounter counter;
+
   /**
    * @param factory   a planning graph factory
    * @param extender  a planning graph extender
    * @param extractor a plan extractor
+   * @param counter   a plan counter
    */
   public DefaultMashupPlanner(final GraphFactory factory,
                               final GraphExtender extender,
-                              final PlanExtractor extractor) {
+                              final PlanExtractor extractor,
+                              final PlanCounter counter) {
     this.factory = factory;
     this.extender = extender;
     this.extractor = extractor;
+    this.counter = counter;
+  }
+
+  /**
+   * Create a planner counting plans with a {@link DynamicProgrammingPlanCounter}.
+   *
+   * @param factory   a planning graph factory
+   * @param extender  a planning graph extender
+   * @param extractor a plan extractor
+   */
+  public DefaultMashupPlanner(final GraphFactory factory,
+                              final GraphExtender extender,
+                              final PlanExtractor extractor) {
+    this(factory, extender, extractor, new DynamicProgrammingPlanCounter());
   }
 
   /**
@@ -60,6 +84,13 @@ public class DefaultMashupPlanner implements MashupPlanner {
     return extractor;
   }
 
+  /**
+   * @return the plan counter
+   */
+  public PlanCounter getCounter() {
+    return counter;
+  }
+
   @Override
   public Graph createGraph(final Mashup mashup) throws PlanningException {
     return factory.createGraph(mashup);
@@ -75,6 +106,11 @@ public class DefaultMashupPlanner implements MashupPlanner {
     return extractor.extractPlans(graph, depth);
   }
 
+  @Override
+  public PlanCount countPlans(final Graph graph, final int depth) {
+    return counter.countPlans(graph, depth);
+  }
+
   /**
    * Create a planning process using this planner.
    *
@@ -85,4 +121,17 @@ public class DefaultMashupPlanner implements MashupPlanner {
     return new PlanningProcess(this, collector, problem);
   }
 
+  /**
+   * Plan asynchronously using this planner. Planning starts once the subscriber requests plans, and runs on the given
+   * executor only while there is outstanding demand.
+   *
+   * @param problem  a planning problem
+   * @param executor an executor running the planning work
+   *
+   * @return a publisher of plans accepting a single subscriber
+   */
+  public Publisher<Plan> planAsync(final PlanningProblem problem, final Executor executor) {
+    return new PlanningPublisher(this, problem, executor);
+  }
+
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * A graph updater derives the graph of an edited goal mashup from the graph of the previous goal mashup.
+ *
+ * @author Erik Wienhold
+ */
+public interface GraphUpdater {
+
+  /**
+   * Update a graph to realize another goal mashup, reusing as much of the graph as possible. The updated graph equals
+   * the graph created and extended from scratch for the edited goal mashup, up to the depth of the given graph.
+   * <p/>
+   * Therefore the given graph must contain all provisions derived for the previous goal mashup, i.e. it must not be
+   * compacted (see {@link Graph#isCompacted()}), and it must have been derived using the same providers as the updater.
+   *
+   * @param graph  an uncompacted graph created for a previous goal mashup
+   * @param mashup the edited goal mashup
+   *
+   * @return a graph for the edited goal mashup, not deeper than the given graph
+   *
+   * @throws PlanningException        when the goal cannot be fully satisfied
+   * @throws IllegalArgumentException when the graph is compacted
+   */
+  Graph updateGraph(Graph graph, Mashup mashup) throws PlanningException;
+
+}
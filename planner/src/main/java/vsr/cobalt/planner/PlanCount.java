@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * The number of plans available in a graph, either exact or an upper bound.
+ *
+ * @author Erik Wienhold
+ */
+public final class PlanCount {
+
+  private final BigInteger count;
+
+  private final boolean exact;
+
+  /**
+   * @param count a non-negative number of plans
+   * @param exact true when the count is exact, false when it is an upper bound
+   */
+  public PlanCount(final BigInteger count, final boolean exact) {
+    if (count.signum() < 0) {
+      throw new IllegalArgumentException("expecting non-negative count");
+    }
+    this.count = count;
+    this.exact = exact;
+  }
+
+  /**
+   * @return the number of plans
+   */
+  public BigInteger getCount() {
+    return count;
+  }
+
+  /**
+   * @return true when the count is exact, false when it is an upper bound
+   */
+  public boolean isExact() {
+    return exact;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(count, exact);
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return super.equals(other)
+        || other instanceof PlanCount
+        && equals((PlanCount) other);
+  }
+
+  private boolean equals(final PlanCount other) {
+    return exact == other.exact
+        && count.equals(other.count);
+  }
+
+  @Override
+  public String toString() {
+    return exact ? count.toString() : "<=" + count;
+  }
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Counts the plans available in a graph without enumerating them.
+ *
+ * @author Erik Wienhold
+ */
+public interface PlanCounter {
+
+  /**
+   * Count the plans of a specific depth available in a graph.
+   *
+   * @param graph a graph
+   * @param depth the depth of counted plans
+   *
+   * @return the exact number of plans, or an upper bound
+   */
+  PlanCount countPlans(final Graph graph, final int depth);
+
+}
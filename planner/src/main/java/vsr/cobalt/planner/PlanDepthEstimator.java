@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Estimates the minimum depth of plans, so that planning can skip depths at which no plan can exist.
+ *
+ * @author Erik Wienhold
+ */
+public interface PlanDepthEstimator {
+
+  /**
+   * The estimate when no plan exists at any depth.
+   */
+  int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Estimate the minimum depth of plans available in a graph or any of its extensions. The estimate must not exceed
+   * the depth of any such plan.
+   *
+   * @param graph a graph
+   *
+   * @return a lower bound of the plan depth, {@link #UNREACHABLE} when there are no plans
+   */
+  int estimateMinDepth(final Graph graph);
+
+}
@@ -24,7 +24,7 @@ public interface PlanExtractor {
    * @param graph a graph
    * @param depth the depth of extracted plans
    *
-   * @return an iterator of extracted plans
+   * @return an iterator of extracted plans, a {@link CloseablePlanIterator} when it should be closed if not exhausted
    */
   Iterator<Plan> extractPlans(final Graph graph, final int depth);
 
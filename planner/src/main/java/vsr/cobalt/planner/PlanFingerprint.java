@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import com.google.common.primitives.UnsignedLongs;
+
+/**
+ * A 128-bit fingerprint identifying equivalent plans.
+ * <p/>
+ * Fingerprints combine by addition modulo 2^128, which allows to compute a plan's fingerprint incrementally from the
+ * fingerprints of its levels, regardless of the order in which levels are added or removed.
+ *
+ * @author Erik Wienhold
+ */
+public final class PlanFingerprint {
+
+  /**
+   * The identity regarding {@link #plus(PlanFingerprint)}.
+   */
+  public static final PlanFingerprint ZERO = new PlanFingerprint(0, 0);
+
+  private final long high;
+
+  private final long low;
+
+  /**
+   * @param high the most significant 64 bits
+   * @param low  the least significant 64 bits
+   */
+  public PlanFingerprint(final long high, final long low) {
+    this.high = high;
+    this.low = low;
+  }
+
+  /**
+   * @return the most significant 64 bits
+   */
+  public long getHigh() {
+    return high;
+  }
+
+  /**
+   * @return the least significant 64 bits
+   */
+  public long getLow() {
+    return low;
+  }
+
+  /**
+   * Combine this fingerprint with another one.
+   *
+   * @param other a fingerprint
+   *
+   * @return the sum of both fingerprints modulo 2^128
+   */
+  public PlanFingerprint plus(final PlanFingerprint other) {
+    final long l = low + other.low;
+    // carry when the unsigned sum overflows
+    final long c = UnsignedLongs.compare(l, low) < 0 ? 1 : 0;
+    return new PlanFingerprint(high + other.high + c, l);
+  }
+
+  /**
+   * Remove a fingerprint previously combined with this one.
+   *
+   * @param other a fingerprint
+   *
+   * @return the difference of both fingerprints modulo 2^128
+   */
+  public PlanFingerprint minus(final PlanFingerprint other) {
+    final long l = low - other.low;
+    // borrow when the unsigned difference underflows
+    final long b = UnsignedLongs.compare(low, other.low) < 0 ? 1 : 0;
+    return new PlanFingerprint(high - other.high - b, l);
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) low;
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return super.equals(other)
+        || other instanceof PlanFingerprint
+        && equals((PlanFingerprint) other);
+  }
+
+  private boolean equals(final PlanFingerprint other) {
+    return high == other.high && low == other.low;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%016x%016x", high, low);
+  }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Interaction;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Proposition;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+import vsr.cobalt.planner.graph.PropertyProvision;
+
+/**
+ * Computes canonical plan fingerprints over the atomic-action structure of plans.
+ * <p/>
+ * Two plans are equivalent when each of their levels requires the same atomic actions and wires them in the same way,
+ * regardless of how those actions are grouped into composite actions. The wiring of a level consists of links between
+ * atomic actions: a requested functionality or property linked to the atomic action realizing or publishing it (and in
+ * case of a property to the atomic action requesting it), and a requested atomic action linked to each atomic action of
+ * its precursor. A plan's fingerprint is the sum of its level fingerprints, where a level fingerprint mixes the level's
+ * index with the sum of the fingerprints of the atomic actions it requires, and the sum of the fingerprints of its
+ * distinct links. Plan iterators can thus maintain the fingerprint of a partial plan by adding and removing level
+ * fingerprints.
+ * <p/>
+ * Action fingerprints are cached, so a fingerprinter should be reused for plans of the same graph.
+ *
+ * @author Erik Wienhold
+ */
+public class PlanFingerprinter {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private static final Relation<Functionality> REALIZING = new Relation<Functionality>() {
+    @Override
+    public boolean holds(final Action action, final Functionality functionality) {
+      return action.realizes(functionality);
+    }
+  };
+
+  private static final Relation<Property> REQUESTING = new Relation<Property>() {
+    @Override
+    public boolean holds(final Action action, final Property property) {
+      return action.getPreConditions().isFilled(property);
+    }
+  };
+
+  private static final Relation<Property> PUBLISHING = new Relation<Property>() {
+    @Override
+    public boolean holds(final Action action, final Property property) {
+      return action.getEffects().isFilled(property);
+    }
+  };
+
+  private final Map<Action, PlanFingerprint> cache = new HashMap<>();
+
+  /**
+   * Compute the fingerprint of a plan.
+   *
+   * @param plan a plan
+   *
+   * @return the plan's fingerprint
+   */
+  public PlanFingerprint fingerprint(final Plan plan) {
+    final Graph g = plan.getGraph();
+    PlanFingerprint fp = PlanFingerprint.ZERO;
+    int i = 0;
+    for (final Level l : g.getLevels()) {
+      fp = fp.plus(fingerprint(i, l));
+      i += 1;
+    }
+    return fp;
+  }
+
+  /**
+   * Compute the fingerprint of a single plan level.
+   *
+   * @param index the level's index, zero for the initial level
+   * @param level a level
+   *
+   * @return the level's fingerprint
+   */
+  public PlanFingerprint fingerprint(final int index, final Level level) {
+    final Set<Action> as = new HashSet<>();
+    for (final Action a : level.getRequiredActions()) {
+      as.addAll(a.getAtomicActions());
+    }
+    PlanFingerprint sum = PlanFingerprint.ZERO;
+    for (final Action a : as) {
+      sum = sum.plus(fingerprint(a));
+    }
+    final Hasher h = HASH_FUNCTION.newHasher()
+        .putInt(index);
+    putFingerprint(h, sum);
+    putFingerprint(h, fingerprintLinks(level));
+    return toFingerprint(h.hash().asBytes());
+  }
+
+  /**
+   * Compute the sum of the fingerprints of a level's distinct links between atomic actions.
+   *
+   * @param level a level
+   *
+   * @return the sum of link fingerprints
+   */
+  private PlanFingerprint fingerprintLinks(final Level level) {
+    final Set<PlanFingerprint> links = new HashSet<>();
+    if (level instanceof InitialLevel) {
+      for (final FunctionalityProvision fp : ((InitialLevel) level).getFunctionalityProvisions()) {
+        addFunctionalityLinks(links, fp);
+      }
+    } else if (level instanceof ExtensionLevel) {
+      for (final ActionProvision ap : ((ExtensionLevel) level).getActionProvisions()) {
+        addPrecursorLinks(links, ap);
+        for (final PropertyProvision pp : ap.getPropertyProvisions()) {
+          addPropertyLinks(links, ap.getRequestedAction(), pp);
+        }
+      }
+    }
+    PlanFingerprint sum = PlanFingerprint.ZERO;
+    for (final PlanFingerprint fp : links) {
+      sum = sum.plus(fp);
+    }
+    return sum;
+  }
+
+  private void addFunctionalityLinks(final Set<PlanFingerprint> links, final FunctionalityProvision provision) {
+    final Functionality offer = provision.getOffer().getSubject();
+    for (final Action x : selectAtomicActions(provision.getProvidingAction(), REALIZING, offer)) {
+      final Hasher h = HASH_FUNCTION.newHasher().putInt(0);
+      putString(h, provision.getRequest().getIdentifier().toString());
+      putString(h, offer.getIdentifier().toString());
+      putFingerprint(h, fingerprint(x));
+      links.add(toFingerprint(h.hash().asBytes()));
+    }
+  }
+
+  private void addPrecursorLinks(final Set<PlanFingerprint> links, final ActionProvision provision) {
+    if (provision.getPrecursorAction() == null) {
+      return;
+    }
+    for (final Action r : provision.getRequestedAction().getAtomicActions()) {
+      for (final Action p : provision.getPrecursorAction().getAtomicActions()) {
+        final Hasher h = HASH_FUNCTION.newHasher().putInt(1);
+        putFingerprint(h, fingerprint(r));
+        putFingerprint(h, fingerprint(p));
+        links.add(toFingerprint(h.hash().asBytes()));
+      }
+    }
+  }
+
+  private void addPropertyLinks(final Set<PlanFingerprint> links, final Action requestedAction,
+                                final PropertyProvision provision) {
+    final Property request = provision.getRequest();
+    final Property offer = provision.getOffer().getSubject();
+    for (final Action r : selectAtomicActions(requestedAction, REQUESTING, request)) {
+      for (final Action x : selectAtomicActions(provision.getProvidingAction(), PUBLISHING, offer)) {
+        final Hasher h = HASH_FUNCTION.newHasher().putInt(2);
+        putFingerprint(h, fingerprint(r));
+        putFingerprint(h, hashProperty(request));
+        putFingerprint(h, hashProperty(offer));
+        putFingerprint(h, fingerprint(x));
+        links.add(toFingerprint(h.hash().asBytes()));
+      }
+    }
+  }
+
+  /**
+   * Select the atomic actions of an action having some relation to a subject, or all atomic actions when none has.
+   *
+   * @param action   an action
+   * @param relation a relation between atomic actions and subjects
+   * @param subject  a subject
+   * @param <T>      the type of subject
+   *
+   * @return a set of atomic actions
+   */
+  private static <T> Set<Action> selectAtomicActions(final Action action, final Relation<T> relation,
+                                                    final T subject) {
+    final Set<Action> as = new HashSet<>();
+    for (final Action a : action.getAtomicActions()) {
+      if (relation.holds(a, subject)) {
+        as.add(a);
+      }
+    }
+    return as.isEmpty() ? action.getAtomicActions() : as;
+  }
+
+  private PlanFingerprint fingerprint(final Action action) {
+    PlanFingerprint fp = cache.get(action);
+    if (fp == null) {
+      fp = computeFingerprint(action);
+      cache.put(action, fp);
+    }
+    return fp;
+  }
+
+  private static PlanFingerprint computeFingerprint(final Action action) {
+    final Hasher h = HASH_FUNCTION.newHasher();
+    putString(h, action.getWidget().getIdentifier().toString());
+    // the following are sets, thus combine the fingerprints of their elements independent of iteration order
+    putFingerprint(h, hashPropositions(action.getPreConditions().getPropositions()));
+    putFingerprint(h, hashPropositions(action.getEffects().getPropositions()));
+    PlanFingerprint fs = PlanFingerprint.ZERO;
+    for (final Functionality f : action.getRealizedFunctionalities()) {
+      fs = fs.plus(hashString(f.getIdentifier().toString()));
+    }
+    putFingerprint(h, fs);
+    PlanFingerprint is = PlanFingerprint.ZERO;
+    for (final Interaction i : action.getInteractions()) {
+      is = is.plus(hashString(i.getInstructionText()));
+    }
+    putFingerprint(h, is);
+    return toFingerprint(h.hash().asBytes());
+  }
+
+  private static PlanFingerprint hashPropositions(final Set<Proposition> propositions) {
+    PlanFingerprint sum = PlanFingerprint.ZERO;
+    for (final Proposition p : propositions) {
+      final Hasher h = HASH_FUNCTION.newHasher();
+      putProperty(h, p.getProperty());
+      h.putBoolean(p.isFilled());
+      sum = sum.plus(toFingerprint(h.hash().asBytes()));
+    }
+    return sum;
+  }
+
+  private static PlanFingerprint hashProperty(final Property property) {
+    final Hasher h = HASH_FUNCTION.newHasher();
+    putProperty(h, property);
+    return toFingerprint(h.hash().asBytes());
+  }
+
+  private static void putProperty(final Hasher hasher, final Property property) {
+    putString(hasher, property.getName());
+    putString(hasher, property.getType() == null ? "" : property.getType().getIdentifier().toString());
+  }
+
+  private static PlanFingerprint hashString(final String s) {
+    final Hasher h = HASH_FUNCTION.newHasher();
+    putString(h, s);
+    return toFingerprint(h.hash().asBytes());
+  }
+
+  private static void putString(final Hasher hasher, final String s) {
+    // prefix the length to keep adjacent strings apart
+    final byte[] bs = s == null ? new byte[0] : s.getBytes(Charsets.UTF_8);
+    hasher.putInt(bs.length).putBytes(bs);
+  }
+
+  private static void putFingerprint(final Hasher hasher, final PlanFingerprint sum) {
+    hasher.putLong(sum.getHigh()).putLong(sum.getLow());
+  }
+
+  private static PlanFingerprint toFingerprint(final byte[] bytes) {
+    final ByteBuffer buf = ByteBuffer.wrap(bytes);
+    final long high = buf.getLong();
+    final long low = buf.getLong();
+    return new PlanFingerprint(high, low);
+  }
+
+  /**
+   * A relation between atomic actions and the subjects of provisions.
+   *
+   * @param <T> the type of subjects
+   */
+  private interface Relation<T> {
+
+    boolean holds(Action action, T subject);
+
+  }
+
+}
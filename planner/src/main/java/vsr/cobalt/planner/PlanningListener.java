@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+/**
+ * Receives timings and sizes of the phases of a planning process.
+ * <p/>
+ * Graph factories, graph extenders, plan extractors, and planning processes report to a listener when given one.
+ * Timings are in nanoseconds, as measured by {@link System#nanoTime()}. Events are reported on the thread doing the
+ * work, so listeners shared between concurrent planning processes must be thread-safe.
+ * <p/>
+ * Components use {@link vsr.cobalt.planner.listeners.NoOpPlanningListener} by default. They skip fine-grained time
+ * measurements when using it, so listening adds no overhead unless requested.
+ *
+ * @author Erik Wienhold
+ */
+public interface PlanningListener {
+
+  /**
+   * Invoked after a graph factory created an initial graph.
+   *
+   * @param functionalities the number of requested functionalities
+   * @param provisions      the number of functionality provisions in the initial level
+   * @param nanos           the time taken to create the graph, including the time taken by providers
+   */
+  void graphCreated(int functionalities, int provisions, long nanos);
+
+  /**
+   * Invoked after a provider has been queried for provisions.
+   *
+   * @param provider   the provider's class
+   * @param requests   the number of requested subjects
+   * @param provisions the number of provided provisions, or actions in case of a precursor action provider
+   * @param nanos      the time taken by the provider
+   */
+  void provisionsProvided(Class<?> provider, int requests, int provisions, long nanos);
+
+  /**
+   * Invoked after a graph extender checked for cyclic dependencies while extending a graph.
+   *
+   * @param checks the number of checks
+   * @param cycles the number of checks detecting a cyclic dependency
+   * @param nanos  the total time taken by the checks, zero when not measured
+   */
+  void cyclicDependenciesChecked(int checks, int cycles, long nanos);
+
+  /**
+   * Invoked after a graph extender added a level to a graph.
+   *
+   * @param depth              the depth of the extended graph
+   * @param candidates         the number of candidates, i.e. pairs of required action and optional precursor action
+   * @param combinations       the number of enumerated combinations of property provisions
+   * @param prunedCombinations the number of combinations not yielding an action provision
+   * @param provisions         the number of action provisions in the new level
+   * @param nanos              the time taken to extend the graph, including the time taken by providers and checks
+   */
+  void graphExtended(int depth, int candidates, int combinations, int prunedCombinations, int provisions, long nanos);
+
+  /**
+   * Invoked after a graph compactor removed provisions which cannot be part of any plan from a graph.
+   *
+   * @param depth             the depth of the compacted graph
+   * @param removedProvisions the number of removed functionality and action provisions
+   * @param removedActions    the number of actions no longer required by any level
+   * @param nanos             the time taken to compact the graph
+   */
+  void graphCompacted(int depth, int removedProvisions, int removedActions, long nanos);
+
+  /**
+   * Invoked after a plan extractor searched all plans of a graph, or when its search has been closed early (see
+   * {@link CloseablePlanIterator}). An extraction may report several times, each time with the statistics since its
+   * previous report.
+   *
+   * @param maxDepth     the maximum depth of plans
+   * @param frames       the number of frames pushed onto the search stack
+   * @param combinations the number of enumerated provision combinations
+   * @param conflicts    the number of dead ends, each pruning further combinations
+   * @param plans        the number of plans emitted
+   * @param nanos        the time spent searching plans, excluding the time spent by the consumer, zero when not
+   *                     measured
+   */
+  void plansExtracted(int maxDepth, int frames, int combinations, int conflicts, int plans, long nanos);
+
+  /**
+   * Invoked after a planning process advanced, i.e. evolved its graph and collected plans of the next depth.
+   *
+   * @param depth the depth of collected plans
+   * @param plans the number of collected plans
+   * @param nanos the time taken to advance, including graph extension and plan extraction
+   */
+  void planningAdvanced(int depth, int plans, long nanos);
+
+}
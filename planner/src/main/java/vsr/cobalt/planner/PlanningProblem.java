@@ -12,7 +12,8 @@ import java.util.Objects;
 import vsr.cobalt.models.Mashup;
 
 /**
- * A planning problem consisting of a goal mashup and a depth range for plans to be searched.
+ * A planning problem consisting of a goal mashup, a depth range for plans to be searched and constraints on the
+ * widgets a plan may use.
  *
  * @author Erik Wienhold
  */
@@ -35,17 +36,22 @@ public class PlanningProblem {
 
   private final int maxDepth;
 
+  private final WidgetConstraints widgetConstraints;
+
   /**
-   * Create a planning problem.
+   * Create a planning problem with constraints on the widgets a plan may use.
    *
-   * @param goalMashup the goal mashup
-   * @param minDepth   the minimum plan depth
-   * @param maxDepth   the maximum plan depth
+   * @param goalMashup        the goal mashup
+   * @param minDepth          the minimum plan depth
+   * @param maxDepth          the maximum plan depth
+   * @param widgetConstraints the widget constraints
    */
-  public PlanningProblem(final Mashup goalMashup, final int minDepth, final int maxDepth) {
+  public PlanningProblem(final Mashup goalMashup, final int minDepth, final int maxDepth,
+                         final WidgetConstraints widgetConstraints) {
     this.goalMashup = goalMashup;
     this.minDepth = minDepth;
     this.maxDepth = maxDepth;
+    this.widgetConstraints = widgetConstraints;
     if (minDepth < MIN_DEPTH) {
       throw new IllegalArgumentException("expecting positive minimum depth");
     }
@@ -54,6 +60,17 @@ public class PlanningProblem {
     }
   }
 
+  /**
+   * Create a planning problem.
+   *
+   * @param goalMashup the goal mashup
+   * @param minDepth   the minimum plan depth
+   * @param maxDepth   the maximum plan depth
+   */
+  public PlanningProblem(final Mashup goalMashup, final int minDepth, final int maxDepth) {
+    this(goalMashup, minDepth, maxDepth, WidgetConstraints.none());
+  }
+
   /**
    * Create a planning problem with infinite plan depth.
    *
@@ -94,9 +111,16 @@ public class PlanningProblem {
     return maxDepth;
   }
 
+  /**
+   * @return the widget constraints
+   */
+  public WidgetConstraints getWidgetConstraints() {
+    return widgetConstraints;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(goalMashup, minDepth, maxDepth);
+    return Objects.hash(goalMashup, minDepth, maxDepth, widgetConstraints);
   }
 
   @Override
@@ -109,7 +133,8 @@ public class PlanningProblem {
   private boolean equals(final PlanningProblem other) {
     return minDepth == other.minDepth
         && maxDepth == other.maxDepth
-        && goalMashup.equals(other.goalMashup);
+        && goalMashup.equals(other.goalMashup)
+        && widgetConstraints.equals(other.widgetConstraints);
   }
 
 }
@@ -10,6 +10,7 @@ package vsr.cobalt.planner;
 import java.util.Iterator;
 
 import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
 
 /**
  * Realizes the planning process as an alternating sequence between graph extension and plan extraction.
@@ -24,6 +25,18 @@ public class PlanningProcess {
 
   private final PlanCollector collector;
 
+  private final PlanningListener listener;
+
+  /**
+   * Estimates the minimum plan depth, null when searching plans at every depth.
+   */
+  private final PlanDepthEstimator estimator;
+
+  /**
+   * The estimated minimum plan depth, zero until estimated.
+   */
+  private int minPlanDepth;
+
   /**
    * The graph updated with each planning step.
    */
@@ -49,10 +62,7 @@ public class PlanningProcess {
    */
   public PlanningProcess(final MashupPlanner planner, final PlanCollector collector,
                          final PlanningProblem problem) {
-    this.problem = problem;
-    this.planner = planner;
-    this.collector = collector;
-    targetDepth = problem.getMinDepth();
+    this(planner, collector, problem, null, NoOpPlanningListener.getInstance());
   }
 
   /**
@@ -67,8 +77,46 @@ public class PlanningProcess {
    */
   public PlanningProcess(final MashupPlanner planner, final PlanCollector collector, final PlanningProblem problem,
                          final Graph graph) {
-    this(planner, collector, problem);
+    this(planner, collector, problem, graph, NoOpPlanningListener.getInstance());
+  }
+
+  /**
+   * Create a planning process with an optional existing graph, reporting each step to a listener.
+   *
+   * @param planner   a planner
+   * @param collector a plan collector
+   * @param problem   a planning problem
+   * @param graph     a graph of arbitrary depth, null to create a graph using the planner
+   * @param listener  a listener receiving the timing and number of plans of each step
+   */
+  public PlanningProcess(final MashupPlanner planner, final PlanCollector collector, final PlanningProblem problem,
+                         final Graph graph, final PlanningListener listener) {
+    this(planner, collector, problem, graph, listener, null);
+  }
+
+  /**
+   * Create a planning process which does not search plans at depths below an estimated minimum plan depth.
+   * <p/>
+   * The graph is still extended at those depths, because later steps need the extended graph. The minimum plan depth
+   * is estimated once the graph has been created, and the planning process fails when it exceeds the problem's
+   * maximum depth.
+   *
+   * @param planner   a planner
+   * @param collector a plan collector
+   * @param problem   a planning problem
+   * @param graph     a graph of arbitrary depth, null to create a graph using the planner
+   * @param listener  a listener receiving the timing and number of plans of each step
+   * @param estimator an estimator of the minimum plan depth, null to search plans at every depth
+   */
+  public PlanningProcess(final MashupPlanner planner, final PlanCollector collector, final PlanningProblem problem,
+                         final Graph graph, final PlanningListener listener, final PlanDepthEstimator estimator) {
+    this.problem = problem;
+    this.planner = planner;
+    this.collector = collector;
     this.graph = graph;
+    this.listener = listener;
+    this.estimator = estimator;
+    targetDepth = problem.getMinDepth();
   }
 
   /**
@@ -92,6 +140,13 @@ public class PlanningProcess {
     return problem;
   }
 
+  /**
+   * @return the estimated minimum plan depth, zero until the graph has been created
+   */
+  public int getMinPlanDepth() {
+    return minPlanDepth;
+  }
+
   /**
    * @return the current graph, may be null
    */
@@ -112,7 +167,8 @@ public class PlanningProcess {
    * Advance in the planning process, i.e. create/extend the graph and extract plans.
    *
    * @throws PlanningException when the graph cannot be created or extended, the maximal plan depth is exceeded,
-   *                           or the planning process is done
+   *                           the estimated minimum plan depth exceeds the problem's maximum depth, or the planning
+   *                           process is done
    */
   public void advance() throws PlanningException {
     // The max depth is exceeded when target depth overflowed. Also check if the target depth exceeds max depth by
@@ -125,49 +181,91 @@ public class PlanningProcess {
       throw new PlanningException("planning process is already done");
     }
 
+    final long start = System.nanoTime();
+    final int plans;
+
     try {
       evolveGraph();
-      extractPlans();
+      // there are no plans below the minimum plan depth
+      plans = targetDepth < minPlanDepth ? 0 : extractPlans();
     } catch (final Exception ex) {
       // we're done on the first error
       isDone = true;
       throw ex;
     }
 
+    listener.planningAdvanced(targetDepth, plans, System.nanoTime() - start);
+
     // increase target depth for next graph extension
     targetDepth += 1;
   }
 
   /**
-   * Extend {@link #graph} to reach a depth of {@link #targetDepth}.
+   * Extend {@link #graph} to reach a depth of {@link #targetDepth}. Created and extended levels are restricted to the
+   * widgets allowed by the problem, whereas a given graph is used as is.
    *
    * @throws PlanningException when the graph cannot be created or extended
    */
   private void evolveGraph() throws PlanningException {
+    final WidgetConstraints wc = problem.getWidgetConstraints();
     if (graph == null) {
-      graph = planner.createGraph(problem.getGoalMashup());
+      graph = wc.restrictLastLevel(planner.createGraph(problem.getGoalMashup()));
+    }
+    if (minPlanDepth == 0) {
+      minPlanDepth = estimateMinPlanDepth();
+      if (minPlanDepth > problem.getMaxDepth()) {
+        throw new PlanningException("estimated minimum plan depth exceeds maximum depth");
+      }
     }
     while (isExtendable()) {
-      graph = planner.extendGraph(graph);
+      graph = wc.restrictLastLevel(planner.extendGraph(graph));
     }
   }
 
+  /**
+   * @return the estimated minimum plan depth of {@link #graph}, or 1 without an estimator
+   */
+  private int estimateMinPlanDepth() {
+    return estimator == null ? 1 : Math.max(1, estimator.estimateMinDepth(graph));
+  }
+
   /**
    * Extract and collect plans from {@link #graph}.
+   *
+   * Plans using more distinct widgets than allowed by the problem are not collected, because not every extractor
+   * prunes them during extraction. The plans are closed when the collector stops early (see
+   * {@link CloseablePlanIterator}).
+   *
+   * @return the number of collected plans
    */
-  private void extractPlans() {
+  private int extractPlans() {
     final Iterator<Plan> plans = planner.extractPlans(graph, targetDepth);
+    final WidgetConstraints wc = problem.getWidgetConstraints();
+    int n = 0;
 
-    collect:
-    while (plans.hasNext()) {
-      switch (collector.collect(plans.next())) {
-      case SKIP_LEVEL:
-        break collect;
-      case STOP:
-        isDone = true;
-        break collect;
+    try {
+      collect:
+      while (plans.hasNext()) {
+        final Plan p = plans.next();
+        if (!wc.isWithinBudget(p.getGraph())) {
+          continue;
+        }
+        n += 1;
+        switch (collector.collect(p)) {
+        case SKIP_LEVEL:
+          break collect;
+        case STOP:
+          isDone = true;
+          break collect;
+        }
+      }
+    } finally {
+      if (plans instanceof CloseablePlanIterator) {
+        ((CloseablePlanIterator) plans).close();
       }
     }
+
+    return n;
   }
 
   /**
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+
+/**
+ * Constraints on the widgets a plan may use.
+ * <p/>
+ * Widgets are referred to by their identifier. A widget is allowed when it is not denied and either no widgets are
+ * explicitly allowed or the widget is explicitly allowed. The widget budget limits the number of distinct widgets a
+ * plan may use.
+ *
+ * @author Erik Wienhold
+ */
+public final class WidgetConstraints {
+
+  /**
+   * The widget budget allowing any number of widgets.
+   */
+  public static final int UNLIMITED = Integer.MAX_VALUE;
+
+  private static final WidgetConstraints NONE = new WidgetConstraints(
+      ImmutableSet.<Identifier>of(), ImmutableSet.<Identifier>of(), UNLIMITED);
+
+  private final Set<Identifier> allowedWidgets;
+
+  private final Set<Identifier> deniedWidgets;
+
+  private final int maxWidgets;
+
+  /**
+   * @param allowedWidgets identifiers of allowed widgets, empty to allow any widget not denied
+   * @param deniedWidgets  identifiers of denied widgets
+   * @param maxWidgets     the maximum number of distinct widgets
+   */
+  public WidgetConstraints(final Set<Identifier> allowedWidgets, final Set<Identifier> deniedWidgets,
+                           final int maxWidgets) {
+    if (maxWidgets < 1) {
+      throw new IllegalArgumentException("expecting maxWidgets >= 1");
+    }
+    this.allowedWidgets = ImmutableSet.copyOf(allowedWidgets);
+    this.deniedWidgets = ImmutableSet.copyOf(deniedWidgets);
+    this.maxWidgets = maxWidgets;
+  }
+
+  /**
+   * @return constraints allowing any widget without limiting their number
+   */
+  public static WidgetConstraints none() {
+    return NONE;
+  }
+
+  /**
+   * @return identifiers of allowed widgets
+   */
+  public Set<Identifier> getAllowedWidgets() {
+    return allowedWidgets;
+  }
+
+  /**
+   * @return identifiers of denied widgets
+   */
+  public Set<Identifier> getDeniedWidgets() {
+    return deniedWidgets;
+  }
+
+  /**
+   * @return the maximum number of distinct widgets
+   */
+  public int getMaxWidgets() {
+    return maxWidgets;
+  }
+
+  /**
+   * @return true when some widgets are not allowed, false otherwise
+   */
+  public boolean restrictsWidgets() {
+    return !allowedWidgets.isEmpty() || !deniedWidgets.isEmpty();
+  }
+
+  /**
+   * @return true when the number of distinct widgets is limited, false otherwise
+   */
+  public boolean hasWidgetBudget() {
+    return maxWidgets != UNLIMITED;
+  }
+
+  /**
+   * @param widget a widget
+   *
+   * @return true when the widget is allowed, false otherwise
+   */
+  public boolean isAllowed(final Widget widget) {
+    final Identifier id = widget.getIdentifier();
+    return !deniedWidgets.contains(id) && (allowedWidgets.isEmpty() || allowedWidgets.contains(id));
+  }
+
+  /**
+   * @param provision a functionality provision
+   *
+   * @return true when the providing action belongs to an allowed widget, false otherwise
+   */
+  public boolean isAllowed(final FunctionalityProvision provision) {
+    return isAllowed(provision.getProvidingAction().getWidget());
+  }
+
+  /**
+   * @param provision an action provision
+   *
+   * @return true when the precursor and providing actions belong to allowed widgets, false otherwise
+   */
+  public boolean isAllowed(final ActionProvision provision) {
+    for (final Action a : provision.getRequiredActions()) {
+      if (!isAllowed(a.getWidget())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Remove the provisions of a graph's last level which use widgets not allowed, as if the graph had been created or
+   * extended using a {@link WidgetFilteringRepository}.
+   *
+   * @param graph a graph whose other levels only use allowed widgets
+   *
+   * @return a graph with a restricted last level, or the given graph when all provisions are allowed
+   *
+   * @throws PlanningException when some functionality or no required action can be satisfied with allowed widgets
+   */
+  public Graph restrictLastLevel(final Graph graph) throws PlanningException {
+    if (!restrictsWidgets()) {
+      return graph;
+    }
+    if (graph.isExtended()) {
+      return restrictLastExtensionLevel(graph);
+    }
+    return restrictInitialLevel(graph);
+  }
+
+  /**
+   * @param graph a graph
+   *
+   * @return true when the actions required by the graph belong to at most the maximum number of distinct widgets
+   */
+  public boolean isWithinBudget(final Graph graph) {
+    if (!hasWidgetBudget()) {
+      return true;
+    }
+    final Set<Widget> ws = new HashSet<>();
+    for (final Level l : graph.getLevels()) {
+      for (final Action a : l.getRequiredActions()) {
+        if (ws.add(a.getWidget()) && ws.size() > maxWidgets) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private Graph restrictInitialLevel(final Graph graph) throws PlanningException {
+    final InitialLevel il = graph.getInitialLevel();
+    final Set<FunctionalityProvision> fps = new HashSet<>();
+    final Set<Functionality> satisfied = new HashSet<>();
+    for (final FunctionalityProvision fp : il.getFunctionalityProvisions()) {
+      if (isAllowed(fp)) {
+        fps.add(fp);
+        satisfied.add(fp.getRequest());
+      }
+    }
+    if (fps.size() == il.getFunctionalityProvisions().size()) {
+      return graph;
+    }
+    if (!satisfied.equals(il.getRequestedFunctionalities())) {
+      throw new PlanningException("cannot realize all mashup functionalities");
+    }
+    return Graph.create(new InitialLevel(fps));
+  }
+
+  private Graph restrictLastExtensionLevel(final Graph graph) throws PlanningException {
+    final ExtensionLevel xl = graph.getLastExtensionLevel();
+    final Set<ActionProvision> aps = new HashSet<>();
+    for (final ActionProvision ap : xl.getActionProvisions()) {
+      if (isAllowed(ap)) {
+        aps.add(ap);
+      }
+    }
+    if (aps.size() == xl.getActionProvisions().size()) {
+      return graph;
+    }
+    if (aps.isEmpty()) {
+      throw new PlanningException("cannot satisfy any action");
+    }
+    return graph.getBaseGraph().extendWith(xl.isCompact()
+        ? ExtensionLevel.createCompact(aps, xl.getDictionary())
+        : new ExtensionLevel(aps));
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(allowedWidgets, deniedWidgets, maxWidgets);
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return super.equals(other)
+        || other instanceof WidgetConstraints
+        && equals((WidgetConstraints) other);
+  }
+
+  private boolean equals(final WidgetConstraints other) {
+    return maxWidgets == other.maxWidgets
+        && allowedWidgets.equals(other.allowedWidgets)
+        && deniedWidgets.equals(other.deniedWidgets);
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.PublishedProperty;
+import vsr.cobalt.models.RealizedFunctionality;
+import vsr.cobalt.models.Type;
+import vsr.cobalt.models.Widget;
+
+/**
+ * A repository hiding widgets which are not allowed by some widget constraints.
+ * <p/>
+ * Offers and actions of excluded widgets are never returned, hence graph factories and providers using this
+ * repository never add them to a graph.
+ *
+ * @author Erik Wienhold
+ */
+public class WidgetFilteringRepository implements Repository {
+
+  private final Repository repository;
+
+  private final WidgetConstraints constraints;
+
+  /**
+   * @param repository  a repository to filter
+   * @param constraints constraints deciding which widgets are allowed
+   */
+  public WidgetFilteringRepository(final Repository repository, final WidgetConstraints constraints) {
+    this.repository = repository;
+    this.constraints = constraints;
+  }
+
+  /**
+   * @return the filtered repository
+   */
+  public Repository getRepository() {
+    return repository;
+  }
+
+  /**
+   * @return the widget constraints
+   */
+  public WidgetConstraints getConstraints() {
+    return constraints;
+  }
+
+  @Override
+  public Set<Action> getWidgetActions(final Widget widget) {
+    if (!constraints.isAllowed(widget)) {
+      return new HashSet<>();
+    }
+    return repository.getWidgetActions(widget);
+  }
+
+  @Override
+  public Set<RealizedFunctionality> findCompatibleOffers(final Functionality request) {
+    final Set<RealizedFunctionality> rfs = new HashSet<>();
+    for (final RealizedFunctionality rf : repository.findCompatibleOffers(request)) {
+      if (constraints.isAllowed(rf.getAction().getWidget())) {
+        rfs.add(rf);
+      }
+    }
+    return rfs;
+  }
+
+  @Override
+  public Set<PublishedProperty> findCompatibleOffers(final Property request) {
+    final Set<PublishedProperty> pps = new HashSet<>();
+    for (final PublishedProperty pp : repository.findCompatibleOffers(request)) {
+      if (constraints.isAllowed(pp.getAction().getWidget())) {
+        pps.add(pp);
+      }
+    }
+    return pps;
+  }
+
+  @Override
+  public double getDistance(final Functionality request, final Functionality offer) {
+    return repository.getDistance(request, offer);
+  }
+
+  @Override
+  public double getDistance(final Type request, final Type offer) {
+    return repository.getDistance(request, offer);
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+import vsr.cobalt.planner.PlanFingerprinter;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Drops plans which are structurally equivalent to plans already collected. Two plans are structurally equivalent
+ * when they consist of the same provisions, regardless of the levels containing the action provisions.
+ * <p/>
+ * Alternatively the collector identifies plans by their fingerprint, as computed by a {@link PlanFingerprinter}. Plans
+ * are then equivalent when each of their levels requires the same atomic actions, which also covers plans differing
+ * only in the grouping of composite actions. Fingerprints have a fixed size, so remembering them is cheaper than
+ * remembering plan structures.
+ * <p/>
+ * The collector may be limited to remember only a number of most recently collected plans, trading accuracy for
+ * bounded memory.
+ *
+ * @author Erik Wienhold
+ */
+public class DeduplicatingPlanCollector implements PlanCollector {
+
+  private final PlanCollector collector;
+
+  /**
+   * The fingerprinter identifying plans, null when identifying plans by their structure.
+   */
+  private final PlanFingerprinter fingerprinter;
+
+  /**
+   * The structures or fingerprints of collected plans.
+   */
+  private final Set<Object> identities;
+
+  /**
+   * Create a collector remembering all collected plans.
+   *
+   * @param collector a collector receiving the plans
+   */
+  public DeduplicatingPlanCollector(final PlanCollector collector) {
+    this(collector, (PlanFingerprinter) null);
+  }
+
+  /**
+   * Create a collector remembering only a limited number of most recently collected plans.
+   *
+   * @param collector a collector receiving the plans
+   * @param capacity  the maximum number of plans to remember
+   */
+  public DeduplicatingPlanCollector(final PlanCollector collector, final int capacity) {
+    this(collector, null, capacity);
+  }
+
+  /**
+   * Create a collector remembering the fingerprints of all collected plans.
+   *
+   * @param collector     a collector receiving the plans
+   * @param fingerprinter a fingerprinter identifying plans, or null to identify plans by their structure
+   */
+  public DeduplicatingPlanCollector(final PlanCollector collector, final PlanFingerprinter fingerprinter) {
+    this.collector = collector;
+    this.fingerprinter = fingerprinter;
+    identities = new HashSet<>();
+  }
+
+  /**
+   * Create a collector remembering the fingerprints of only a limited number of most recently collected plans.
+   *
+   * @param collector     a collector receiving the plans
+   * @param fingerprinter a fingerprinter identifying plans, or null to identify plans by their structure
+   * @param capacity      the maximum number of plans to remember
+   */
+  public DeduplicatingPlanCollector(final PlanCollector collector, final PlanFingerprinter fingerprinter,
+                                    final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("expecting capacity >= 1");
+    }
+    this.collector = collector;
+    this.fingerprinter = fingerprinter;
+    identities = Collections.newSetFromMap(new LinkedHashMap<Object, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Object, Boolean> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+  /**
+   * @return the collector receiving the plans
+   */
+  public PlanCollector getCollector() {
+    return collector;
+  }
+
+  @Override
+  public Result collect(final Plan plan) {
+    if (identities.add(getIdentity(plan))) {
+      return collector.collect(plan);
+    }
+    return Result.CONTINUE;
+  }
+
+  private Object getIdentity(final Plan plan) {
+    return fingerprinter == null
+        ? getStructure(plan)
+        : fingerprinter.fingerprint(plan);
+  }
+
+  /**
+   * Get a plan's structure, i.e. the set of all its provisions.
+   *
+   * @param plan a plan
+   *
+   * @return the plan's structure
+   */
+  private static Set<Object> getStructure(final Plan plan) {
+    final Graph g = plan.getGraph();
+    final Set<Object> ps = new HashSet<>();
+    ps.addAll(g.getInitialLevel().getFunctionalityProvisions());
+    for (final ExtensionLevel xl : g.getExtensionLevels()) {
+      ps.addAll(xl.getActionProvisions());
+    }
+    return ps;
+  }
+
+}
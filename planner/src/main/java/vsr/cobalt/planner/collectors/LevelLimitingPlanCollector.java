@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+
+/**
+ * Limits the number of plans collected per level, i.e. per plan depth, and skips the remaining plans of a level when
+ * the limit is reached.
+ *
+ * @author Erik Wienhold
+ */
+public class LevelLimitingPlanCollector implements PlanCollector {
+
+  private final PlanCollector collector;
+
+  private final int limit;
+
+  /**
+   * The depth of the previously collected plan.
+   */
+  private int depth;
+
+  /**
+   * The number of plans collected with the current depth.
+   */
+  private int count;
+
+  /**
+   * @param collector a collector receiving the plans
+   * @param limit     the maximum number of plans per level
+   */
+  public LevelLimitingPlanCollector(final PlanCollector collector, final int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("expecting limit >= 1");
+    }
+    this.collector = collector;
+    this.limit = limit;
+  }
+
+  /**
+   * @return the collector receiving the plans
+   */
+  public PlanCollector getCollector() {
+    return collector;
+  }
+
+  /**
+   * @return the maximum number of plans per level
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public Result collect(final Plan plan) {
+    final int d = plan.getGraph().getDepth();
+    if (d != depth) {
+      depth = d;
+      count = 0;
+    }
+
+    final Result r = collector.collect(plan);
+    count += 1;
+
+    if (r == Result.CONTINUE && count >= limit) {
+      return Result.SKIP_LEVEL;
+    }
+    return r;
+  }
+
+}
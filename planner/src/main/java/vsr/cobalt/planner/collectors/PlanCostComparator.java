@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import java.util.Comparator;
+
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.extractors.ProvisionCostFunction;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Orders plans by their total cost in ascending order. The total cost of a plan is the sum of the costs of all its
+ * provisions.
+ *
+ * @author Erik Wienhold
+ */
+public class PlanCostComparator implements Comparator<Plan> {
+
+  private final ProvisionCostFunction costFunction;
+
+  /**
+   * @param costFunction a function determining the cost of provisions
+   */
+  public PlanCostComparator(final ProvisionCostFunction costFunction) {
+    this.costFunction = costFunction;
+  }
+
+  /**
+   * @return the provision cost function
+   */
+  public ProvisionCostFunction getCostFunction() {
+    return costFunction;
+  }
+
+  @Override
+  public int compare(final Plan p1, final Plan p2) {
+    return Double.compare(getCost(p1), getCost(p2));
+  }
+
+  /**
+   * Determine the total cost of a plan.
+   *
+   * @param plan a plan
+   *
+   * @return the plan's total cost
+   */
+  public double getCost(final Plan plan) {
+    final Graph g = plan.getGraph();
+    double cost = 0;
+    for (final FunctionalityProvision fp : g.getInitialLevel().getFunctionalityProvisions()) {
+      cost += costFunction.getCost(fp);
+    }
+    for (final ExtensionLevel xl : g.getExtensionLevels()) {
+      for (final ActionProvision ap : xl.getActionProvisions()) {
+        cost += costFunction.getCost(ap);
+      }
+    }
+    return cost;
+  }
+
+}
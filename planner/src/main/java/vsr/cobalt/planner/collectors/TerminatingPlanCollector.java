@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+
+/**
+ * Stops the planning process when a plan budget is exhausted or a deadline has passed.
+ * <p/>
+ * The deadline is only checked when collecting a plan, so the planning process may overrun the deadline while
+ * searching for the next plan.
+ *
+ * @author Erik Wienhold
+ */
+public class TerminatingPlanCollector implements PlanCollector {
+
+  private final PlanCollector collector;
+
+  private final int budget;
+
+  private final Ticker ticker;
+
+  /**
+   * The deadline in nanoseconds according to {@link #ticker}.
+   */
+  private final long deadline;
+
+  private int count;
+
+  /**
+   * @param collector a collector receiving the plans
+   * @param budget    the maximum number of plans to collect
+   * @param timeout   the time from now until the deadline
+   * @param unit      the unit of the timeout
+   * @param ticker    a time source
+   */
+  public TerminatingPlanCollector(final PlanCollector collector, final int budget, final long timeout,
+                                  final TimeUnit unit, final Ticker ticker) {
+    if (budget < 1) {
+      throw new IllegalArgumentException("expecting budget >= 1");
+    }
+    if (timeout < 0) {
+      throw new IllegalArgumentException("expecting timeout >= 0");
+    }
+    this.collector = collector;
+    this.budget = budget;
+    this.ticker = ticker;
+    deadline = ticker.read() + unit.toNanos(timeout);
+  }
+
+  /**
+   * @param collector a collector receiving the plans
+   * @param budget    the maximum number of plans to collect
+   * @param timeout   the time from now until the deadline
+   * @param unit      the unit of the timeout
+   */
+  public TerminatingPlanCollector(final PlanCollector collector, final int budget, final long timeout,
+                                  final TimeUnit unit) {
+    this(collector, budget, timeout, unit, Ticker.systemTicker());
+  }
+
+  /**
+   * Create a collector with a plan budget only.
+   *
+   * @param collector a collector receiving the plans
+   * @param budget    the maximum number of plans to collect
+   */
+  public TerminatingPlanCollector(final PlanCollector collector, final int budget) {
+    this(collector, budget, Long.MAX_VALUE, TimeUnit.NANOSECONDS, new Ticker() {
+      @Override
+      public long read() {
+        return 0;
+      }
+    });
+  }
+
+  /**
+   * @return the collector receiving the plans
+   */
+  public PlanCollector getCollector() {
+    return collector;
+  }
+
+  /**
+   * @return the maximum number of plans to collect
+   */
+  public int getBudget() {
+    return budget;
+  }
+
+  /**
+   * @return true when the plan budget is exhausted or the deadline has passed, false otherwise
+   */
+  public boolean isTerminated() {
+    return count >= budget || ticker.read() - deadline >= 0;
+  }
+
+  @Override
+  public Result collect(final Plan plan) {
+    if (isTerminated()) {
+      return Result.STOP;
+    }
+
+    final Result r = collector.collect(plan);
+    count += 1;
+
+    if (isTerminated()) {
+      return Result.STOP;
+    }
+    return r;
+  }
+
+}
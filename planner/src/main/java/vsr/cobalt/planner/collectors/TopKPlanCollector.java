@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+import vsr.cobalt.planner.extractors.ProvisionCostFunction;
+
+/**
+ * Keeps the best plans according to some order, using a bounded heap. At most the given number of plans are held at
+ * any time, regardless of how many plans are collected.
+ *
+ * @author Erik Wienhold
+ */
+public class TopKPlanCollector implements PlanCollector {
+
+  private final int capacity;
+
+  private final Comparator<? super Plan> comparator;
+
+  /**
+   * The best plans collected so far, with the worst one at the head.
+   */
+  private final PriorityQueue<Plan> plans;
+
+  /**
+   * @param capacity   the number of plans to keep
+   * @param comparator an order on plans, where lesser plans are better
+   */
+  public TopKPlanCollector(final int capacity, final Comparator<? super Plan> comparator) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("expecting capacity >= 1");
+    }
+    this.capacity = capacity;
+    this.comparator = comparator;
+    plans = new PriorityQueue<>(capacity, Collections.reverseOrder(comparator));
+  }
+
+  /**
+   * @param capacity     the number of plans to keep
+   * @param costFunction a function determining the cost of provisions, preferring plans with lesser total cost
+   */
+  public TopKPlanCollector(final int capacity, final ProvisionCostFunction costFunction) {
+    this(capacity, new PlanCostComparator(costFunction));
+  }
+
+  /**
+   * @return the number of plans to keep
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the order on plans
+   */
+  public Comparator<? super Plan> getComparator() {
+    return comparator;
+  }
+
+  /**
+   * @return the best plans collected so far, ordered from best to worst
+   */
+  public List<Plan> getPlans() {
+    final List<Plan> ps = new ArrayList<>(plans);
+    Collections.sort(ps, comparator);
+    return ps;
+  }
+
+  @Override
+  public Result collect(final Plan plan) {
+    if (plans.size() < capacity) {
+      plans.add(plan);
+    } else if (comparator.compare(plan, plans.peek()) < 0) {
+      plans.poll();
+      plans.add(plan);
+    }
+    return Result.CONTINUE;
+  }
+
+}
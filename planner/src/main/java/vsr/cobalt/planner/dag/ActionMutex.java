@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.dag;
+
+import java.util.Objects;
+
+import vsr.cobalt.models.Action;
+
+/**
+ * Annotates a pair of actions which must not be required by the same level of a plan.
+ *
+ * @author Erik Wienhold
+ */
+public final class ActionMutex {
+
+  private final int level;
+
+  private final Action first;
+
+  private final Action second;
+
+  /**
+   * @param level  the index of the level where both actions are mutex
+   * @param first  an action
+   * @param second another action
+   */
+  public ActionMutex(final int level, final Action first, final Action second) {
+    this.level = level;
+    this.first = first;
+    this.second = second;
+  }
+
+  /**
+   * @return the index of the level where both actions are mutex, zero for the initial level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  public Action getFirst() {
+    return first;
+  }
+
+  public Action getSecond() {
+    return second;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(level, first.hashCode() + second.hashCode());
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return super.equals(other)
+        || other instanceof ActionMutex
+        && equals((ActionMutex) other);
+  }
+
+  private boolean equals(final ActionMutex other) {
+    return level == other.level
+        && (first.equals(other.first) && second.equals(other.second)
+        || first.equals(other.second) && second.equals(other.first));
+  }
+
+}
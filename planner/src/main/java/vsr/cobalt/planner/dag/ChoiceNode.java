@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.dag;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An OR node choosing one of several provisions satisfying the same request in a specific level.
+ *
+ * @param <R> the type of request
+ * @param <P> the type of provisions
+ *
+ * @author Erik Wienhold
+ */
+public final class ChoiceNode<R, P> {
+
+  private final int id;
+
+  private final int level;
+
+  private final R request;
+
+  private final List<ProvisionNode<P>> alternatives;
+
+  /**
+   * @param id           an identifier unique among choices of the same type of request
+   * @param level        the index of the level containing the alternatives
+   * @param request      the requested object
+   * @param alternatives the provisions to choose from
+   */
+  public ChoiceNode(final int id, final int level, final R request, final List<ProvisionNode<P>> alternatives) {
+    this.id = id;
+    this.level = level;
+    this.request = request;
+    this.alternatives = Collections.unmodifiableList(alternatives);
+  }
+
+  /**
+   * @return the identifier
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * @return the index of the level containing the alternatives, zero for the initial level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * @return the requested object
+   */
+  public R getRequest() {
+    return request;
+  }
+
+  /**
+   * @return the provisions to choose from
+   */
+  public List<ProvisionNode<P>> getAlternatives() {
+    return alternatives;
+  }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.dag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.graph.ActionMutexIndex;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+
+/**
+ * A factored representation of all plans of a graph up to a maximum depth.
+ * <p/>
+ * The plans form an AND/OR graph, where each choice node (OR) selects one provision for a requested functionality or
+ * action, and each provision node (AND) requires a choice for each of its unsatisfied required actions. Choices for
+ * the same action in the same level are shared, thus the size of the graph grows with the sum of choices, whereas the
+ * number of plans grows with their product.
+ * <p/>
+ * A plan results from selecting one alternative for each root choice and, recursively, for each choice required by
+ * a selected provision. Only provisions that can be satisfied within the maximum depth are included. Mutex actions
+ * are not excluded but annotated, i.e. a selection is only a valid plan when no two actions required by the same
+ * level are mutex in that level.
+ *
+ * @author Erik Wienhold
+ */
+public final class PlanDag {
+
+  private final int maxDepth;
+
+  private final List<ChoiceNode<Functionality, FunctionalityProvision>> functionalityChoices;
+
+  private final List<ChoiceNode<Action, ActionProvision>> actionChoices;
+
+  private final List<ActionMutex> mutexes;
+
+  private PlanDag(final int maxDepth,
+                  final List<ChoiceNode<Functionality, FunctionalityProvision>> functionalityChoices,
+                  final List<ChoiceNode<Action, ActionProvision>> actionChoices,
+                  final List<ActionMutex> mutexes) {
+    this.maxDepth = maxDepth;
+    this.functionalityChoices = Collections.unmodifiableList(functionalityChoices);
+    this.actionChoices = Collections.unmodifiableList(actionChoices);
+    this.mutexes = Collections.unmodifiableList(mutexes);
+  }
+
+  /**
+   * Create a plan DAG from a graph.
+   *
+   * @param graph    a graph
+   * @param maxDepth the maximum depth of plans
+   *
+   * @return a plan DAG
+   */
+  public static PlanDag create(final Graph graph, final int maxDepth) {
+    if (maxDepth < 1) {
+      throw new IllegalArgumentException("expecting maxDepth >= 1");
+    }
+    return new Builder(graph, maxDepth).build();
+  }
+
+  /**
+   * Create a plan DAG from a graph, including plans of any depth up to the graph's depth.
+   *
+   * @param graph a graph
+   *
+   * @return a plan DAG
+   */
+  public static PlanDag create(final Graph graph) {
+    return create(graph, graph.getDepth());
+  }
+
+  /**
+   * @return the maximum depth of plans
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * @return the root choices, one for each requested functionality
+   */
+  public List<ChoiceNode<Functionality, FunctionalityProvision>> getFunctionalityChoices() {
+    return functionalityChoices;
+  }
+
+  /**
+   * @return all choices for actions, ordered by their identifier, where each choice succeeds the choices required by
+   * its alternatives
+   */
+  public List<ChoiceNode<Action, ActionProvision>> getActionChoices() {
+    return actionChoices;
+  }
+
+  /**
+   * @return mutex actions required by the same level
+   */
+  public List<ActionMutex> getMutexes() {
+    return mutexes;
+  }
+
+  /**
+   * @return true when there are no plans, i.e. a requested functionality cannot be satisfied
+   */
+  public boolean isEmpty() {
+    for (final ChoiceNode<Functionality, FunctionalityProvision> c : functionalityChoices) {
+      if (c.getAlternatives().isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class Builder {
+
+    private final Graph graph;
+
+    private final int maxDepth;
+
+    private final List<ChoiceNode<Action, ActionProvision>> actionChoices = new ArrayList<>();
+
+    /**
+     * For each level index, the choices by requested action. Maps to null when an action cannot be satisfied.
+     */
+    private final List<Map<Action, ChoiceNode<Action, ActionProvision>>> index = new ArrayList<>();
+
+    /**
+     * For each level index, the actions required by included provisions.
+     */
+    private final List<Set<Action>> requiredActions = new ArrayList<>();
+
+    public Builder(final Graph graph, final int maxDepth) {
+      this.graph = graph;
+      this.maxDepth = Math.min(maxDepth, graph.getDepth());
+      for (int i = 0; i < this.maxDepth; i += 1) {
+        index.add(new HashMap<Action, ChoiceNode<Action, ActionProvision>>());
+        requiredActions.add(new LinkedHashSet<Action>());
+      }
+    }
+
+    public PlanDag build() {
+      final InitialLevel il = graph.getInitialLevel();
+      final List<ChoiceNode<Functionality, FunctionalityProvision>> fcs = new ArrayList<>();
+      for (final Functionality f : il.getRequestedFunctionalities()) {
+        final List<ProvisionNode<FunctionalityProvision>> alts = new ArrayList<>();
+        for (final FunctionalityProvision fp : il.getFunctionalityProvisionsByRequestedFunctionality(f)) {
+          final List<ChoiceNode<Action, ActionProvision>> reqs = getRequirements(0, setOf(fp.getProvidingAction()));
+          if (reqs != null) {
+            alts.add(new ProvisionNode<>(fp, reqs));
+            requiredActions.get(0).add(fp.getProvidingAction());
+          }
+        }
+        fcs.add(new ChoiceNode<>(fcs.size(), 0, f, alts));
+      }
+      return new PlanDag(maxDepth, fcs, actionChoices, getMutexes());
+    }
+
+    /**
+     * Get the choices satisfying a set of actions required by a level.
+     *
+     * @param level   the index of the level requiring the actions
+     * @param actions the required actions
+     *
+     * @return the choices for each unsatisfied action, null when any action cannot be satisfied
+     */
+    private List<ChoiceNode<Action, ActionProvision>> getRequirements(final int level, final Set<Action> actions) {
+      final List<ChoiceNode<Action, ActionProvision>> cs = new ArrayList<>();
+      for (final Action a : actions) {
+        if (!a.isEnabled()) {
+          final ChoiceNode<Action, ActionProvision> c = getChoice(level + 1, a);
+          if (c == null) {
+            return null;
+          }
+          cs.add(c);
+        }
+      }
+      return cs;
+    }
+
+    /**
+     * Get the choice for an action.
+     *
+     * @param level  the index of the level containing the alternatives
+     * @param action the requested action
+     *
+     * @return the choice, null when the action cannot be satisfied
+     */
+    private ChoiceNode<Action, ActionProvision> getChoice(final int level, final Action action) {
+      if (level >= maxDepth) {
+        return null;
+      }
+
+      final Map<Action, ChoiceNode<Action, ActionProvision>> m = index.get(level);
+      if (m.containsKey(action)) {
+        return m.get(action);
+      }
+
+      final List<ProvisionNode<ActionProvision>> alts = new ArrayList<>();
+      for (final ActionProvision ap : graph.getExtensionLevel(level - 1).getActionProvisionsByRequestedAction(action)) {
+        final List<ChoiceNode<Action, ActionProvision>> reqs = getRequirements(level, ap.getRequiredActions());
+        if (reqs != null) {
+          alts.add(new ProvisionNode<>(ap, reqs));
+          requiredActions.get(level).addAll(ap.getRequiredActions());
+        }
+      }
+
+      ChoiceNode<Action, ActionProvision> c = null;
+      if (!alts.isEmpty()) {
+        c = new ChoiceNode<>(actionChoices.size(), level, action, alts);
+        actionChoices.add(c);
+      }
+      m.put(action, c);
+      return c;
+    }
+
+    private List<ActionMutex> getMutexes() {
+      final ActionMutexIndex ami = new ActionMutexIndex(graph);
+      final List<ActionMutex> ms = new ArrayList<>();
+      for (int i = 0; i < maxDepth; i += 1) {
+        final Level l = getLevel(i);
+        if (!ami.hasMutexActions(l)) {
+          continue;
+        }
+        final List<Action> as = new ArrayList<>(requiredActions.get(i));
+        for (int j = 0; j < as.size(); j += 1) {
+          for (int k = j + 1; k < as.size(); k += 1) {
+            if (ami.isMutex(l, as.get(j), as.get(k))) {
+              ms.add(new ActionMutex(i, as.get(j), as.get(k)));
+            }
+          }
+        }
+      }
+      return ms;
+    }
+
+    private Level getLevel(final int level) {
+      return level == 0
+          ? graph.getInitialLevel()
+          : graph.getExtensionLevel(level - 1);
+    }
+
+    private static Set<Action> setOf(final Action action) {
+      return Collections.singleton(action);
+    }
+
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.dag;
+
+import java.util.Collections;
+import java.util.List;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.planner.graph.ActionProvision;
+
+/**
+ * An AND node requiring a choice for each unsatisfied action required by a provision.
+ *
+ * @param <P> the type of provision
+ *
+ * @author Erik Wienhold
+ */
+public final class ProvisionNode<P> {
+
+  private final P provision;
+
+  private final List<ChoiceNode<Action, ActionProvision>> requirements;
+
+  /**
+   * @param provision    a provision
+   * @param requirements the choices satisfying the provision's required actions
+   */
+  public ProvisionNode(final P provision, final List<ChoiceNode<Action, ActionProvision>> requirements) {
+    this.provision = provision;
+    this.requirements = Collections.unmodifiableList(requirements);
+  }
+
+  /**
+   * @return the provision
+   */
+  public P getProvision() {
+    return provision;
+  }
+
+  /**
+   * @return the choices satisfying the provision's required actions, empty when all required actions are enabled
+   */
+  public List<ChoiceNode<Action, ActionProvision>> getRequirements() {
+    return requirements;
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.decomposition;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+
+/**
+ * Lazily combines the plans of independent components by enumerating their cross-product.
+ * <p/>
+ * A combined plan merges the levels of one plan per component, aligned at their initial levels, and has the depth of
+ * its deepest component plan. Only components sharing widgets can produce conflicting plans, hence combinations are
+ * validated only when the decomposition has shared widgets, skipping any combination not forming a valid plan.
+ *
+ * @author Erik Wienhold
+ */
+class CombinedPlanIterator extends AbstractIterator<Plan> {
+
+  private final List<List<Plan>> plans;
+
+  private final int minDepth;
+
+  private final boolean validate;
+
+  /**
+   * The current plan index of each component, null before the first combination.
+   */
+  private int[] indexes;
+
+  /**
+   * @param decomposition the decomposition of the goal mashup
+   * @param plans         the plans of each component, in the same order as the components
+   * @param minDepth      the minimum depth of combined plans
+   */
+  public CombinedPlanIterator(final Decomposition decomposition, final List<List<Plan>> plans, final int minDepth) {
+    if (decomposition.size() != plans.size()) {
+      throw new IllegalArgumentException("expecting plans for each component");
+    }
+    this.plans = ImmutableList.copyOf(plans);
+    this.minDepth = minDepth;
+    validate = decomposition.hasSharedWidgets();
+  }
+
+  @Override
+  protected Plan computeNext() {
+    while (advance()) {
+      final Plan p = combine();
+      if (p != null) {
+        return p;
+      }
+    }
+    return endOfData();
+  }
+
+  /**
+   * Advance to the next combination like an odometer, with the last component changing fastest.
+   *
+   * @return true when there is another combination, false otherwise
+   */
+  private boolean advance() {
+    if (indexes == null) {
+      for (final List<Plan> ps : plans) {
+        if (ps.isEmpty()) {
+          return false;
+        }
+      }
+      indexes = new int[plans.size()];
+      return true;
+    }
+    for (int i = indexes.length - 1; i >= 0; i -= 1) {
+      indexes[i] += 1;
+      if (indexes[i] < plans.get(i).size()) {
+        return true;
+      }
+      indexes[i] = 0;
+    }
+    return false;
+  }
+
+  /**
+   * @return the combined plan of the current combination, null when the combination is not a valid plan
+   */
+  private Plan combine() {
+    final List<Graph> gs = new ArrayList<>(indexes.length);
+    int depth = 0;
+    for (int i = 0; i < indexes.length; i += 1) {
+      final Graph g = plans.get(i).get(indexes[i]).getGraph();
+      gs.add(g);
+      depth = Math.max(depth, g.getDepth());
+    }
+
+    if (depth < minDepth) {
+      return null;
+    }
+
+    final Graph g = merge(gs, depth);
+
+    if (!validate) {
+      return new Plan(g);
+    }
+
+    try {
+      return new Plan(g);
+    } catch (final IllegalArgumentException ignored) {
+      // component plans sharing widgets require conflicting provisions or mutex actions
+      return null;
+    }
+  }
+
+  private static Graph merge(final List<Graph> graphs, final int depth) {
+    final Set<FunctionalityProvision> fps = new HashSet<>();
+    for (final Graph g : graphs) {
+      fps.addAll(g.getInitialLevel().getFunctionalityProvisions());
+    }
+
+    final List<ExtensionLevel> xls = new ArrayList<>(depth - 1);
+    for (int i = 0; i < depth - 1; i += 1) {
+      final Set<ActionProvision> aps = new HashSet<>();
+      for (final Graph g : graphs) {
+        if (i < g.getExtensionDepth()) {
+          aps.addAll(g.getExtensionLevel(i).getActionProvisions());
+        }
+      }
+      xls.add(new ExtensionLevel(aps));
+    }
+
+    return Graph.create(new InitialLevel(fps), xls);
+  }
+
+}
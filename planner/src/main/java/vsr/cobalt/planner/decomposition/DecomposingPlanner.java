@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.decomposition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.planner.MashupPlanner;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.PlanningProcess;
+import vsr.cobalt.planner.WidgetConstraints;
+
+/**
+ * Plans the independent components of a goal mashup in parallel and lazily combines their plans.
+ * <p/>
+ * Each component is planned as its own planning problem, up to the maximum depth of the original problem, so the
+ * graphs and the number of plans to extract grow with each component rather than with their product. The plans of
+ * all components are combined on demand, yielding plans with a depth within the range of the original problem.
+ *
+ * @author Erik Wienhold
+ */
+public class DecomposingPlanner {
+
+  private final MashupPlanner planner;
+
+  private final GoalDecomposer decomposer;
+
+  private final ExecutorService executor;
+
+  /**
+   * @param planner    a planner used for each component
+   * @param decomposer a decomposer partitioning goal mashups
+   * @param executor   an executor planning the components
+   */
+  public DecomposingPlanner(final MashupPlanner planner, final GoalDecomposer decomposer,
+                            final ExecutorService executor) {
+    this.planner = planner;
+    this.decomposer = decomposer;
+    this.executor = executor;
+  }
+
+  /**
+   * @return the planner used for each component
+   */
+  public MashupPlanner getPlanner() {
+    return planner;
+  }
+
+  /**
+   * @return the goal decomposer
+   */
+  public GoalDecomposer getDecomposer() {
+    return decomposer;
+  }
+
+  /**
+   * Plan all components of a planning problem and combine their plans.
+   *
+   * @param problem a planning problem
+   *
+   * @return an iterator of combined plans
+   *
+   * @throws PlanningException when any component cannot be planned
+   */
+  public Iterator<Plan> plan(final PlanningProblem problem) throws PlanningException {
+    final Decomposition d = decomposer.decompose(problem.getGoalMashup());
+
+    final List<Future<List<Plan>>> futures = new ArrayList<>(d.size());
+    for (final Mashup m : d.getComponents()) {
+      // plans of any depth may combine with deeper plans of other components
+      final PlanningProblem pp = new PlanningProblem(m, PlanningProblem.MIN_DEPTH, problem.getMaxDepth(),
+          problem.getWidgetConstraints());
+      futures.add(executor.submit(createPlanningTask(pp)));
+    }
+
+    final List<List<Plan>> plans = new ArrayList<>(d.size());
+    try {
+      for (final Future<List<Plan>> f : futures) {
+        plans.add(getPlans(f));
+      }
+    } finally {
+      // no need to plan the remaining components once any component fails
+      for (final Future<List<Plan>> f : futures) {
+        f.cancel(true);
+      }
+    }
+
+    final Iterator<Plan> combined = new CombinedPlanIterator(d, plans, problem.getMinDepth());
+    final WidgetConstraints wc = problem.getWidgetConstraints();
+    if (!wc.hasWidgetBudget()) {
+      return combined;
+    }
+    // components may share widgets, so only the combined plans can be checked against the budget
+    return Iterators.filter(combined, new Predicate<Plan>() {
+      @Override
+      public boolean apply(final Plan plan) {
+        return wc.isWithinBudget(plan.getGraph());
+      }
+    });
+  }
+
+  private Callable<List<Plan>> createPlanningTask(final PlanningProblem problem) {
+    return new Callable<List<Plan>>() {
+      @Override
+      public List<Plan> call() throws PlanningException {
+        final List<Plan> plans = new ArrayList<>();
+
+        final PlanningProcess process = new PlanningProcess(planner, new PlanCollector() {
+          @Override
+          public Result collect(final Plan plan) {
+            plans.add(plan);
+            return Result.CONTINUE;
+          }
+        }, problem);
+
+        while (!process.isDone()) {
+          try {
+            process.advance();
+          } catch (final PlanningException ex) {
+            // it's only a failure when there are no plans
+            if (plans.isEmpty()) {
+              throw ex;
+            }
+          }
+        }
+
+        return plans;
+      }
+    };
+  }
+
+  private static List<Plan> getPlans(final Future<List<Plan>> future) throws PlanningException {
+    try {
+      return Collections.unmodifiableList(future.get());
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new PlanningException("interrupted while planning components", ex);
+    } catch (final ExecutionException ex) {
+      if (ex.getCause() instanceof PlanningException) {
+        throw (PlanningException) ex.getCause();
+      }
+      throw new PlanningException(ex.getCause());
+    }
+  }
+
+}
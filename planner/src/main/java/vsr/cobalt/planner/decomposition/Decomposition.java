@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.decomposition;
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.models.Widget;
+
+/**
+ * The result of partitioning a goal mashup into independent components.
+ * <p/>
+ * Each component is a mashup realizing a subset of the goal functionalities. Actions of different components never
+ * depend on properties of the same type, thus the components can be planned independently. Components may still use
+ * the same widgets, in which case their plans may conflict when combined.
+ *
+ * @author Erik Wienhold
+ */
+public final class Decomposition {
+
+  private final List<Mashup> components;
+
+  private final List<Set<Widget>> widgets;
+
+  /**
+   * @param components a non-empty list of component mashups
+   * @param widgets    the widgets possibly used by each component, in the same order as the components
+   */
+  public Decomposition(final List<Mashup> components, final List<Set<Widget>> widgets) {
+    if (components.isEmpty()) {
+      throw new IllegalArgumentException("expecting one or more components");
+    }
+    if (components.size() != widgets.size()) {
+      throw new IllegalArgumentException("expecting widgets for each component");
+    }
+    this.components = ImmutableList.copyOf(components);
+    this.widgets = ImmutableList.copyOf(widgets);
+  }
+
+  /**
+   * @return the number of components
+   */
+  public int size() {
+    return components.size();
+  }
+
+  /**
+   * @return true when there is more than one component, false otherwise
+   */
+  public boolean isDecomposed() {
+    return components.size() > 1;
+  }
+
+  /**
+   * @return the component mashups
+   */
+  public List<Mashup> getComponents() {
+    return components;
+  }
+
+  /**
+   * @param index the index of a component
+   *
+   * @return the widgets possibly used by the component
+   */
+  public Set<Widget> getWidgets(final int index) {
+    return widgets.get(index);
+  }
+
+  /**
+   * Check if two components possibly use the same widgets.
+   *
+   * @param index1 the index of a component
+   * @param index2 the index of another component
+   *
+   * @return true when both components share any widget, false otherwise
+   */
+  public boolean sharesWidgets(final int index1, final int index2) {
+    return !Sets.intersection(widgets.get(index1), widgets.get(index2)).isEmpty();
+  }
+
+  /**
+   * @return true when any two components share widgets, false otherwise
+   */
+  public boolean hasSharedWidgets() {
+    for (int i = 0; i < widgets.size(); i += 1) {
+      for (int j = i + 1; j < widgets.size(); j += 1) {
+        if (sharesWidgets(i, j)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+}
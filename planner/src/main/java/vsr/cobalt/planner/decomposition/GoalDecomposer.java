@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.decomposition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.PublishedProperty;
+import vsr.cobalt.models.RealizedFunctionality;
+import vsr.cobalt.models.Type;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.Repository;
+
+/**
+ * Partitions the functionalities of a goal mashup into independent components.
+ * <p/>
+ * For each goal functionality the decomposer determines the actions possibly taking part in its realization: the
+ * actions offering the functionality, the actions publishing properties compatible to their pre-conditions, and the
+ * actions of their widgets serving as precursors, transitively. Two functionalities are dependent when any of their
+ * actions use properties of the same type, because only then may an action of one realization satisfy or interfere
+ * with an action of the other. Components are the connected sets of dependent functionalities.
+ *
+ * @author Erik Wienhold
+ */
+public class GoalDecomposer {
+
+  private final Repository repository;
+
+  /**
+   * @param repository a repository providing offers and widget actions
+   */
+  public GoalDecomposer(final Repository repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * @return the repository
+   */
+  public Repository getRepository() {
+    return repository;
+  }
+
+  /**
+   * Partition a goal mashup into independent components.
+   *
+   * @param mashup a goal mashup
+   *
+   * @return a decomposition with a single component when the functionalities cannot be partitioned
+   */
+  public Decomposition decompose(final Mashup mashup) {
+    final List<Functionality> fs = new ArrayList<>(mashup.getFunctionalities());
+    final List<Footprint> footprints = new ArrayList<>(fs.size());
+    final int[] parents = new int[fs.size()];
+
+    // merge the components of functionalities whose footprints share any property type
+    final Map<Type, Integer> owners = new HashMap<>();
+    for (int i = 0; i < fs.size(); i += 1) {
+      final Footprint fp = getFootprint(fs.get(i));
+      footprints.add(fp);
+      parents[i] = i;
+      for (final Type t : fp.types) {
+        final Integer j = owners.get(t);
+        if (j == null) {
+          owners.put(t, i);
+        } else {
+          union(parents, i, j);
+        }
+      }
+    }
+
+    // group functionalities and widgets by component root, preserving the order of the goal functionalities
+    final Map<Integer, Set<Functionality>> functionalities = new LinkedHashMap<>();
+    final Map<Integer, Set<Widget>> widgets = new HashMap<>();
+    for (int i = 0; i < fs.size(); i += 1) {
+      final int r = find(parents, i);
+      if (!functionalities.containsKey(r)) {
+        functionalities.put(r, new HashSet<Functionality>());
+        widgets.put(r, new HashSet<Widget>());
+      }
+      functionalities.get(r).add(fs.get(i));
+      widgets.get(r).addAll(footprints.get(i).widgets);
+    }
+
+    final List<Mashup> cs = new ArrayList<>(functionalities.size());
+    final List<Set<Widget>> ws = new ArrayList<>(functionalities.size());
+    for (final Map.Entry<Integer, Set<Functionality>> e : functionalities.entrySet()) {
+      cs.add(new Mashup(e.getValue()));
+      ws.add(widgets.get(e.getKey()));
+    }
+
+    return new Decomposition(cs, ws);
+  }
+
+  /**
+   * Determine the widgets and property types of all actions possibly taking part in the realization of a
+   * functionality.
+   */
+  private Footprint getFootprint(final Functionality functionality) {
+    final Footprint fp = new Footprint();
+    final Set<Action> visited = new HashSet<>();
+    final Queue<Action> queue = new ArrayDeque<>();
+
+    for (final RealizedFunctionality rf : repository.findCompatibleOffers(functionality)) {
+      if (visited.add(rf.getAction())) {
+        queue.add(rf.getAction());
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      final Action a = queue.remove();
+
+      final Widget w = a.getWidget();
+      if (fp.widgets.add(w)) {
+        // actions of the same widget may serve as precursors
+        for (final Action wa : repository.getWidgetActions(w)) {
+          if (visited.add(wa)) {
+            queue.add(wa);
+          }
+        }
+      }
+
+      for (final Property p : a.getPreConditions().getFilledProperties()) {
+        for (final PublishedProperty pp : repository.findCompatibleOffers(p)) {
+          if (visited.add(pp.getAction())) {
+            queue.add(pp.getAction());
+          }
+        }
+      }
+
+      addTypes(fp.types, a);
+    }
+
+    return fp;
+  }
+
+  private static void addTypes(final Set<Type> types, final Action action) {
+    for (final Property p : action.getPreConditions().getClearedProperties()) {
+      types.add(p.getType());
+    }
+    for (final Property p : action.getPreConditions().getFilledProperties()) {
+      types.add(p.getType());
+    }
+    for (final Property p : action.getEffects().getClearedProperties()) {
+      types.add(p.getType());
+    }
+    for (final Property p : action.getEffects().getFilledProperties()) {
+      types.add(p.getType());
+    }
+  }
+
+  private static int find(final int[] parents, final int i) {
+    int r = i;
+    while (parents[r] != r) {
+      r = parents[r];
+    }
+    // compress the path to speed up subsequent lookups
+    int j = i;
+    while (parents[j] != r) {
+      final int k = parents[j];
+      parents[j] = r;
+      j = k;
+    }
+    return r;
+  }
+
+  private static void union(final int[] parents, final int i, final int j) {
+    final int ri = find(parents, i);
+    final int rj = find(parents, j);
+    if (ri != rj) {
+      // keep the smaller root to retain the order of the goal functionalities
+      parents[Math.max(ri, rj)] = Math.min(ri, rj);
+    }
+  }
+
+  /**
+   * The widgets and property types possibly used to realize a functionality.
+   */
+  private static class Footprint {
+
+    private final Set<Widget> widgets = new HashSet<>();
+
+    private final Set<Type> types = new HashSet<>();
+
+  }
+
+}
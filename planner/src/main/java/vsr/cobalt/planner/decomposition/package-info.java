@@ -0,0 +1,11 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+/**
+ * @author Erik Wienhold
+ */
+package vsr.cobalt.planner.decomposition;
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.planner.graph.ActionProvision;
+
+/**
+ * A bounded library of the action provisions enabling an action, shared between graph extensions.
+ * <p/>
+ * Creating the action provisions of an action requires its precursor actions and the property provisions for its
+ * required properties, which only depend on the providers. A graph extender using a library derives them once per
+ * action and splices them into any graph requiring the action, only checking them for cyclic dependencies in the
+ * graph at hand. Because every extension level looks up the provisions of its required actions, a recurring action's
+ * whole enabling chain is spliced level by level.
+ * <p/>
+ * The property provisions of an action only depend on the action itself unless property provisions are composed,
+ * because a composite providing action then combines offers for properties required by other actions of the same
+ * extension. Extenders composing property provisions therefore do not use a library.
+ * <p/>
+ * A library must only be shared by extenders using equivalent providers, i.e. the same composition strategy. It holds
+ * a limited number of entries, evicts the least recently used entry, and must be invalidated when the repository
+ * changes.
+ *
+ * @author Erik Wienhold
+ */
+public class ActionProvisionLibrary {
+
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private final int capacity;
+
+  private final Map<Action, Entry> entries;
+
+  /**
+   * @param capacity the maximum number of actions
+   */
+  public ActionProvisionLibrary(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("expecting capacity >= 1");
+    }
+    this.capacity = capacity;
+    entries = new LinkedHashMap<Action, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Action, Entry> eldest) {
+        return size() > ActionProvisionLibrary.this.capacity;
+      }
+    };
+  }
+
+  public ActionProvisionLibrary() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @return the maximum number of actions
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of actions
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @param action an action
+   *
+   * @return the entry of the action, null when absent
+   */
+  public synchronized Entry get(final Action action) {
+    return entries.get(action);
+  }
+
+  /**
+   * @param action an action
+   * @param entry  the entry of the action
+   */
+  public synchronized void put(final Action action, final Entry entry) {
+    entries.put(action, entry);
+  }
+
+  /**
+   * Discard all entries.
+   */
+  public synchronized void invalidate() {
+    entries.clear();
+  }
+
+  /**
+   * The action provisions enabling an action, not yet checked for cyclic dependencies.
+   */
+  public static final class Entry {
+
+    private final Map<Action, Set<ActionProvision>> provisionsByPrecursor;
+
+    private final Set<ActionProvision> provisionsWithoutPrecursor;
+
+    /**
+     * @param provisionsByPrecursor      the action provisions using each precursor action, possibly empty when the
+     *                                   precursor requires unavailable properties
+     * @param provisionsWithoutPrecursor the action provisions not using a precursor action, empty when the action
+     *                                   requires a precursor
+     */
+    public Entry(final Map<Action, Set<ActionProvision>> provisionsByPrecursor,
+                 final Set<ActionProvision> provisionsWithoutPrecursor) {
+      final ImmutableMap.Builder<Action, Set<ActionProvision>> b = ImmutableMap.builder();
+      for (final Map.Entry<Action, Set<ActionProvision>> e : provisionsByPrecursor.entrySet()) {
+        b.put(e.getKey(), ImmutableSet.copyOf(e.getValue()));
+      }
+      this.provisionsByPrecursor = b.build();
+      this.provisionsWithoutPrecursor = ImmutableSet.copyOf(provisionsWithoutPrecursor);
+    }
+
+    /**
+     * @return the precursor actions
+     */
+    public Set<Action> getPrecursors() {
+      return provisionsByPrecursor.keySet();
+    }
+
+    /**
+     * @param precursor a precursor action
+     *
+     * @return the action provisions using the precursor action
+     */
+    public Set<ActionProvision> getProvisionsWithPrecursor(final Action precursor) {
+      final Set<ActionProvision> aps = provisionsByPrecursor.get(precursor);
+      return aps == null ? ImmutableSet.<ActionProvision>of() : aps;
+    }
+
+    /**
+     * @return the action provisions not using a precursor action
+     */
+    public Set<ActionProvision> getProvisionsWithoutPrecursor() {
+      return provisionsWithoutPrecursor;
+    }
+
+  }
+
+}
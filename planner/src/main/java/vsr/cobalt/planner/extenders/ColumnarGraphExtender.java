@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import vsr.cobalt.planner.GraphExtender;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.GraphDictionary;
+
+/**
+ * Stores each level added by another extender as a compact extension level, so that large graphs keep their
+ * provisions in primitive arrays instead of provision objects.
+ * <p/>
+ * All compact levels of a graph share a single dictionary. The other extender must add exactly one level and keep
+ * the given graph's levels, and should create all provisions of its level, which are then stored compactly.
+ *
+ * @author Erik Wienhold
+ */
+public class ColumnarGraphExtender implements GraphExtender {
+
+  private final GraphExtender extender;
+
+  /**
+   * @param extender an extender adding levels
+   */
+  public ColumnarGraphExtender(final GraphExtender extender) {
+    this.extender = extender;
+  }
+
+  /**
+   * @return the extender adding levels
+   */
+  public GraphExtender getExtender() {
+    return extender;
+  }
+
+  @Override
+  public Graph extendGraph(final Graph graph) throws PlanningException {
+    final ExtensionLevel xl = extender.extendGraph(graph).getLastExtensionLevel();
+    if (xl.isCompact()) {
+      return graph.extendWith(xl);
+    }
+    return graph.extendWith(ExtensionLevel.createCompact(xl.getActionProvisions(), getDictionary(graph)));
+  }
+
+  /**
+   * Get the dictionary shared by the compact levels of a graph.
+   *
+   * @param graph a graph
+   *
+   * @return the graph's dictionary, or a new dictionary when the graph has no compact level
+   */
+  private static GraphDictionary getDictionary(final Graph graph) {
+    for (final ExtensionLevel xl : graph.getExtensionLevels()) {
+      if (xl.isCompact()) {
+        return xl.getDictionary();
+      }
+    }
+    return new GraphDictionary();
+  }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import vsr.cobalt.planner.GraphExtender;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Compacts a graph after each extension, so that plan extraction and later extensions do not consider provisions
+ * which cannot be part of any plan.
+ *
+ * @author Erik Wienhold
+ */
+public class CompactingGraphExtender implements GraphExtender {
+
+  private final GraphExtender extender;
+
+  private final GraphCompactor compactor;
+
+  /**
+   * @param extender  an extender adding levels
+   * @param compactor a compactor applied to each extended graph
+   */
+  public CompactingGraphExtender(final GraphExtender extender, final GraphCompactor compactor) {
+    this.extender = extender;
+    this.compactor = compactor;
+  }
+
+  /**
+   * @return the extender adding levels
+   */
+  public GraphExtender getExtender() {
+    return extender;
+  }
+
+  @Override
+  public Graph extendGraph(final Graph graph) throws PlanningException {
+    return compactor.compact(extender.extendGraph(graph));
+  }
+
+}
@@ -9,7 +9,9 @@ package vsr.cobalt.planner.extenders;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.HashMultimap;
@@ -18,12 +20,15 @@ import vsr.cobalt.models.Action;
 import vsr.cobalt.models.Property;
 import vsr.cobalt.planner.GraphExtender;
 import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.extenders.providers.ComposingPropertyProvisionProvider;
 import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
 import vsr.cobalt.planner.extenders.providers.PropertyProvisionProvider;
 import vsr.cobalt.planner.graph.ActionProvision;
 import vsr.cobalt.planner.graph.ExtensionLevel;
 import vsr.cobalt.planner.graph.Graph;
 import vsr.cobalt.planner.graph.PropertyProvision;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
 import vsr.cobalt.utils.ProductSet;
 
 /**
@@ -40,51 +45,281 @@ public class DefaultGraphExtender implements GraphExtender {
 
   private final CyclicDependencyDetector cyclicDependencyDetector;
 
+  private final PlanningListener listener;
+
+  private final ActionProvisionLibrary library;
+
   /**
    * @param precursorActionProvider   a provider of precursor actions
    * @param propertyProvisionProvider a provider of property provisions
    * @param cyclicDependencyDetector  a detector of cyclic dependencies between actions
+   * @param listener                  a listener receiving timings and sizes
+   * @param library                   a library of action provisions shared with extenders using equivalent
+   *                                  providers, or null to derive all action provisions using the providers, not
+   *                                  used when the property provisions are composed
    */
   public DefaultGraphExtender(final PrecursorActionProvider precursorActionProvider,
                               final PropertyProvisionProvider propertyProvisionProvider,
-                              final CyclicDependencyDetector cyclicDependencyDetector) {
+                              final CyclicDependencyDetector cyclicDependencyDetector,
+                              final PlanningListener listener,
+                              final ActionProvisionLibrary library) {
     this.precursorActionProvider = precursorActionProvider;
     this.propertyProvisionProvider = propertyProvisionProvider;
     this.cyclicDependencyDetector = cyclicDependencyDetector;
+    this.listener = listener;
+    this.library = library;
+  }
+
+  /**
+   * @param precursorActionProvider   a provider of precursor actions
+   * @param propertyProvisionProvider a provider of property provisions
+   * @param cyclicDependencyDetector  a detector of cyclic dependencies between actions
+   * @param listener                  a listener receiving timings and sizes
+   */
+  public DefaultGraphExtender(final PrecursorActionProvider precursorActionProvider,
+                              final PropertyProvisionProvider propertyProvisionProvider,
+                              final CyclicDependencyDetector cyclicDependencyDetector,
+                              final PlanningListener listener) {
+    this(precursorActionProvider, propertyProvisionProvider, cyclicDependencyDetector, listener, null);
+  }
+
+  /**
+   * @param precursorActionProvider   a provider of precursor actions
+   * @param propertyProvisionProvider a provider of property provisions
+   * @param cyclicDependencyDetector  a detector of cyclic dependencies between actions
+   */
+  public DefaultGraphExtender(final PrecursorActionProvider precursorActionProvider,
+                              final PropertyProvisionProvider propertyProvisionProvider,
+                              final CyclicDependencyDetector cyclicDependencyDetector) {
+    this(precursorActionProvider, propertyProvisionProvider, cyclicDependencyDetector,
+        NoOpPlanningListener.getInstance());
   }
 
   @Override
   public Graph extendGraph(final Graph graph) throws PlanningException {
+    final long start = System.nanoTime();
+
     final Set<Action> as = selectUnsatisfiedRequiredActions(graph);
 
     if (as.isEmpty()) {
       throw new IllegalArgumentException("cannot extend satisfied graph");
     }
 
-    final Collection<Candidate> cs = findCandidates(as, graph);
+    final Statistics stats = new Statistics(NoOpPlanningListener.isListening(listener));
+
+    final Set<ActionProvision> aps = createActionProvisions(as, graph, stats);
+
+    if (aps.isEmpty()) {
+      throw new PlanningException("cannot satisfy any action");
+    }
+
+    final Graph g = graph.extendWith(new ExtensionLevel(aps));
+    listener.graphExtended(g.getDepth(), stats.candidates, stats.combinations, stats.prunedCombinations, aps.size(),
+        System.nanoTime() - start);
+    return g;
+  }
+
+  /**
+   * Create action provisions for a subset of the actions required by a graph's last level, as if the graph would be
+   * extended.
+   * <p/>
+   * This allows the creation of provisions only for actions not yet provided by an existing extension level.
+   *
+   * @param actions a set of unsatisfied actions required by the graph's last level
+   * @param graph   the graph to be extended
+   *
+   * @return a set of action provisions for any of the given actions, empty when no action can be satisfied
+   */
+  public Set<ActionProvision> getActionProvisionsFor(final Set<Action> actions, final Graph graph) {
+    if (actions.isEmpty()) {
+      return new HashSet<>();
+    }
+    return createActionProvisions(actions, graph, new Statistics(NoOpPlanningListener.isListening(listener)));
+  }
+
+  /**
+   * Test if the action provisions of an action are derived independently of other actions required by the same level.
+   * This is not the case when property provisions are composed, because a composite providing action may combine
+   * offers for properties required by different actions.
+   *
+   * @return true when derived per action, false otherwise
+   */
+  boolean derivesProvisionsPerAction() {
+    return !(propertyProvisionProvider instanceof ComposingPropertyProvisionProvider);
+  }
+
+  /**
+   * Create action provisions for a set of required actions.
+   *
+   * @param actions a non-empty set of unsatisfied actions
+   * @param graph   the graph to create action provisions for
+   * @param stats   the statistics of the current extension
+   *
+   * @return a set of action provisions
+   */
+  private Set<ActionProvision> createActionProvisions(final Set<Action> actions, final Graph graph,
+                                                      final Statistics stats) {
+    // library entries derived for another set of actions would lack composite property provisions
+    if (library != null && derivesProvisionsPerAction()) {
+      return spliceActionProvisions(actions, graph, stats);
+    }
+
+    final Collection<Candidate> cs = findCandidates(actions, graph, stats);
+    stats.candidates = cs.size();
+
     final Set<ActionProvision> aps = createActionProvisions(cs, graph,
         indexPropertyProvisions(
             provideCompatibleProperties(
-                collectRequiredProperties(cs))));
+                collectRequiredProperties(cs))), stats);
 
-    if (aps.isEmpty()) {
-      throw new PlanningException("cannot satisfy any action");
+    listener.cyclicDependenciesChecked(stats.cycleChecks, stats.cycles, stats.cycleCheckNanos);
+
+    return aps;
+  }
+
+  /**
+   * Create action provisions for a set of required actions from the library, deriving the library entries of actions
+   * not yet in the library.
+   * <p/>
+   * Library entries are not checked for cyclic dependencies, hence their precursor actions and property provisions are
+   * filtered like when deriving the action provisions directly.
+   *
+   * @param actions a non-empty set of unsatisfied actions
+   * @param graph   the graph to create action provisions for
+   * @param stats   the statistics of the current extension
+   *
+   * @return a set of action provisions
+   */
+  private Set<ActionProvision> spliceActionProvisions(final Set<Action> actions, final Graph graph,
+                                                      final Statistics stats) {
+    final Map<Action, ActionProvisionLibrary.Entry> entries = new HashMap<>();
+    final Set<Action> missing = new HashSet<>();
+    for (final Action a : actions) {
+      final ActionProvisionLibrary.Entry e = library.get(a);
+      if (e == null) {
+        missing.add(a);
+      } else {
+        entries.put(a, e);
+      }
     }
 
-    return graph.extendWith(new ExtensionLevel(aps));
+    if (!missing.isEmpty()) {
+      final Map<Action, ActionProvisionLibrary.Entry> created = createLibraryEntries(missing);
+      for (final Map.Entry<Action, ActionProvisionLibrary.Entry> e : created.entrySet()) {
+        library.put(e.getKey(), e.getValue());
+      }
+      entries.putAll(created);
+    }
+
+    final Set<ActionProvision> aps = new HashSet<>();
+
+    for (final Action ra : actions) {
+      final ActionProvisionLibrary.Entry e = entries.get(ra);
+      final Set<Action> precursors = filterCyclicDependentActions(e.getPrecursors(), ra, graph, stats);
+
+      final Set<ActionProvision> candidates = new HashSet<>();
+      if (precursors.isEmpty()) {
+        candidates.addAll(e.getProvisionsWithoutPrecursor());
+        if (!ra.requiresPrecursor()) {
+          stats.candidates += 1;
+        }
+      } else {
+        for (final Action pa : precursors) {
+          candidates.addAll(e.getProvisionsWithPrecursor(pa));
+        }
+        stats.candidates += precursors.size();
+      }
+
+      for (final ActionProvision ap : candidates) {
+        if (ap.getPropertyProvisions().isEmpty()) {
+          aps.add(ap);
+        } else {
+          stats.combinations += 1;
+          if (createsCyclicDependency(ap.getPropertyProvisions(), ra, graph, stats)) {
+            stats.prunedCombinations += 1;
+          } else {
+            aps.add(ap);
+          }
+        }
+      }
+    }
+
+    listener.cyclicDependenciesChecked(stats.cycleChecks, stats.cycles, stats.cycleCheckNanos);
+
+    return aps;
+  }
+
+  /**
+   * Derive the library entries of a set of actions using the providers.
+   *
+   * @param actions a set of unsatisfied actions
+   *
+   * @return the library entry of each action
+   */
+  private Map<Action, ActionProvisionLibrary.Entry> createLibraryEntries(final Set<Action> actions) {
+    final Collection<Candidate> cs = new ArrayList<>();
+    final Map<Action, Set<Action>> precursors = new HashMap<>();
+    for (final Action ra : actions) {
+      final Set<Action> pas = providePrecursorActions(ra);
+      precursors.put(ra, pas);
+      for (final Action pa : pas) {
+        cs.add(new Candidate(ra, pa));
+      }
+      // the action may be enabled without a precursor when all precursors cause cyclic dependencies
+      if (!ra.requiresPrecursor()) {
+        cs.add(new Candidate(ra));
+      }
+    }
+
+    final Index index = indexPropertyProvisions(provideCompatibleProperties(collectRequiredProperties(cs)));
+
+    final Map<Action, Map<Action, Set<ActionProvision>>> withPrecursor = new HashMap<>();
+    final Map<Action, Set<ActionProvision>> withoutPrecursor = new HashMap<>();
+    for (final Action ra : actions) {
+      final Map<Action, Set<ActionProvision>> m = new HashMap<>();
+      for (final Action pa : precursors.get(ra)) {
+        m.put(pa, new HashSet<ActionProvision>());
+      }
+      withPrecursor.put(ra, m);
+      withoutPrecursor.put(ra, new HashSet<ActionProvision>());
+    }
+
+    for (final Candidate c : cs) {
+      final Set<ActionProvision> aps = c.precursor == null
+          ? withoutPrecursor.get(c.request)
+          : withPrecursor.get(c.request).get(c.precursor);
+      if (c.requiresProperties()) {
+        for (final Set<PropertyProvision> combination : index.getCombinations(c.requiredProperties)) {
+          if (haveDisjointProvidingActions(combination)) {
+            aps.add(createActionProvision(c, combination));
+          }
+        }
+      } else {
+        aps.add(createActionProvision(c));
+      }
+    }
+
+    final Map<Action, ActionProvisionLibrary.Entry> entries = new HashMap<>();
+    for (final Action ra : actions) {
+      entries.put(ra, new ActionProvisionLibrary.Entry(withPrecursor.get(ra), withoutPrecursor.get(ra)));
+    }
+    return entries;
   }
 
   /**
    * Find candidates for a set of required actions.
    *
    * @param requiredActions a set of required actions
+   * @param graph           the graph to find candidates for
+   * @param stats           the statistics of the current extension
    *
    * @return a collection of candidates for any required action
    */
-  private Collection<Candidate> findCandidates(final Set<Action> requiredActions, final Graph graph) {
+  private Collection<Candidate> findCandidates(final Set<Action> requiredActions, final Graph graph,
+                                               final Statistics stats) {
     final Collection<Candidate> candidates = new ArrayList<>();
     for (final Action ra : requiredActions) {
-      final Set<Action> precursors = filterCyclicDependentActions(providePrecursorActions(ra), ra, graph);
+      final Set<Action> precursors = filterCyclicDependentActions(providePrecursorActions(ra), ra, graph, stats);
       if (precursors.isEmpty()) {
         if (!ra.requiresPrecursor()) {
           candidates.add(new Candidate(ra));
@@ -104,18 +339,23 @@ public class DefaultGraphExtender implements GraphExtender {
    * @param candidates a collection of candidates
    * @param graph      the graph to create action provisions for
    * @param index      an index of property provisions
+   * @param stats      the statistics of the current extension
    *
    * @return a set of action provisions
    */
   private Set<ActionProvision> createActionProvisions(final Collection<Candidate> candidates,
-                                                      final Graph graph, final Index index) {
+                                                      final Graph graph, final Index index,
+                                                      final Statistics stats) {
     final Set<ActionProvision> aps = new HashSet<>();
 
     for (final Candidate c : candidates) {
       if (c.requiresProperties()) {
         for (final Set<PropertyProvision> combination : index.getCombinations(c.requiredProperties)) {
-          if (canCreateActionProvision(c, combination, graph)) {
+          stats.combinations += 1;
+          if (canCreateActionProvision(c, combination, graph, stats)) {
             aps.add(createActionProvision(c, combination));
+          } else {
+            stats.prunedCombinations += 1;
           }
         }
       } else {
@@ -132,14 +372,15 @@ public class DefaultGraphExtender implements GraphExtender {
    * @param supports  a set of supporting actions
    * @param dependent a dependent action
    * @param graph     a graph containing the dependent action
+   * @param stats     the statistics of the current extension
    *
    * @return a set of supporting actions not creating a cyclic dependency via the dependent action
    */
   private Set<Action> filterCyclicDependentActions(final Set<Action> supports, final Action dependent,
-                                                   final Graph graph) {
+                                                   final Graph graph, final Statistics stats) {
     final Set<Action> filtered = new HashSet<>();
     for (final Action support : supports) {
-      if (!createsCyclicDependency(support, dependent, graph)) {
+      if (!createsCyclicDependency(support, dependent, graph, stats)) {
         filtered.add(support);
       }
     }
@@ -152,11 +393,12 @@ public class DefaultGraphExtender implements GraphExtender {
    * @param candidate  an action provision candidate
    * @param provisions a set of property provisions for the candidate
    * @param graph      a graph for which the action provision should be created
+   * @param stats      the statistics of the current extension
    *
    * @return true when an action provision can be created, false otherwise
    */
   private boolean canCreateActionProvision(final Candidate candidate, final Set<PropertyProvision> provisions,
-                                           final Graph graph) {
+                                           final Graph graph, final Statistics stats) {
     // We can create an action provision when it does not create any cyclic dependencies.
     // Furthermore we will not allow an action provision when its providing actions are not disjoint. This way we can
     // avoid having providing actions whose functionality (interactions, published properties, ...) is provided by
@@ -166,7 +408,7 @@ public class DefaultGraphExtender implements GraphExtender {
     // with some applicable action provisions.
 
     return haveDisjointProvidingActions(provisions)
-        && !createsCyclicDependency(provisions, candidate.request, graph);
+        && !createsCyclicDependency(provisions, candidate.request, graph, stats);
   }
 
   /**
@@ -176,13 +418,14 @@ public class DefaultGraphExtender implements GraphExtender {
    * @param provisions a set of property provisions
    * @param dependent  a dependent action
    * @param graph      a graph containing the dependent action
+   * @param stats      the statistics of the current extension
    *
    * @return true when any providing action causes a cyclic dependency, false otherwise
    */
   private boolean createsCyclicDependency(final Set<PropertyProvision> provisions, final Action dependent,
-                                          final Graph graph) {
+                                          final Graph graph, final Statistics stats) {
     for (final PropertyProvision pp : provisions) {
-      if (createsCyclicDependency(pp.getProvidingAction(), dependent, graph)) {
+      if (createsCyclicDependency(pp.getProvidingAction(), dependent, graph, stats)) {
         return true;
       }
     }
@@ -190,15 +433,32 @@ public class DefaultGraphExtender implements GraphExtender {
   }
 
   private Set<Action> providePrecursorActions(final Action action) {
-    return precursorActionProvider.getPrecursorActionsFor(action);
+    final long start = System.nanoTime();
+    final Set<Action> as = precursorActionProvider.getPrecursorActionsFor(action);
+    listener.provisionsProvided(precursorActionProvider.getClass(), 1, as.size(), System.nanoTime() - start);
+    return as;
   }
 
   private Set<PropertyProvision> provideCompatibleProperties(final Set<Property> properties) {
-    return propertyProvisionProvider.getProvisionsFor(properties);
+    final long start = System.nanoTime();
+    final Set<PropertyProvision> pps = propertyProvisionProvider.getProvisionsFor(properties);
+    listener.provisionsProvided(propertyProvisionProvider.getClass(), properties.size(), pps.size(),
+        System.nanoTime() - start);
+    return pps;
   }
 
-  private boolean createsCyclicDependency(final Action support, final Action dependent, final Graph graph) {
-    return cyclicDependencyDetector.createsCyclicDependencyVia(support, dependent, graph);
+  private boolean createsCyclicDependency(final Action support, final Action dependent, final Graph graph,
+                                          final Statistics stats) {
+    final long start = stats.timed ? System.nanoTime() : 0;
+    final boolean cyclic = cyclicDependencyDetector.createsCyclicDependencyVia(support, dependent, graph);
+    if (stats.timed) {
+      stats.cycleCheckNanos += System.nanoTime() - start;
+    }
+    stats.cycleChecks += 1;
+    if (cyclic) {
+      stats.cycles += 1;
+    }
+    return cyclic;
   }
 
   /**
@@ -247,7 +507,7 @@ public class DefaultGraphExtender implements GraphExtender {
    *
    * @return a set of unsatisfied actions
    */
-  private static Set<Action> selectUnsatisfiedRequiredActions(final Graph graph) {
+  static Set<Action> selectUnsatisfiedRequiredActions(final Graph graph) {
     final Set<Action> as = new HashSet<>();
     for (final Action a : graph.getLastLevel().getRequiredActions()) {
       if (!a.isEnabled()) {
@@ -270,6 +530,34 @@ public class DefaultGraphExtender implements GraphExtender {
     return new Index(propertyProvisions);
   }
 
+  /**
+   * Counts the work done while extending a graph.
+   */
+  private static class Statistics {
+
+    /**
+     * Indicates whether fine-grained timings should be measured.
+     */
+    public final boolean timed;
+
+    public int candidates;
+
+    public int combinations;
+
+    public int prunedCombinations;
+
+    public int cycleChecks;
+
+    public int cycles;
+
+    public long cycleCheckNanos;
+
+    public Statistics(final boolean timed) {
+      this.timed = timed;
+    }
+
+  }
+
   /**
    * A potential action provision.
    */
@@ -14,10 +14,12 @@ import vsr.cobalt.models.Functionality;
 import vsr.cobalt.models.Mashup;
 import vsr.cobalt.planner.GraphFactory;
 import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
 import vsr.cobalt.planner.extenders.providers.FunctionalityProvisionProvider;
 import vsr.cobalt.planner.graph.FunctionalityProvision;
 import vsr.cobalt.planner.graph.Graph;
 import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
 
 /**
  * The default graph factory creates an initial graph from a mashup description by discovering and selecting actions
@@ -29,24 +31,43 @@ public class DefaultGraphFactory implements GraphFactory {
 
   private final FunctionalityProvisionProvider functionalityProvisionProvider;
 
+  private final PlanningListener listener;
+
   /**
    * @param functionalityProvisionProvider a provider of functionality provisions
+   * @param listener                       a listener receiving timings and sizes
    */
-  public DefaultGraphFactory(final FunctionalityProvisionProvider functionalityProvisionProvider) {
+  public DefaultGraphFactory(final FunctionalityProvisionProvider functionalityProvisionProvider,
+                             final PlanningListener listener) {
     this.functionalityProvisionProvider = functionalityProvisionProvider;
+    this.listener = listener;
+  }
+
+  /**
+   * @param functionalityProvisionProvider a provider of functionality provisions
+   */
+  public DefaultGraphFactory(final FunctionalityProvisionProvider functionalityProvisionProvider) {
+    this(functionalityProvisionProvider, NoOpPlanningListener.getInstance());
   }
 
   @Override
   public Graph createGraph(final Mashup mashup) throws PlanningException {
+    final long start = System.nanoTime();
+
     final Set<Functionality> fs = mashup.getFunctionalities();
 
     final Set<FunctionalityProvision> fps = functionalityProvisionProvider.getProvisionsFor(fs);
 
+    listener.provisionsProvided(functionalityProvisionProvider.getClass(), fs.size(), fps.size(),
+        System.nanoTime() - start);
+
     if (fps.isEmpty() || !satisfyAllFunctionalities(fps, fs)) {
       throw new PlanningException("cannot realize all mashup functionalities");
     }
 
-    return Graph.create(new InitialLevel(fps));
+    final Graph g = Graph.create(new InitialLevel(fps));
+    listener.graphCreated(fs.size(), fps.size(), System.nanoTime() - start);
+    return g;
   }
 
   /**
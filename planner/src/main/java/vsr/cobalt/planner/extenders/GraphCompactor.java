@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
+
+/**
+ * Removes provisions from a graph which cannot be part of any plan, regardless of how the graph will be extended.
+ * <p/>
+ * Extending a graph only adds levels, so the provisions of every level but the last are final. A provision is dead
+ * when it requires two actions being mutex because one publishes a property the other requires to be cleared, or when
+ * it requires an action which is neither enabled nor provided by the next level. The requested action of a dead
+ * provision is dead as well when it has no other provision, which in turn kills the provisions requiring it in the
+ * preceding level. Afterwards provisions whose requested action is no longer required by the preceding level are
+ * removed, and the graph is cut before a level which becomes empty, because the preceding level is then enabled.
+ *
+ * @author Erik Wienhold
+ */
+public class GraphCompactor {
+
+  private final PlanningListener listener;
+
+  /**
+   * @param listener a listener receiving the number of removed nodes
+   */
+  public GraphCompactor(final PlanningListener listener) {
+    this.listener = listener;
+  }
+
+  public GraphCompactor() {
+    this(NoOpPlanningListener.getInstance());
+  }
+
+  /**
+   * Compact a graph.
+   *
+   * @param graph a graph
+   *
+   * @return the compacted graph (see {@link Graph#isCompacted()}), or the given graph when nothing can be removed
+   *
+   * @throws PlanningException when some requested functionality cannot be part of any plan
+   */
+  public Graph compact(final Graph graph) throws PlanningException {
+    final long start = System.nanoTime();
+
+    final List<ExtensionLevel> xls = new ArrayList<>();
+    for (final ExtensionLevel xl : graph.getExtensionLevels()) {
+      xls.add(xl);
+    }
+
+    // Remove dead provisions, starting with the last level. Actions of the preceding level are satisfiable when
+    // provided by some live provision.
+    final List<Set<ActionProvision>> live = new ArrayList<>(xls.size());
+    Set<Action> satisfiable = null;
+    for (int i = xls.size() - 1; i >= 0; i -= 1) {
+      final Set<ActionProvision> aps = new HashSet<>();
+      for (final ActionProvision ap : xls.get(i).getActionProvisions()) {
+        if (!isDead(ap.getRequiredActions(), satisfiable)) {
+          aps.add(ap);
+        }
+      }
+      live.add(0, aps);
+      satisfiable = selectRequestedActions(aps);
+    }
+
+    final InitialLevel il = graph.getInitialLevel();
+    final Set<FunctionalityProvision> fps = new HashSet<>();
+    for (final FunctionalityProvision fp : il.getFunctionalityProvisions()) {
+      if (isSatisfiable(fp.getProvidingAction(), satisfiable)) {
+        fps.add(fp);
+      }
+    }
+
+    for (final Functionality f : il.getRequestedFunctionalities()) {
+      if (!containsRequest(fps, f)) {
+        throw new PlanningException("cannot satisfy functionality " + f.getIdentifier());
+      }
+    }
+
+    // Remove provisions no longer requested by the preceding level.
+    Graph g = Graph.createCompacted(fps.size() == il.getFunctionalityProvisions().size()
+        ? il : new InitialLevel(fps));
+    for (int i = 0; i < xls.size(); i += 1) {
+      final Set<Action> required = g.getLastLevel().getRequiredActions();
+      final Set<ActionProvision> aps = new HashSet<>();
+      for (final ActionProvision ap : live.get(i)) {
+        if (required.contains(ap.getRequestedAction())) {
+          aps.add(ap);
+        }
+      }
+      if (aps.isEmpty()) {
+        break;
+      }
+      final ExtensionLevel xl = xls.get(i);
+      g = g.extendWith(aps.size() == xl.getActionProvisions().size() ? xl : restrict(xl, aps));
+    }
+
+    final int removedProvisions = countProvisions(graph) - countProvisions(g);
+    if (removedProvisions == 0) {
+      return graph;
+    }
+
+    listener.graphCompacted(g.getDepth(), removedProvisions, countActions(graph) - countActions(g),
+        System.nanoTime() - start);
+
+    return g;
+  }
+
+  /**
+   * Create a level with a subset of another level's provisions, keeping the other level's storage.
+   *
+   * @param level      an extension level
+   * @param provisions a non-empty subset of the level's provisions
+   *
+   * @return a new extension level
+   */
+  private static ExtensionLevel restrict(final ExtensionLevel level, final Set<ActionProvision> provisions) {
+    if (level.isCompact()) {
+      return ExtensionLevel.createCompact(provisions, level.getDictionary());
+    }
+    return new ExtensionLevel(provisions);
+  }
+
+  /**
+   * Check if a provision requiring some actions is dead.
+   *
+   * @param actions     the actions required by a provision
+   * @param satisfiable the satisfiable actions, or null when the provision belongs to the last level
+   *
+   * @return true when dead, false otherwise
+   */
+  private static boolean isDead(final Set<Action> actions, final Set<Action> satisfiable) {
+    for (final Action a : actions) {
+      if (!isSatisfiable(a, satisfiable)) {
+        return true;
+      }
+    }
+    for (final Action ai : actions) {
+      for (final Action aj : actions) {
+        if (ai != aj && isMashupMutex(ai, aj)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSatisfiable(final Action action, final Set<Action> satisfiable) {
+    // the actions of the last level may be satisfied by levels not yet created
+    return satisfiable == null || action.isEnabled() || satisfiable.contains(action);
+  }
+
+  private static boolean isMashupMutex(final Action x, final Action y) {
+    for (final Property p : x.getPublishedProperties()) {
+      if (y.getPreConditions().isCleared(p)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Set<Action> selectRequestedActions(final Set<ActionProvision> provisions) {
+    final Set<Action> as = new HashSet<>();
+    for (final ActionProvision ap : provisions) {
+      as.add(ap.getRequestedAction());
+    }
+    return as;
+  }
+
+  private static boolean containsRequest(final Set<FunctionalityProvision> provisions,
+                                         final Functionality functionality) {
+    for (final FunctionalityProvision fp : provisions) {
+      if (fp.getRequest().equals(functionality)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int countProvisions(final Graph graph) {
+    int n = graph.getInitialLevel().getFunctionalityProvisions().size();
+    for (final ExtensionLevel xl : graph.getExtensionLevels()) {
+      n += xl.getActionProvisions().size();
+    }
+    return n;
+  }
+
+  private static int countActions(final Graph graph) {
+    int n = 0;
+    for (final Level l : graph.getLevels()) {
+      n += l.getRequiredActions().size();
+    }
+    return n;
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.planner.GraphUpdater;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.extenders.providers.ComposingFunctionalityProvisionProvider;
+import vsr.cobalt.planner.extenders.providers.FunctionalityProvisionProvider;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+
+import static vsr.cobalt.planner.extenders.DefaultGraphExtender.selectUnsatisfiedRequiredActions;
+
+/**
+ * Updates a graph level by level according to the functionalities added to or removed from the goal mashup.
+ * <p/>
+ * The initial level keeps the functionality provisions of retained functionalities and gains provisions for added
+ * functionalities. Each extension level keeps the action provisions of a required action when the action was already
+ * required by the previous graph and the actions depending on it are the same as in the previous graph, because the
+ * extender then rejects the same precursors and property provisions due to cyclic dependencies (see
+ * {@link PathWalkingCyclicDependencyDetector}). The provisions of any other required action are derived again. The
+ * updated graph is at most as deep as the previous graph, and can be extended further as usual.
+ * <p/>
+ * Provisions are only derived per action, and functionality provisions per functionality, when the providers do not
+ * compose providing actions across requests. Otherwise a changed level is derived entirely.
+ * <p/>
+ * The previous graph must not be compacted, because reused levels would then lack the provisions removed by the
+ * compactor, and it must have been derived with the same providers.
+ *
+ * @author Erik Wienhold
+ */
+public class IncrementalGraphUpdater implements GraphUpdater {
+
+  private final FunctionalityProvisionProvider functionalityProvisionProvider;
+
+  private final DefaultGraphExtender extender;
+
+  /**
+   * @param functionalityProvisionProvider a provider of functionality provisions for added functionalities
+   * @param extender                       an extender creating action provisions for newly required actions, using a
+   *                                       {@link PathWalkingCyclicDependencyDetector}
+   */
+  public IncrementalGraphUpdater(final FunctionalityProvisionProvider functionalityProvisionProvider,
+                                 final DefaultGraphExtender extender) {
+    this.functionalityProvisionProvider = functionalityProvisionProvider;
+    this.extender = extender;
+  }
+
+  @Override
+  public Graph updateGraph(final Graph graph, final Mashup mashup) throws PlanningException {
+    if (graph.isCompacted()) {
+      throw new IllegalArgumentException("expecting an uncompacted graph");
+    }
+
+    final List<Graph> previous = selectBaseGraphs(graph);
+
+    Graph g = Graph.create(updateInitialLevel(graph.getInitialLevel(), mashup.getFunctionalities()));
+
+    for (int i = 0; i < graph.getExtensionDepth(); i += 1) {
+      final Set<Action> required = selectUnsatisfiedRequiredActions(g);
+      if (required.isEmpty()) {
+        break;
+      }
+      g = g.extendWith(updateExtensionLevel(graph.getExtensionLevel(i), required, g, previous.get(i)));
+    }
+
+    return g;
+  }
+
+  private InitialLevel updateInitialLevel(final InitialLevel level, final Set<Functionality> functionalities)
+      throws PlanningException {
+    final Set<Functionality> requested = level.getRequestedFunctionalities();
+
+    if (requested.equals(functionalities)) {
+      return level;
+    }
+
+    final Set<FunctionalityProvision> fps = new HashSet<>();
+    final Set<Functionality> derived;
+
+    if (composesFunctionalityProvisions()) {
+      // composite providing actions depend on all requested functionalities
+      derived = functionalities;
+    } else {
+      for (final FunctionalityProvision fp : level.getFunctionalityProvisions()) {
+        if (functionalities.contains(fp.getRequest())) {
+          fps.add(fp);
+        }
+      }
+      derived = Sets.difference(functionalities, requested);
+    }
+
+    if (!derived.isEmpty()) {
+      final Set<FunctionalityProvision> dfps = functionalityProvisionProvider.getProvisionsFor(derived);
+      final Set<Functionality> satisfied = new HashSet<>();
+      for (final FunctionalityProvision fp : dfps) {
+        satisfied.add(fp.getRequest());
+      }
+      if (!satisfied.equals(derived)) {
+        throw new PlanningException("cannot realize all mashup functionalities");
+      }
+      fps.addAll(dfps);
+    }
+
+    return new InitialLevel(fps);
+  }
+
+  /**
+   * Update an extension level of the previous graph.
+   *
+   * @param level         an extension level of the previous graph
+   * @param required      the unsatisfied actions required by the updated graph's last level
+   * @param graph         the updated graph to be extended
+   * @param previousGraph the previous graph's base graph of the given extension level
+   *
+   * @return the updated extension level
+   *
+   * @throws PlanningException when no required action can be satisfied
+   */
+  private ExtensionLevel updateExtensionLevel(final ExtensionLevel level, final Set<Action> required,
+                                              final Graph graph, final Graph previousGraph)
+      throws PlanningException {
+    final Set<Action> previouslyRequired = selectUnsatisfiedRequiredActions(previousGraph);
+
+    final Set<Action> reused = new HashSet<>();
+    final Set<Action> derived = new HashSet<>();
+    for (final Action a : required) {
+      if (previouslyRequired.contains(a)
+          && collectDependentActions(a, graph).equals(collectDependentActions(a, previousGraph))) {
+        reused.add(a);
+      } else {
+        derived.add(a);
+      }
+    }
+
+    if (required.equals(previouslyRequired) && derived.isEmpty()) {
+      return level;
+    }
+
+    if (!extender.derivesProvisionsPerAction()) {
+      // composite providing actions depend on all required actions
+      reused.clear();
+      derived.addAll(required);
+    }
+
+    final Set<ActionProvision> aps = new HashSet<>();
+    for (final Action a : reused) {
+      aps.addAll(level.getActionProvisionsByRequestedAction(a));
+    }
+    aps.addAll(extender.getActionProvisionsFor(derived, graph));
+
+    if (aps.isEmpty()) {
+      throw new PlanningException("cannot satisfy any action");
+    }
+
+    return new ExtensionLevel(aps);
+  }
+
+  private boolean composesFunctionalityProvisions() {
+    return functionalityProvisionProvider instanceof ComposingFunctionalityProvisionProvider;
+  }
+
+  /**
+   * Collect the actions of all extension levels which depend on an action via some dependency path, like a
+   * {@link PathWalkingCyclicDependencyDetector} does.
+   *
+   * @param action a dependent action required by the graph's last level
+   * @param graph  a graph
+   *
+   * @return a set of actions depending on the given action
+   */
+  private static Set<Action> collectDependentActions(final Action action, final Graph graph) {
+    final Set<Action> as = new HashSet<>();
+    Set<Action> dependents = ImmutableSet.of(action);
+    for (final ExtensionLevel xl : graph.getExtensionLevelsReversed()) {
+      dependents = xl.getRequestedActionsRequiringAny(dependents);
+      as.addAll(dependents);
+    }
+    return as;
+  }
+
+  /**
+   * Select the base graphs of a graph.
+   *
+   * @param graph a graph
+   *
+   * @return a list of base graphs, with the graph of depth {@code i + 1} at index {@code i}
+   */
+  private static List<Graph> selectBaseGraphs(final Graph graph) {
+    final List<Graph> gs = new ArrayList<>();
+    Graph g = graph;
+    while (g.isExtended()) {
+      g = g.getBaseGraph();
+      gs.add(0, g);
+    }
+    return gs;
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.planner.GraphExtender;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ActionProvisionSource;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
+
+/**
+ * Extends a graph with lazy extension levels, which create the provisions of a required action only when a plan
+ * extractor asks for them.
+ * <p/>
+ * Extending only creates provisions until some required action can be satisfied, because an extension level cannot be
+ * empty. Together with a plan collector stopping early, a search for few plans creates the provisions of only those
+ * actions the plan extractor examines. Extending a lazy graph once more creates all provisions of its last level,
+ * because the actions required by that level must be known. Hence only the last level of a graph remains lazy.
+ * <p/>
+ * When the extender does not derive provisions per action, i.e. when composing property provisions, a graph is
+ * extended eagerly instead, because composite provisions depend on all required actions of a level.
+ *
+ * @author Erik Wienhold
+ */
+public class LazyGraphExtender implements GraphExtender {
+
+  private final DefaultGraphExtender extender;
+
+  private final PlanningListener listener;
+
+  /**
+   * @param extender an extender creating the provisions of each required action
+   * @param listener a listener receiving the provisions created while extending
+   */
+  public LazyGraphExtender(final DefaultGraphExtender extender, final PlanningListener listener) {
+    this.extender = extender;
+    this.listener = listener;
+  }
+
+  /**
+   * @param extender an extender creating the provisions of each required action
+   */
+  public LazyGraphExtender(final DefaultGraphExtender extender) {
+    this(extender, NoOpPlanningListener.getInstance());
+  }
+
+  /**
+   * @return the extender creating the provisions of each required action
+   */
+  public DefaultGraphExtender getExtender() {
+    return extender;
+  }
+
+  @Override
+  public Graph extendGraph(final Graph graph) throws PlanningException {
+    final long start = System.nanoTime();
+
+    final Set<Action> as = DefaultGraphExtender.selectUnsatisfiedRequiredActions(graph);
+
+    if (as.isEmpty()) {
+      throw new IllegalArgumentException("cannot extend satisfied graph");
+    }
+
+    // provisions derived per action would lack composite property provisions
+    if (!extender.derivesProvisionsPerAction()) {
+      return extender.extendGraph(graph);
+    }
+
+    final ExtensionLevel xl = ExtensionLevel.createLazy(as, new ActionProvisionSource() {
+      @Override
+      public Set<ActionProvision> getActionProvisionsFor(final Action action) {
+        return extender.getActionProvisionsFor(ImmutableSet.of(action), graph);
+      }
+    });
+
+    final int provisions = countProvisionsOfFirstSatisfiableAction(xl, as);
+
+    if (provisions == 0) {
+      throw new PlanningException("cannot satisfy any action");
+    }
+
+    final Graph g = graph.extendWith(xl);
+    listener.graphExtended(g.getDepth(), 0, 0, 0, provisions, System.nanoTime() - start);
+    return g;
+  }
+
+  /**
+   * Create the provisions of the given actions until some action can be satisfied.
+   *
+   * @param level   a lazy extension level
+   * @param actions the candidate actions of the level
+   *
+   * @return the number of provisions of the first satisfiable action, zero when no action can be satisfied
+   */
+  private static int countProvisionsOfFirstSatisfiableAction(final ExtensionLevel level, final Set<Action> actions) {
+    for (final Action a : actions) {
+      final int n = level.getActionProvisionsByRequestedAction(a).size();
+      if (n > 0) {
+        return n;
+      }
+    }
+    return 0;
+  }
+
+}
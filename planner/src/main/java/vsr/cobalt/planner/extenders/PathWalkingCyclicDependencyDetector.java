@@ -7,13 +7,10 @@
 
 package vsr.cobalt.planner.extenders;
 
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
 import vsr.cobalt.models.Action;
-import vsr.cobalt.planner.graph.ActionProvision;
 import vsr.cobalt.planner.graph.ExtensionLevel;
 import vsr.cobalt.planner.graph.Graph;
 
@@ -33,7 +30,7 @@ public class PathWalkingCyclicDependencyDetector implements CyclicDependencyDete
     }
     Set<Action> dependents = ImmutableSet.of(dependent);
     for (final ExtensionLevel xl : graph.getExtensionLevelsReversed()) {
-      dependents = getDependentActions(dependents, xl);
+      dependents = xl.getRequestedActionsRequiringAny(dependents);
       for (final Action a : dependents) {
         if (support.represents(a)) {
           return true;
@@ -43,26 +40,4 @@ public class PathWalkingCyclicDependencyDetector implements CyclicDependencyDete
     return false;
   }
 
-  /**
-   * Get all requested actions of a given extension level which are dependent on any given action.
-   *
-   * @param supports a set of supporting actions
-   * @param level    an extension level
-   *
-   * @return a set of dependent actions
-   */
-  private Set<Action> getDependentActions(final Set<Action> supports, final ExtensionLevel level) {
-    final Set<Action> dependents = new HashSet<>();
-    for (final ActionProvision ap : level.getActionProvisions()) {
-      if (isDependent(ap, supports)) {
-        dependents.add(ap.getRequestedAction());
-      }
-    }
-    return dependents;
-  }
-
-  private boolean isDependent(final ActionProvision provider, final Set<Action> supports) {
-    return !Collections.disjoint(provider.getRequiredActions(), supports);
-  }
-
 }
@@ -7,33 +7,49 @@
 
 package vsr.cobalt.planner.extractors;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.SetMultimap;
-import com.google.common.collect.Sets;
 import vsr.cobalt.models.Action;
 import vsr.cobalt.planner.graph.ActionProvision;
 import vsr.cobalt.planner.graph.ExtensionLevel;
 import vsr.cobalt.planner.graph.Graph;
-import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.GraphDictionary;
 import vsr.cobalt.planner.graph.Level;
 
 /**
  * Records which actions are reachable, i.e. the actions whose pre-conditions are empty or satisfied by some reachable
  * actions in the previous level. The term reachability is used with regard to plan execution, i.e. actions which are
  * reachable during plan execution (which is reverse to graph extension).
+ * <p/>
+ * Reachability is determined on demand and recorded per level and action. An action is reachable when enabled or when
+ * some of its provisions in the next level requires only reachable actions. Thus only the provisions of actions being
+ * asked for are examined, which keeps lazy extension levels from creating all their provisions. When the next level is
+ * compact, reachability is recorded in bit sets by action identifier instead of a map.
  *
  * @author Erik Wienhold
  */
 class ActionReachabilityIndex {
 
   /**
-   * Map levels to their respective reachable actions.
+   * The extension levels in extension order.
    */
-  private final SetMultimap<Level, Action> index;
+  private final List<ExtensionLevel> extensionLevels = new ArrayList<>();
+
+  /**
+   * Map levels to their position, with {@code 0} identifying the initial level. Levels are identified by reference,
+   * because comparing lazy levels would create all their provisions.
+   */
+  private final Map<Level, Integer> positions = new IdentityHashMap<>();
+
+  /**
+   * The recorded reachability of unenabled actions by level position.
+   */
+  private final List<Record> index = new ArrayList<>();
 
   /**
    * Create a new reachability index for the given graph.
@@ -41,74 +57,121 @@ class ActionReachabilityIndex {
    * @param graph a graph
    */
   public ActionReachabilityIndex(final Graph graph) {
-    index = buildIndex(graph);
+    positions.put(graph.getInitialLevel(), 0);
+    for (final ExtensionLevel xl : graph.getExtensionLevels()) {
+      // the actions of a level are recorded with the dictionary of the next level providing them
+      index.add(new Record(xl.getDictionary()));
+      extensionLevels.add(xl);
+      positions.put(xl, extensionLevels.size());
+    }
   }
 
   /**
    * Check if an actions is reachable in a given level.
    *
-   * @param level  a level containing the given action
+   * @param level  a level requiring the given action
    * @param action an action to check
    *
    * @return true when reachable, false otherwise
    */
   public boolean isReachable(final Level level, final Action action) {
-    return index.containsEntry(level, action);
+    final Integer i = positions.get(level);
+    return i != null && isReachable(i, action);
+  }
+
+  private boolean isReachable(final int position, final Action action) {
+    if (action.isEnabled()) {
+      return true;
+    }
+    // actions of the last level can only be reachable when enabled
+    if (position == extensionLevels.size()) {
+      return false;
+    }
+    final Record reachable = index.get(position);
+    Boolean r = reachable.get(action);
+    if (r == null) {
+      r = isEnabled(extensionLevels.get(position).getActionProvisionsByRequestedAction(action), position + 1);
+      reachable.put(action, r);
+    }
+    return r;
+  }
+
+  /**
+   * Check if any provision can be enabled.
+   *
+   * @param provisions a set of provisions
+   * @param position   the position of the level containing the provisions
+   *
+   * @return true when some provision requires only reachable actions, false otherwise
+   */
+  private boolean isEnabled(final Iterable<ActionProvision> provisions, final int position) {
+    for (final ActionProvision ap : provisions) {
+      if (isEnabled(ap, position)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private static SetMultimap<Level, Action> buildIndex(final Graph graph) {
-    final SetMultimap<Level, Action> index = HashMultimap.create();
+  private boolean isEnabled(final ActionProvision provision, final int position) {
+    for (final Action a : provision.getRequiredActions()) {
+      if (!isReachable(position, a)) {
+        return false;
+      }
+    }
+    return true;
+  }
 
-    Set<Action> enabledActions = ImmutableSet.of();
+  /**
+   * The recorded reachability of the actions of a single level.
+   */
+  private static class Record {
 
-    // Iterate over all extension levels in reverse order, i.e. start with the last level.
-    for (final ExtensionLevel xl : graph.getExtensionLevelsReversed()) {
-      // Combine the enabled actions of the previous level with the enabled actions of the current level.
-      enabledActions = getCombinedEnabledActions(xl, enabledActions);
+    /**
+     * The dictionary of a compact next level, null when the next level is not compact.
+     */
+    private final GraphDictionary dictionary;
 
-      // Associate the actions previously determined to be enabled with the current level.
-      index.putAll(xl, enabledActions);
+    private final BitSet examined = new BitSet();
 
-      // Get all actions enabled by the current level.
-      // These are a subset of enabled actions in the next level.
-      enabledActions = getEnabledTargetActions(xl, enabledActions);
-    }
+    private final BitSet reachable = new BitSet();
 
-    // The initial level remains.
-    final InitialLevel il = graph.getInitialLevel();
-    enabledActions = getCombinedEnabledActions(il, enabledActions);
-    index.putAll(il, enabledActions);
+    /**
+     * The reachability of actions without identifier.
+     */
+    private final Map<Action, Boolean> others = new HashMap<>();
 
-    return index;
-  }
+    public Record(final GraphDictionary dictionary) {
+      this.dictionary = dictionary;
+    }
 
-  private static Set<Action> getCombinedEnabledActions(final Level level, final Set<Action> enabledActions) {
-    final Set<Action> as = new HashSet<>();
-    for (final Action a : level.getRequiredActions()) {
-      if (a.isEnabled()) {
-        as.add(a);
+    /**
+     * @param action an action
+     *
+     * @return the recorded reachability, null when not yet recorded
+     */
+    public Boolean get(final Action action) {
+      final int id = findId(action);
+      if (id < 0) {
+        return others.get(action);
       }
+      return examined.get(id) ? reachable.get(id) : null;
     }
-    return Sets.union(as, enabledActions);
-  }
 
-  private static Set<Action> getEnabledTargetActions(final ExtensionLevel level, final Set<Action> enabledActions) {
-    final Set<Action> as = new HashSet<>();
-    for (final ActionProvision ap : level.getActionProvisions()) {
-      if (isEnabled(ap, enabledActions)) {
-        as.add(ap.getRequestedAction());
+    public void put(final Action action, final boolean r) {
+      final int id = findId(action);
+      if (id < 0) {
+        others.put(action, r);
+      } else {
+        examined.set(id);
+        reachable.set(id, r);
       }
     }
-    return as;
-  }
 
-  private static boolean isEnabled(final ActionProvision actionProvision, final Set<Action> enabledActions) {
-    for (final Action a : actionProvision.getRequiredActions()) {
-      if (!enabledActions.contains(a)) {
-        return false;
-      }
+    private int findId(final Action action) {
+      return dictionary == null ? -1 : dictionary.findActionId(action);
     }
-    return true;
+
   }
 
 }
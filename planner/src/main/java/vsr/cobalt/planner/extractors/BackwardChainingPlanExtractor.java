@@ -8,7 +8,10 @@
 package vsr.cobalt.planner.extractors;
 
 import vsr.cobalt.planner.PlanExtractor;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.WidgetConstraints;
 import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
 
 /**
  * Extract plans from a graph using backward chaining.
@@ -17,9 +20,60 @@ import vsr.cobalt.planner.graph.Graph;
  */
 public class BackwardChainingPlanExtractor implements PlanExtractor {
 
+  private final boolean deduplicate;
+
+  private final PlanningListener listener;
+
+  private final int maxWidgets;
+
+  /**
+   * @param deduplicate true to drop plans equivalent to plans already extracted from the same graph and depth
+   * @param listener    a listener receiving search statistics of each extraction
+   * @param maxWidgets  the maximum number of distinct widgets a plan may use
+   */
+  public BackwardChainingPlanExtractor(final boolean deduplicate, final PlanningListener listener,
+                                       final int maxWidgets) {
+    this.deduplicate = deduplicate;
+    this.listener = listener;
+    this.maxWidgets = maxWidgets;
+  }
+
+  /**
+   * @param deduplicate true to drop plans equivalent to plans already extracted from the same graph and depth
+   * @param listener    a listener receiving search statistics of each extraction
+   */
+  public BackwardChainingPlanExtractor(final boolean deduplicate, final PlanningListener listener) {
+    this(deduplicate, listener, WidgetConstraints.UNLIMITED);
+  }
+
+  /**
+   * @param deduplicate true to drop plans equivalent to plans already extracted from the same graph and depth
+   */
+  public BackwardChainingPlanExtractor(final boolean deduplicate) {
+    this(deduplicate, NoOpPlanningListener.getInstance());
+  }
+
+  public BackwardChainingPlanExtractor() {
+    this(false);
+  }
+
+  /**
+   * @return true when dropping equivalent plans, false otherwise
+   */
+  public boolean isDeduplicating() {
+    return deduplicate;
+  }
+
+  /**
+   * @return the maximum number of distinct widgets a plan may use
+   */
+  public int getMaxWidgets() {
+    return maxWidgets;
+  }
+
   @Override
   public BackwardChainingPlanIterator extractPlans(final Graph graph, final int depth) {
-    return new BackwardChainingPlanIterator(graph, depth, depth);
+    return new BackwardChainingPlanIterator(graph, depth, depth, deduplicate, listener, maxWidgets);
   }
 
 }
@@ -9,15 +9,25 @@ package vsr.cobalt.planner.extractors;
 
 import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
 import vsr.cobalt.models.Action;
 import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.CloseablePlanIterator;
 import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanFingerprint;
+import vsr.cobalt.planner.PlanFingerprinter;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.WidgetConstraints;
 import vsr.cobalt.planner.graph.ActionMutexIndex;
 import vsr.cobalt.planner.graph.ActionProvision;
 import vsr.cobalt.planner.graph.ExtensionLevel;
@@ -25,15 +35,38 @@ import vsr.cobalt.planner.graph.FunctionalityProvision;
 import vsr.cobalt.planner.graph.Graph;
 import vsr.cobalt.planner.graph.InitialLevel;
 import vsr.cobalt.planner.graph.Level;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
 import vsr.cobalt.utils.ProductSet;
 import vsr.cobalt.utils.ProductSetIterator;
 
 /**
  * Iterates over all plans available in a graph using backward chaining.
+ * <p/>
+ * Instead of backtracking chronologically, the iterator uses conflict-directed backjumping. Whenever a level turns out
+ * to be a dead end (e.g. it contains mutex or unreachable actions), the provisions responsible for the conflicting
+ * actions are recorded with the level's frame, so that the frame skips every further provision combination containing
+ * them. When a frame runs out of levels, its recorded provisions determine the actions required by the previous level
+ * which caused all its levels to fail. Those actions are recorded as conflict with the previous frame, thus jumping
+ * back to the deepest provision choice responsible for the conflict.
+ * <p/>
+ * Optionally the iterator records its search frontier, i.e. every stack which cannot be grown solely because of the
+ * maximum depth, the graph's depth, or actions not yet reachable within the graph. Another iterator may resume the
+ * search from those stacks when the graph has been extended, instead of enumerating all shallower stacks again.
+ * <p/>
+ * Optionally the iterator drops plans equivalent to plans it has already produced, as determined by a
+ * {@link PlanFingerprinter}. Each frame computes the fingerprint of its current level once, so a plan's fingerprint
+ * is available without creating the plan.
+ * <p/>
+ * Optionally the iterator limits the number of distinct widgets a plan may use. Because pushing a frame only adds
+ * actions, a stack exceeding the widget budget is abandoned without growing it any further.
+ * <p/>
+ * The iterator asks extension levels only for the provisions of actions required by the stack. When the graph has lazy
+ * extension levels whose provisions are not yet created, mutex actions are not known in advance. Stacks are grown
+ * regardless of mutex actions then, and a stack only forms a plan when its levels contain no mutex actions.
  *
  * @author Erik Wienhold
  */
-class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
+class BackwardChainingPlanIterator extends AbstractIterator<Plan> implements CloseablePlanIterator {
 
   /**
    * The graph potentially containing plans.
@@ -50,14 +83,70 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
    */
   private final int maxDepth;
 
-  private final InitialFrame initialFrame;
+  /**
+   * The stacks to resume the search from, after the stack has been exhausted.
+   */
+  private final Iterator<Graph> stacks;
+
+  /**
+   * Receives the stacks cut off from further search, null when not recording the search frontier.
+   */
+  private final Collection<Graph> frontier;
+
+  /**
+   * Computes level fingerprints, null when not dropping equivalent plans.
+   */
+  private final PlanFingerprinter fingerprinter;
+
+  /**
+   * The fingerprints of all plans produced so far.
+   */
+  private final Set<PlanFingerprint> fingerprints = new HashSet<>();
+
+  /**
+   * The initial frame, null when no stack has been loaded yet.
+   */
+  private InitialFrame initialFrame;
 
   private final Deque<ExtensionFrame> extensionFrames;
 
   private final ActionReachabilityIndex reachabilityIndex;
 
+  /**
+   * The mutex relations of the graph, null when the graph has lazy extension levels not yet materialized.
+   */
   private final ActionMutexIndex mutexIndex;
 
+  /**
+   * Receives the search statistics once the search is exhausted or closed.
+   */
+  private final PlanningListener listener;
+
+  /**
+   * Indicates whether the search time should be measured.
+   */
+  private final boolean timed;
+
+  /**
+   * The maximum number of distinct widgets a plan may use.
+   */
+  private final int maxWidgets;
+
+  private int pushedFrames;
+
+  private int enumeratedCombinations;
+
+  private int conflicts;
+
+  private int emittedPlans;
+
+  private long searchNanos;
+
+  /**
+   * Indicates whether the search has been exhausted or closed.
+   */
+  private boolean terminated;
+
   /**
    * Create a new plan iterator using a graph and depth range.
    * <p/>
@@ -70,19 +159,153 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
    * @param maxDepth the maximum graph depth for a plan
    */
   public BackwardChainingPlanIterator(final Graph graph, final int minDepth, final int maxDepth) {
+    this(graph, minDepth, maxDepth, null);
+  }
+
+  /**
+   * Create a new plan iterator using a graph and depth range, which records its search frontier.
+   *
+   * @param graph    a graph to examine
+   * @param minDepth the minimum graph depth for a plan
+   * @param maxDepth the maximum graph depth for a plan
+   * @param frontier a collection receiving the stacks cut off from further search, null to not record them
+   */
+  public BackwardChainingPlanIterator(final Graph graph, final int minDepth, final int maxDepth,
+                                      final Collection<Graph> frontier) {
+    this(graph, true, Collections.<Graph>emptyIterator(), minDepth, maxDepth, frontier, false,
+        NoOpPlanningListener.getInstance(), WidgetConstraints.UNLIMITED);
+  }
+
+  /**
+   * Create a new plan iterator using a graph and depth range, which optionally drops equivalent plans.
+   *
+   * @param graph       a graph to examine
+   * @param minDepth    the minimum graph depth for a plan
+   * @param maxDepth    the maximum graph depth for a plan
+   * @param deduplicate true to drop plans equivalent to plans already produced
+   */
+  public BackwardChainingPlanIterator(final Graph graph, final int minDepth, final int maxDepth,
+                                      final boolean deduplicate) {
+    this(graph, minDepth, maxDepth, deduplicate, NoOpPlanningListener.getInstance());
+  }
+
+  /**
+   * Create a new plan iterator using a graph and depth range, which optionally drops equivalent plans, and reports
+   * search statistics once all plans have been produced.
+   *
+   * @param graph       a graph to examine
+   * @param minDepth    the minimum graph depth for a plan
+   * @param maxDepth    the maximum graph depth for a plan
+   * @param deduplicate true to drop plans equivalent to plans already produced
+   * @param listener    a listener receiving search statistics
+   */
+  public BackwardChainingPlanIterator(final Graph graph, final int minDepth, final int maxDepth,
+                                      final boolean deduplicate, final PlanningListener listener) {
+    this(graph, minDepth, maxDepth, deduplicate, listener, WidgetConstraints.UNLIMITED);
+  }
+
+  /**
+   * Create a new plan iterator using a graph and depth range, which optionally drops equivalent plans, produces only
+   * plans using a limited number of distinct widgets, and reports search statistics once all plans have been produced.
+   *
+   * @param graph       a graph to examine
+   * @param minDepth    the minimum graph depth for a plan
+   * @param maxDepth    the maximum graph depth for a plan
+   * @param deduplicate true to drop plans equivalent to plans already produced
+   * @param listener    a listener receiving search statistics
+   * @param maxWidgets  the maximum number of distinct widgets a plan may use
+   */
+  public BackwardChainingPlanIterator(final Graph graph, final int minDepth, final int maxDepth,
+                                      final boolean deduplicate, final PlanningListener listener,
+                                      final int maxWidgets) {
+    this(graph, true, Collections.<Graph>emptyIterator(), minDepth, maxDepth, null, deduplicate, listener,
+        maxWidgets);
+  }
+
+  /**
+   * Create a new plan iterator which resumes the search from the stacks recorded as search frontier by another plan
+   * iterator.
+   * <p/>
+   * The given graph must have the graph examined by the other plan iterator as base graph, or be equal to it. It may
+   * also have a compaction of that graph as base graph, because a stack using a provision removed by compaction cannot
+   * yield any plan. Plans with any stack not being the prefix of some resumed stack are not considered.
+   *
+   * @param graph    a graph to examine
+   * @param stacks   the stacks to resume the search from
+   * @param minDepth the minimum graph depth for a plan
+   * @param maxDepth the maximum graph depth for a plan
+   * @param frontier a collection receiving the stacks cut off from further search, null to not record them
+   */
+  public BackwardChainingPlanIterator(final Graph graph, final Iterable<Graph> stacks, final int minDepth,
+                                      final int maxDepth, final Collection<Graph> frontier) {
+    this(graph, stacks, minDepth, maxDepth, frontier, NoOpPlanningListener.getInstance(),
+        WidgetConstraints.UNLIMITED);
+  }
+
+  /**
+   * Create a new plan iterator which resumes the search from the stacks recorded as search frontier by another plan
+   * iterator, produces only plans using a limited number of distinct widgets, and reports search statistics once all
+   * plans have been produced.
+   *
+   * @param graph      a graph to examine
+   * @param stacks     the stacks to resume the search from
+   * @param minDepth   the minimum graph depth for a plan
+   * @param maxDepth   the maximum graph depth for a plan
+   * @param frontier   a collection receiving the stacks cut off from further search, null to not record them
+   * @param listener   a listener receiving search statistics
+   * @param maxWidgets the maximum number of distinct widgets a plan may use
+   */
+  public BackwardChainingPlanIterator(final Graph graph, final Iterable<Graph> stacks, final int minDepth,
+                                      final int maxDepth, final Collection<Graph> frontier,
+                                      final PlanningListener listener, final int maxWidgets) {
+    this(graph, false, stacks.iterator(), minDepth, maxDepth, frontier, false, listener, maxWidgets);
+  }
+
+  /**
+   * Create a new plan iterator using a graph and depth range, which records its search frontier, produces only plans
+   * using a limited number of distinct widgets, and reports search statistics once all plans have been produced.
+   *
+   * @param graph      a graph to examine
+   * @param minDepth   the minimum graph depth for a plan
+   * @param maxDepth   the maximum graph depth for a plan
+   * @param frontier   a collection receiving the stacks cut off from further search, null to not record them
+   * @param listener   a listener receiving search statistics
+   * @param maxWidgets the maximum number of distinct widgets a plan may use
+   */
+  public BackwardChainingPlanIterator(final Graph graph, final int minDepth, final int maxDepth,
+                                      final Collection<Graph> frontier, final PlanningListener listener,
+                                      final int maxWidgets) {
+    this(graph, true, Collections.<Graph>emptyIterator(), minDepth, maxDepth, frontier, false, listener, maxWidgets);
+  }
+
+  private BackwardChainingPlanIterator(final Graph graph, final boolean complete, final Iterator<Graph> stacks,
+                                       final int minDepth, final int maxDepth, final Collection<Graph> frontier,
+                                       final boolean deduplicate, final PlanningListener listener,
+                                       final int maxWidgets) {
     if (minDepth < 1) {
       throw new IllegalArgumentException("expecting minDepth >= 1");
     }
     if (minDepth > maxDepth) {
       throw new IllegalArgumentException("expecting minDepth <= maxDepth");
     }
+    if (maxWidgets < 1) {
+      throw new IllegalArgumentException("expecting maxWidgets >= 1");
+    }
     this.graph = graph;
     this.minDepth = minDepth;
     this.maxDepth = maxDepth;
-    initialFrame = new InitialFrame(graph.getInitialLevel());
+    this.stacks = stacks;
+    this.frontier = frontier;
+    fingerprinter = deduplicate ? new PlanFingerprinter() : null;
+    this.listener = listener;
+    timed = NoOpPlanningListener.isListening(listener);
+    this.maxWidgets = maxWidgets;
+    if (complete) {
+      initialFrame = new InitialFrame(graph.getInitialLevel());
+    }
     extensionFrames = new ArrayDeque<>(graph.getExtensionDepth());
     reachabilityIndex = new ActionReachabilityIndex(graph);
-    mutexIndex = new ActionMutexIndex(graph);
+    mutexIndex = isMaterialized(graph) ? new ActionMutexIndex(graph) : null;
   }
 
   /**
@@ -125,27 +348,99 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
     return maxDepth;
   }
 
+  /**
+   * @return the maximum number of distinct widgets a plan may use
+   */
+  public int getMaxWidgets() {
+    return maxWidgets;
+  }
+
+  /**
+   * Stop the search and report the statistics since the previous report.
+   */
+  @Override
+  public void close() {
+    reportStatistics();
+    terminated = true;
+  }
+
+  /**
+   * Report the search statistics since the previous report, without stopping the search. Has no effect once the
+   * search is exhausted or closed, because the final statistics have been reported then.
+   */
+  void reportStatistics() {
+    if (terminated) {
+      return;
+    }
+    listener.plansExtracted(maxDepth, pushedFrames, enumeratedCombinations, conflicts, emittedPlans, searchNanos);
+    pushedFrames = 0;
+    enumeratedCombinations = 0;
+    conflicts = 0;
+    emittedPlans = 0;
+    searchNanos = 0;
+  }
+
   @Override
   protected Plan computeNext() {
+    if (terminated) {
+      return endOfData();
+    }
+    if (!timed) {
+      return search();
+    }
+    final long start = System.nanoTime();
+    try {
+      return search();
+    } finally {
+      searchNanos += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * Search the next plan.
+   *
+   * @return the next plan, or the end of data
+   */
+  private Plan search() {
     while (true) {
       evolve();
-      // the stack may be empty after evolving it
-      if (isEmpty()) {
+      // the stack may be empty after evolving it, so try to resume from another stack
+      if (isEmpty() && !resume()) {
         break;
       }
+      if (exceedsWidgetBudget()) {
+        // any plan with this stack's levels exceeds the budget, but other provisions may not
+        conflicts += 1;
+        getCurrentFrame().addConflict(null);
+        continue;
+      }
       // create and return a plan when possible
-      final Plan p = createPlan();
-      if (p != null) {
-        return p;
+      if (isSolution()) {
+        getCurrentFrame().markSolved();
+        // drop equivalent plans before creating them
+        if (isUnique()) {
+          emittedPlans += 1;
+          return createPlan();
+        }
+      } else if (canGrow()) {
+        // grow the stack when there is no plan, otherwise the current level is a dead end
+        grow();
+      } else if (frontier != null && isDeferrable()) {
+        frontier.add(createStack());
+        // the search continues beyond this level later on, so it is no conflict
+        getCurrentFrame().addConflict(null);
+      } else {
+        conflicts += 1;
+        getCurrentFrame().addConflict(findConflictingActions());
       }
-      // grow the stack when there is no plan
-      grow();
     }
+    reportStatistics();
+    terminated = true;
     return endOfData();
   }
 
   private boolean isEmpty() {
-    return !initialFrame.hasLevel();
+    return initialFrame == null || !initialFrame.hasLevel();
   }
 
   private int getDepth() {
@@ -155,43 +450,185 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
   /**
    * Evolve the stack, i.e. consider the next possible level of the current stack frame or, when no such level exists,
    * pop the stack. The stack may be empty afterwards.
+   * <p/>
+   * A popped frame passes its conflicting actions on to the frame below, because the level of that frame requires the
+   * actions which caused every level of the popped frame to fail.
    */
   private void evolve() {
     while (!extensionFrames.isEmpty()) {
       final ExtensionFrame xf = extensionFrames.peek();
-      xf.createNextLevel();
+      createNextLevel(xf);
       if (xf.hasLevel()) {
         return;
       } else {
         extensionFrames.pop();
+        getCurrentFrame().addConflict(xf.getConflictingActions());
       }
     }
     // the extension stack is empty, so the initial frame remains
+    if (initialFrame != null) {
+      createNextLevel(initialFrame);
+    }
+  }
+
+  /**
+   * Let a frame create a level from its next provision combination.
+   *
+   * @param frame a frame
+   */
+  private void createNextLevel(final Frame<?, ?> frame) {
+    frame.createNextLevel();
+    if (frame.hasLevel()) {
+      enumeratedCombinations += 1;
+    }
+  }
+
+  /**
+   * Resume the search by loading the next stack which is still viable.
+   *
+   * @return true when a stack has been loaded, false when there are no more stacks
+   */
+  private boolean resume() {
+    while (stacks.hasNext()) {
+      if (load(stacks.next())) {
+        return true;
+      }
+    }
+    initialFrame = null;
+    return false;
+  }
+
+  /**
+   * Load a stack, i.e. replace all frames with frames having only the stack's levels.
+   * <p/>
+   * A stack is not viable when any level below the last one contains mutex actions. Because mutex relations are only
+   * added when extending a graph, this can only occur when the stack had been recorded with a less extended graph.
+   *
+   * @param stack a stack to load
+   *
+   * @return true when the stack is viable, false otherwise
+   */
+  private boolean load(final Graph stack) {
+    extensionFrames.clear();
+    initialFrame = new InitialFrame(graph.getInitialLevel(), stack.getInitialLevel());
     initialFrame.createNextLevel();
+    for (final ExtensionLevel xl : stack.getExtensionLevels()) {
+      if (isMutex()) {
+        return false;
+      }
+      final ExtensionFrame xf = new ExtensionFrame(graph.getExtensionLevel(extensionFrames.size()), xl);
+      extensionFrames.push(xf);
+      xf.createNextLevel();
+    }
+    return true;
   }
 
   /**
-   * Create a plan when possible using the levels currently on the stack.
+   * Check if the levels currently on the stack form a plan, i.e. the current level is enabled and the minimum depth
+   * is satisfied.
    *
-   * @return a new plan when possible, null otherwise
+   * @return true when the stack forms a plan, false otherwise
    */
-  private Plan createPlan() {
-    // create a plan when the current level is enabled and the minimum depth is satisfied
-    if (isEnabled() && getDepth() >= minDepth) {
-      return new Plan(Graph.create(initialFrame.getLevel(), getExtensionLevels()));
+  private boolean isSolution() {
+    return isEnabled() && getDepth() >= minDepth && isMutexFree();
+  }
+
+  /**
+   * Check if the levels currently on the stack contain no mutex actions. Without a mutex index the stack may have been
+   * grown beyond levels containing mutex actions.
+   *
+   * @return true when free of mutex actions, false otherwise
+   */
+  private boolean isMutexFree() {
+    return mutexIndex != null || !new ActionMutexIndex(createStack()).hasAnyMutexes();
+  }
+
+  /**
+   * Check if the actions required by the levels currently on the stack belong to more distinct widgets than allowed.
+   *
+   * @return true when exceeding the widget budget, false otherwise
+   */
+  private boolean exceedsWidgetBudget() {
+    if (maxWidgets == WidgetConstraints.UNLIMITED) {
+      return false;
     }
-    return null;
+    final Set<Widget> ws = new HashSet<>();
+    if (countWidgets(initialFrame.getLevel(), ws) > maxWidgets) {
+      return true;
+    }
+    for (final ExtensionFrame xf : extensionFrames) {
+      if (countWidgets(xf.getLevel(), ws) > maxWidgets) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isMaterialized(final Graph graph) {
+    for (final ExtensionLevel xl : graph.getExtensionLevels()) {
+      if (!xl.isMaterialized()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int countWidgets(final Level level, final Set<Widget> widgets) {
+    for (final Action a : level.getRequiredActions()) {
+      widgets.add(a.getWidget());
+    }
+    return widgets.size();
   }
 
   /**
-   * Grow the stack, when possible, by pushing an extension frame, thus considering plans with an additional graph
-   * level.
+   * Check if the plan formed by the stack is not equivalent to any plan produced so far, and record its fingerprint.
+   *
+   * @return true when unique or not dropping equivalent plans, false otherwise
    */
-  private void grow() {
-    if (canGrow()) {
-      final ExtensionLevel xl = graph.getExtensionLevel(extensionFrames.size());
-      extensionFrames.push(new ExtensionFrame(xl, getCurrentLevel().getRequiredActions()));
+  private boolean isUnique() {
+    if (fingerprinter == null) {
+      return true;
     }
+    PlanFingerprint fp = initialFrame.getFingerprint(0, fingerprinter);
+    int i = extensionFrames.size();
+    for (final ExtensionFrame xf : extensionFrames) {
+      fp = fp.plus(xf.getFingerprint(i, fingerprinter));
+      i -= 1;
+    }
+    return fingerprints.add(fp);
+  }
+
+  /**
+   * @return a plan using the levels currently on the stack
+   */
+  private Plan createPlan() {
+    return new Plan(createStack());
+  }
+
+  /**
+   * @return a graph consisting of the levels currently on the stack
+   */
+  private Graph createStack() {
+    return Graph.create(initialFrame.getLevel(), getExtensionLevels());
+  }
+
+  /**
+   * Check if the search can continue beyond the current level with a more extended graph or greater maximum depth,
+   * i.e. the level is neither enabled nor contains mutex actions.
+   *
+   * @return true when deferrable, false otherwise
+   */
+  private boolean isDeferrable() {
+    return !isEnabled() && !isMutex();
+  }
+
+  /**
+   * Grow the stack by pushing an extension frame, thus considering plans with an additional graph level.
+   */
+  private void grow() {
+    final ExtensionLevel xl = graph.getExtensionLevel(extensionFrames.size());
+    extensionFrames.push(new ExtensionFrame(xl, getCurrentLevel().getRequiredActions()));
+    pushedFrames += 1;
   }
 
   private boolean canGrow() {
@@ -203,7 +640,7 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
         ;
   }
 
-  private Frame getCurrentFrame() {
+  private Frame<?, ?> getCurrentFrame() {
     return extensionFrames.isEmpty()
         ? initialFrame
         : extensionFrames.peek();
@@ -254,20 +691,57 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
    * @return true when any two actions are mutex, false otherwise
    */
   private boolean isMutex() {
+    return mutexIndex != null
+        && mutexIndex.hasMutexActions(getCurrentFrame().getOriginalLevel(), getCurrentLevel().getRequiredActions());
+  }
+
+  /**
+   * Find the actions of the current level which cause the level to be a dead end, i.e. a level which neither yields a
+   * plan nor can be grown.
+   * <p/>
+   * The conflicting actions must be chosen in a way that any other level of the same frame requiring those actions is
+   * a dead end as well. This holds when the conflicting actions include an action which is not enabled, and they are
+   * either unreachable, mutex, or cannot be satisfied because the depth is exhausted. An enabled level not reaching the
+   * minimum depth cannot be attributed to specific actions, because a level requiring additional actions may be grown.
+   *
+   * @return a set of conflicting actions, null when the conflict cannot be attributed to specific actions
+   */
+  private Set<Action> findConflictingActions() {
+    final Set<Action> unsatisfied = new HashSet<>();
+    for (final Action a : getCurrentLevel().getRequiredActions()) {
+      if (!a.isEnabled()) {
+        unsatisfied.add(a);
+      }
+    }
+
+    if (unsatisfied.isEmpty()) {
+      return null;
+    }
+
     final Level l = getCurrentFrame().getOriginalLevel();
-    if (!mutexIndex.hasMutexActions(l)) {
-      return false;
+
+    for (final Action a : unsatisfied) {
+      if (!reachabilityIndex.isReachable(l, a)) {
+        return ImmutableSet.of(a);
+      }
     }
 
-    final Set<Action> as = getCurrentLevel().getRequiredActions();
-    for (final Action ai : as) {
-      for (final Action aj : as) {
-        if (mutexIndex.isMutex(l, ai, aj)) {
-          return true;
+    if (mutexIndex != null && mutexIndex.hasMutexActions(l)) {
+      for (final Action ai : unsatisfied) {
+        for (final Action aj : getCurrentLevel().getRequiredActions()) {
+          if (mutexIndex.isMutex(l, ai, aj)) {
+            return ImmutableSet.of(ai, aj);
+          }
         }
       }
     }
-    return false;
+
+    // with an exhausted depth any unsatisfied action is responsible
+    if (getDepth() >= maxDepth || extensionFrames.size() >= graph.getExtensionDepth()) {
+      return ImmutableSet.of(unsatisfied.iterator().next());
+    }
+
+    return null;
   }
 
   private List<ExtensionLevel> getExtensionLevels() {
@@ -291,6 +765,19 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
 
     private L level;
 
+    private Set<P> provisions;
+
+    /**
+     * The fingerprint of the current level, null when not yet computed.
+     */
+    private PlanFingerprint fingerprint;
+
+    /**
+     * The provisions responsible for any dead end found with this frame, null when some dead end cannot be attributed
+     * to specific provisions, or a plan has been found.
+     */
+    private Set<P> conflictingProvisions = new HashSet<>();
+
     public Frame(final L originalLevel, final ProductSet<P> provisionCombinations) {
       this.originalLevel = originalLevel;
       this.provisionCombinations = provisionCombinations.iterator();
@@ -298,6 +785,15 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
 
     protected abstract L createLevel(Set<P> provisions);
 
+    /**
+     * Get all actions required by a provision.
+     *
+     * @param provision a provision
+     *
+     * @return a set of actions required by the given provision
+     */
+    protected abstract Set<Action> getRequiredActions(P provision);
+
     public final boolean hasLevel() {
       return level != null;
     }
@@ -316,15 +812,104 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
       return level;
     }
 
+    /**
+     * @return the provisions responsible for any dead end found with this frame, null when unknown
+     */
+    public final Set<P> getConflictingProvisions() {
+      return conflictingProvisions;
+    }
+
     /**
      * Create a level from the next provision combination.
      */
     public void createNextLevel() {
       if (provisionCombinations.hasNext()) {
-        level = createLevel(provisionCombinations.next());
+        provisions = provisionCombinations.next();
+        level = createLevel(provisions);
       } else {
+        provisions = null;
         level = null;
       }
+      fingerprint = null;
+    }
+
+    /**
+     * Get the fingerprint of the current level, computing it only once for each level.
+     *
+     * @param index         the index of the level within the stack
+     * @param fingerprinter a fingerprinter
+     *
+     * @return the level's fingerprint
+     */
+    public PlanFingerprint getFingerprint(final int index, final PlanFingerprinter fingerprinter) {
+      if (fingerprint == null) {
+        fingerprint = fingerprinter.fingerprint(index, level);
+      }
+      return fingerprint;
+    }
+
+    /**
+     * Mark the current level as part of a plan. Because this frame yields a plan, it cannot be held responsible for
+     * dead ends of the previous frame.
+     */
+    public void markSolved() {
+      conflictingProvisions = null;
+    }
+
+    /**
+     * Record a conflict caused by actions required by the current level. Any further provision combination containing
+     * the provisions which require those actions will be skipped.
+     *
+     * @param actions a set of conflicting actions, null when the conflict cannot be attributed to specific actions
+     */
+    public void addConflict(final Set<Action> actions) {
+      final Set<P> ps = actions == null
+          ? ImmutableSet.<P>of()
+          : selectRequiringProvisions(actions);
+
+      if (ps.isEmpty()) {
+        // we have to fall back to chronological backtracking
+        conflictingProvisions = null;
+        return;
+      }
+
+      provisionCombinations.excludeSuperSetsOf(ps);
+
+      if (conflictingProvisions != null) {
+        conflictingProvisions.addAll(ps);
+      }
+    }
+
+    /**
+     * Create a product set with a single combination consisting of the given provisions.
+     *
+     * @param provisions a set of provisions
+     *
+     * @return a product set yielding only the given provisions
+     */
+    protected static <P> ProductSet<P> createSingleCombination(final Set<P> provisions) {
+      final Set<Set<P>> pss = new HashSet<>();
+      for (final P p : provisions) {
+        pss.add(ImmutableSet.of(p));
+      }
+      return new ProductSet<>(pss);
+    }
+
+    /**
+     * Select the provisions of the current combination which require any of the given actions.
+     *
+     * @param actions a set of actions
+     *
+     * @return a set of provisions requiring any given action
+     */
+    private Set<P> selectRequiringProvisions(final Set<Action> actions) {
+      final Set<P> ps = new HashSet<>();
+      for (final P p : provisions) {
+        if (!Collections.disjoint(getRequiredActions(p), actions)) {
+          ps.add(p);
+        }
+      }
+      return ps;
     }
 
   }
@@ -335,11 +920,26 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
       super(level, createCombinations(level));
     }
 
+    /**
+     * Create an initial frame having only a single level.
+     *
+     * @param originalLevel the original initial level
+     * @param level         the only level of this frame, derived from the original level
+     */
+    public InitialFrame(final InitialLevel originalLevel, final InitialLevel level) {
+      super(originalLevel, createSingleCombination(level.getFunctionalityProvisions()));
+    }
+
     @Override
     protected InitialLevel createLevel(final Set<FunctionalityProvision> provisions) {
       return new InitialLevel(provisions);
     }
 
+    @Override
+    protected Set<Action> getRequiredActions(final FunctionalityProvision provision) {
+      return ImmutableSet.of(provision.getProvidingAction());
+    }
+
     private static ProductSet<FunctionalityProvision> createCombinations(final InitialLevel level) {
       final Set<Functionality> fs = level.getRequestedFunctionalities();
       final Set<Set<FunctionalityProvision>> fpss = new HashSet<>();
@@ -365,11 +965,43 @@ class BackwardChainingPlanIterator extends AbstractIterator<Plan> {
       super(level, createCombinations(level, actions));
     }
 
+    /**
+     * Create an extension frame having only a single level.
+     *
+     * @param originalLevel the original extension level
+     * @param level         the only level of this frame, derived from the original level
+     */
+    public ExtensionFrame(final ExtensionLevel originalLevel, final ExtensionLevel level) {
+      super(originalLevel, createSingleCombination(level.getActionProvisions()));
+    }
+
     @Override
     protected ExtensionLevel createLevel(final Set<ActionProvision> provisions) {
       return new ExtensionLevel(provisions);
     }
 
+    @Override
+    protected Set<Action> getRequiredActions(final ActionProvision provision) {
+      return provision.getRequiredActions();
+    }
+
+    /**
+     * Get the actions, required by the previous level, which caused every level of this frame to fail.
+     *
+     * @return a set of conflicting actions, null when the conflict cannot be attributed to specific actions
+     */
+    public Set<Action> getConflictingActions() {
+      final Set<ActionProvision> aps = getConflictingProvisions();
+      if (aps == null) {
+        return null;
+      }
+      final Set<Action> as = new HashSet<>();
+      for (final ActionProvision ap : aps) {
+        as.add(ap.getRequestedAction());
+      }
+      return as;
+    }
+
     private static ProductSet<ActionProvision> createCombinations(final ExtensionLevel level,
                                                                   final Set<Action> actions) {
       final Set<Set<ActionProvision>> apss = new HashSet<>();
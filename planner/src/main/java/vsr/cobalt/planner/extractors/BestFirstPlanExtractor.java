@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.Iterator;
+
+import com.google.common.collect.Iterators;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanExtractor;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Extracts plans in the order of non-decreasing total cost.
+ *
+ * @author Erik Wienhold
+ */
+public class BestFirstPlanExtractor implements PlanExtractor {
+
+  private final ProvisionCostFunction costFunction;
+
+  private final int sampleSize;
+
+  /**
+   * @param costFunction a function determining the cost of provisions
+   * @param sampleSize   the maximum number of cheapest plans to extract for each depth
+   */
+  public BestFirstPlanExtractor(final ProvisionCostFunction costFunction, final int sampleSize) {
+    if (sampleSize < 1) {
+      throw new IllegalArgumentException("expecting sampleSize >= 1");
+    }
+    this.costFunction = costFunction;
+    this.sampleSize = sampleSize;
+  }
+
+  /**
+   * @param costFunction a function determining the cost of provisions
+   */
+  public BestFirstPlanExtractor(final ProvisionCostFunction costFunction) {
+    this(costFunction, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return the provision cost function
+   */
+  public ProvisionCostFunction getCostFunction() {
+    return costFunction;
+  }
+
+  /**
+   * @return the maximum number of cheapest plans to extract for each depth
+   */
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  @Override
+  public Iterator<Plan> extractPlans(final Graph graph, final int depth) {
+    final BestFirstPlanIterator plans = new BestFirstPlanIterator(graph, costFunction, depth, depth);
+    return sampleSize == Integer.MAX_VALUE ? plans : Iterators.limit(plans, sampleSize);
+  }
+
+}
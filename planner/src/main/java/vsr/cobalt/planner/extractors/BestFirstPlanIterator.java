@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.graph.ActionMutexIndex;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+
+/**
+ * Iterates over all plans available in a graph in the order of non-decreasing total cost, using a best-first search.
+ * <p/>
+ * The search considers the same stacks of levels as {@link BackwardChainingPlanIterator}. Each stack has a cost, which
+ * is the sum of the costs of all its provisions. Because costs are non-negative, a stack is never cheaper than any of
+ * its prefixes, so the cheapest stack in the queue ending in an enabled level is the cheapest plan not yet produced.
+ * <p/>
+ * The provision combinations of a level are not enumerated eagerly. Instead, each group of provisions satisfying the
+ * same request is sorted by cost, and only the cheapest combination is queued. Dequeuing a combination queues its
+ * successors, i.e. all combinations choosing the next more expensive provision in a single group. Thus the queue only
+ * contains combinations which are potentially the next cheapest ones.
+ *
+ * @author Erik Wienhold
+ */
+class BestFirstPlanIterator extends AbstractIterator<Plan> {
+
+  /**
+   * Order candidates by cost. Prefer deeper candidates when costs are equal, so that plans are found earlier.
+   */
+  private static final Comparator<Candidate<?, ?>> CANDIDATE_ORDER = new Comparator<Candidate<?, ?>>() {
+    @Override
+    public int compare(final Candidate<?, ?> c1, final Candidate<?, ?> c2) {
+      final int c = Double.compare(c1.getCost(), c2.getCost());
+      if (c != 0) {
+        return c;
+      }
+      return Integer.compare(c2.getDepth(), c1.getDepth());
+    }
+  };
+
+  /**
+   * The graph potentially containing plans.
+   */
+  private final Graph graph;
+
+  /**
+   * The function determining the cost of provisions.
+   */
+  private final ProvisionCostFunction costFunction;
+
+  /**
+   * The minimum graph depth for a plan to be considered.
+   */
+  private final int minDepth;
+
+  /**
+   * The maximum graph depth for a plan to be considered.
+   */
+  private final int maxDepth;
+
+  private final PriorityQueue<Candidate<?, ?>> queue;
+
+  private final ActionReachabilityIndex reachabilityIndex;
+
+  private final ActionMutexIndex mutexIndex;
+
+  /**
+   * Create a new plan iterator using a graph, cost function and depth range.
+   *
+   * @param graph        a graph to examine
+   * @param costFunction a function determining the cost of provisions
+   * @param minDepth     the minimum graph depth for a plan
+   * @param maxDepth     the maximum graph depth for a plan
+   */
+  public BestFirstPlanIterator(final Graph graph, final ProvisionCostFunction costFunction, final int minDepth,
+                               final int maxDepth) {
+    if (minDepth < 1) {
+      throw new IllegalArgumentException("expecting minDepth >= 1");
+    }
+    if (minDepth > maxDepth) {
+      throw new IllegalArgumentException("expecting minDepth <= maxDepth");
+    }
+    this.graph = graph;
+    this.costFunction = costFunction;
+    this.minDepth = minDepth;
+    this.maxDepth = maxDepth;
+    queue = new PriorityQueue<>(11, CANDIDATE_ORDER);
+    reachabilityIndex = new ActionReachabilityIndex(graph);
+    mutexIndex = new ActionMutexIndex(graph);
+    enqueue(new InitialChoice(graph.getInitialLevel(), costFunction).createFirstCandidate(null));
+  }
+
+  /**
+   * Create a new plan iterator without any constrains on the graph depth.
+   *
+   * @param graph        a graph to examine
+   * @param costFunction a function determining the cost of provisions
+   */
+  public BestFirstPlanIterator(final Graph graph, final ProvisionCostFunction costFunction) {
+    this(graph, costFunction, 1, graph.getDepth());
+  }
+
+  /**
+   * @return the graph
+   */
+  public Graph getGraph() {
+    return graph;
+  }
+
+  /**
+   * @return the provision cost function
+   */
+  public ProvisionCostFunction getCostFunction() {
+    return costFunction;
+  }
+
+  /**
+   * @return the minimum plan depth
+   */
+  public int getMinDepth() {
+    return minDepth;
+  }
+
+  /**
+   * @return the maximum plan depth
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  @Override
+  protected Plan computeNext() {
+    while (!queue.isEmpty()) {
+      final Candidate<?, ?> c = queue.poll();
+
+      // the successors are not cheaper than the current candidate
+      for (final Candidate<?, ?> s : c.createSuccessors()) {
+        enqueue(s);
+      }
+
+      final Stack s = c.createStack();
+
+      if (isEnabled(s)) {
+        // an enabled stack cannot be grown any further
+        if (s.getDepth() >= minDepth) {
+          return new Plan(s.createGraph());
+        }
+      } else if (canGrow(s)) {
+        final ExtensionLevel xl = graph.getExtensionLevel(s.getDepth() - 1);
+        enqueue(new ExtensionChoice(xl, s.getLevel().getRequiredActions(), costFunction).createFirstCandidate(s));
+      }
+    }
+    return endOfData();
+  }
+
+  private void enqueue(final Candidate<?, ?> candidate) {
+    if (candidate != null) {
+      queue.add(candidate);
+    }
+  }
+
+  private boolean canGrow(final Stack stack) {
+    return stack.getDepth() < maxDepth // ensure we do not exceed the maximum depth
+        && stack.getDepth() <= graph.getExtensionDepth() // ensure the graph has enough levels
+        && isReachable(stack) // ensure the stack's level is reachable
+        && !isMutex(stack) // ensure the stack's level has no mutexes
+        ;
+  }
+
+  /**
+   * Check if the top level of a stack is enabled, i.e. all its actions have empty pre-conditions.
+   *
+   * @param stack a stack
+   *
+   * @return true when enabled, false otherwise
+   */
+  private static boolean isEnabled(final Stack stack) {
+    for (final Action a : stack.getLevel().getRequiredActions()) {
+      if (!a.isEnabled()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check if all actions in the top level of a stack are reachable.
+   *
+   * @param stack a stack
+   *
+   * @return true when reachable, false otherwise
+   */
+  private boolean isReachable(final Stack stack) {
+    final Level l = getOriginalLevel(stack);
+    for (final Action a : stack.getLevel().getRequiredActions()) {
+      if (!reachabilityIndex.isReachable(l, a)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check if any two actions in the top level of a stack are mutex.
+   *
+   * @param stack a stack
+   *
+   * @return true when any two actions are mutex, false otherwise
+   */
+  private boolean isMutex(final Stack stack) {
+    final Level l = getOriginalLevel(stack);
+    if (!mutexIndex.hasMutexActions(l)) {
+      return false;
+    }
+
+    final Set<Action> as = stack.getLevel().getRequiredActions();
+    for (final Action ai : as) {
+      for (final Action aj : as) {
+        if (mutexIndex.isMutex(l, ai, aj)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the graph level from which the top level of a stack is derived.
+   *
+   * @param stack a stack
+   *
+   * @return the original graph level
+   */
+  private Level getOriginalLevel(final Stack stack) {
+    final int depth = stack.getDepth();
+    return depth == 1
+        ? graph.getInitialLevel()
+        : graph.getExtensionLevel(depth - 2);
+  }
+
+  /**
+   * A stack of levels, sharing all but its top level with the parent stack.
+   */
+  private static class Stack {
+
+    private final Stack parent;
+
+    private final Level level;
+
+    private final int depth;
+
+    private final double cost;
+
+    public Stack(final Stack parent, final Level level, final double cost) {
+      this.parent = parent;
+      this.level = level;
+      this.cost = cost;
+      depth = parent == null ? 1 : parent.depth + 1;
+    }
+
+    public Level getLevel() {
+      return level;
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    public double getCost() {
+      return cost;
+    }
+
+    public Graph createGraph() {
+      final LinkedList<ExtensionLevel> xls = new LinkedList<>();
+      Stack s = this;
+      while (s.parent != null) {
+        xls.addFirst((ExtensionLevel) s.level);
+        s = s.parent;
+      }
+      return Graph.create((InitialLevel) s.level, xls);
+    }
+
+  }
+
+  /**
+   * The possible provision combinations of a level. Provisions satisfying the same request form a group, sorted by
+   * cost in ascending order. A combination chooses one provision from each group.
+   *
+   * @param <L> the type of level
+   * @param <P> the type of provisions
+   */
+  private static abstract class Choice<L extends Level, P> {
+
+    private final List<List<P>> groups = new ArrayList<>();
+
+    private final List<double[]> costs = new ArrayList<>();
+
+    /**
+     * Add a group of provisions satisfying the same request.
+     *
+     * @param provisions a non-empty set of provisions
+     */
+    protected void addGroup(final Set<P> provisions) {
+      final Map<P, Double> cs = new HashMap<>();
+      for (final P p : provisions) {
+        cs.put(p, getCost(p));
+      }
+
+      final List<P> ps = new ArrayList<>(provisions);
+      Collections.sort(ps, new Comparator<P>() {
+        @Override
+        public int compare(final P p1, final P p2) {
+          return Double.compare(cs.get(p1), cs.get(p2));
+        }
+      });
+
+      final double[] sortedCosts = new double[ps.size()];
+      for (int i = 0; i < ps.size(); i += 1) {
+        sortedCosts[i] = cs.get(ps.get(i));
+      }
+
+      groups.add(ps);
+      costs.add(sortedCosts);
+    }
+
+    protected abstract double getCost(P provision);
+
+    protected abstract L createLevel(Set<P> provisions);
+
+    /**
+     * Create the cheapest candidate.
+     *
+     * @param parent the stack to grow, null when choosing an initial level
+     *
+     * @return the cheapest candidate, null when there are no groups
+     */
+    public Candidate<L, P> createFirstCandidate(final Stack parent) {
+      if (groups.isEmpty()) {
+        return null;
+      }
+      return new Candidate<>(this, parent, new int[groups.size()], 0);
+    }
+
+    public int getGroupSize(final int group) {
+      return groups.get(group).size();
+    }
+
+    public P getProvision(final int group, final int index) {
+      return groups.get(group).get(index);
+    }
+
+    public double getCost(final int group, final int index) {
+      return costs.get(group)[index];
+    }
+
+  }
+
+  private static class InitialChoice extends Choice<InitialLevel, FunctionalityProvision> {
+
+    private final ProvisionCostFunction costFunction;
+
+    public InitialChoice(final InitialLevel level, final ProvisionCostFunction costFunction) {
+      this.costFunction = costFunction;
+      for (final Functionality f : level.getRequestedFunctionalities()) {
+        addGroup(level.getFunctionalityProvisionsByRequestedFunctionality(f));
+      }
+    }
+
+    @Override
+    protected double getCost(final FunctionalityProvision provision) {
+      return costFunction.getCost(provision);
+    }
+
+    @Override
+    protected InitialLevel createLevel(final Set<FunctionalityProvision> provisions) {
+      return new InitialLevel(provisions);
+    }
+
+  }
+
+  private static class ExtensionChoice extends Choice<ExtensionLevel, ActionProvision> {
+
+    private final ProvisionCostFunction costFunction;
+
+    /**
+     * @param level        the original extension level
+     * @param actions      actions required by the previous level
+     * @param costFunction a provision cost function
+     */
+    public ExtensionChoice(final ExtensionLevel level, final Set<Action> actions,
+                           final ProvisionCostFunction costFunction) {
+      this.costFunction = costFunction;
+      for (final Action a : actions) {
+        final Set<ActionProvision> aps = level.getActionProvisionsByRequestedAction(a);
+        if (!aps.isEmpty()) {
+          addGroup(aps);
+        }
+      }
+    }
+
+    @Override
+    protected double getCost(final ActionProvision provision) {
+      return costFunction.getCost(provision);
+    }
+
+    @Override
+    protected ExtensionLevel createLevel(final Set<ActionProvision> provisions) {
+      return new ExtensionLevel(provisions);
+    }
+
+  }
+
+  /**
+   * A provision combination of some choice, used to grow a parent stack.
+   * <p/>
+   * Each combination is identified by the indexes of the chosen provisions in their respective group. To create each
+   * combination only once, a combination's successors only advance indexes at or after the position advanced last.
+   */
+  private static class Candidate<L extends Level, P> {
+
+    private final Choice<L, P> choice;
+
+    private final Stack parent;
+
+    private final int[] indexes;
+
+    private final int position;
+
+    private final double cost;
+
+    public Candidate(final Choice<L, P> choice, final Stack parent, final int[] indexes, final int position) {
+      this.choice = choice;
+      this.parent = parent;
+      this.indexes = indexes;
+      this.position = position;
+      double c = parent == null ? 0 : parent.getCost();
+      for (int i = 0; i < indexes.length; i += 1) {
+        c += choice.getCost(i, indexes[i]);
+      }
+      cost = c;
+    }
+
+    public double getCost() {
+      return cost;
+    }
+
+    public int getDepth() {
+      return parent == null ? 1 : parent.getDepth() + 1;
+    }
+
+    public List<Candidate<L, P>> createSuccessors() {
+      final List<Candidate<L, P>> cs = new ArrayList<>();
+      for (int i = position; i < indexes.length; i += 1) {
+        if (indexes[i] + 1 < choice.getGroupSize(i)) {
+          final int[] is = indexes.clone();
+          is[i] += 1;
+          cs.add(new Candidate<>(choice, parent, is, i));
+        }
+      }
+      return cs;
+    }
+
+    public Stack createStack() {
+      final Set<P> ps = new HashSet<>();
+      for (int i = 0; i < indexes.length; i += 1) {
+        ps.add(choice.getProvision(i, indexes[i]));
+      }
+      return new Stack(parent, choice.createLevel(ps), cost);
+    }
+
+  }
+
+}
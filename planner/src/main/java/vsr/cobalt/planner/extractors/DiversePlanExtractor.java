@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import vsr.cobalt.planner.Plan;
+
+/**
+ * Extracts a sample of distinct plans, drawn at random while maximizing the number of distinct widgets across the
+ * sample.
+ * <p/>
+ * Each plan of the sample is chosen from a pool of candidates drawn uniformly at random, preferring the candidate
+ * contributing the most widgets not used by any previously chosen plan.
+ *
+ * @author Erik Wienhold
+ */
+public class DiversePlanExtractor extends RandomPlanExtractor {
+
+  /**
+   * The default number of candidates to choose each plan from.
+   */
+  public static final int DEFAULT_POOL_SIZE = 8;
+
+  private final int poolSize;
+
+  /**
+   * @param sampleSize the maximum number of plans to extract for each depth
+   * @param poolSize   the number of candidates to choose each plan from
+   * @param random     a source of randomness
+   * @param budget     the maximum number of provision combinations to consider when counting plans
+   */
+  public DiversePlanExtractor(final int sampleSize, final int poolSize, final Random random, final int budget) {
+    super(sampleSize, random, budget);
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("expecting poolSize >= 1");
+    }
+    this.poolSize = poolSize;
+  }
+
+  /**
+   * @param sampleSize the maximum number of plans to extract for each depth
+   * @param random     a source of randomness
+   */
+  public DiversePlanExtractor(final int sampleSize, final Random random) {
+    this(sampleSize, DEFAULT_POOL_SIZE, random, DEFAULT_BUDGET);
+  }
+
+  /**
+   * @return the number of candidates to choose each plan from
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  @Override
+  protected Iterator<Plan> sample(final Iterator<Plan> plans) {
+    return new DiversePlanIterator(plans, getSampleSize(), poolSize);
+  }
+
+}
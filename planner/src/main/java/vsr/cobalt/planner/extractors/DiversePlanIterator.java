@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.graph.Level;
+
+/**
+ * Iterates plans greedily maximizing the number of distinct widgets used by all plans produced so far.
+ * <p/>
+ * Each plan is chosen from a pool of candidates, drawn from another iterator, as the candidate using the most widgets
+ * not used by any previously chosen plan. Candidates not chosen remain in the pool for the next choice.
+ *
+ * @author Erik Wienhold
+ */
+class DiversePlanIterator extends AbstractIterator<Plan> {
+
+  private final Iterator<Plan> candidates;
+
+  private final int poolSize;
+
+  private final List<Plan> pool = new ArrayList<>();
+
+  /**
+   * The widgets used by all plans produced so far.
+   */
+  private final Set<Widget> widgets = new HashSet<>();
+
+  private int remaining;
+
+  /**
+   * @param candidates an iterator of candidate plans
+   * @param sampleSize the maximum number of plans to choose
+   * @param poolSize   the number of candidates to choose from
+   */
+  public DiversePlanIterator(final Iterator<Plan> candidates, final int sampleSize, final int poolSize) {
+    if (sampleSize < 0) {
+      throw new IllegalArgumentException("expecting sampleSize >= 0");
+    }
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("expecting poolSize >= 1");
+    }
+    this.candidates = candidates;
+    this.poolSize = poolSize;
+    remaining = sampleSize;
+  }
+
+  @Override
+  protected Plan computeNext() {
+    if (remaining == 0) {
+      return endOfData();
+    }
+
+    while (pool.size() < poolSize && candidates.hasNext()) {
+      pool.add(candidates.next());
+    }
+
+    if (pool.isEmpty()) {
+      return endOfData();
+    }
+
+    int best = -1;
+    Set<Widget> bestWidgets = null;
+    for (int i = 0; i < pool.size(); i += 1) {
+      final Set<Widget> ws = getWidgets(pool.get(i));
+      ws.removeAll(widgets);
+      if (bestWidgets == null || ws.size() > bestWidgets.size()) {
+        best = i;
+        bestWidgets = ws;
+      }
+    }
+
+    remaining -= 1;
+    widgets.addAll(bestWidgets);
+    return pool.remove(best);
+  }
+
+  private static Set<Widget> getWidgets(final Plan plan) {
+    final Set<Widget> ws = new HashSet<>();
+    for (final Level l : plan.getGraph().getLevels()) {
+      for (final Action a : l.getRequiredActions()) {
+        ws.add(a.getWidget());
+      }
+    }
+    return ws;
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.PlanCount;
+import vsr.cobalt.planner.PlanCounter;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+
+/**
+ * Counts the plans {@link BackwardChainingPlanIterator} would produce, using dynamic programming.
+ * <p/>
+ * The exact count is determined by a {@link PlanCountIndex}, which gives up after considering a given number of
+ * provision combinations. The count then falls back to an upper bound, computed in polynomial time by counting the
+ * ways to satisfy each required action independently. The bound ignores mutex actions, and counts actions shared by
+ * multiple provisions once for each provision.
+ *
+ * @author Erik Wienhold
+ */
+public class DynamicProgrammingPlanCounter implements PlanCounter {
+
+  /**
+   * The default number of provision combinations to consider for an exact count.
+   */
+  public static final int DEFAULT_BUDGET = 100000;
+
+  private final int budget;
+
+  /**
+   * @param budget the maximum number of provision combinations to consider for an exact count
+   */
+  public DynamicProgrammingPlanCounter(final int budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("expecting budget >= 0");
+    }
+    this.budget = budget;
+  }
+
+  public DynamicProgrammingPlanCounter() {
+    this(DEFAULT_BUDGET);
+  }
+
+  /**
+   * @return the maximum number of provision combinations to consider for an exact count
+   */
+  public int getBudget() {
+    return budget;
+  }
+
+  @Override
+  public PlanCount countPlans(final Graph graph, final int depth) {
+    if (depth < 1) {
+      throw new IllegalArgumentException("expecting depth >= 1");
+    }
+    final BigInteger count = new PlanCountIndex(graph, depth, budget).getCount();
+    if (count != null) {
+      return new PlanCount(count, true);
+    }
+    return new PlanCount(new UpperBound(graph, depth).count(), false);
+  }
+
+  /**
+   * Bounds the number of plans of a specific depth by counting, for each action and level, the ways to satisfy the
+   * action independently of any other action.
+   * <p/>
+   * Let R(d) be the number of ways to satisfy the initial level with no more than d levels. Because each action is
+   * satisfied independently, R(d) counts tree unfoldings, in which an action required by several provisions is
+   * satisfied separately for each of them. Distinct plans map to distinct tree unfoldings, by satisfying each action
+   * with the plan's provision. The unfoldings counted by R(d - 1) are among those counted by R(d), and the unfolding of
+   * a plan of depth d is satisfied within d levels but not within d - 1 levels. Hence R(d) - R(d - 1) counts the
+   * unfoldings requiring exactly d levels, which bound the number of plans of depth d, rather than subtracting plans of
+   * lower depths from a count of plans.
+   */
+  private static class UpperBound {
+
+    private final Graph graph;
+
+    private final int depth;
+
+    private final ActionReachabilityIndex reachabilityIndex;
+
+    public UpperBound(final Graph graph, final int depth) {
+      this.graph = graph;
+      this.depth = depth;
+      reachabilityIndex = new ActionReachabilityIndex(graph);
+    }
+
+    public BigInteger count() {
+      return countWithin(depth).subtract(countWithin(depth - 1));
+    }
+
+    /**
+     * Count the ways to satisfy the initial level within a number of levels.
+     *
+     * @param levels the maximum number of levels
+     *
+     * @return the number of ways
+     */
+    private BigInteger countWithin(final int levels) {
+      if (levels < 1) {
+        return BigInteger.ZERO;
+      }
+
+      final List<Map<Action, BigInteger>> memo = new ArrayList<>();
+      for (int i = 0; i < levels; i += 1) {
+        memo.add(new HashMap<Action, BigInteger>());
+      }
+
+      final InitialLevel il = graph.getInitialLevel();
+      BigInteger n = BigInteger.ONE;
+      for (final Functionality f : il.getRequestedFunctionalities()) {
+        BigInteger m = BigInteger.ZERO;
+        for (final FunctionalityProvision fp : il.getFunctionalityProvisionsByRequestedFunctionality(f)) {
+          m = m.add(countWithin(0, fp.getProvidingAction(), levels, memo));
+        }
+        n = n.multiply(m);
+      }
+      return n;
+    }
+
+    /**
+     * Count the ways to satisfy an action within a number of levels.
+     *
+     * @param index  the index of the level requiring the action
+     * @param action the action to satisfy
+     * @param levels the maximum number of levels
+     * @param memo   the number of ways by level index and action
+     *
+     * @return the number of ways
+     */
+    private BigInteger countWithin(final int index, final Action action, final int levels,
+                                   final List<Map<Action, BigInteger>> memo) {
+      if (action.isEnabled()) {
+        return BigInteger.ONE;
+      }
+
+      if (index + 1 >= levels
+          || index >= graph.getExtensionDepth()
+          || !reachabilityIndex.isReachable(getLevel(graph, index), action)) {
+        return BigInteger.ZERO;
+      }
+
+      final Map<Action, BigInteger> m = memo.get(index);
+      final BigInteger cached = m.get(action);
+      if (cached != null) {
+        return cached;
+      }
+
+      BigInteger n = BigInteger.ZERO;
+      for (final ActionProvision ap : graph.getExtensionLevel(index).getActionProvisionsByRequestedAction(action)) {
+        BigInteger k = BigInteger.ONE;
+        for (final Action ra : ap.getRequiredActions()) {
+          k = k.multiply(countWithin(index + 1, ra, levels, memo));
+        }
+        n = n.add(k);
+      }
+
+      m.put(action, n);
+      return n;
+    }
+
+  }
+
+  private static Level getLevel(final Graph graph, final int index) {
+    return index == 0
+        ? graph.getInitialLevel()
+        : graph.getExtensionLevel(index - 1);
+  }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.ForwardingIterator;
+import com.google.common.collect.Iterators;
+import vsr.cobalt.planner.CloseablePlanIterator;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanExtractor;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.WidgetConstraints;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
+
+/**
+ * A plan extractor for iterative deepening, which preserves the search frontier between successive extractions.
+ * <p/>
+ * A {@link vsr.cobalt.planner.PlanningProcess} extracts plans of increasing depth, each time from a more extended
+ * graph. Instead of enumerating all shallower stacks again, this extractor resumes the search from the stacks which
+ * have been cut off by the previous extraction, when the requested depth is one more than the previous depth and the
+ * graph is an extension of the previous graph. Otherwise the search starts from scratch. The graph may also extend a
+ * compaction of the previous graph (see {@link vsr.cobalt.planner.extenders.CompactingGraphExtender}), because stacks
+ * using removed provisions cannot yield any plan.
+ * <p/>
+ * Closing the extracted plans reports the statistics of the search so far, but the search continues when the next
+ * extraction completes the frontier, reporting the remaining statistics then.
+ * <p/>
+ * Because the extractor keeps state between extractions, an instance must be used by a single planning process only.
+ *
+ * @author Erik Wienhold
+ */
+public class FrontierPreservingPlanExtractor implements PlanExtractor {
+
+  private final PlanningListener listener;
+
+  private final int maxWidgets;
+
+  /**
+   * The graph used for the previous extraction, null before the first extraction.
+   */
+  private Graph previousGraph;
+
+  private int previousDepth;
+
+  private BackwardChainingPlanIterator previousPlans;
+
+  /**
+   * The stacks cut off by the previous extraction.
+   */
+  private List<Graph> frontier;
+
+  /**
+   * @param listener   a listener receiving search statistics of each extraction
+   * @param maxWidgets the maximum number of distinct widgets a plan may use
+   */
+  public FrontierPreservingPlanExtractor(final PlanningListener listener, final int maxWidgets) {
+    this.listener = listener;
+    this.maxWidgets = maxWidgets;
+  }
+
+  public FrontierPreservingPlanExtractor() {
+    this(NoOpPlanningListener.getInstance(), WidgetConstraints.UNLIMITED);
+  }
+
+  /**
+   * @return the maximum number of distinct widgets a plan may use
+   */
+  public int getMaxWidgets() {
+    return maxWidgets;
+  }
+
+  @Override
+  public CloseablePlanIterator extractPlans(final Graph graph, final int depth) {
+    final List<Graph> stacks = isResumable(graph, depth) ? completeFrontier() : null;
+
+    frontier = new ArrayList<>();
+
+    final BackwardChainingPlanIterator plans = stacks == null
+        ? new BackwardChainingPlanIterator(graph, depth, depth, frontier, listener, maxWidgets)
+        : new BackwardChainingPlanIterator(graph, stacks, depth, depth, frontier, listener, maxWidgets);
+
+    previousGraph = graph;
+    previousDepth = depth;
+    previousPlans = plans;
+
+    return new FrontierPlans(plans);
+  }
+
+  /**
+   * Check if an extraction can resume from the previous extraction's frontier.
+   *
+   * @param graph a graph
+   * @param depth the depth of extracted plans
+   *
+   * @return true when resumable, false otherwise
+   */
+  private boolean isResumable(final Graph graph, final int depth) {
+    return previousGraph != null
+        && depth == previousDepth + 1
+        && isExtensionOf(graph, previousGraph);
+  }
+
+  /**
+   * Complete the previous extraction's frontier. The previous plans may not have been consumed entirely (e.g. when
+   * skipping the remaining plans of a level), so their stacks have to be searched to determine the complete frontier.
+   *
+   * @return the complete frontier
+   */
+  private List<Graph> completeFrontier() {
+    Iterators.size(previousPlans);
+    return frontier;
+  }
+
+  /**
+   * Check if a graph equals or extends another graph, or a compaction of it.
+   *
+   * @param graph     a graph
+   * @param baseGraph a potential base graph
+   *
+   * @return true when the graph equals or extends the base graph or its compaction, false otherwise
+   */
+  private static boolean isExtensionOf(final Graph graph, final Graph baseGraph) {
+    if (graph.getExtensionDepth() < baseGraph.getExtensionDepth()) {
+      return false;
+    }
+    Graph g = graph;
+    while (g.getExtensionDepth() > baseGraph.getExtensionDepth()) {
+      g = g.getBaseGraph();
+    }
+    return g.equals(baseGraph) || isCompactionOf(g, baseGraph);
+  }
+
+  /**
+   * Check if a graph of the same depth as another graph has only provisions of that other graph, as it is the case
+   * for a compacted graph.
+   *
+   * @param graph     a graph
+   * @param baseGraph a graph of the same depth
+   *
+   * @return true when every level of the graph is a subset of the base graph's level, false otherwise
+   */
+  private static boolean isCompactionOf(final Graph graph, final Graph baseGraph) {
+    if (!baseGraph.getInitialLevel().getFunctionalityProvisions()
+        .containsAll(graph.getInitialLevel().getFunctionalityProvisions())) {
+      return false;
+    }
+    for (int i = 0; i < graph.getExtensionDepth(); i += 1) {
+      final ExtensionLevel xl = graph.getExtensionLevel(i);
+      final ExtensionLevel bxl = baseGraph.getExtensionLevel(i);
+      if (xl != bxl && !bxl.getActionProvisions().containsAll(xl.getActionProvisions())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Extracted plans, whose search is not stopped when closed, because the next extraction may have to complete the
+   * frontier.
+   */
+  private static class FrontierPlans extends ForwardingIterator<Plan> implements CloseablePlanIterator {
+
+    private final BackwardChainingPlanIterator plans;
+
+    private boolean closed;
+
+    public FrontierPlans(final BackwardChainingPlanIterator plans) {
+      this.plans = plans;
+    }
+
+    @Override
+    protected Iterator<Plan> delegate() {
+      return plans;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        plans.reportStatistics();
+      }
+    }
+
+  }
+
+}
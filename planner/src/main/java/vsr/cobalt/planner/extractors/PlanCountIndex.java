@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.graph.ActionMutexIndex;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+import vsr.cobalt.utils.ProductSet;
+
+/**
+ * Records the number of plans {@link BackwardChainingPlanIterator} would produce for a specific depth.
+ * <p/>
+ * The index memoizes the number of plans completing a stack for each level index and set of actions required by the
+ * stack's top level, thus applying the same rules regarding enabled, reachable, and mutex actions as the plan
+ * iterator. Because the number of those sets may grow exponentially with the graph size, counting gives up after
+ * considering a given number of provision combinations.
+ * <p/>
+ * Once counted, plans can be retrieved by their index in [0, count) without enumerating any other plans.
+ *
+ * @author Erik Wienhold
+ */
+class PlanCountIndex {
+
+  private final Graph graph;
+
+  private final int depth;
+
+  private final ActionReachabilityIndex reachabilityIndex;
+
+  private final ActionMutexIndex mutexIndex;
+
+  /**
+   * For each level index, the number of plans by set of required actions of the top level.
+   */
+  private final List<Map<Set<Action>, BigInteger>> memo;
+
+  /**
+   * The remaining number of provision combinations to consider.
+   */
+  private int budget;
+
+  /**
+   * The total number of plans, null when not yet counted or the budget is exhausted.
+   */
+  private BigInteger count;
+
+  /**
+   * @param graph  a graph
+   * @param depth  the depth of plans to count
+   * @param budget the maximum number of provision combinations to consider
+   */
+  public PlanCountIndex(final Graph graph, final int depth, final int budget) {
+    this.graph = graph;
+    this.depth = depth;
+    this.budget = budget;
+    reachabilityIndex = new ActionReachabilityIndex(graph);
+    mutexIndex = new ActionMutexIndex(graph);
+    memo = new ArrayList<>();
+    for (int i = 0; i < graph.getDepth(); i += 1) {
+      memo.add(new HashMap<Set<Action>, BigInteger>());
+    }
+  }
+
+  /**
+   * @return the exact number of plans, null when the budget is exhausted
+   */
+  public BigInteger getCount() {
+    if (count == null) {
+      count = count();
+    }
+    return count;
+  }
+
+  /**
+   * Get a plan by its index.
+   *
+   * @param index an index in [0, count)
+   *
+   * @return the plan at the given index
+   */
+  public Plan getPlan(final BigInteger index) {
+    final BigInteger n = getCount();
+    if (n == null) {
+      throw new IllegalStateException("cannot retrieve plans when the budget is exhausted");
+    }
+    if (index.signum() < 0 || index.compareTo(n) >= 0) {
+      throw new IndexOutOfBoundsException("expecting index in [0, " + n + ")");
+    }
+
+    BigInteger i = index;
+
+    InitialLevel il = null;
+    Set<Action> actions = null;
+    for (final Set<FunctionalityProvision> fps : getFunctionalityProvisionCombinations()) {
+      final Set<Action> as = getProvidingActions(fps);
+      final BigInteger k = count(0, as);
+      if (i.compareTo(k) < 0) {
+        il = new InitialLevel(fps);
+        actions = as;
+        break;
+      }
+      i = i.subtract(k);
+    }
+
+    final LinkedList<ExtensionLevel> xls = new LinkedList<>();
+    for (int l = 0; !isEnabled(actions); l += 1) {
+      for (final Set<ActionProvision> aps : getActionProvisionCombinations(l, actions)) {
+        final Set<Action> as = getRequiredActions(aps);
+        final BigInteger k = count(l + 1, as);
+        if (i.compareTo(k) < 0) {
+          xls.add(new ExtensionLevel(aps));
+          actions = as;
+          break;
+        }
+        i = i.subtract(k);
+      }
+    }
+
+    return new Plan(Graph.create(il, xls));
+  }
+
+  private BigInteger count() {
+    BigInteger n = BigInteger.ZERO;
+    for (final Set<FunctionalityProvision> fps : getFunctionalityProvisionCombinations()) {
+      if (!consume()) {
+        return null;
+      }
+      final BigInteger m = count(0, getProvidingActions(fps));
+      if (m == null) {
+        return null;
+      }
+      n = n.add(m);
+    }
+    return n;
+  }
+
+  /**
+   * Count the plans completing a stack.
+   *
+   * @param index   the index of the stack's top level
+   * @param actions the actions required by the stack's top level
+   *
+   * @return the number of plans, null when the budget is exhausted
+   */
+  private BigInteger count(final int index, final Set<Action> actions) {
+    if (isEnabled(actions)) {
+      return index + 1 == depth ? BigInteger.ONE : BigInteger.ZERO;
+    }
+
+    if (!canGrow(index, actions)) {
+      return BigInteger.ZERO;
+    }
+
+    final Map<Set<Action>, BigInteger> m = memo.get(index);
+    final BigInteger cached = m.get(actions);
+    if (cached != null) {
+      return cached;
+    }
+
+    BigInteger n = BigInteger.ZERO;
+    for (final Set<ActionProvision> aps : getActionProvisionCombinations(index, actions)) {
+      if (!consume()) {
+        return null;
+      }
+      final BigInteger k = count(index + 1, getRequiredActions(aps));
+      if (k == null) {
+        return null;
+      }
+      n = n.add(k);
+    }
+
+    m.put(actions, n);
+    return n;
+  }
+
+  private Iterable<Set<FunctionalityProvision>> getFunctionalityProvisionCombinations() {
+    final InitialLevel il = graph.getInitialLevel();
+    final Set<Set<FunctionalityProvision>> fpss = new HashSet<>();
+    for (final Functionality f : il.getRequestedFunctionalities()) {
+      fpss.add(il.getFunctionalityProvisionsByRequestedFunctionality(f));
+    }
+    return new ProductSet<>(fpss);
+  }
+
+  private Iterable<Set<ActionProvision>> getActionProvisionCombinations(final int index, final Set<Action> actions) {
+    final ExtensionLevel xl = graph.getExtensionLevel(index);
+    final Set<Set<ActionProvision>> apss = new HashSet<>();
+    for (final Action a : actions) {
+      final Set<ActionProvision> aps = xl.getActionProvisionsByRequestedAction(a);
+      if (!aps.isEmpty()) {
+        apss.add(aps);
+      }
+    }
+    return new ProductSet<>(apss);
+  }
+
+  private boolean consume() {
+    if (budget == 0) {
+      return false;
+    }
+    budget -= 1;
+    return true;
+  }
+
+  private boolean canGrow(final int index, final Set<Action> actions) {
+    return index + 1 < depth
+        && index < graph.getExtensionDepth()
+        && isReachable(index, actions)
+        && !isMutex(index, actions);
+  }
+
+  private boolean isReachable(final int index, final Set<Action> actions) {
+    final Level l = getLevel(index);
+    for (final Action a : actions) {
+      if (!reachabilityIndex.isReachable(l, a)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isMutex(final int index, final Set<Action> actions) {
+    final Level l = getLevel(index);
+    if (!mutexIndex.hasMutexActions(l)) {
+      return false;
+    }
+    for (final Action ai : actions) {
+      for (final Action aj : actions) {
+        if (mutexIndex.isMutex(l, ai, aj)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private Level getLevel(final int index) {
+    return index == 0
+        ? graph.getInitialLevel()
+        : graph.getExtensionLevel(index - 1);
+  }
+
+  private static Set<Action> getProvidingActions(final Set<FunctionalityProvision> provisions) {
+    final Set<Action> as = new HashSet<>();
+    for (final FunctionalityProvision fp : provisions) {
+      as.add(fp.getProvidingAction());
+    }
+    return as;
+  }
+
+  private static Set<Action> getRequiredActions(final Set<ActionProvision> provisions) {
+    final Set<Action> as = new HashSet<>();
+    for (final ActionProvision ap : provisions) {
+      as.addAll(ap.getRequiredActions());
+    }
+    return as;
+  }
+
+  private static boolean isEnabled(final Set<Action> actions) {
+    for (final Action a : actions) {
+      if (!a.isEnabled()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
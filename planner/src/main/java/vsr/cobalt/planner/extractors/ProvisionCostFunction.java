@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+
+/**
+ * Determines the cost of provisions, used to rank plans by their total cost, i.e. the sum of the costs of all
+ * provisions in a plan.
+ * <p/>
+ * Costs must be non-negative.
+ *
+ * @author Erik Wienhold
+ */
+public interface ProvisionCostFunction {
+
+  /**
+   * Determine the cost of a functionality provision.
+   *
+   * @param provision a functionality provision
+   *
+   * @return a non-negative cost
+   */
+  double getCost(FunctionalityProvision provision);
+
+  /**
+   * Determine the cost of an action provision.
+   *
+   * @param provision an action provision
+   *
+   * @return a non-negative cost
+   */
+  double getCost(ActionProvision provision);
+
+}
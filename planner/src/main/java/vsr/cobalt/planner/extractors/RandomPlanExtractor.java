@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import com.google.common.collect.Iterators;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanExtractor;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Extracts a sample of distinct plans, drawn uniformly at random.
+ * <p/>
+ * Plans are drawn by using a {@link PlanCountIndex}, thus only the drawn plans are constructed. When counting the plans
+ * exceeds the budget, the sample falls back to the first plans produced by a {@link BackwardChainingPlanIterator}.
+ *
+ * @author Erik Wienhold
+ */
+public class RandomPlanExtractor implements PlanExtractor {
+
+  /**
+   * The default number of provision combinations to consider when counting plans.
+   */
+  public static final int DEFAULT_BUDGET = DynamicProgrammingPlanCounter.DEFAULT_BUDGET;
+
+  private final int sampleSize;
+
+  private final Random random;
+
+  private final int budget;
+
+  /**
+   * @param sampleSize the maximum number of plans to extract for each depth
+   * @param random     a source of randomness
+   * @param budget     the maximum number of provision combinations to consider when counting plans
+   */
+  public RandomPlanExtractor(final int sampleSize, final Random random, final int budget) {
+    if (sampleSize < 1) {
+      throw new IllegalArgumentException("expecting sampleSize >= 1");
+    }
+    if (budget < 0) {
+      throw new IllegalArgumentException("expecting budget >= 0");
+    }
+    this.sampleSize = sampleSize;
+    this.random = random;
+    this.budget = budget;
+  }
+
+  /**
+   * @param sampleSize the maximum number of plans to extract for each depth
+   * @param random     a source of randomness
+   */
+  public RandomPlanExtractor(final int sampleSize, final Random random) {
+    this(sampleSize, random, DEFAULT_BUDGET);
+  }
+
+  /**
+   * @return the maximum number of plans to extract for each depth
+   */
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+  @Override
+  public Iterator<Plan> extractPlans(final Graph graph, final int depth) {
+    final PlanCountIndex index = new PlanCountIndex(graph, depth, budget);
+    if (index.getCount() == null) {
+      return Iterators.limit(new BackwardChainingPlanIterator(graph, depth, depth), sampleSize);
+    }
+    return sample(new RandomPlanIterator(index, random));
+  }
+
+  /**
+   * Select the sample from plans drawn uniformly at random.
+   *
+   * @param plans an iterator of distinct plans in random order
+   *
+   * @return an iterator of selected plans
+   */
+  protected Iterator<Plan> sample(final Iterator<Plan> plans) {
+    return Iterators.limit(plans, sampleSize);
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import vsr.cobalt.planner.Plan;
+
+/**
+ * Iterates distinct plans drawn uniformly at random from a {@link PlanCountIndex}.
+ * <p/>
+ * Plans are drawn by their index, rejecting indexes already drawn. Only the drawn plans are constructed, thus the
+ * iterator never enumerates the whole plan space.
+ *
+ * @author Erik Wienhold
+ */
+class RandomPlanIterator extends AbstractIterator<Plan> {
+
+  private final PlanCountIndex index;
+
+  private final BigInteger count;
+
+  private final Random random;
+
+  /**
+   * The indexes of plans already drawn.
+   */
+  private final Set<BigInteger> drawn = new HashSet<>();
+
+  /**
+   * The remaining number of plans to draw.
+   */
+  private BigInteger remaining;
+
+  /**
+   * @param index      a counted plan count index
+   * @param sampleSize the maximum number of plans to draw
+   * @param random     a source of randomness
+   */
+  public RandomPlanIterator(final PlanCountIndex index, final int sampleSize, final Random random) {
+    if (sampleSize < 0) {
+      throw new IllegalArgumentException("expecting sampleSize >= 0");
+    }
+    this.index = index;
+    this.random = random;
+    count = index.getCount();
+    if (count == null) {
+      throw new IllegalArgumentException("expecting counted plan count index");
+    }
+    remaining = count.min(BigInteger.valueOf(sampleSize));
+  }
+
+  /**
+   * @param index  a counted plan count index
+   * @param random a source of randomness
+   */
+  public RandomPlanIterator(final PlanCountIndex index, final Random random) {
+    this(index, Integer.MAX_VALUE, random);
+  }
+
+  @Override
+  protected Plan computeNext() {
+    if (remaining.signum() == 0) {
+      return endOfData();
+    }
+    remaining = remaining.subtract(BigInteger.ONE);
+    BigInteger i;
+    do {
+      i = nextIndex();
+    } while (!drawn.add(i));
+    return index.getPlan(i);
+  }
+
+  /**
+   * @return a uniformly distributed index in [0, count)
+   */
+  private BigInteger nextIndex() {
+    BigInteger i;
+    do {
+      i = new BigInteger(count.bitLength(), random);
+    } while (i.compareTo(count) >= 0);
+    return i;
+  }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import vsr.cobalt.planner.PlanExtractor;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
+
+/**
+ * Extract plans from a graph by solving a propositional encoding of its plans, which copes better than backward
+ * chaining with deep graphs having many mutexes.
+ *
+ * @author Erik Wienhold
+ */
+public class SatPlanExtractor implements PlanExtractor {
+
+  private final PlanningListener listener;
+
+  /**
+   * @param listener a listener receiving search statistics of each extraction
+   */
+  public SatPlanExtractor(final PlanningListener listener) {
+    this.listener = listener;
+  }
+
+  public SatPlanExtractor() {
+    this(NoOpPlanningListener.getInstance());
+  }
+
+  @Override
+  public SatPlanIterator extractPlans(final Graph graph, final int depth) {
+    return new SatPlanIterator(graph, depth, depth, listener);
+  }
+
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.CloseablePlanIterator;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.graph.ActionMutexIndex;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.Level;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
+import vsr.cobalt.planner.sat.SatSolver;
+
+/**
+ * Iterates over all plans available in a graph by solving a propositional encoding of the plans of each depth.
+ * <p/>
+ * For a plan depth d, the encoding has a variable for each provision in the first d graph levels, stating that the
+ * provision is part of the plan, and a variable for each action required by a graph level, stating that the action is
+ * required by the plan's corresponding level. The clauses require
+ * <ul>
+ * <li>a single provision for each requested functionality,</li>
+ * <li>an action to be required by a level exactly when some chosen provision of the level requires it,</li>
+ * <li>a single provision in the next level for each required action which is not enabled, except in the last level,
+ * where all required actions must be enabled,</li>
+ * <li>action provisions to be chosen only for actions required by the previous level,</li>
+ * <li>some action provision in the last level, so that plans have exactly depth d,</li>
+ * <li>no two mutex actions and no unreachable actions in any level but the last.</li>
+ * </ul>
+ * Each model of the encoding is a plan. Once found, the plan's provisions are blocked by an additional clause, so that
+ * the solver finds another plan or proves there is none, retaining the clauses it has learnt from earlier conflicts.
+ * <p/>
+ * Unlike {@link BackwardChainingPlanIterator}, the search does not depend on the order of levels, so conflicts between
+ * provisions of distant levels are learnt once instead of being rediscovered for each combination in between. The
+ * solver statistics are reported to the listener as plan extraction statistics, i.e. decisions as frames, models as
+ * combinations, and solver conflicts as conflicts.
+ *
+ * @author Erik Wienhold
+ */
+class SatPlanIterator extends AbstractIterator<Plan> implements CloseablePlanIterator {
+
+  private final Graph graph;
+
+  private final int minDepth;
+
+  private final int maxDepth;
+
+  private final PlanningListener listener;
+
+  private final boolean timed;
+
+  private final ActionReachabilityIndex reachabilityIndex;
+
+  private final ActionMutexIndex mutexIndex;
+
+  /**
+   * The depth of the plans currently searched.
+   */
+  private int depth;
+
+  /**
+   * The encoding of the current depth, null when not yet created.
+   */
+  private Encoding encoding;
+
+  private long decisions;
+
+  private long conflicts;
+
+  private int models;
+
+  private int emittedPlans;
+
+  private long searchNanos;
+
+  /**
+   * Indicates whether the search has been exhausted or closed.
+   */
+  private boolean terminated;
+
+  /**
+   * @param graph    a graph to examine
+   * @param minDepth the minimum graph depth for a plan
+   * @param maxDepth the maximum graph depth for a plan
+   * @param listener a listener receiving search statistics
+   */
+  public SatPlanIterator(final Graph graph, final int minDepth, final int maxDepth,
+                         final PlanningListener listener) {
+    if (minDepth < 1) {
+      throw new IllegalArgumentException("expecting minDepth >= 1");
+    }
+    if (minDepth > maxDepth) {
+      throw new IllegalArgumentException("expecting minDepth <= maxDepth");
+    }
+    this.graph = graph;
+    this.minDepth = minDepth;
+    this.maxDepth = maxDepth;
+    this.listener = listener;
+    timed = NoOpPlanningListener.isListening(listener);
+    reachabilityIndex = new ActionReachabilityIndex(graph);
+    mutexIndex = new ActionMutexIndex(graph);
+    depth = minDepth;
+  }
+
+  /**
+   * @param graph    a graph to examine
+   * @param minDepth the minimum graph depth for a plan
+   * @param maxDepth the maximum graph depth for a plan
+   */
+  public SatPlanIterator(final Graph graph, final int minDepth, final int maxDepth) {
+    this(graph, minDepth, maxDepth, NoOpPlanningListener.getInstance());
+  }
+
+  /**
+   * @return the graph
+   */
+  public Graph getGraph() {
+    return graph;
+  }
+
+  /**
+   * @return the minimum plan depth
+   */
+  public int getMinDepth() {
+    return minDepth;
+  }
+
+  /**
+   * @return the maximum plan depth
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Stop the search and report its statistics, including those of the current depth's solver.
+   */
+  @Override
+  public void close() {
+    if (terminated) {
+      return;
+    }
+    if (encoding != null) {
+      decisions += encoding.solver.getDecisions();
+      conflicts += encoding.solver.getConflicts();
+      encoding = null;
+    }
+    terminate();
+  }
+
+  @Override
+  protected Plan computeNext() {
+    if (terminated) {
+      return endOfData();
+    }
+    if (!timed) {
+      return search();
+    }
+    final long start = System.nanoTime();
+    try {
+      return search();
+    } finally {
+      searchNanos += System.nanoTime() - start;
+    }
+  }
+
+  private Plan search() {
+    // the graph has no plans beyond its depth
+    while (depth <= Math.min(maxDepth, graph.getDepth())) {
+      if (encoding == null) {
+        encoding = new Encoding(depth);
+      }
+
+      while (encoding.solve()) {
+        models += 1;
+        final Plan p = encoding.createPlan();
+        encoding.blockModel();
+        if (p != null) {
+          emittedPlans += 1;
+          return p;
+        }
+      }
+
+      decisions += encoding.solver.getDecisions();
+      conflicts += encoding.solver.getConflicts();
+      encoding = null;
+
+      // depth may overflow when max depth is reached
+      if (depth == Integer.MAX_VALUE) {
+        break;
+      }
+      depth += 1;
+    }
+
+    terminate();
+    return endOfData();
+  }
+
+  private void terminate() {
+    terminated = true;
+    listener.plansExtracted(maxDepth, (int) decisions, models, (int) conflicts, emittedPlans, searchNanos);
+  }
+
+  /**
+   * The encoding of all plans of a specific depth.
+   */
+  private class Encoding {
+
+    private final SatSolver solver = new SatSolver();
+
+    private final int depth;
+
+    private final Map<FunctionalityProvision, Integer> functionalityProvisions = new HashMap<>();
+
+    /**
+     * The variables of action provisions, indexed by extension level.
+     */
+    private final List<Map<ActionProvision, Integer>> actionProvisions = new ArrayList<>();
+
+    /**
+     * The variables of required actions, indexed by level.
+     */
+    private final List<Map<Action, Integer>> requiredActions = new ArrayList<>();
+
+    public Encoding(final int depth) {
+      this.depth = depth;
+      encodeInitialLevel(graph.getInitialLevel());
+      for (int i = 1; i < depth; i += 1) {
+        encodeExtensionLevel(graph.getExtensionLevel(i - 1), i);
+      }
+      encodeLastLevel();
+    }
+
+    public boolean solve() {
+      return solver.solve();
+    }
+
+    /**
+     * Create a plan from the current model.
+     *
+     * @return a plan, null when the chosen provisions do not form a valid plan
+     */
+    public Plan createPlan() {
+      final Set<FunctionalityProvision> fps = new HashSet<>();
+      for (final Map.Entry<FunctionalityProvision, Integer> e : functionalityProvisions.entrySet()) {
+        if (solver.getValue(e.getValue())) {
+          fps.add(e.getKey());
+        }
+      }
+
+      final List<ExtensionLevel> xls = new ArrayList<>(depth - 1);
+      for (final Map<ActionProvision, Integer> vs : actionProvisions) {
+        final Set<ActionProvision> aps = new HashSet<>();
+        for (final Map.Entry<ActionProvision, Integer> e : vs.entrySet()) {
+          if (solver.getValue(e.getValue())) {
+            aps.add(e.getKey());
+          }
+        }
+        xls.add(new ExtensionLevel(aps));
+      }
+
+      try {
+        return new Plan(Graph.create(new InitialLevel(fps), xls));
+      } catch (final IllegalArgumentException ignored) {
+        // the plan's own mutex relations may be stricter than those of the graph
+        return null;
+      }
+    }
+
+    /**
+     * Exclude the current model from further solutions. Because the provisions of a plan are determined by its
+     * functionality provisions, it is sufficient to block the chosen provisions.
+     */
+    public void blockModel() {
+      final List<Integer> ls = new ArrayList<>();
+      for (final int v : functionalityProvisions.values()) {
+        if (solver.getValue(v)) {
+          ls.add(-v);
+        }
+      }
+      for (final Map<ActionProvision, Integer> vs : actionProvisions) {
+        for (final int v : vs.values()) {
+          if (solver.getValue(v)) {
+            ls.add(-v);
+          }
+        }
+      }
+      solver.addClause(toArray(ls));
+    }
+
+    private void encodeInitialLevel(final InitialLevel level) {
+      for (final FunctionalityProvision fp : level.getFunctionalityProvisions()) {
+        functionalityProvisions.put(fp, solver.newVariable());
+      }
+
+      for (final Functionality f : level.getRequestedFunctionalities()) {
+        final List<Integer> vs = new ArrayList<>();
+        for (final FunctionalityProvision fp : level.getFunctionalityProvisionsByRequestedFunctionality(f)) {
+          vs.add(functionalityProvisions.get(fp));
+        }
+        addExactlyOne(vs);
+      }
+
+      final Map<Action, List<Integer>> supports = new HashMap<>();
+      for (final FunctionalityProvision fp : level.getFunctionalityProvisions()) {
+        addSupport(supports, fp.getProvidingAction(), functionalityProvisions.get(fp));
+      }
+      encodeRequiredActions(level, supports);
+    }
+
+    private void encodeExtensionLevel(final ExtensionLevel level, final int index) {
+      final Map<ActionProvision, Integer> vs = new HashMap<>();
+      for (final ActionProvision ap : level.getActionProvisions()) {
+        vs.put(ap, solver.newVariable());
+      }
+      actionProvisions.add(vs);
+
+      // each action required by the previous level, which is not enabled, needs a single provision
+      final Map<Action, Integer> ras = requiredActions.get(index - 1);
+      for (final Map.Entry<Action, Integer> e : ras.entrySet()) {
+        final Action a = e.getKey();
+        if (a.isEnabled()) {
+          continue;
+        }
+        final List<Integer> ps = new ArrayList<>();
+        for (final ActionProvision ap : level.getActionProvisionsByRequestedAction(a)) {
+          ps.add(vs.get(ap));
+        }
+        ps.add(-e.getValue());
+        solver.addClause(toArray(ps));
+        ps.remove(ps.size() - 1);
+        addAtMostOne(ps);
+      }
+
+      // action provisions are only chosen for unsatisfied actions required by the previous level
+      for (final Map.Entry<ActionProvision, Integer> e : vs.entrySet()) {
+        final Action a = e.getKey().getRequestedAction();
+        final Integer v = ras.get(a);
+        if (v == null || a.isEnabled()) {
+          solver.addClause(-e.getValue());
+        } else {
+          solver.addClause(-e.getValue(), v);
+        }
+      }
+
+      final Map<Action, List<Integer>> supports = new HashMap<>();
+      for (final ActionProvision ap : level.getActionProvisions()) {
+        for (final Action a : ap.getRequiredActions()) {
+          addSupport(supports, a, vs.get(ap));
+        }
+      }
+      encodeRequiredActions(level, supports);
+    }
+
+    /**
+     * Create the variables of the actions required by a level, each being true exactly when any chosen provision
+     * requires the action.
+     *
+     * @param level    a level
+     * @param supports the variables of provisions requiring each action
+     */
+    private void encodeRequiredActions(final Level level, final Map<Action, List<Integer>> supports) {
+      final Map<Action, Integer> ras = new HashMap<>();
+      for (final Map.Entry<Action, List<Integer>> e : supports.entrySet()) {
+        final int v = solver.newVariable();
+        ras.put(e.getKey(), v);
+        final List<Integer> ps = new ArrayList<>(e.getValue());
+        for (final int p : ps) {
+          solver.addClause(-p, v);
+        }
+        ps.add(-v);
+        solver.addClause(toArray(ps));
+      }
+      requiredActions.add(ras);
+
+      // levels other than the last one must be grown, hence be reachable and free of mutexes
+      if (requiredActions.size() < depth) {
+        encodeReachability(level, ras);
+        encodeMutexes(level, ras);
+      }
+    }
+
+    private void encodeReachability(final Level level, final Map<Action, Integer> ras) {
+      for (final Map.Entry<Action, Integer> e : ras.entrySet()) {
+        if (!e.getKey().isEnabled() && !reachabilityIndex.isReachable(level, e.getKey())) {
+          solver.addClause(-e.getValue());
+        }
+      }
+    }
+
+    private void encodeMutexes(final Level level, final Map<Action, Integer> ras) {
+      if (!mutexIndex.hasMutexActions(level)) {
+        return;
+      }
+      final List<Action> as = new ArrayList<>(ras.keySet());
+      for (int i = 0; i < as.size(); i += 1) {
+        for (int j = i + 1; j < as.size(); j += 1) {
+          if (mutexIndex.isMutex(level, as.get(i), as.get(j))) {
+            solver.addClause(-ras.get(as.get(i)), -ras.get(as.get(j)));
+          }
+        }
+      }
+    }
+
+    private void encodeLastLevel() {
+      // the last level must be enabled
+      for (final Map.Entry<Action, Integer> e : requiredActions.get(depth - 1).entrySet()) {
+        if (!e.getKey().isEnabled()) {
+          solver.addClause(-e.getValue());
+        }
+      }
+
+      // plans must have some provision in the last level to not be shallower
+      if (depth > 1) {
+        solver.addClause(toArray(new ArrayList<>(actionProvisions.get(depth - 2).values())));
+      }
+    }
+
+    private void addSupport(final Map<Action, List<Integer>> supports, final Action action, final int variable) {
+      List<Integer> vs = supports.get(action);
+      if (vs == null) {
+        vs = new ArrayList<>();
+        supports.put(action, vs);
+      }
+      vs.add(variable);
+    }
+
+    private void addExactlyOne(final List<Integer> variables) {
+      solver.addClause(toArray(variables));
+      addAtMostOne(variables);
+    }
+
+    private void addAtMostOne(final List<Integer> variables) {
+      for (int i = 0; i < variables.size(); i += 1) {
+        for (int j = i + 1; j < variables.size(); j += 1) {
+          solver.addClause(-variables.get(i), -variables.get(j));
+        }
+      }
+    }
+
+  }
+
+  private static int[] toArray(final List<Integer> values) {
+    final int[] xs = new int[values.size()];
+    for (int i = 0; i < xs.length; i += 1) {
+      xs[i] = values.get(i);
+    }
+    return xs;
+  }
+
+}
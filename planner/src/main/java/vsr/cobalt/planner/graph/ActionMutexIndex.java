@@ -7,6 +7,7 @@
 
 package vsr.cobalt.planner.graph;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -23,15 +24,20 @@ import vsr.cobalt.models.PropositionSet;
  * <p/>
  * The information about mutex relations is kept separate from the actual graph structure as it isn't essential to the
  * graph construction but mainly only applies to plan extraction.
+ * <p/>
+ * The mutexes of compact levels are additionally kept as {@link ActionSet}s by action identifier, so that a set of
+ * actions is checked for mutexes by intersecting identifiers. The actions of any other level are checked pairwise.
  *
  * @author Erik Wienhold
  */
 public class ActionMutexIndex {
 
-  private final Map<Level, MutexSet<Action>> index;
+  private final Map<Level, MutexSet<Action>> index = new HashMap<>();
+
+  private final Map<Level, CompactMutexes> compactIndex = new HashMap<>();
 
   public ActionMutexIndex(final Graph graph) {
-    index = buildIndex(graph);
+    buildIndex(graph);
   }
 
   /**
@@ -76,9 +82,35 @@ public class ActionMutexIndex {
         || mutexes.contains(action2, action1));
   }
 
-  private static Map<Level, MutexSet<Action>> buildIndex(final Graph graph) {
-    final Map<Level, MutexSet<Action>> index = new HashMap<>();
+  /**
+   * Check if any two of the given actions are mutual exclusive in a given level.
+   *
+   * @param level   a level containing the given actions
+   * @param actions a set of actions to check
+   *
+   * @return true when any two actions are mutually exclusive, false otherwise
+   */
+  public boolean hasMutexActions(final Level level, final Set<Action> actions) {
+    if (!hasMutexActions(level)) {
+      return false;
+    }
+
+    final CompactMutexes cm = compactIndex.get(level);
+    if (cm != null) {
+      return cm.hasMutexActions(ActionSet.copyOfKnown(actions, cm.dictionary));
+    }
+
+    for (final Action ai : actions) {
+      for (final Action aj : actions) {
+        if (isMutex(level, ai, aj)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
 
+  private void buildIndex(final Graph graph) {
     MutexSet<Proposition> preMutexes = new MutexSet<>();
 
     // Iterate over all levels in reverse, i.e. start with the very last extension level.
@@ -93,9 +125,11 @@ public class ActionMutexIndex {
       preMutexes = propagateMutexes(actionMutexes, propositionIndex);
 
       index.put(level, actionMutexes);
-    }
 
-    return index;
+      if (actions instanceof ActionSet && !actionMutexes.isEmpty()) {
+        compactIndex.put(level, new CompactMutexes(((ActionSet) actions).getDictionary(), actionMutexes));
+      }
+    }
   }
 
   private static MutexSet<Proposition> propagateMutexes(final MutexSet<Action> actionMutexes,
@@ -210,6 +244,42 @@ public class ActionMutexIndex {
       return mutexes.containsEntry(x, y);
     }
 
+    public Map<T, Collection<T>> asMap() {
+      return mutexes.asMap();
+    }
+
+  }
+
+  /**
+   * The mutex actions of each action of a compact level.
+   */
+  private static class CompactMutexes {
+
+    private final GraphDictionary dictionary;
+
+    /**
+     * The mutex actions by action identifier, null for actions without mutexes.
+     */
+    private final ActionSet[] mutexes;
+
+    public CompactMutexes(final GraphDictionary dictionary, final MutexSet<Action> mutexes) {
+      this.dictionary = dictionary;
+      this.mutexes = new ActionSet[dictionary.getActionCount()];
+      for (final Map.Entry<Action, Collection<Action>> e : mutexes.asMap().entrySet()) {
+        this.mutexes[dictionary.getActionId(e.getKey())] = ActionSet.copyOf(e.getValue(), dictionary);
+      }
+    }
+
+    public boolean hasMutexActions(final ActionSet actions) {
+      for (int i = 0; i < actions.size(); i += 1) {
+        final int id = actions.getId(i);
+        if (id < mutexes.length && mutexes[id] != null && mutexes[id].intersects(actions)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
   }
 
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.graph;
+
+import java.util.Set;
+
+import vsr.cobalt.models.Action;
+
+/**
+ * Creates the action provisions of a lazy extension level on demand.
+ *
+ * @author Erik Wienhold
+ */
+public interface ActionProvisionSource {
+
+  /**
+   * Create all provisions for a requested action.
+   *
+   * @param action a requested action
+   *
+   * @return a set of provisions with the given requested action, empty when the action cannot be satisfied
+   */
+  Set<ActionProvision> getActionProvisionsFor(Action action);
+
+}
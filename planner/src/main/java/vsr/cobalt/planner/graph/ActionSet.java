@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.graph;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import vsr.cobalt.models.Action;
+
+/**
+ * An immutable set of actions backed by their sorted identifiers in a graph dictionary.
+ * <p/>
+ * Sets of the same dictionary are compared, intersected and united by merging their identifiers, without hashing or
+ * comparing any action. The hash code follows the contract of {@link java.util.Set}, so that sets compare equal to
+ * other sets of the same actions, but is computed only once.
+ * <p/>
+ * Only compact extension levels (see {@link ExtensionLevel#createCompact(java.util.Set, GraphDictionary)}) return
+ * their actions as action sets, and only the checks on compact levels use them. Other levels keep ordinary hash sets.
+ *
+ * @author Erik Wienhold
+ */
+public final class ActionSet extends AbstractSet<Action> {
+
+  private final GraphDictionary dictionary;
+
+  /**
+   * The distinct action identifiers in ascending order.
+   */
+  private final int[] ids;
+
+  /**
+   * The cached hash code, zero when not yet computed.
+   */
+  private int hash;
+
+  private ActionSet(final GraphDictionary dictionary, final int[] ids) {
+    this.dictionary = dictionary;
+    this.ids = ids;
+  }
+
+  /**
+   * Create a set of actions, assigning identifiers to actions without one.
+   *
+   * @param actions    a collection of actions
+   * @param dictionary a dictionary of actions
+   *
+   * @return a new action set
+   */
+  public static ActionSet copyOf(final Collection<Action> actions, final GraphDictionary dictionary) {
+    if (actions instanceof ActionSet && ((ActionSet) actions).dictionary == dictionary) {
+      return (ActionSet) actions;
+    }
+    final int[] ids = new int[actions.size()];
+    int n = 0;
+    for (final Action a : actions) {
+      ids[n] = dictionary.getActionId(a);
+      n += 1;
+    }
+    return fromIds(ids, n, dictionary);
+  }
+
+  /**
+   * Create a set of those actions which already have an identifier. Other actions cannot be part of any set of the
+   * dictionary anyway.
+   *
+   * @param actions    a collection of actions
+   * @param dictionary a dictionary of actions
+   *
+   * @return a new action set
+   */
+  static ActionSet copyOfKnown(final Collection<Action> actions, final GraphDictionary dictionary) {
+    if (actions instanceof ActionSet && ((ActionSet) actions).dictionary == dictionary) {
+      return (ActionSet) actions;
+    }
+    final int[] ids = new int[actions.size()];
+    int n = 0;
+    for (final Action a : actions) {
+      final int id = dictionary.findActionId(a);
+      if (id >= 0) {
+        ids[n] = id;
+        n += 1;
+      }
+    }
+    return fromIds(ids, n, dictionary);
+  }
+
+  /**
+   * Create a set from action identifiers.
+   *
+   * @param ids        an array of identifiers, which is sorted in place
+   * @param length     the number of identifiers to use from the start of the array
+   * @param dictionary the dictionary of the identifiers
+   *
+   * @return a new action set
+   */
+  static ActionSet fromIds(final int[] ids, final int length, final GraphDictionary dictionary) {
+    Arrays.sort(ids, 0, length);
+    int n = 0;
+    for (int i = 0; i < length; i += 1) {
+      if (n == 0 || ids[i] != ids[n - 1]) {
+        ids[n] = ids[i];
+        n += 1;
+      }
+    }
+    return new ActionSet(dictionary, n == ids.length ? ids : Arrays.copyOf(ids, n));
+  }
+
+  /**
+   * @return the dictionary of the set's actions
+   */
+  public GraphDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Test if this set has any action in common with another set.
+   *
+   * @param other an action set of the same dictionary
+   *
+   * @return true when both sets have a common action, false otherwise
+   */
+  public boolean intersects(final ActionSet other) {
+    assertSameDictionary(other);
+    int i = 0;
+    int j = 0;
+    while (i < ids.length && j < other.ids.length) {
+      if (ids[i] < other.ids[j]) {
+        i += 1;
+      } else if (ids[i] > other.ids[j]) {
+        j += 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param other an action set of the same dictionary
+   *
+   * @return true when both sets have no common action, false otherwise
+   */
+  public boolean isDisjoint(final ActionSet other) {
+    return !intersects(other);
+  }
+
+  /**
+   * @param other an action set of the same dictionary
+   *
+   * @return a set of all actions in any of both sets
+   */
+  public ActionSet union(final ActionSet other) {
+    assertSameDictionary(other);
+    final int[] us = new int[ids.length + other.ids.length];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < ids.length || j < other.ids.length) {
+      if (j == other.ids.length || i < ids.length && ids[i] < other.ids[j]) {
+        us[n] = ids[i];
+        i += 1;
+      } else if (i == ids.length || ids[i] > other.ids[j]) {
+        us[n] = other.ids[j];
+        j += 1;
+      } else {
+        us[n] = ids[i];
+        i += 1;
+        j += 1;
+      }
+      n += 1;
+    }
+    return new ActionSet(dictionary, n == us.length ? us : Arrays.copyOf(us, n));
+  }
+
+  /**
+   * @param other an action set of the same dictionary
+   *
+   * @return a set of all actions in both sets
+   */
+  public ActionSet intersection(final ActionSet other) {
+    assertSameDictionary(other);
+    final int[] xs = new int[Math.min(ids.length, other.ids.length)];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < ids.length && j < other.ids.length) {
+      if (ids[i] < other.ids[j]) {
+        i += 1;
+      } else if (ids[i] > other.ids[j]) {
+        j += 1;
+      } else {
+        xs[n] = ids[i];
+        i += 1;
+        j += 1;
+        n += 1;
+      }
+    }
+    return new ActionSet(dictionary, n == xs.length ? xs : Arrays.copyOf(xs, n));
+  }
+
+  /**
+   * Test if the set contains an action identifier.
+   *
+   * @param id an action identifier
+   *
+   * @return true when contained, false otherwise
+   */
+  boolean containsId(final int id) {
+    return Arrays.binarySearch(ids, id) >= 0;
+  }
+
+  /**
+   * @param index an index less than the set's size
+   *
+   * @return the action identifier at the given index in ascending order
+   */
+  int getId(final int index) {
+    return ids[index];
+  }
+
+  @Override
+  public int size() {
+    return ids.length;
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    if (!(o instanceof Action)) {
+      return false;
+    }
+    final int id = dictionary.findActionId((Action) o);
+    return id >= 0 && containsId(id);
+  }
+
+  @Override
+  public boolean containsAll(final Collection<?> c) {
+    if (!(c instanceof ActionSet) || ((ActionSet) c).dictionary != dictionary) {
+      return super.containsAll(c);
+    }
+    final int[] others = ((ActionSet) c).ids;
+    int i = 0;
+    for (final int id : others) {
+      while (i < ids.length && ids[i] < id) {
+        i += 1;
+      }
+      if (i == ids.length || ids[i] != id) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Iterator<Action> iterator() {
+    return new Iterator<Action>() {
+      private int i;
+
+      @Override
+      public boolean hasNext() {
+        return i < ids.length;
+      }
+
+      @Override
+      public Action next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final Action a = dictionary.getAction(ids[i]);
+        i += 1;
+        return a;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (other instanceof ActionSet && ((ActionSet) other).dictionary == dictionary) {
+      return Arrays.equals(ids, ((ActionSet) other).ids);
+    }
+    return super.equals(other);
+  }
+
+  @Override
+  public int hashCode() {
+    // an empty set or an actual hash code of zero is computed again, like String does
+    int h = hash;
+    if (h == 0) {
+      h = super.hashCode();
+      hash = h;
+    }
+    return h;
+  }
+
+  private void assertSameDictionary(final ActionSet other) {
+    if (other.dictionary != dictionary) {
+      throw new IllegalArgumentException("expecting sets of the same dictionary");
+    }
+  }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.graph;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.PublishedProperty;
+
+/**
+ * Stores action provisions column-wise in primitive arrays, with actions and properties referenced by their
+ * identifiers in a graph dictionary.
+ * <p/>
+ * Each provision is a row with the identifiers of its requested and precursor action, and a range of references into
+ * a table of property provisions, which is shared by all rows. Rows are sorted by requested action, so that the
+ * provisions of an action form a contiguous range. Provision objects are only created when asked for, and are not
+ * kept.
+ *
+ * @author Erik Wienhold
+ */
+final class ColumnarActionProvisions {
+
+  /**
+   * The precursor identifier of provisions without precursor.
+   */
+  private static final int NONE = -1;
+
+  private final GraphDictionary dictionary;
+
+  /**
+   * The requested action of each row, in ascending order.
+   */
+  private final int[] requestedActions;
+
+  /**
+   * The precursor action of each row, {@link #NONE} when a row has no precursor.
+   */
+  private final int[] precursorActions;
+
+  /**
+   * The start of each row's references in {@link #propertyProvisions}, with an additional end offset.
+   */
+  private final int[] offsets;
+
+  /**
+   * The references of all rows into the property provision table.
+   */
+  private final int[] propertyProvisions;
+
+  /**
+   * The property provision table: requested property, offered property and providing action of each entry.
+   */
+  private final int[] requestedProperties;
+
+  private final int[] offeredProperties;
+
+  private final int[] providingActions;
+
+  /**
+   * A set view creating each provision on demand.
+   */
+  private final Set<ActionProvision> view = new View();
+
+  /**
+   * @param actionProvisions a set of action provisions
+   * @param dictionary       a dictionary assigning identifiers to actions and properties
+   */
+  public ColumnarActionProvisions(final Set<ActionProvision> actionProvisions, final GraphDictionary dictionary) {
+    this.dictionary = dictionary;
+
+    final List<ActionProvision> rows = new ArrayList<>(actionProvisions);
+    final Map<ActionProvision, Integer> rowIds = new HashMap<>();
+    for (final ActionProvision ap : rows) {
+      rowIds.put(ap, dictionary.getActionId(ap.getRequestedAction()));
+    }
+    Collections.sort(rows, new Comparator<ActionProvision>() {
+      @Override
+      public int compare(final ActionProvision ap1, final ActionProvision ap2) {
+        return Integer.compare(rowIds.get(ap1), rowIds.get(ap2));
+      }
+    });
+
+    final int n = rows.size();
+    requestedActions = new int[n];
+    precursorActions = new int[n];
+    offsets = new int[n + 1];
+
+    final Map<PropertyProvision, Integer> table = new HashMap<>();
+    final List<PropertyProvision> entries = new ArrayList<>();
+    int m = 0;
+    for (final ActionProvision ap : rows) {
+      m += ap.getPropertyProvisions().size();
+    }
+    propertyProvisions = new int[m];
+
+    int k = 0;
+    for (int i = 0; i < n; i += 1) {
+      final ActionProvision ap = rows.get(i);
+      requestedActions[i] = rowIds.get(ap);
+      final Action pa = ap.getPrecursorAction();
+      precursorActions[i] = pa == null ? NONE : dictionary.getActionId(pa);
+      offsets[i] = k;
+      for (final PropertyProvision pp : ap.getPropertyProvisions()) {
+        Integer j = table.get(pp);
+        if (j == null) {
+          j = entries.size();
+          table.put(pp, j);
+          entries.add(pp);
+        }
+        propertyProvisions[k] = j;
+        k += 1;
+      }
+    }
+    offsets[n] = k;
+
+    requestedProperties = new int[entries.size()];
+    offeredProperties = new int[entries.size()];
+    providingActions = new int[entries.size()];
+    for (int j = 0; j < entries.size(); j += 1) {
+      final PropertyProvision pp = entries.get(j);
+      requestedProperties[j] = dictionary.getPropertyId(pp.getRequest());
+      offeredProperties[j] = dictionary.getPropertyId(pp.getOffer().getSubject());
+      providingActions[j] = dictionary.getActionId(pp.getProvidingAction());
+    }
+  }
+
+  /**
+   * @return the dictionary of actions and properties
+   */
+  public GraphDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * @return the number of provisions
+   */
+  public int size() {
+    return requestedActions.length;
+  }
+
+  /**
+   * @return the number of distinct property provisions
+   */
+  public int getPropertyProvisionCount() {
+    return providingActions.length;
+  }
+
+  /**
+   * @return a set view of all provisions, creating each provision when iterated
+   */
+  public Set<ActionProvision> asSet() {
+    return view;
+  }
+
+  /**
+   * @return the set of requested actions
+   */
+  public ActionSet getRequestedActions() {
+    return ActionSet.fromIds(requestedActions.clone(), requestedActions.length, dictionary);
+  }
+
+  /**
+   * @return the set of precursor and providing actions
+   */
+  public ActionSet getRequiredActions() {
+    final int[] ids = new int[precursorActions.length + providingActions.length];
+    int n = 0;
+    for (final int id : precursorActions) {
+      if (id != NONE) {
+        ids[n] = id;
+        n += 1;
+      }
+    }
+    // every table entry is referenced by some row
+    for (final int id : providingActions) {
+      ids[n] = id;
+      n += 1;
+    }
+    return ActionSet.fromIds(ids, n, dictionary);
+  }
+
+  /**
+   * Get the requested actions of all provisions requiring any of the given actions.
+   *
+   * @param actions a set of actions of the same dictionary
+   *
+   * @return a set of requested actions
+   */
+  public ActionSet getRequestedActionsRequiringAny(final ActionSet actions) {
+    final int[] ids = new int[requestedActions.length];
+    int n = 0;
+    for (int i = 0; i < requestedActions.length; i += 1) {
+      if (requiresAny(i, actions)) {
+        ids[n] = requestedActions[i];
+        n += 1;
+      }
+    }
+    return ActionSet.fromIds(ids, n, dictionary);
+  }
+
+  private boolean requiresAny(final int row, final ActionSet actions) {
+    if (precursorActions[row] != NONE && actions.containsId(precursorActions[row])) {
+      return true;
+    }
+    for (int k = offsets[row]; k < offsets[row + 1]; k += 1) {
+      if (actions.containsId(providingActions[propertyProvisions[k]])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get all provisions with a requested action.
+   *
+   * @param action a requested action
+   *
+   * @return a set of provisions, empty when the action is not requested
+   */
+  public Set<ActionProvision> getByRequestedAction(final Action action) {
+    final int id = dictionary.findActionId(action);
+    if (id == NONE) {
+      return ImmutableSet.of();
+    }
+    int i = Arrays.binarySearch(requestedActions, id);
+    if (i < 0) {
+      return ImmutableSet.of();
+    }
+    while (i > 0 && requestedActions[i - 1] == id) {
+      i -= 1;
+    }
+    final ImmutableSet.Builder<ActionProvision> b = ImmutableSet.builder();
+    for (; i < requestedActions.length && requestedActions[i] == id; i += 1) {
+      b.add(get(i));
+    }
+    return b.build();
+  }
+
+  /**
+   * Create the provision of a row.
+   *
+   * @param row a row index
+   *
+   * @return the row's provision
+   */
+  private ActionProvision get(final int row) {
+    final Action ra = dictionary.getAction(requestedActions[row]);
+    final Set<PropertyProvision> pps = new HashSet<>();
+    for (int k = offsets[row]; k < offsets[row + 1]; k += 1) {
+      pps.add(getPropertyProvision(propertyProvisions[k]));
+    }
+    final int pa = precursorActions[row];
+    if (pa == NONE) {
+      return ActionProvision.createWithoutPrecursor(ra, pps);
+    }
+    return ActionProvision.createWithPrecursor(ra, dictionary.getAction(pa), pps);
+  }
+
+  private PropertyProvision getPropertyProvision(final int entry) {
+    return new PropertyProvision(dictionary.getProperty(requestedProperties[entry]),
+        new PublishedProperty(dictionary.getProperty(offeredProperties[entry]),
+            dictionary.getAction(providingActions[entry])));
+  }
+
+  private class View extends AbstractSet<ActionProvision> {
+
+    @Override
+    public int size() {
+      return requestedActions.length;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      return o instanceof ActionProvision
+          && getByRequestedAction(((ActionProvision) o).getRequestedAction()).contains(o);
+    }
+
+    @Override
+    public Iterator<ActionProvision> iterator() {
+      return new Iterator<ActionProvision>() {
+        private int row;
+
+        @Override
+        public boolean hasNext() {
+          return row < requestedActions.length;
+        }
+
+        @Override
+        public ActionProvision next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final ActionProvision ap = get(row);
+          row += 1;
+          return ap;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+  }
+
+}
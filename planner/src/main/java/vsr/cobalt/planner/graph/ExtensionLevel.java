@@ -7,24 +7,61 @@
 
 package vsr.cobalt.planner.graph;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import vsr.cobalt.models.Action;
 
 /**
  * A graph level representing an extension, i.e. it contains provisions for actions required by the previous level.
+ * <p/>
+ * A lazy extension level creates the provisions of a requested action only when they are asked for the first time,
+ * and keeps them afterwards. All provisions are created when the level is used as a whole, e.g. to get its required
+ * actions or to compare it with another level.
+ * <p/>
+ * A compact extension level stores its provisions in primitive arrays, with actions and properties identified through
+ * a dictionary shared by the levels of a graph. Provisions are created whenever they are asked for, trading time for
+ * a much smaller heap footprint of large graphs.
  *
  * @author Erik Wienhold
  */
 public final class ExtensionLevel implements Level {
 
   /**
-   * A non-empty set of action provisions.
+   * A non-empty set of action provisions, null until all provisions of a lazy level are created.
    */
-  private final ImmutableSet<ActionProvision> actionProvisions;
+  private volatile Set<ActionProvision> actionProvisions;
+
+  /**
+   * The provisions indexed by requested action, null until first used.
+   */
+  private volatile ImmutableSetMultimap<Action, ActionProvision> index;
+
+  /**
+   * The actions a lazy level may provide, null for a level created from its provisions.
+   */
+  private final ImmutableSet<Action> candidateActions;
+
+  /**
+   * The source of a lazy level's provisions, null for a level created from its provisions.
+   */
+  private final ActionProvisionSource source;
+
+  /**
+   * The provisions of a lazy level by requested action, filled on demand.
+   */
+  private final ConcurrentMap<Action, Set<ActionProvision>> provisionsByAction;
+
+  /**
+   * The provisions of a compact level, null for any other level.
+   */
+  private final ColumnarActionProvisions columns;
 
   /**
    * Create an extension level from a set of action provisions.
@@ -36,13 +73,86 @@ public final class ExtensionLevel implements Level {
       throw new IllegalArgumentException("expecting one or more provisions");
     }
     this.actionProvisions = ImmutableSet.copyOf(actionProvisions);
+    candidateActions = null;
+    source = null;
+    provisionsByAction = null;
+    columns = null;
+  }
+
+  private ExtensionLevel(final Set<Action> candidateActions, final ActionProvisionSource source) {
+    if (candidateActions.isEmpty()) {
+      throw new IllegalArgumentException("expecting one or more candidate actions");
+    }
+    this.candidateActions = ImmutableSet.copyOf(candidateActions);
+    this.source = source;
+    provisionsByAction = new ConcurrentHashMap<>();
+    columns = null;
+  }
+
+  private ExtensionLevel(final ColumnarActionProvisions columns) {
+    if (columns.size() == 0) {
+      throw new IllegalArgumentException("expecting one or more provisions");
+    }
+    this.columns = columns;
+    actionProvisions = columns.asSet();
+    candidateActions = null;
+    source = null;
+    provisionsByAction = null;
+  }
+
+  /**
+   * Create a lazy extension level.
+   * <p/>
+   * The caller must ensure that some candidate action has provisions, because an extension level cannot be empty.
+   *
+   * @param candidateActions a non-empty set of actions which may be requested by the level's provisions
+   * @param source           a source of provisions for the candidate actions
+   *
+   * @return a lazy extension level
+   */
+  public static ExtensionLevel createLazy(final Set<Action> candidateActions, final ActionProvisionSource source) {
+    return new ExtensionLevel(candidateActions, source);
+  }
+
+  /**
+   * Create a compact extension level.
+   *
+   * @param actionProvisions a non-empty set of action provisions
+   * @param dictionary       a dictionary of actions and properties, usually shared with other levels of the graph
+   *
+   * @return a compact extension level
+   */
+  public static ExtensionLevel createCompact(final Set<ActionProvision> actionProvisions,
+                                             final GraphDictionary dictionary) {
+    return new ExtensionLevel(new ColumnarActionProvisions(actionProvisions, dictionary));
+  }
+
+  /**
+   * @return true when the level stores its provisions in primitive arrays, false otherwise
+   */
+  public boolean isCompact() {
+    return columns != null;
+  }
+
+  /**
+   * @return the dictionary of a compact level, null for any other level
+   */
+  public GraphDictionary getDictionary() {
+    return columns == null ? null : columns.getDictionary();
+  }
+
+  /**
+   * @return true when all provisions have been created, false otherwise
+   */
+  public boolean isMaterialized() {
+    return actionProvisions != null;
   }
 
   /**
    * @return the set of all action provisions
    */
   public Set<ActionProvision> getActionProvisions() {
-    return actionProvisions;
+    return materialize();
   }
 
   /**
@@ -50,8 +160,11 @@ public final class ExtensionLevel implements Level {
    */
   @Override
   public Set<Action> getRequiredActions() {
+    if (columns != null) {
+      return columns.getRequiredActions();
+    }
     final Set<Action> as = new HashSet<>();
-    for (final ActionProvision ap : actionProvisions) {
+    for (final ActionProvision ap : materialize()) {
       as.addAll(ap.getProvidingActions());
       final Action a = ap.getPrecursorAction();
       if (a != null) {
@@ -65,9 +178,17 @@ public final class ExtensionLevel implements Level {
    * @return the set of requested actions provided by all action provisions
    */
   public Set<Action> getRequestedActions() {
+    if (columns != null) {
+      return columns.getRequestedActions();
+    }
+    if (source == null) {
+      return getIndex().keySet();
+    }
     final Set<Action> as = new HashSet<>();
-    for (final ActionProvision ap : actionProvisions) {
-      as.add(ap.getRequestedAction());
+    for (final Action a : candidateActions) {
+      if (!getActionProvisionsByRequestedAction(a).isEmpty()) {
+        as.add(a);
+      }
     }
     return as;
   }
@@ -80,38 +201,65 @@ public final class ExtensionLevel implements Level {
    * @return a set of provisions with the given requested action
    */
   public Set<ActionProvision> getActionProvisionsByRequestedAction(final Action action) {
-    final Set<ActionProvision> aes = new HashSet<>();
-    for (final ActionProvision ap : actionProvisions) {
-      if (action.equals(ap.getRequestedAction())) {
-        aes.add(ap);
+    if (columns != null) {
+      return columns.getByRequestedAction(action);
+    }
+    if (source == null) {
+      return getIndex().get(action);
+    }
+    Set<ActionProvision> aps = provisionsByAction.get(action);
+    if (aps == null) {
+      aps = candidateActions.contains(action)
+          ? ImmutableSet.copyOf(source.getActionProvisionsFor(action))
+          : ImmutableSet.<ActionProvision>of();
+      final Set<ActionProvision> current = provisionsByAction.putIfAbsent(action, aps);
+      if (current != null) {
+        aps = current;
       }
     }
-    return aes;
+    return aps;
   }
 
   /**
    * Test if this level can extend another level.
    * <p/>
-   * An extension is possible if the requested actions are a subset of the other level's required actions.
+   * An extension is possible if the requested actions are a subset of the other level's required actions. This
+   * creates all provisions of another lazy level, because its required actions are only known from its provisions.
    *
    * @param other another level to extend
    *
    * @return true when extension is possible, false otherwise
    */
   public boolean canExtendOn(final Level other) {
-    final Set<Action> requests = getRequestedActions();
-    final Set<Action> precursors = other.getRequiredActions();
-    for (final Action request : requests) {
-      if (!precursors.contains(request)) {
-        return false;
+    // the candidate actions of a lazy level include its requested actions
+    final Set<Action> requests = isMaterialized() ? getRequestedActions() : candidateActions;
+    return other.getRequiredActions().containsAll(requests);
+  }
+
+  /**
+   * Get the requested actions of all provisions requiring any of the given actions, i.e. having any of them as
+   * precursor or providing action.
+   *
+   * @param actions a set of actions
+   *
+   * @return a set of requested actions
+   */
+  public Set<Action> getRequestedActionsRequiringAny(final Set<Action> actions) {
+    if (columns != null) {
+      return columns.getRequestedActionsRequiringAny(ActionSet.copyOfKnown(actions, columns.getDictionary()));
+    }
+    final Set<Action> as = new HashSet<>();
+    for (final ActionProvision ap : materialize()) {
+      if (!Collections.disjoint(ap.getRequiredActions(), actions)) {
+        as.add(ap.getRequestedAction());
       }
     }
-    return true;
+    return as;
   }
 
   @Override
   public int hashCode() {
-    return actionProvisions.hashCode();
+    return materialize().hashCode();
   }
 
   @Override
@@ -122,7 +270,40 @@ public final class ExtensionLevel implements Level {
   }
 
   private boolean equals(final ExtensionLevel other) {
-    return Objects.equals(actionProvisions, other.actionProvisions);
+    return Objects.equals(materialize(), other.materialize());
+  }
+
+  /**
+   * Create all provisions of a lazy level.
+   *
+   * @return the set of all action provisions
+   */
+  private Set<ActionProvision> materialize() {
+    Set<ActionProvision> aps = actionProvisions;
+    if (aps == null) {
+      final ImmutableSet.Builder<ActionProvision> b = ImmutableSet.builder();
+      for (final Action a : candidateActions) {
+        b.addAll(getActionProvisionsByRequestedAction(a));
+      }
+      final ImmutableSet<ActionProvision> created = b.build();
+      if (created.isEmpty()) {
+        throw new IllegalStateException("expecting one or more provisions");
+      }
+      actionProvisions = aps = created;
+    }
+    return aps;
+  }
+
+  private ImmutableSetMultimap<Action, ActionProvision> getIndex() {
+    ImmutableSetMultimap<Action, ActionProvision> idx = index;
+    if (idx == null) {
+      final ImmutableSetMultimap.Builder<Action, ActionProvision> b = ImmutableSetMultimap.builder();
+      for (final ActionProvision ap : actionProvisions) {
+        b.put(ap.getRequestedAction(), ap);
+      }
+      index = idx = b.build();
+    }
+    return idx;
   }
 
 }
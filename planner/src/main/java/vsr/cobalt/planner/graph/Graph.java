@@ -38,7 +38,20 @@ public abstract class Graph {
    * @return an extension-less graph
    */
   public static Graph create(final InitialLevel level) {
-    return new InitialGraph(level);
+    return new InitialGraph(level, false);
+  }
+
+  /**
+   * Create a compacted graph with only an initial level. The graph and all its extensions report to be compacted.
+   *
+   * @param level the initial level
+   *
+   * @return an extension-less graph
+   *
+   * @see #isCompacted()
+   */
+  public static Graph createCompacted(final InitialLevel level) {
+    return new InitialGraph(level, true);
   }
 
   /**
@@ -131,6 +144,14 @@ public abstract class Graph {
    */
   public abstract boolean isExtended();
 
+  /**
+   * Test if provisions have been removed from this graph by compaction, thus the graph lacks provisions an extender
+   * would have created. Graphs are equal regardless of being compacted.
+   *
+   * @return true when compacted, false otherwise
+   */
+  public abstract boolean isCompacted();
+
   /**
    * @return the number of extensions
    */
@@ -193,8 +214,11 @@ public abstract class Graph {
 
     private final InitialLevel initialLevel;
 
-    public InitialGraph(final InitialLevel initialLevel) {
+    private final boolean compacted;
+
+    public InitialGraph(final InitialLevel initialLevel, final boolean compacted) {
       this.initialLevel = initialLevel;
+      this.compacted = compacted;
     }
 
     /**
@@ -205,6 +229,11 @@ public abstract class Graph {
       return false;
     }
 
+    @Override
+    public boolean isCompacted() {
+      return compacted;
+    }
+
     /**
      * @return 0
      */
@@ -286,7 +315,10 @@ public abstract class Graph {
 
     private final int extensionDepth;
 
-    private final int hashCode;
+    /**
+     * The hash code, computed on first use because it requires all provisions of a lazy extension level.
+     */
+    private volatile Integer hashCode;
 
     public ExtendedGraph(final Graph graph, final ExtensionLevel extensionLevel) {
       if (!extensionLevel.canExtendOn(graph.getLastLevel())) {
@@ -295,7 +327,6 @@ public abstract class Graph {
       this.graph = graph;
       this.extensionLevel = extensionLevel;
       extensionDepth = graph.getDepth();
-      hashCode = Objects.hash(graph, extensionLevel);
     }
 
     /**
@@ -306,6 +337,14 @@ public abstract class Graph {
       return true;
     }
 
+    /**
+     * @return true when the extended graph is compacted, false otherwise
+     */
+    @Override
+    public boolean isCompacted() {
+      return graph.isCompacted();
+    }
+
     @Override
     public ExtensionLevel getExtensionLevel(final int index) {
       return Iterables.get(getExtensionLevelsReversed(), getExtensionDepth() - index - 1);
@@ -359,7 +398,11 @@ public abstract class Graph {
 
     @Override
     public int hashCode() {
-      return hashCode;
+      Integer h = hashCode;
+      if (h == null) {
+        hashCode = h = Objects.hash(graph, extensionLevel);
+      }
+      return h;
     }
 
     @Override
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Property;
+
+/**
+ * Assigns dense integer identifiers to the actions and properties of a graph, so that compact extension levels can
+ * store their provisions in primitive arrays.
+ * <p/>
+ * A dictionary only grows and can be shared by all compact levels of a graph. Identifiers are assigned while levels
+ * are created, and can be looked up and resolved concurrently without locking.
+ *
+ * @author Erik Wienhold
+ */
+public final class GraphDictionary {
+
+  private final Entries<Action> actions = new Entries<>();
+
+  private final Entries<Property> properties = new Entries<>();
+
+  /**
+   * @return the number of actions with an identifier
+   */
+  public int getActionCount() {
+    return actions.size();
+  }
+
+  /**
+   * @return the number of properties with an identifier
+   */
+  public int getPropertyCount() {
+    return properties.size();
+  }
+
+  /**
+   * Get the identifier of an action, assigning a new one when necessary.
+   *
+   * @param action an action
+   *
+   * @return the action's identifier
+   */
+  public int getActionId(final Action action) {
+    return actions.getOrAssignId(action);
+  }
+
+  /**
+   * Find the identifier of an action without assigning one.
+   *
+   * @param action an action
+   *
+   * @return the action's identifier, -1 when the action has none
+   */
+  public int findActionId(final Action action) {
+    return actions.findId(action);
+  }
+
+  /**
+   * @param id an action identifier
+   *
+   * @return the action with the given identifier
+   */
+  public Action getAction(final int id) {
+    return actions.get(id);
+  }
+
+  /**
+   * Get the identifier of a property, assigning a new one when necessary.
+   *
+   * @param property a property
+   *
+   * @return the property's identifier
+   */
+  public int getPropertyId(final Property property) {
+    return properties.getOrAssignId(property);
+  }
+
+  /**
+   * @param id a property identifier
+   *
+   * @return the property with the given identifier
+   */
+  public Property getProperty(final int id) {
+    return properties.get(id);
+  }
+
+  /**
+   * Values with dense identifiers in the order of assignment.
+   *
+   * @param <T> the type of values
+   */
+  private static final class Entries<T> {
+
+    private final ConcurrentMap<T, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * The values by identifier, replaced when growing, so that readers always see a fully initialized prefix.
+     */
+    private volatile Object[] values = new Object[16];
+
+    private volatile int size;
+
+    public int size() {
+      return size;
+    }
+
+    public synchronized int getOrAssignId(final T value) {
+      final Integer id = ids.get(value);
+      if (id != null) {
+        return id;
+      }
+      final int n = size;
+      Object[] vs = values;
+      if (n == vs.length) {
+        vs = Arrays.copyOf(vs, n * 2);
+      }
+      vs[n] = value;
+      values = vs;
+      size = n + 1;
+      // publish the identifier last, so that anyone finding it can resolve it
+      ids.put(value, n);
+      return n;
+    }
+
+    public int findId(final T value) {
+      final Integer id = ids.get(value);
+      return id == null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(final int id) {
+      if (id < 0 || id >= size) {
+        throw new IndexOutOfBoundsException("unknown identifier " + id);
+      }
+      return (T) values[id];
+    }
+
+  }
+
+}
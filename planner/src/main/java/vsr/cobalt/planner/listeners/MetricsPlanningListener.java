@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.listeners;
+
+import vsr.cobalt.planner.PlanningListener;
+
+/**
+ * Feeds planning events into a metrics registry, as counters and timers named after the phase and quantity, e.g.
+ * {@code graph.extend} and {@code graph.extend.candidates}. Provider metrics are named after the provider's class,
+ * e.g. {@code provider.BasicPropertyProvisionProvider}.
+ * <p/>
+ * The listener is thread-safe when the registry is.
+ *
+ * @author Erik Wienhold
+ */
+public class MetricsPlanningListener implements PlanningListener {
+
+  private final Registry registry;
+
+  /**
+   * @param registry a registry receiving the metrics
+   */
+  public MetricsPlanningListener(final Registry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * @return the registry receiving the metrics
+   */
+  public Registry getRegistry() {
+    return registry;
+  }
+
+  @Override
+  public void graphCreated(final int functionalities, final int provisions, final long nanos) {
+    registry.time("graph.create", nanos);
+    registry.count("graph.create.functionalities", functionalities);
+    registry.count("graph.create.provisions", provisions);
+  }
+
+  @Override
+  public void provisionsProvided(final Class<?> provider, final int requests, final int provisions,
+                                 final long nanos) {
+    final String name = "provider." + provider.getSimpleName();
+    registry.time(name, nanos);
+    registry.count(name + ".requests", requests);
+    registry.count(name + ".provisions", provisions);
+  }
+
+  @Override
+  public void cyclicDependenciesChecked(final int checks, final int cycles, final long nanos) {
+    registry.time("graph.extend.cycles", nanos);
+    registry.count("graph.extend.cycles.checks", checks);
+    registry.count("graph.extend.cycles.detected", cycles);
+  }
+
+  @Override
+  public void graphExtended(final int depth, final int candidates, final int combinations,
+                            final int prunedCombinations, final int provisions, final long nanos) {
+    registry.time("graph.extend", nanos);
+    registry.count("graph.extend.candidates", candidates);
+    registry.count("graph.extend.combinations", combinations);
+    registry.count("graph.extend.combinations.pruned", prunedCombinations);
+    registry.count("graph.extend.provisions", provisions);
+  }
+
+  @Override
+  public void graphCompacted(final int depth, final int removedProvisions, final int removedActions,
+                             final long nanos) {
+    registry.time("graph.compact", nanos);
+    registry.count("graph.compact.provisions", removedProvisions);
+    registry.count("graph.compact.actions", removedActions);
+  }
+
+  @Override
+  public void plansExtracted(final int maxDepth, final int frames, final int combinations, final int conflicts,
+                             final int plans, final long nanos) {
+    registry.time("plans.extract", nanos);
+    registry.count("plans.extract.frames", frames);
+    registry.count("plans.extract.combinations", combinations);
+    registry.count("plans.extract.conflicts", conflicts);
+    registry.count("plans.extract.plans", plans);
+  }
+
+  @Override
+  public void planningAdvanced(final int depth, final int plans, final long nanos) {
+    registry.time("planning.advance", nanos);
+    registry.count("planning.advance.plans", plans);
+  }
+
+  /**
+   * Adapts a metrics library to the listener.
+   */
+  public interface Registry {
+
+    /**
+     * Increment a counter.
+     *
+     * @param name  the counter's name
+     * @param delta the non-negative amount to add
+     */
+    void count(String name, long delta);
+
+    /**
+     * Record a duration with a timer.
+     *
+     * @param name  the timer's name
+     * @param nanos the duration in nanoseconds
+     */
+    void time(String name, long nanos);
+
+  }
+
+}
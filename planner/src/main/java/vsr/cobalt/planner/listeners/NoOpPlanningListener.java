@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.listeners;
+
+import vsr.cobalt.planner.PlanningListener;
+
+/**
+ * Ignores all events. Components recognize the single instance to skip measurements nobody listens to.
+ *
+ * @author Erik Wienhold
+ */
+public final class NoOpPlanningListener implements PlanningListener {
+
+  private static final NoOpPlanningListener INSTANCE = new NoOpPlanningListener();
+
+  private NoOpPlanningListener() {
+  }
+
+  public static NoOpPlanningListener getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Check if a listener requires measurements.
+   *
+   * @param listener a listener
+   *
+   * @return true when the given listener is not the no-op listener, false otherwise
+   */
+  public static boolean isListening(final PlanningListener listener) {
+    return listener != INSTANCE;
+  }
+
+  @Override
+  public void graphCreated(final int functionalities, final int provisions, final long nanos) {
+  }
+
+  @Override
+  public void provisionsProvided(final Class<?> provider, final int requests, final int provisions,
+                                 final long nanos) {
+  }
+
+  @Override
+  public void cyclicDependenciesChecked(final int checks, final int cycles, final long nanos) {
+  }
+
+  @Override
+  public void graphExtended(final int depth, final int candidates, final int combinations,
+                            final int prunedCombinations, final int provisions, final long nanos) {
+  }
+
+  @Override
+  public void graphCompacted(final int depth, final int removedProvisions, final int removedActions,
+                             final long nanos) {
+  }
+
+  @Override
+  public void plansExtracted(final int maxDepth, final int frames, final int combinations, final int conflicts,
+                             final int plans, final long nanos) {
+  }
+
+  @Override
+  public void planningAdvanced(final int depth, final int plans, final long nanos) {
+  }
+
+}
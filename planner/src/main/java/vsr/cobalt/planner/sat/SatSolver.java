@@ -0,0 +1,633 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A conflict-driven clause learning (CDCL) solver for propositional formulas in conjunctive normal form.
+ * <p/>
+ * Variables are positive integers created by {@link #newVariable()}. A literal is a variable, or its negation. The
+ * solver watches two literals per clause for unit propagation, learns the first unique implication point of each
+ * conflict, jumps back to the second highest decision level of the learnt clause, and chooses decision variables by
+ * their activity in recent conflicts. Decisions use the phase a variable had when last assigned, starting with false.
+ * <p/>
+ * The solver is incremental: clauses may be added after a formula has been solved, e.g. to block a model in order to
+ * enumerate further models. Learnt clauses remain valid, because added clauses only restrict the formula.
+ * <p/>
+ * Instances are not thread-safe.
+ *
+ * @author Erik Wienhold
+ */
+public class SatSolver {
+
+  private static final byte UNDEF = 0;
+
+  private static final byte TRUE = 1;
+
+  private static final byte FALSE = -1;
+
+  private static final double ACTIVITY_DECAY = 0.95;
+
+  private static final int RESTART_INTERVAL = 100;
+
+  private int variables;
+
+  /**
+   * The value of each variable, indexed by variable.
+   */
+  private byte[] values = new byte[1];
+
+  /**
+   * The decision level at which each variable has been assigned.
+   */
+  private int[] levels = new int[1];
+
+  /**
+   * The clause implying each variable, null for decisions and unassigned variables.
+   */
+  private Clause[] reasons = new Clause[1];
+
+  /**
+   * The last assigned phase of each variable.
+   */
+  private boolean[] phases = new boolean[1];
+
+  private double[] activities = new double[1];
+
+  private boolean[] seen = new boolean[1];
+
+  /**
+   * The clauses watching each literal, indexed by literal index.
+   */
+  private final List<List<Clause>> watches = new ArrayList<>();
+
+  private int[] trail = new int[1];
+
+  private int trailSize;
+
+  private final List<Integer> trailLimits = new ArrayList<>();
+
+  private int propagationHead;
+
+  private final VariableHeap heap = new VariableHeap();
+
+  private double activityIncrement = 1;
+
+  private boolean[] model = new boolean[1];
+
+  /**
+   * False when the formula has been found unsatisfiable regardless of further clauses.
+   */
+  private boolean satisfiable = true;
+
+  private int clauses;
+
+  private int learntClauses;
+
+  private long decisions;
+
+  private long propagations;
+
+  private long conflicts;
+
+  public SatSolver() {
+    // literal index 0 and 1 belong to the unused variable 0
+    watches.add(new ArrayList<Clause>());
+    watches.add(new ArrayList<Clause>());
+  }
+
+  /**
+   * Create a new variable.
+   *
+   * @return the new variable
+   */
+  public int newVariable() {
+    variables += 1;
+    final int v = variables;
+    if (v >= values.length) {
+      final int n = 2 * values.length;
+      values = Arrays.copyOf(values, n);
+      levels = Arrays.copyOf(levels, n);
+      reasons = Arrays.copyOf(reasons, n);
+      phases = Arrays.copyOf(phases, n);
+      activities = Arrays.copyOf(activities, n);
+      seen = Arrays.copyOf(seen, n);
+      model = Arrays.copyOf(model, n);
+      trail = Arrays.copyOf(trail, n);
+    }
+    watches.add(new ArrayList<Clause>());
+    watches.add(new ArrayList<Clause>());
+    heap.insert(v);
+    return v;
+  }
+
+  /**
+   * @return the number of variables
+   */
+  public int getVariables() {
+    return variables;
+  }
+
+  /**
+   * @return the number of clauses added, excluding those satisfied or unit when added
+   */
+  public int getClauses() {
+    return clauses;
+  }
+
+  /**
+   * @return the number of learnt clauses
+   */
+  public int getLearntClauses() {
+    return learntClauses;
+  }
+
+  /**
+   * @return the number of decisions made so far
+   */
+  public long getDecisions() {
+    return decisions;
+  }
+
+  /**
+   * @return the number of literals propagated so far
+   */
+  public long getPropagations() {
+    return propagations;
+  }
+
+  /**
+   * @return the number of conflicts encountered so far
+   */
+  public long getConflicts() {
+    return conflicts;
+  }
+
+  /**
+   * Add a clause, i.e. a disjunction of literals.
+   *
+   * @param literals the literals of the clause, each a variable or its negation
+   *
+   * @return false when the formula is unsatisfiable, true otherwise
+   */
+  public boolean addClause(final int... literals) {
+    for (final int l : literals) {
+      final int v = Math.abs(l);
+      if (v == 0 || v > variables) {
+        throw new IllegalArgumentException("expecting literals of existing variables");
+      }
+    }
+
+    if (!satisfiable) {
+      return false;
+    }
+
+    // simplify the clause using the assignments at the root level
+    final int[] ls = new int[literals.length];
+    int n = 0;
+    for (final int l : literals) {
+      final byte x = value(l);
+      if (x == TRUE) {
+        return true;
+      }
+      if (x == FALSE) {
+        continue;
+      }
+      boolean duplicate = false;
+      for (int i = 0; i < n; i += 1) {
+        if (ls[i] == l) {
+          duplicate = true;
+          break;
+        }
+        if (ls[i] == -l) {
+          // a tautology is always satisfied
+          return true;
+        }
+      }
+      if (!duplicate) {
+        ls[n++] = l;
+      }
+    }
+
+    if (n == 0) {
+      satisfiable = false;
+      return false;
+    }
+
+    if (n == 1) {
+      assign(ls[0], null);
+      if (propagate() != null) {
+        satisfiable = false;
+      }
+      return satisfiable;
+    }
+
+    attach(new Clause(Arrays.copyOf(ls, n)));
+    clauses += 1;
+    return true;
+  }
+
+  /**
+   * Solve the formula consisting of all clauses added so far.
+   *
+   * @return true when satisfiable, false otherwise
+   */
+  public boolean solve() {
+    if (!satisfiable) {
+      return false;
+    }
+
+    int restartLimit = RESTART_INTERVAL;
+    int conflictsSinceRestart = 0;
+
+    while (true) {
+      final Clause conflict = propagate();
+
+      if (conflict != null) {
+        conflicts += 1;
+        conflictsSinceRestart += 1;
+
+        if (getDecisionLevel() == 0) {
+          satisfiable = false;
+          return false;
+        }
+
+        final int[] learnt = analyze(conflict);
+        backtrack(findBackjumpLevel(learnt));
+
+        if (learnt.length == 1) {
+          assign(learnt[0], null);
+        } else {
+          final Clause c = new Clause(learnt);
+          attach(c);
+          learntClauses += 1;
+          assign(learnt[0], c);
+        }
+
+        activityIncrement /= ACTIVITY_DECAY;
+      } else {
+        if (conflictsSinceRestart >= restartLimit) {
+          conflictsSinceRestart = 0;
+          restartLimit += restartLimit / 2;
+          backtrack(0);
+          continue;
+        }
+
+        final int v = pickDecisionVariable();
+
+        if (v == 0) {
+          for (int i = 1; i <= variables; i += 1) {
+            model[i] = values[i] == TRUE;
+          }
+          backtrack(0);
+          return true;
+        }
+
+        decisions += 1;
+        trailLimits.add(trailSize);
+        assign(phases[v] ? v : -v, null);
+      }
+    }
+  }
+
+  /**
+   * Get the value of a variable in the model found by the last successful {@link #solve()}.
+   *
+   * @param variable a variable
+   *
+   * @return the value of the variable
+   */
+  public boolean getValue(final int variable) {
+    if (variable < 1 || variable > variables) {
+      throw new IllegalArgumentException("expecting an existing variable");
+    }
+    return model[variable];
+  }
+
+  private int getDecisionLevel() {
+    return trailLimits.size();
+  }
+
+  private byte value(final int literal) {
+    final byte x = values[Math.abs(literal)];
+    return literal > 0 ? x : (byte) -x;
+  }
+
+  private static int index(final int literal) {
+    return literal > 0 ? 2 * literal : -2 * literal + 1;
+  }
+
+  private void assign(final int literal, final Clause reason) {
+    final int v = Math.abs(literal);
+    values[v] = literal > 0 ? TRUE : FALSE;
+    levels[v] = getDecisionLevel();
+    reasons[v] = reason;
+    trail[trailSize++] = literal;
+  }
+
+  private void attach(final Clause clause) {
+    watches.get(index(clause.literals[0])).add(clause);
+    watches.get(index(clause.literals[1])).add(clause);
+  }
+
+  /**
+   * Propagate all assignments on the trail not yet propagated.
+   *
+   * @return a conflicting clause, null when there is no conflict
+   */
+  private Clause propagate() {
+    while (propagationHead < trailSize) {
+      final int falseLiteral = -trail[propagationHead++];
+      final List<Clause> ws = watches.get(index(falseLiteral));
+      propagations += 1;
+
+      int i = 0;
+      int j = 0;
+      final int n = ws.size();
+
+      while (i < n) {
+        final Clause c = ws.get(i++);
+        final int[] ls = c.literals;
+
+        // make sure the false literal is the second watch
+        if (ls[0] == falseLiteral) {
+          ls[0] = ls[1];
+          ls[1] = falseLiteral;
+        }
+
+        // the clause is satisfied by the other watch
+        if (value(ls[0]) == TRUE) {
+          ws.set(j++, c);
+          continue;
+        }
+
+        // look for another literal to watch
+        boolean moved = false;
+        for (int k = 2; k < ls.length; k += 1) {
+          if (value(ls[k]) != FALSE) {
+            ls[1] = ls[k];
+            ls[k] = falseLiteral;
+            watches.get(index(ls[1])).add(c);
+            moved = true;
+            break;
+          }
+        }
+        if (moved) {
+          continue;
+        }
+
+        // the clause is unit or conflicting
+        ws.set(j++, c);
+        if (value(ls[0]) == FALSE) {
+          while (i < n) {
+            ws.set(j++, ws.get(i++));
+          }
+          truncate(ws, j);
+          propagationHead = trailSize;
+          return c;
+        }
+        assign(ls[0], c);
+      }
+
+      truncate(ws, j);
+    }
+    return null;
+  }
+
+  private static void truncate(final List<Clause> clauses, final int size) {
+    while (clauses.size() > size) {
+      clauses.remove(clauses.size() - 1);
+    }
+  }
+
+  /**
+   * Derive a clause from a conflict using the first unique implication point. The first literal of the learnt clause
+   * is the one to assert after backjumping.
+   *
+   * @param conflict a conflicting clause
+   *
+   * @return the literals of the learnt clause
+   */
+  private int[] analyze(final Clause conflict) {
+    final List<Integer> learnt = new ArrayList<>();
+    learnt.add(0);
+
+    int pending = 0;
+    int literal = 0;
+    int t = trailSize - 1;
+    Clause c = conflict;
+
+    do {
+      for (int k = literal == 0 ? 0 : 1; k < c.literals.length; k += 1) {
+        final int q = c.literals[k];
+        final int v = Math.abs(q);
+        if (!seen[v] && levels[v] > 0) {
+          bumpActivity(v);
+          seen[v] = true;
+          if (levels[v] >= getDecisionLevel()) {
+            pending += 1;
+          } else {
+            learnt.add(q);
+          }
+        }
+      }
+
+      // select the next literal of the current decision level to resolve
+      while (!seen[Math.abs(trail[t])]) {
+        t -= 1;
+      }
+      literal = trail[t];
+      t -= 1;
+      c = reasons[Math.abs(literal)];
+      seen[Math.abs(literal)] = false;
+      pending -= 1;
+    } while (pending > 0);
+
+    learnt.set(0, -literal);
+
+    final int[] ls = new int[learnt.size()];
+    for (int i = 0; i < ls.length; i += 1) {
+      ls[i] = learnt.get(i);
+      seen[Math.abs(ls[i])] = false;
+    }
+    return ls;
+  }
+
+  /**
+   * Find the level to jump back to, i.e. the highest level of the learnt clause's literals other than the asserted
+   * one. That literal is moved to the second position, so that it is watched.
+   *
+   * @param learnt the literals of a learnt clause
+   *
+   * @return the level to jump back to
+   */
+  private int findBackjumpLevel(final int[] learnt) {
+    if (learnt.length == 1) {
+      return 0;
+    }
+    int max = 1;
+    for (int i = 2; i < learnt.length; i += 1) {
+      if (levels[Math.abs(learnt[i])] > levels[Math.abs(learnt[max])]) {
+        max = i;
+      }
+    }
+    final int l = learnt[max];
+    learnt[max] = learnt[1];
+    learnt[1] = l;
+    return levels[Math.abs(l)];
+  }
+
+  private void backtrack(final int level) {
+    if (getDecisionLevel() <= level) {
+      return;
+    }
+    final int limit = trailLimits.get(level);
+    for (int i = trailSize - 1; i >= limit; i -= 1) {
+      final int v = Math.abs(trail[i]);
+      phases[v] = values[v] == TRUE;
+      values[v] = UNDEF;
+      reasons[v] = null;
+      if (!heap.contains(v)) {
+        heap.insert(v);
+      }
+    }
+    trailSize = limit;
+    propagationHead = limit;
+    while (trailLimits.size() > level) {
+      trailLimits.remove(trailLimits.size() - 1);
+    }
+  }
+
+  private int pickDecisionVariable() {
+    while (!heap.isEmpty()) {
+      final int v = heap.removeMax();
+      if (values[v] == UNDEF) {
+        return v;
+      }
+    }
+    return 0;
+  }
+
+  private void bumpActivity(final int variable) {
+    activities[variable] += activityIncrement;
+    if (activities[variable] > 1e100) {
+      // rescale all activities to avoid an overflow
+      for (int v = 1; v <= variables; v += 1) {
+        activities[v] *= 1e-100;
+      }
+      activityIncrement *= 1e-100;
+    }
+    if (heap.contains(variable)) {
+      heap.increase(variable);
+    }
+  }
+
+  private static class Clause {
+
+    private final int[] literals;
+
+    public Clause(final int[] literals) {
+      this.literals = literals;
+    }
+
+  }
+
+  /**
+   * A binary max-heap of variables ordered by activity.
+   */
+  private class VariableHeap {
+
+    private int[] heap = new int[1];
+
+    /**
+     * The position of each variable in the heap, -1 when not contained.
+     */
+    private int[] positions = {-1};
+
+    private int size;
+
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    public boolean contains(final int variable) {
+      return variable < positions.length && positions[variable] >= 0;
+    }
+
+    public void insert(final int variable) {
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, 2 * heap.length);
+      }
+      if (variable >= positions.length) {
+        final int n = positions.length;
+        positions = Arrays.copyOf(positions, Math.max(2 * n, variable + 1));
+        Arrays.fill(positions, n, positions.length, -1);
+      }
+      heap[size] = variable;
+      positions[variable] = size;
+      size += 1;
+      up(size - 1);
+    }
+
+    public int removeMax() {
+      final int v = heap[0];
+      size -= 1;
+      heap[0] = heap[size];
+      positions[heap[0]] = 0;
+      positions[v] = -1;
+      if (size > 0) {
+        down(0);
+      }
+      return v;
+    }
+
+    public void increase(final int variable) {
+      up(positions[variable]);
+    }
+
+    private void up(final int position) {
+      final int v = heap[position];
+      int i = position;
+      while (i > 0) {
+        final int parent = (i - 1) / 2;
+        if (activities[heap[parent]] >= activities[v]) {
+          break;
+        }
+        heap[i] = heap[parent];
+        positions[heap[i]] = i;
+        i = parent;
+      }
+      heap[i] = v;
+      positions[v] = i;
+    }
+
+    private void down(final int position) {
+      final int v = heap[position];
+      int i = position;
+      while (2 * i + 1 < size) {
+        int child = 2 * i + 1;
+        if (child + 1 < size && activities[heap[child + 1]] > activities[heap[child]]) {
+          child += 1;
+        }
+        if (activities[heap[child]] <= activities[v]) {
+          break;
+        }
+        heap[i] = heap[child];
+        positions[heap[i]] = i;
+        i = child;
+      }
+      heap[i] = v;
+      positions[v] = i;
+    }
+
+  }
+
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
+import vsr.cobalt.planner.extenders.providers.PropertyProvisionProvider;
+import vsr.cobalt.planner.graph.PropertyProvision;
+
+/**
+ * Estimates the number of levels required to enable actions, using a relaxation of the planning problem which ignores
+ * cyclic dependencies, mutexes, and the disjointness of property providers.
+ * <p/>
+ * An enabled action has cost zero. Any other action costs one level more than its cheapest option, i.e. a precursor
+ * action together with providers of the properties not satisfied by the precursor, or, when no precursor is required,
+ * providers of all filled properties. The cost of an option combines the costs of its requirements, each being the
+ * cost of the cheapest alternative action, either by maximum (h<sub>max</sub>) or by sum (h<sub>add</sub>). The
+ * maximum never overestimates the levels still required, whereas the sum is more informative but not admissible.
+ * <p/>
+ * Costs are computed once per action by exploring all actions the action may depend on, and iterating until a
+ * fix-point is reached. When only estimates up to some bound are of interest, the exploration can be limited to the
+ * actions within that many levels (see {@link #estimate(Action, int)}). Options, property providers, and the costs
+ * of entirely explored actions are cached, so that an instance can be shared by several planning processes using the
+ * same providers. Instances are thread-safe without locking: the caches are concurrent maps, and the fix-point
+ * iteration works on a map of its own, publishing only final costs. Concurrent estimates may compute the same values
+ * twice, which is harmless because they are deterministic.
+ *
+ * @author Erik Wienhold
+ */
+public class EnablingCostHeuristic {
+
+  /**
+   * The cost of actions which cannot be enabled.
+   */
+  public static final int INFINITE = Integer.MAX_VALUE;
+
+  /**
+   * How to combine the costs of requirements.
+   */
+  public enum Combination {
+
+    /**
+     * Use the maximum cost (h<sub>max</sub>).
+     */
+    MAX,
+
+    /**
+     * Use the sum of costs (h<sub>add</sub>).
+     */
+    ADD
+
+  }
+
+  private final PrecursorActionProvider precursorActionProvider;
+
+  private final PropertyProvisionProvider propertyProvisionProvider;
+
+  private final Combination combination;
+
+  /**
+   * The options of each explored action, each option being a list of requirements satisfied by any of the alternative
+   * actions.
+   */
+  private final ConcurrentMap<Action, List<List<Set<Action>>>> options = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Property, Set<Action>> providers = new ConcurrentHashMap<>();
+
+  /**
+   * The final costs of all actions explored entirely, i.e. including all actions they may depend on.
+   */
+  private final ConcurrentMap<Action, Integer> costs = new ConcurrentHashMap<>();
+
+  /**
+   * @param precursorActionProvider   a provider of precursor actions
+   * @param propertyProvisionProvider a provider of property provisions
+   * @param combination               how to combine the costs of requirements
+   */
+  public EnablingCostHeuristic(final PrecursorActionProvider precursorActionProvider,
+                               final PropertyProvisionProvider propertyProvisionProvider,
+                               final Combination combination) {
+    this.precursorActionProvider = precursorActionProvider;
+    this.propertyProvisionProvider = propertyProvisionProvider;
+    this.combination = combination;
+  }
+
+  /**
+   * @return how the costs of requirements are combined
+   */
+  public Combination getCombination() {
+    return combination;
+  }
+
+  /**
+   * @return true when estimates never exceed the actual number of required levels
+   */
+  public boolean isAdmissible() {
+    return combination == Combination.MAX;
+  }
+
+  /**
+   * Estimate the number of levels required to enable an action.
+   *
+   * @param action an action
+   *
+   * @return the estimated number of levels, {@link #INFINITE} when the action cannot be enabled
+   */
+  public int estimate(final Action action) {
+    final Integer c = costs.get(action);
+    return c == null ? exploreEntirely(action) : c;
+  }
+
+  /**
+   * Estimate the number of levels required to enable an action, but explore only the actions within a given number of
+   * levels, unless the action has already been explored entirely. Actions beyond the bound are assumed to be enabled,
+   * which may only lower the estimate, thus any estimate reaching the bound is capped.
+   *
+   * @param action an action
+   * @param bound  the maximum number of levels to explore
+   *
+   * @return the estimated number of levels when less than the bound, the bound otherwise, or {@link #INFINITE} when
+   * the action cannot be enabled
+   */
+  public int estimate(final Action action, final int bound) {
+    if (bound < 0) {
+      throw new IllegalArgumentException("expecting bound >= 0");
+    }
+
+    final Integer c = costs.get(action);
+    if (c != null) {
+      return cap(c, bound);
+    }
+
+    final Map<Action, List<List<Set<Action>>>> explored = exploreWithin(action, bound);
+    if (explored == null) {
+      // all actions the action may depend on are within the bound
+      return cap(exploreEntirely(action), bound);
+    }
+    return cap(relaxWithin(explored, action, bound), bound);
+  }
+
+  /**
+   * Estimate the number of levels required to enable a set of actions, combining their individual estimates.
+   *
+   * @param actions a collection of actions
+   *
+   * @return the estimated number of levels, {@link #INFINITE} when any action cannot be enabled
+   */
+  public int estimate(final Collection<Action> actions) {
+    int cost = 0;
+    for (final Action a : actions) {
+      cost = combine(cost, estimate(a));
+      if (cost == INFINITE) {
+        break;
+      }
+    }
+    return cost;
+  }
+
+  /**
+   * Explore all actions an action may depend on, which have not been explored entirely yet, compute their costs, and
+   * publish them as final costs.
+   *
+   * @param action an action
+   *
+   * @return the action's cost
+   */
+  private int exploreEntirely(final Action action) {
+    // the costs of the actions being explored, and the final costs of the actions they depend on
+    final Map<Action, Integer> cs = new HashMap<>();
+    final Set<Action> open = new HashSet<>();
+    final Queue<Action> queue = new ArrayDeque<>();
+    queue.add(action);
+    cs.put(action, INFINITE);
+
+    while (!queue.isEmpty()) {
+      final Action a = queue.remove();
+
+      if (a.isEnabled()) {
+        cs.put(a, 0);
+        continue;
+      }
+
+      open.add(a);
+
+      for (final List<Set<Action>> o : getOptions(a)) {
+        for (final Set<Action> r : o) {
+          for (final Action x : r) {
+            if (!cs.containsKey(x)) {
+              final Integer c = costs.get(x);
+              if (c == null) {
+                cs.put(x, INFINITE);
+                queue.add(x);
+              } else {
+                cs.put(x, c);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    relax(open, cs);
+    costs.putAll(cs);
+    return cs.get(action);
+  }
+
+  /**
+   * Explore the actions an action may depend on, breadth first up to a given number of levels.
+   *
+   * @param action an action
+   * @param bound  the maximum number of levels
+   *
+   * @return the options of the actions within the bound, null when no action lies beyond the bound
+   */
+  private Map<Action, List<List<Set<Action>>>> exploreWithin(final Action action, final int bound) {
+    final Map<Action, List<List<Set<Action>>>> explored = new HashMap<>();
+    final Set<Action> seen = new HashSet<>();
+    Set<Action> layer = Collections.singleton(action);
+    seen.add(action);
+
+    for (int depth = 0; !layer.isEmpty(); depth += 1) {
+      if (depth == bound) {
+        return explored;
+      }
+      final Set<Action> next = new HashSet<>();
+      for (final Action a : layer) {
+        final List<List<Set<Action>>> os = getOptions(a);
+        explored.put(a, os);
+        for (final List<Set<Action>> o : os) {
+          for (final Set<Action> r : o) {
+            for (final Action x : r) {
+              if (seen.add(x)) {
+                next.add(x);
+              }
+            }
+          }
+        }
+      }
+      layer = next;
+    }
+
+    return null;
+  }
+
+  private List<List<Set<Action>>> getOptions(final Action action) {
+    List<List<Set<Action>>> os = options.get(action);
+    if (os == null) {
+      os = action.isEnabled() ? Collections.<List<Set<Action>>>emptyList() : createOptions(action);
+      final List<List<Set<Action>>> current = options.putIfAbsent(action, os);
+      if (current != null) {
+        os = current;
+      }
+    }
+    return os;
+  }
+
+  private List<List<Set<Action>>> createOptions(final Action action) {
+    final List<List<Set<Action>>> os = new ArrayList<>();
+
+    for (final Action pa : precursorActionProvider.getPrecursorActionsFor(action)) {
+      final List<Set<Action>> o = new ArrayList<>();
+      o.add(Collections.singleton(pa));
+      for (final Property p : action.getPublicPropertiesNotSatisfiedByPrecursor(pa)) {
+        o.add(getProviders(p));
+      }
+      os.add(o);
+    }
+
+    if (!action.requiresPrecursor()) {
+      final List<Set<Action>> o = new ArrayList<>();
+      for (final Property p : action.getPreConditions().getFilledProperties()) {
+        o.add(getProviders(p));
+      }
+      os.add(o);
+    }
+
+    return os;
+  }
+
+  private Set<Action> getProviders(final Property property) {
+    Set<Action> as = providers.get(property);
+    if (as == null) {
+      as = new HashSet<>();
+      for (final PropertyProvision pp : propertyProvisionProvider.getProvisionsFor(Collections.singleton(property))) {
+        as.add(pp.getProvidingAction());
+      }
+      final Set<Action> current = providers.putIfAbsent(property, as);
+      if (current != null) {
+        as = current;
+      }
+    }
+    return as;
+  }
+
+  /**
+   * Lower the costs of the given actions until no cost changes anymore. Costs only decrease and are bounded by zero,
+   * hence this terminates.
+   *
+   * @param actions the unenabled actions whose costs are not final yet
+   * @param costs   the costs of the given actions and of all actions they depend on
+   */
+  private void relax(final Set<Action> actions, final Map<Action, Integer> costs) {
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (final Action a : actions) {
+        final int c = computeCost(getOptions(a), costs);
+        if (c < costs.get(a)) {
+          costs.put(a, c);
+          changed = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Raise the costs of the actions within a bound, starting from zero, for as many rounds as the bound. After
+   * {@code i} rounds, each cost accounts for dependencies up to {@code i} levels deep, thus actions beyond the bound
+   * are only ever assumed to cost zero, when their cost cannot affect the estimate of the given action anymore.
+   *
+   * @param explored the options of the actions within the bound
+   * @param action   the action to estimate
+   * @param bound    the bound
+   *
+   * @return the estimated number of levels
+   */
+  private int relaxWithin(final Map<Action, List<List<Set<Action>>>> explored, final Action action,
+                          final int bound) {
+    Map<Action, Integer> cs = Collections.emptyMap();
+    for (int i = 0; i < bound; i += 1) {
+      final Map<Action, Integer> next = new HashMap<>();
+      for (final Map.Entry<Action, List<List<Set<Action>>>> e : explored.entrySet()) {
+        next.put(e.getKey(), e.getKey().isEnabled() ? 0 : computeCost(e.getValue(), cs));
+      }
+      // costs only increase, so they do not change anymore
+      if (next.equals(cs)) {
+        break;
+      }
+      cs = next;
+    }
+    final Integer c = cs.get(action);
+    return c == null ? 0 : c;
+  }
+
+  /**
+   * Compute the cost of an action from its options.
+   *
+   * @param options the action's options
+   * @param costs   the costs of other actions, zero for actions without cost
+   *
+   * @return the action's cost
+   */
+  private int computeCost(final List<List<Set<Action>>> options, final Map<Action, Integer> costs) {
+    int min = INFINITE;
+    for (final List<Set<Action>> o : options) {
+      int cost = 0;
+      for (final Set<Action> r : o) {
+        cost = combine(cost, computeCost(r, costs));
+        if (cost == INFINITE) {
+          break;
+        }
+      }
+      min = Math.min(min, cost);
+    }
+    return add(min, 1);
+  }
+
+  private int computeCost(final Set<Action> alternatives, final Map<Action, Integer> costs) {
+    int min = INFINITE;
+    for (final Action a : alternatives) {
+      final Integer c = costs.get(a);
+      min = Math.min(min, c == null ? 0 : c);
+    }
+    return min;
+  }
+
+  private static int cap(final int cost, final int bound) {
+    return cost == INFINITE ? INFINITE : Math.min(cost, bound);
+  }
+
+  private int combine(final int c1, final int c2) {
+    return combination == Combination.MAX
+        ? Math.max(c1, c2)
+        : add(c1, c2);
+  }
+
+  private static int add(final int c1, final int c2) {
+    if (c1 == INFINITE || c2 == INFINITE) {
+      return INFINITE;
+    }
+    return c1 + c2;
+  }
+
+}
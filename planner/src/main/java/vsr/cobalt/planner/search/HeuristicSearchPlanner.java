@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import java.util.Iterator;
+
+import vsr.cobalt.planner.GraphFactory;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.extenders.DefaultGraphExtender;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Plans by a heuristic best-first search over partial plans, as an alternative to extending a planning graph level by
+ * level and extracting plans from it afterwards.
+ * <p/>
+ * The search starts with the initial level of a planning graph and regresses from the goal mashup towards enabled
+ * actions, extending only the most promising partial plan at a time. This avoids building levels containing all
+ * alternative provisions, which grow quickly with large repositories. Plans are the same as those extracted from a
+ * planning graph of the same depth.
+ *
+ * @author Erik Wienhold
+ */
+public class HeuristicSearchPlanner {
+
+  private final GraphFactory factory;
+
+  private final DefaultGraphExtender extender;
+
+  private final EnablingCostHeuristic heuristic;
+
+  private final SearchStrategy strategy;
+
+  /**
+   * @param factory   a factory creating the initial level
+   * @param extender  an extender providing action provisions
+   * @param heuristic a heuristic estimating the levels required to enable actions
+   * @param strategy  the order in which to expand partial plans
+   */
+  public HeuristicSearchPlanner(final GraphFactory factory, final DefaultGraphExtender extender,
+                                final EnablingCostHeuristic heuristic, final SearchStrategy strategy) {
+    this.factory = factory;
+    this.extender = extender;
+    this.heuristic = heuristic;
+    this.strategy = strategy;
+  }
+
+  /**
+   * @return the heuristic
+   */
+  public EnablingCostHeuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * @return the search strategy
+   */
+  public SearchStrategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Search plans solving a planning problem. Plans are searched lazily while iterating.
+   *
+   * @param problem a planning problem
+   *
+   * @return an iterator of plans with a depth within the problem's range
+   *
+   * @throws PlanningException when the initial level cannot be created
+   */
+  public Iterator<Plan> plan(final PlanningProblem problem) throws PlanningException {
+    final Graph g = problem.getWidgetConstraints().restrictLastLevel(factory.createGraph(problem.getGoalMashup()));
+    return new SearchPlanIterator(g.getInitialLevel(), extender, heuristic, strategy, problem.getMinDepth(),
+        problem.getMaxDepth(), problem.getWidgetConstraints());
+  }
+
+}
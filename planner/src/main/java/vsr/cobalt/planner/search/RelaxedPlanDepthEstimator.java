@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.PlanDepthEstimator;
+import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+
+/**
+ * Estimates the minimum plan depth using the relaxed number of levels required to enable the actions providing the
+ * requested functionalities.
+ * <p/>
+ * Each requested functionality needs the cheapest of its providing actions, and a plan needs one level more than its
+ * most expensive functionality. The estimate never exceeds the depth of any plan, as long as the heuristic is
+ * admissible.
+ * <p/>
+ * Actions are only explored up to the maximum plan depth, because any deeper estimate only tells that there is no
+ * plan within the maximum depth. The estimate is one more than the maximum depth then.
+ *
+ * @author Erik Wienhold
+ */
+public class RelaxedPlanDepthEstimator implements PlanDepthEstimator {
+
+  private final EnablingCostHeuristic heuristic;
+
+  private final int maxDepth;
+
+  /**
+   * @param heuristic an admissible heuristic
+   * @param maxDepth  the maximum plan depth of interest
+   */
+  public RelaxedPlanDepthEstimator(final EnablingCostHeuristic heuristic, final int maxDepth) {
+    if (!heuristic.isAdmissible()) {
+      throw new IllegalArgumentException("expecting an admissible heuristic");
+    }
+    if (maxDepth < 1) {
+      throw new IllegalArgumentException("expecting maxDepth >= 1");
+    }
+    this.heuristic = heuristic;
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * @param heuristic an admissible heuristic
+   */
+  public RelaxedPlanDepthEstimator(final EnablingCostHeuristic heuristic) {
+    this(heuristic, PlanningProblem.MAX_DEPTH);
+  }
+
+  /**
+   * @return the heuristic
+   */
+  public EnablingCostHeuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * @return the maximum plan depth of interest
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  @Override
+  public int estimateMinDepth(final Graph graph) {
+    final InitialLevel il = graph.getInitialLevel();
+    int cost = 0;
+    for (final Functionality f : il.getRequestedFunctionalities()) {
+      cost = Math.max(cost, estimateCost(il, f));
+      if (cost == EnablingCostHeuristic.INFINITE) {
+        return UNREACHABLE;
+      }
+    }
+    return cost + 1;
+  }
+
+  /**
+   * Estimate the number of levels required to enable the cheapest action providing a functionality.
+   *
+   * @param level         an initial level
+   * @param functionality a requested functionality
+   *
+   * @return the estimated number of levels
+   */
+  private int estimateCost(final InitialLevel level, final Functionality functionality) {
+    int min = EnablingCostHeuristic.INFINITE;
+    for (final FunctionalityProvision fp : level.getFunctionalityProvisionsByRequestedFunctionality(functionality)) {
+      min = Math.min(min, heuristic.estimate(fp.getProvidingAction(), maxDepth));
+    }
+    return min;
+  }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.WidgetConstraints;
+import vsr.cobalt.planner.extenders.DefaultGraphExtender;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.utils.ProductSet;
+
+/**
+ * Iterates over plans found by a best-first search over partial plans.
+ * <p/>
+ * Each search node is a graph with a single provision for each requested functionality and action. Expanding a node
+ * extends its graph with one of the possible combinations of action provisions for the unsatisfied actions of its
+ * last level, hence the search never builds levels with alternative provisions. A node whose last level is enabled is
+ * a plan, unless it contains mutex actions.
+ *
+ * @author Erik Wienhold
+ */
+class SearchPlanIterator extends AbstractIterator<Plan> {
+
+  private final DefaultGraphExtender extender;
+
+  private final EnablingCostHeuristic heuristic;
+
+  private final SearchStrategy strategy;
+
+  private final int minDepth;
+
+  private final int maxDepth;
+
+  private final WidgetConstraints widgetConstraints;
+
+  private final PriorityQueue<Node> queue;
+
+  private long sequence;
+
+  private long expandedNodes;
+
+  /**
+   * @param initialLevel an initial level with any number of provisions per functionality
+   * @param extender     an extender providing action provisions
+   * @param heuristic    a heuristic estimating the levels required to enable actions
+   * @param strategy     the order in which to expand nodes
+   * @param minDepth     the minimum graph depth for a plan
+   * @param maxDepth     the maximum graph depth for a plan
+   */
+  public SearchPlanIterator(final InitialLevel initialLevel, final DefaultGraphExtender extender,
+                            final EnablingCostHeuristic heuristic, final SearchStrategy strategy,
+                            final int minDepth, final int maxDepth) {
+    this(initialLevel, extender, heuristic, strategy, minDepth, maxDepth, WidgetConstraints.none());
+  }
+
+  /**
+   * @param initialLevel      an initial level with any number of provisions per functionality
+   * @param extender          an extender providing action provisions
+   * @param heuristic         a heuristic estimating the levels required to enable actions
+   * @param strategy          the order in which to expand nodes
+   * @param minDepth          the minimum graph depth for a plan
+   * @param maxDepth          the maximum graph depth for a plan
+   * @param widgetConstraints constraints on the widgets of partial plans
+   */
+  public SearchPlanIterator(final InitialLevel initialLevel, final DefaultGraphExtender extender,
+                            final EnablingCostHeuristic heuristic, final SearchStrategy strategy,
+                            final int minDepth, final int maxDepth, final WidgetConstraints widgetConstraints) {
+    if (minDepth < 1) {
+      throw new IllegalArgumentException("expecting minDepth >= 1");
+    }
+    if (minDepth > maxDepth) {
+      throw new IllegalArgumentException("expecting minDepth <= maxDepth");
+    }
+    this.extender = extender;
+    this.heuristic = heuristic;
+    this.strategy = strategy;
+    this.minDepth = minDepth;
+    this.maxDepth = maxDepth;
+    this.widgetConstraints = widgetConstraints;
+    queue = new PriorityQueue<>(11, createNodeOrder(strategy));
+
+    final Set<Set<FunctionalityProvision>> groups = new HashSet<>();
+    for (final Functionality f : initialLevel.getRequestedFunctionalities()) {
+      groups.add(initialLevel.getFunctionalityProvisionsByRequestedFunctionality(f));
+    }
+    for (final Set<FunctionalityProvision> fps : new ProductSet<>(groups)) {
+      enqueue(Graph.create(new InitialLevel(fps)));
+    }
+  }
+
+  /**
+   * @return the search strategy
+   */
+  public SearchStrategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * @return the number of nodes expanded so far
+   */
+  public long getExpandedNodes() {
+    return expandedNodes;
+  }
+
+  @Override
+  protected Plan computeNext() {
+    while (!queue.isEmpty()) {
+      final Node n = queue.poll();
+
+      if (n.unsatisfiedActions.isEmpty()) {
+        if (n.getDepth() >= minDepth) {
+          try {
+            return new Plan(n.graph);
+          } catch (final IllegalArgumentException ignored) {
+            // the partial plan contains mutex actions
+          }
+        }
+      } else {
+        expand(n);
+      }
+    }
+    return endOfData();
+  }
+
+  private void expand(final Node node) {
+    expandedNodes += 1;
+
+    final Map<Action, Set<ActionProvision>> groups = new HashMap<>();
+    for (final Action a : node.unsatisfiedActions) {
+      groups.put(a, new HashSet<ActionProvision>());
+    }
+    for (final ActionProvision ap : extender.getActionProvisionsFor(node.unsatisfiedActions, node.graph)) {
+      if (widgetConstraints.isAllowed(ap)) {
+        groups.get(ap.getRequestedAction()).add(ap);
+      }
+    }
+
+    for (final Set<ActionProvision> aps : groups.values()) {
+      if (aps.isEmpty()) {
+        // some action cannot be satisfied in this partial plan
+        return;
+      }
+    }
+
+    for (final Set<ActionProvision> aps : new ProductSet<>(new HashSet<>(groups.values()))) {
+      enqueue(node.graph.extendWith(new ExtensionLevel(aps)));
+    }
+  }
+
+  private void enqueue(final Graph graph) {
+    if (graph.getDepth() > maxDepth) {
+      return;
+    }
+
+    // extending a partial plan only adds actions, so it never gets back within the widget budget
+    if (!widgetConstraints.isWithinBudget(graph)) {
+      return;
+    }
+
+    final Set<Action> as = selectUnsatisfiedRequiredActions(graph);
+    final int h = heuristic.estimate(as);
+
+    if (h == EnablingCostHeuristic.INFINITE) {
+      return;
+    }
+
+    // an admissible estimate allows pruning nodes which cannot reach a plan within the maximum depth
+    if (heuristic.isAdmissible() && (long) graph.getDepth() + h > maxDepth) {
+      return;
+    }
+
+    queue.add(new Node(graph, as, h, sequence++));
+  }
+
+  private static Set<Action> selectUnsatisfiedRequiredActions(final Graph graph) {
+    final Set<Action> as = new HashSet<>();
+    for (final Action a : graph.getLastLevel().getRequiredActions()) {
+      if (!a.isEnabled()) {
+        as.add(a);
+      }
+    }
+    return as;
+  }
+
+  private static Comparator<Node> createNodeOrder(final SearchStrategy strategy) {
+    return new Comparator<Node>() {
+      @Override
+      public int compare(final Node n1, final Node n2) {
+        int c;
+        if (strategy == SearchStrategy.A_STAR) {
+          c = Long.compare(n1.getEstimatedDepth(), n2.getEstimatedDepth());
+          if (c == 0) {
+            c = Integer.compare(n1.estimate, n2.estimate);
+          }
+        } else {
+          c = Integer.compare(n1.estimate, n2.estimate);
+          if (c == 0) {
+            c = Integer.compare(n1.getDepth(), n2.getDepth());
+          }
+        }
+        // expand nodes in the order of their creation when equally promising
+        return c != 0 ? c : Long.compare(n1.sequence, n2.sequence);
+      }
+    };
+  }
+
+  private static class Node {
+
+    private final Graph graph;
+
+    private final Set<Action> unsatisfiedActions;
+
+    private final int estimate;
+
+    private final long sequence;
+
+    public Node(final Graph graph, final Set<Action> unsatisfiedActions, final int estimate, final long sequence) {
+      this.graph = graph;
+      this.unsatisfiedActions = unsatisfiedActions;
+      this.estimate = estimate;
+      this.sequence = sequence;
+    }
+
+    public int getDepth() {
+      return graph.getDepth();
+    }
+
+    public long getEstimatedDepth() {
+      return (long) getDepth() + estimate;
+    }
+
+  }
+
+}
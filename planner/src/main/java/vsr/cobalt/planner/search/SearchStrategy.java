@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+/**
+ * The order in which a heuristic search expands partial plans.
+ *
+ * @author Erik Wienhold
+ */
+public enum SearchStrategy {
+
+  /**
+   * Expand the partial plan with the least estimated plan depth first. Plans are found in the order of non-decreasing
+   * depth when the heuristic is admissible.
+   */
+  A_STAR,
+
+  /**
+   * Expand the partial plan with the least estimated remaining depth first, which usually finds a first plan sooner.
+   */
+  GREEDY
+
+}
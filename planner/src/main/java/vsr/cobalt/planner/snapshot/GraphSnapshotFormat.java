@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.snapshot;
+
+/**
+ * Constants of the binary graph snapshot format.
+ * <p/>
+ * All numbers are big-endian. A snapshot has the following layout:
+ * <pre>
+ * snapshot      := MAGIC:int VERSION:int block+ index indexOffset:long MAGIC:int
+ * block         := definitions level
+ * definitions   := strings types properties widgets functionalities interactions actions
+ *                  (each a count:int followed by its entries)
+ * string        := length:int utf8:byte*
+ * identifier    := (STRING_IDENTIFIER | URI_IDENTIFIER):byte string:int
+ * type          := identifier
+ * property      := name:string type:int
+ * widget        := identifier count:int property:int*
+ * functionality := identifier
+ * interaction   := instructionText:string
+ * action        := ATOMIC_ACTION:byte widget:int pre:propositions effects:propositions
+ *                    count:int functionality:int* count:int interaction:int*
+ *                | COMPOSITE_ACTION:byte count:int atomicAction:int*
+ * propositions  := count:int (property:int filled:byte)*
+ * level         := initialLevel (first block) | extensionLevel (any other block)
+ * initialLevel  := count:int (request:int offer:int action:int)*
+ * extensionLevel:= count:int (requestedAction:int offset:int)* group*
+ *                  (offsets are relative to the start of the extension level)
+ * group         := count:int (precursor:int count:int (request:int offer:int action:int)*)*
+ * index         := count:int (definitionsOffset:long levelOffset:long)*
+ * </pre>
+ * Entries of each definition table are numbered across all blocks in order of appearance, and only refer to entries
+ * defined before them. A level only refers to entries defined in its own or any preceding block.
+ *
+ * @author Erik Wienhold
+ */
+final class GraphSnapshotFormat {
+
+  /**
+   * The bytes "CBGS".
+   */
+  public static final int MAGIC = 0x43424753;
+
+  public static final int VERSION = 1;
+
+  public static final byte STRING_IDENTIFIER = 0;
+
+  public static final byte URI_IDENTIFIER = 1;
+
+  public static final byte ATOMIC_ACTION = 0;
+
+  public static final byte COMPOSITE_ACTION = 1;
+
+  /**
+   * The precursor of action provisions without precursor.
+   */
+  public static final int NO_PRECURSOR = -1;
+
+  /**
+   * The length of the trailing index offset and magic number.
+   */
+  public static final int FOOTER_LENGTH = 12;
+
+  private GraphSnapshotFormat() {
+  }
+
+}
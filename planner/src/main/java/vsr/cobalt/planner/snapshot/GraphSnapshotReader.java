@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.snapshot;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
+import vsr.cobalt.models.Interaction;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Proposition;
+import vsr.cobalt.models.PropositionSet;
+import vsr.cobalt.models.PublishedProperty;
+import vsr.cobalt.models.RealizedFunctionality;
+import vsr.cobalt.models.Type;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ActionProvisionSource;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.PropertyProvision;
+
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.ATOMIC_ACTION;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.COMPOSITE_ACTION;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.FOOTER_LENGTH;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.MAGIC;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.NO_PRECURSOR;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.STRING_IDENTIFIER;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.URI_IDENTIFIER;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.VERSION;
+
+/**
+ * Reads a graph from a snapshot.
+ * <p/>
+ * The definitions and the initial level are decoded when reading the graph. Extension levels are lazy and decode the
+ * provisions of a requested action only when asked for, directly from the snapshot's buffer, which may be a mapped
+ * file. The read graph is equal to the written graph.
+ *
+ * @author Erik Wienhold
+ * @see GraphSnapshotFormat
+ * @see GraphSnapshotWriter
+ */
+public class GraphSnapshotReader {
+
+  private final ByteBuffer buffer;
+
+  private final List<String> strings = new ArrayList<>();
+
+  private final List<Type> types = new ArrayList<>();
+
+  private final List<Property> properties = new ArrayList<>();
+
+  private final List<Widget> widgets = new ArrayList<>();
+
+  private final List<Functionality> functionalities = new ArrayList<>();
+
+  private final List<Interaction> interactions = new ArrayList<>();
+
+  private final List<Action> actions = new ArrayList<>();
+
+  /**
+   * Whether the definitions have been decoded, which happens only once per reader.
+   */
+  private boolean definitionsRead;
+
+  /**
+   * @param buffer a buffer containing a complete snapshot, from its position to its limit
+   */
+  public GraphSnapshotReader(final ByteBuffer buffer) {
+    this.buffer = buffer.slice();
+  }
+
+  /**
+   * Create a reader of a memory-mapped snapshot file.
+   *
+   * @param path the path of a snapshot file
+   *
+   * @return a new reader
+   *
+   * @throws IOException when the file cannot be mapped
+   */
+  public static GraphSnapshotReader map(final Path path) throws IOException {
+    try (final FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new GraphSnapshotReader(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+    }
+  }
+
+  /**
+   * Read the graph. Each call returns a new graph, but the graphs share their actions and other definitions.
+   *
+   * @return the graph contained in the snapshot
+   *
+   * @throws IOException when the snapshot is malformed or of an unsupported version
+   */
+  public synchronized Graph readGraph() throws IOException {
+    final ByteBuffer b = buffer.duplicate();
+    final int limit = b.limit();
+
+    if (limit < 8 + FOOTER_LENGTH || b.getInt(0) != MAGIC || b.getInt(limit - 4) != MAGIC) {
+      throw new IOException("not a graph snapshot");
+    }
+    final int version = b.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("unsupported snapshot version " + version);
+    }
+
+    b.position(checkOffset(b.getLong(limit - FOOTER_LENGTH), limit));
+    final int blocks = b.getInt();
+    if (blocks < 1) {
+      throw new IOException("expecting one or more levels");
+    }
+    final long[] definitionsOffsets = new long[blocks];
+    final long[] levelOffsets = new long[blocks];
+    for (int i = 0; i < blocks; i += 1) {
+      definitionsOffsets[i] = b.getLong();
+      levelOffsets[i] = b.getLong();
+    }
+
+    if (!definitionsRead) {
+      for (final long offset : definitionsOffsets) {
+        b.position(checkOffset(offset, limit));
+        readDefinitions(b);
+      }
+      definitionsRead = true;
+    }
+
+    b.position(checkOffset(levelOffsets[0], limit));
+    Graph g = Graph.create(readInitialLevel(b));
+    for (int i = 1; i < blocks; i += 1) {
+      g = g.extendWith(readExtensionLevel(checkOffset(levelOffsets[i], limit)));
+    }
+    return g;
+  }
+
+  private static int checkOffset(final long offset, final int limit) throws IOException {
+    if (offset < 0 || offset >= limit) {
+      throw new IOException("invalid offset " + offset);
+    }
+    return (int) offset;
+  }
+
+  private void readDefinitions(final ByteBuffer b) throws IOException {
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      final byte[] bs = new byte[b.getInt()];
+      b.get(bs);
+      strings.add(new String(bs, StandardCharsets.UTF_8));
+    }
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      types.add(new Type(readIdentifier(b)));
+    }
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      final String name = strings.get(b.getInt());
+      properties.add(new Property(name, types.get(b.getInt())));
+    }
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      final Identifier id = readIdentifier(b);
+      final Set<Property> ps = new HashSet<>();
+      for (int m = b.getInt(); m > 0; m -= 1) {
+        ps.add(properties.get(b.getInt()));
+      }
+      widgets.add(new Widget(id, ps));
+    }
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      functionalities.add(new Functionality(readIdentifier(b)));
+    }
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      interactions.add(new Interaction(strings.get(b.getInt())));
+    }
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      actions.add(readAction(b));
+    }
+  }
+
+  private Identifier readIdentifier(final ByteBuffer b) throws IOException {
+    final byte kind = b.get();
+    final String s = strings.get(b.getInt());
+    switch (kind) {
+    case STRING_IDENTIFIER:
+      return Identifier.create(s);
+    case URI_IDENTIFIER:
+      return Identifier.create(URI.create(s));
+    default:
+      throw new IOException("invalid identifier kind " + kind);
+    }
+  }
+
+  private Action readAction(final ByteBuffer b) throws IOException {
+    final byte kind = b.get();
+    switch (kind) {
+    case ATOMIC_ACTION:
+      final Widget w = widgets.get(b.getInt());
+      final PropositionSet pre = readPropositions(b);
+      final PropositionSet effects = readPropositions(b);
+      final Set<Functionality> fs = new HashSet<>();
+      for (int n = b.getInt(); n > 0; n -= 1) {
+        fs.add(functionalities.get(b.getInt()));
+      }
+      final Set<Interaction> is = new HashSet<>();
+      for (int n = b.getInt(); n > 0; n -= 1) {
+        is.add(interactions.get(b.getInt()));
+      }
+      return Action.create(w, pre, effects, fs, is);
+    case COMPOSITE_ACTION:
+      final List<Action> as = new ArrayList<>();
+      for (int n = b.getInt(); n > 0; n -= 1) {
+        as.add(actions.get(b.getInt()));
+      }
+      return Action.compose(as);
+    default:
+      throw new IOException("invalid action kind " + kind);
+    }
+  }
+
+  private PropositionSet readPropositions(final ByteBuffer b) {
+    final Set<Proposition> ps = new HashSet<>();
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      final Property p = properties.get(b.getInt());
+      ps.add(new Proposition(p, b.get() != 0));
+    }
+    return new PropositionSet(ps);
+  }
+
+  private InitialLevel readInitialLevel(final ByteBuffer b) {
+    final Set<FunctionalityProvision> fps = new HashSet<>();
+    for (int n = b.getInt(); n > 0; n -= 1) {
+      final Functionality request = functionalities.get(b.getInt());
+      final Functionality offer = functionalities.get(b.getInt());
+      final Action a = actions.get(b.getInt());
+      fps.add(new FunctionalityProvision(request, new RealizedFunctionality(offer, a)));
+    }
+    return new InitialLevel(fps);
+  }
+
+  /**
+   * Create a lazy extension level decoding the provisions of a requested action when asked for.
+   *
+   * @param offset the offset of the encoded level
+   *
+   * @return a lazy extension level
+   */
+  private ExtensionLevel readExtensionLevel(final int offset) {
+    final int groups = buffer.getInt(offset);
+    final Map<Action, Integer> groupOffsets = new HashMap<>(groups);
+    for (int i = 0; i < groups; i += 1) {
+      final int p = offset + 4 + 8 * i;
+      groupOffsets.put(actions.get(buffer.getInt(p)), offset + buffer.getInt(p + 4));
+    }
+    return ExtensionLevel.createLazy(groupOffsets.keySet(), new GroupDecoder(groupOffsets));
+  }
+
+  /**
+   * Decodes the provisions of requested actions from the groups of an extension level.
+   */
+  private class GroupDecoder implements ActionProvisionSource {
+
+    private final Map<Action, Integer> offsets;
+
+    public GroupDecoder(final Map<Action, Integer> offsets) {
+      this.offsets = offsets;
+    }
+
+    @Override
+    public Set<ActionProvision> getActionProvisionsFor(final Action action) {
+      final Integer offset = offsets.get(action);
+      if (offset == null) {
+        return ImmutableSet.of();
+      }
+      final ByteBuffer b = buffer.duplicate();
+      b.position(offset);
+      final ImmutableSet.Builder<ActionProvision> aps = ImmutableSet.builder();
+      for (int n = b.getInt(); n > 0; n -= 1) {
+        final int precursor = b.getInt();
+        final Set<PropertyProvision> pps = new HashSet<>();
+        for (int m = b.getInt(); m > 0; m -= 1) {
+          final Property request = properties.get(b.getInt());
+          final Property offer = properties.get(b.getInt());
+          pps.add(new PropertyProvision(request, new PublishedProperty(offer, actions.get(b.getInt()))));
+        }
+        aps.add(precursor == NO_PRECURSOR
+            ? ActionProvision.createWithoutPrecursor(action, pps)
+            : ActionProvision.createWithPrecursor(action, actions.get(precursor), pps));
+      }
+      return aps.build();
+    }
+
+  }
+
+}
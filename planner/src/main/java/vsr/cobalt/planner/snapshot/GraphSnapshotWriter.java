@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.io.CountingOutputStream;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
+import vsr.cobalt.models.Interaction;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Proposition;
+import vsr.cobalt.models.PropositionSet;
+import vsr.cobalt.models.Type;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.PropertyProvision;
+
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.ATOMIC_ACTION;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.COMPOSITE_ACTION;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.MAGIC;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.NO_PRECURSOR;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.STRING_IDENTIFIER;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.URI_IDENTIFIER;
+import static vsr.cobalt.planner.snapshot.GraphSnapshotFormat.VERSION;
+
+/**
+ * Writes a graph snapshot level by level, so that a graph can be written while it is extended.
+ * <p/>
+ * Each level is preceded by the definitions of the strings, actions and other entries it uses for the first time.
+ * Only a single level is buffered at a time. The snapshot is complete after {@link #finish()}.
+ *
+ * @author Erik Wienhold
+ * @see GraphSnapshotFormat
+ * @see GraphSnapshotReader
+ */
+public class GraphSnapshotWriter implements Closeable {
+
+  private final CountingOutputStream counter;
+
+  private final DataOutputStream out;
+
+  private final Table<String> strings = new Table<>();
+
+  private final Table<Type> types = new Table<>();
+
+  private final Table<Property> properties = new Table<>();
+
+  private final Table<Widget> widgets = new Table<>();
+
+  private final Table<Functionality> functionalities = new Table<>();
+
+  private final Table<Interaction> interactions = new Table<>();
+
+  private final Table<Action> actions = new Table<>();
+
+  /**
+   * The definitions and level offset of each written block.
+   */
+  private final List<long[]> index = new ArrayList<>();
+
+  private boolean finished;
+
+  /**
+   * Create a writer and write the snapshot header.
+   *
+   * @param out a stream receiving the snapshot
+   *
+   * @throws IOException when writing fails
+   */
+  public GraphSnapshotWriter(final OutputStream out) throws IOException {
+    counter = new CountingOutputStream(out);
+    this.out = new DataOutputStream(counter);
+    this.out.writeInt(MAGIC);
+    this.out.writeInt(VERSION);
+  }
+
+  /**
+   * Write a complete snapshot of a graph.
+   *
+   * @param graph a graph
+   * @param out   a stream receiving the snapshot
+   *
+   * @throws IOException when writing fails
+   */
+  public static void write(final Graph graph, final OutputStream out) throws IOException {
+    final GraphSnapshotWriter w = new GraphSnapshotWriter(out);
+    w.writeInitialLevel(graph.getInitialLevel());
+    for (final ExtensionLevel xl : graph.getExtensionLevels()) {
+      w.writeExtensionLevel(xl);
+    }
+    w.finish();
+  }
+
+  /**
+   * Write the initial level, which must be the first level.
+   *
+   * @param level an initial level
+   *
+   * @throws IOException when writing fails
+   */
+  public void writeInitialLevel(final InitialLevel level) throws IOException {
+    assertWritable();
+    if (!index.isEmpty()) {
+      throw new IllegalStateException("initial level already written");
+    }
+
+    final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    final DataOutputStream lout = new DataOutputStream(buf);
+    final Set<FunctionalityProvision> fps = level.getFunctionalityProvisions();
+    lout.writeInt(fps.size());
+    for (final FunctionalityProvision fp : fps) {
+      lout.writeInt(defineFunctionality(fp.getRequest()));
+      lout.writeInt(defineFunctionality(fp.getOffer().getSubject()));
+      lout.writeInt(defineAction(fp.getProvidingAction()));
+    }
+
+    writeBlock(buf);
+  }
+
+  /**
+   * Write an extension level, which must extend the previously written level.
+   *
+   * @param level an extension level
+   *
+   * @throws IOException when writing fails
+   */
+  public void writeExtensionLevel(final ExtensionLevel level) throws IOException {
+    assertWritable();
+    if (index.isEmpty()) {
+      throw new IllegalStateException("expecting an initial level");
+    }
+
+    final Map<Action, List<ActionProvision>> groups = new LinkedHashMap<>();
+    for (final ActionProvision ap : level.getActionProvisions()) {
+      List<ActionProvision> aps = groups.get(ap.getRequestedAction());
+      if (aps == null) {
+        aps = new ArrayList<>();
+        groups.put(ap.getRequestedAction(), aps);
+      }
+      aps.add(ap);
+    }
+
+    final ByteArrayOutputStream gbuf = new ByteArrayOutputStream();
+    final DataOutputStream gout = new DataOutputStream(gbuf);
+    final int[] requests = new int[groups.size()];
+    final int[] offsets = new int[groups.size()];
+    final int header = 4 + 8 * groups.size();
+
+    int i = 0;
+    for (final Map.Entry<Action, List<ActionProvision>> e : groups.entrySet()) {
+      requests[i] = defineAction(e.getKey());
+      offsets[i] = header + gout.size();
+      gout.writeInt(e.getValue().size());
+      for (final ActionProvision ap : e.getValue()) {
+        final Action pa = ap.getPrecursorAction();
+        gout.writeInt(pa == null ? NO_PRECURSOR : defineAction(pa));
+        gout.writeInt(ap.getPropertyProvisions().size());
+        for (final PropertyProvision pp : ap.getPropertyProvisions()) {
+          gout.writeInt(defineProperty(pp.getRequest()));
+          gout.writeInt(defineProperty(pp.getOffer().getSubject()));
+          gout.writeInt(defineAction(pp.getProvidingAction()));
+        }
+      }
+      i += 1;
+    }
+
+    final ByteArrayOutputStream buf = new ByteArrayOutputStream(header + gbuf.size());
+    final DataOutputStream lout = new DataOutputStream(buf);
+    lout.writeInt(groups.size());
+    for (int j = 0; j < requests.length; j += 1) {
+      lout.writeInt(requests[j]);
+      lout.writeInt(offsets[j]);
+    }
+    gbuf.writeTo(lout);
+
+    writeBlock(buf);
+  }
+
+  /**
+   * Write the index of all written levels and flush the stream. No more levels can be written afterwards.
+   *
+   * @throws IOException when writing fails
+   */
+  public void finish() throws IOException {
+    assertWritable();
+    if (index.isEmpty()) {
+      throw new IllegalStateException("expecting an initial level");
+    }
+    final long offset = counter.getCount();
+    out.writeInt(index.size());
+    for (final long[] entry : index) {
+      out.writeLong(entry[0]);
+      out.writeLong(entry[1]);
+    }
+    out.writeLong(offset);
+    out.writeInt(MAGIC);
+    out.flush();
+    finished = true;
+  }
+
+  /**
+   * Close the underlying stream without finishing the snapshot.
+   *
+   * @throws IOException when closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  private void assertWritable() {
+    if (finished) {
+      throw new IllegalStateException("snapshot already finished");
+    }
+  }
+
+  /**
+   * Write the definitions added since the last block, followed by a buffered level.
+   *
+   * @param level the encoded level
+   *
+   * @throws IOException when writing fails
+   */
+  private void writeBlock(final ByteArrayOutputStream level) throws IOException {
+    final long definitionsOffset = counter.getCount();
+
+    out.writeInt(strings.pending.size());
+    for (final String s : strings.takePending()) {
+      final byte[] bs = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bs.length);
+      out.write(bs);
+    }
+
+    out.writeInt(types.pending.size());
+    for (final Type t : types.takePending()) {
+      writeIdentifier(t.getIdentifier());
+    }
+
+    out.writeInt(properties.pending.size());
+    for (final Property p : properties.takePending()) {
+      out.writeInt(strings.getId(p.getName()));
+      out.writeInt(types.getId(p.getType()));
+    }
+
+    out.writeInt(widgets.pending.size());
+    for (final Widget w : widgets.takePending()) {
+      writeIdentifier(w.getIdentifier());
+      out.writeInt(w.getPublicProperties().size());
+      for (final Property p : w.getPublicProperties()) {
+        out.writeInt(properties.getId(p));
+      }
+    }
+
+    out.writeInt(functionalities.pending.size());
+    for (final Functionality f : functionalities.takePending()) {
+      writeIdentifier(f.getIdentifier());
+    }
+
+    out.writeInt(interactions.pending.size());
+    for (final Interaction i : interactions.takePending()) {
+      out.writeInt(strings.getId(i.getInstructionText()));
+    }
+
+    out.writeInt(actions.pending.size());
+    for (final Action a : actions.takePending()) {
+      writeAction(a);
+    }
+
+    final long levelOffset = counter.getCount();
+    level.writeTo(out);
+    index.add(new long[]{definitionsOffset, levelOffset});
+  }
+
+  private void writeIdentifier(final Identifier identifier) throws IOException {
+    out.writeByte(identifier.isUri() ? URI_IDENTIFIER : STRING_IDENTIFIER);
+    out.writeInt(strings.getId(identifier.toString()));
+  }
+
+  private void writeAction(final Action action) throws IOException {
+    if (isComposite(action)) {
+      final Set<Action> as = action.getAtomicActions();
+      out.writeByte(COMPOSITE_ACTION);
+      out.writeInt(as.size());
+      for (final Action a : as) {
+        out.writeInt(actions.getId(a));
+      }
+    } else {
+      out.writeByte(ATOMIC_ACTION);
+      out.writeInt(widgets.getId(action.getWidget()));
+      writePropositions(action.getPreConditions());
+      writePropositions(action.getEffects());
+      out.writeInt(action.getRealizedFunctionalities().size());
+      for (final Functionality f : action.getRealizedFunctionalities()) {
+        out.writeInt(functionalities.getId(f));
+      }
+      out.writeInt(action.getInteractions().size());
+      for (final Interaction i : action.getInteractions()) {
+        out.writeInt(interactions.getId(i));
+      }
+    }
+  }
+
+  private void writePropositions(final PropositionSet propositions) throws IOException {
+    out.writeInt(propositions.size());
+    for (final Proposition p : propositions) {
+      out.writeInt(properties.getId(p.getProperty()));
+      out.writeBoolean(p.isFilled());
+    }
+  }
+
+  private int defineString(final String string) {
+    final Integer id = strings.find(string);
+    return id != null ? id : strings.add(string);
+  }
+
+  private int defineIdentifier(final Identifier identifier) {
+    return defineString(identifier.toString());
+  }
+
+  private int defineType(final Type type) {
+    final Integer id = types.find(type);
+    if (id != null) {
+      return id;
+    }
+    defineIdentifier(type.getIdentifier());
+    return types.add(type);
+  }
+
+  private int defineProperty(final Property property) {
+    final Integer id = properties.find(property);
+    if (id != null) {
+      return id;
+    }
+    defineString(property.getName());
+    defineType(property.getType());
+    return properties.add(property);
+  }
+
+  private int defineWidget(final Widget widget) {
+    final Integer id = widgets.find(widget);
+    if (id != null) {
+      return id;
+    }
+    defineIdentifier(widget.getIdentifier());
+    for (final Property p : widget.getPublicProperties()) {
+      defineProperty(p);
+    }
+    return widgets.add(widget);
+  }
+
+  private int defineFunctionality(final Functionality functionality) {
+    final Integer id = functionalities.find(functionality);
+    if (id != null) {
+      return id;
+    }
+    defineIdentifier(functionality.getIdentifier());
+    return functionalities.add(functionality);
+  }
+
+  private int defineInteraction(final Interaction interaction) {
+    final Integer id = interactions.find(interaction);
+    if (id != null) {
+      return id;
+    }
+    defineString(interaction.getInstructionText());
+    return interactions.add(interaction);
+  }
+
+  private int defineAction(final Action action) {
+    final Integer id = actions.find(action);
+    if (id != null) {
+      return id;
+    }
+    if (isComposite(action)) {
+      for (final Action a : action.getAtomicActions()) {
+        defineAction(a);
+      }
+    } else {
+      defineWidget(action.getWidget());
+      for (final Proposition p : action.getPreConditions()) {
+        defineProperty(p.getProperty());
+      }
+      for (final Proposition p : action.getEffects()) {
+        defineProperty(p.getProperty());
+      }
+      for (final Functionality f : action.getRealizedFunctionalities()) {
+        defineFunctionality(f);
+      }
+      for (final Interaction i : action.getInteractions()) {
+        defineInteraction(i);
+      }
+    }
+    return actions.add(action);
+  }
+
+  private static boolean isComposite(final Action action) {
+    final Set<Action> as = action.getAtomicActions();
+    return as.size() != 1 || as.iterator().next() != action;
+  }
+
+  /**
+   * Entries numbered in order of definition, with the entries not yet written.
+   *
+   * @param <T> the type of entries
+   */
+  private static final class Table<T> {
+
+    private final Map<T, Integer> ids = new HashMap<>();
+
+    private List<T> pending = new ArrayList<>();
+
+    public Integer find(final T entry) {
+      return ids.get(entry);
+    }
+
+    public int getId(final T entry) {
+      return ids.get(entry);
+    }
+
+    public int add(final T entry) {
+      final int id = ids.size();
+      ids.put(entry, id);
+      pending.add(entry);
+      return id;
+    }
+
+    public List<T> takePending() {
+      final List<T> es = pending;
+      pending = new ArrayList<>();
+      return es;
+    }
+
+  }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.streams;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import vsr.cobalt.planner.CloseablePlanIterator;
+import vsr.cobalt.planner.MashupPlanner;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.WidgetConstraints;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Publishes the plans of a planning problem, alternating between graph extension and plan extraction like
+ * {@link vsr.cobalt.planner.PlanningProcess}, but driven by the subscriber's demand.
+ * <p/>
+ * All planning work runs on a given executor, and only while the subscriber has outstanding demand. The graph is
+ * extended lazily when plans of the next depth are requested, and plans are pulled one at a time from the planner's
+ * extractor, so planning pauses as soon as the requested plans have been delivered. At most one task of a
+ * subscription runs at any time, hence signals are delivered serially.
+ * <p/>
+ * Planning is stateful, thus a publisher accepts a single subscriber only. The first exception thrown by the planner
+ * terminates the subscription via {@link Subscriber#onError}.
+ *
+ * @author Erik Wienhold
+ */
+public class PlanningPublisher implements Publisher<Plan> {
+
+  private final MashupPlanner planner;
+
+  private final PlanningProblem problem;
+
+  private final Executor executor;
+
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /**
+   * @param planner  a planner
+   * @param problem  a planning problem
+   * @param executor an executor running the planning work
+   */
+  public PlanningPublisher(final MashupPlanner planner, final PlanningProblem problem, final Executor executor) {
+    this.planner = planner;
+    this.problem = problem;
+    this.executor = executor;
+  }
+
+  /**
+   * @return the planner
+   */
+  public MashupPlanner getPlanner() {
+    return planner;
+  }
+
+  /**
+   * @return the planning problem
+   */
+  public PlanningProblem getProblem() {
+    return problem;
+  }
+
+  /**
+   * @return the executor running the planning work
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super Plan> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("expecting subscriber");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(final long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("expecting single subscriber"));
+      return;
+    }
+    subscriber.onSubscribe(new PlanningSubscription(subscriber));
+  }
+
+  /**
+   * A subscription draining plans on the executor.
+   * <p/>
+   * The number of pending drain requests is counted, and a drain task is only scheduled when there is none pending.
+   * The task drains until no drain requests remain, thus requests arriving while draining are not lost.
+   */
+  private class PlanningSubscription implements Subscription, Runnable {
+
+    private final Subscriber<? super Plan> subscriber;
+
+    /**
+     * The number of requested but not yet delivered plans, {@link Long#MAX_VALUE} when unbounded.
+     */
+    private final AtomicLong demand = new AtomicLong();
+
+    /**
+     * The number of drain requests not yet handled by the drain task.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Indicates whether a terminal signal has been delivered.
+     */
+    private volatile boolean done;
+
+    /**
+     * An error caused by the subscriber, delivered by the drain task.
+     */
+    private volatile Throwable error;
+
+    /**
+     * The graph updated when plans of the next depth are requested.
+     * Only accessed by the drain task.
+     */
+    private Graph graph;
+
+    /**
+     * The plan depth for the next extraction. May overflow when {@link PlanningProblem#MAX_DEPTH} is reached.
+     * Only accessed by the drain task.
+     */
+    private int targetDepth;
+
+    /**
+     * The plans of the current depth, null before the first extraction.
+     * Only accessed by the drain task.
+     */
+    private Iterator<Plan> plans;
+
+    public PlanningSubscription(final Subscriber<? super Plan> subscriber) {
+      this.subscriber = subscriber;
+      targetDepth = problem.getMinDepth();
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n < 1) {
+        error = new IllegalArgumentException("expecting n >= 1");
+      } else {
+        addDemand(n);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      // let the drain task close the plans
+      schedule();
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        drain();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void addDemand(final long n) {
+      while (true) {
+        final long d = demand.get();
+        // saturate at unbounded demand
+        final long e = d + n < 0 ? Long.MAX_VALUE : d + n;
+        if (demand.compareAndSet(d, e)) {
+          return;
+        }
+      }
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (final RejectedExecutionException ex) {
+          // no drain task is running, so signals cannot be concurrent
+          if (!cancelled) {
+            fail(ex);
+          }
+        }
+      }
+    }
+
+    /**
+     * Deliver plans as long as there is demand. Closes the current plans once cancelled.
+     */
+    private void drain() {
+      if (cancelled) {
+        closePlans();
+        return;
+      }
+      while (!done && !cancelled) {
+        if (error != null) {
+          fail(error);
+          return;
+        }
+        if (demand.get() == 0) {
+          return;
+        }
+
+        final Plan p;
+        try {
+          p = nextPlan();
+        } catch (final Exception ex) {
+          fail(ex);
+          return;
+        }
+
+        if (p == null) {
+          done = true;
+          subscriber.onComplete();
+          return;
+        }
+
+        // the subscriber may have cancelled while the plan was searched
+        if (cancelled) {
+          return;
+        }
+
+        if (demand.get() != Long.MAX_VALUE) {
+          demand.decrementAndGet();
+        }
+        subscriber.onNext(p);
+      }
+    }
+
+    /**
+     * Close the current plans, so that their partial search is reported (see {@link CloseablePlanIterator}).
+     */
+    private void closePlans() {
+      if (plans instanceof CloseablePlanIterator) {
+        ((CloseablePlanIterator) plans).close();
+      }
+      plans = null;
+    }
+
+    private void fail(final Throwable ex) {
+      done = true;
+      subscriber.onError(ex);
+    }
+
+    /**
+     * Get the next plan, extending the graph and extracting plans of the next depth when required.
+     * <p/>
+     * Like {@link vsr.cobalt.planner.PlanningProcess}, the graph is restricted to the allowed widgets, and plans using
+     * more distinct widgets than allowed are skipped.
+     *
+     * @return the next plan, null when there are no more plans
+     *
+     * @throws PlanningException when the graph cannot be created or extended
+     */
+    private Plan nextPlan() throws PlanningException {
+      final WidgetConstraints wc = problem.getWidgetConstraints();
+      while (true) {
+        while (plans == null || !plans.hasNext()) {
+          if (isDone()) {
+            return null;
+          }
+          if (graph == null) {
+            graph = wc.restrictLastLevel(planner.createGraph(problem.getGoalMashup()));
+          }
+          while (graph.getDepth() < targetDepth && !graph.isSatisfied()) {
+            graph = wc.restrictLastLevel(planner.extendGraph(graph));
+          }
+          plans = planner.extractPlans(graph, targetDepth);
+          targetDepth += 1;
+        }
+        final Plan p = plans.next();
+        if (wc.isWithinBudget(p.getGraph())) {
+          return p;
+        }
+      }
+    }
+
+    /**
+     * @return true when plans up to the maximum depth, or up to the depth of a satisfied graph, have been searched
+     */
+    private boolean isDone() {
+      // target depth overflowed when the max depth is exceeded
+      return targetDepth < 0
+          || targetDepth > problem.getMaxDepth()
+          || (graph != null && graph.getDepth() < targetDepth && graph.isSatisfied());
+    }
+
+  }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.streams;
+
+/**
+ * Provides a potentially unbounded sequence of elements to subscribers, according to their demand.
+ * <p/>
+ * The protocol follows the Reactive Streams specification: a publisher signals {@link Subscriber#onSubscribe} once,
+ * followed by at most as many {@link Subscriber#onNext} signals as requested via {@link Subscription#request}, and
+ * optionally a single terminal signal, i.e. {@link Subscriber#onComplete} or {@link Subscriber#onError}. Signals are
+ * never delivered concurrently.
+ *
+ * @param <T> the type of elements
+ *
+ * @author Erik Wienhold
+ */
+public interface Publisher<T> {
+
+  /**
+   * Subscribe to this publisher. The publisher starts producing elements once the subscriber requests them.
+   *
+   * @param subscriber a subscriber
+   */
+  void subscribe(Subscriber<? super T> subscriber);
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.streams;
+
+/**
+ * Receives the elements of a {@link Publisher}.
+ *
+ * @param <T> the type of elements
+ *
+ * @author Erik Wienhold
+ */
+public interface Subscriber<T> {
+
+  /**
+   * Invoked once after subscribing to a publisher. No elements are delivered until requested.
+   *
+   * @param subscription a subscription used to request elements or to cancel
+   */
+  void onSubscribe(Subscription subscription);
+
+  /**
+   * Invoked for each requested element.
+   *
+   * @param element an element
+   */
+  void onNext(T element);
+
+  /**
+   * Invoked once when the publisher failed. No further signals follow.
+   *
+   * @param error the cause of failure
+   */
+  void onError(Throwable error);
+
+  /**
+   * Invoked once when the publisher has no more elements. No further signals follow.
+   */
+  void onComplete();
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.streams;
+
+/**
+ * Links a {@link Subscriber} to a {@link Publisher}. The methods may be called from any thread, including from
+ * within the subscriber's signal methods.
+ *
+ * @author Erik Wienhold
+ */
+public interface Subscription {
+
+  /**
+   * Request additional elements. Demand is accumulated and saturates at {@link Long#MAX_VALUE}, which is treated as
+   * unbounded. A non-positive number causes {@link Subscriber#onError} to be signalled.
+   *
+   * @param n the number of additional elements
+   */
+  void request(long n);
+
+  /**
+   * Stop delivering elements. Signals already in progress may still arrive.
+   */
+  void cancel();
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.Level;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.planner.graph.makers.PropertyProvisionMaker.aPropertyProvision;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class PlanFingerprinterTest {
+
+  private static final Functionality F1 = make(aMinimalFunctionality().withIdentifier("f1"));
+
+  private static final Functionality F2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+  private static final Property P1 = make(aMinimalProperty().withName("p1"));
+
+  private static final Property P2 = make(aMinimalProperty().withName("p2"));
+
+  private static final Property P3 = make(aMinimalProperty().withName("p3"));
+
+  private static final Action A1 = make(aMinimalAction()
+      .withFunctionality(F1)
+      .withEffects(aPropositionSet().withCleared(P1)));
+
+  private static final Action A2 = make(aMinimalAction()
+      .withEffects(aPropositionSet().withCleared(P2)));
+
+  private static final Action A3 = make(aMinimalAction()
+      .withFunctionality(F2)
+      .withEffects(aPropositionSet().withCleared(P3)));
+
+  private static Plan plan(final Action a1, final Action a2) {
+    return new Plan(make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withProvidingAction(a1)
+                .withOffer(F1)
+                .withRequest(F1))
+            .withProvision(aFunctionalityProvision()
+                .withProvidingAction(a2)
+                .withOffer(F2)
+                .withRequest(F2)))));
+  }
+
+  /**
+   * Create a plan where a first action provides property P1 and a second action provides property P2 to a requested
+   * action.
+   */
+  private static Plan propertyPlan(final Action requested, final Action first, final Action second) {
+    return new Plan(make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withProvidingAction(requested)
+                .withOffer(F1)
+                .withRequest(F1)))
+        .withExtensionLevel(anExtensionLevel()
+            .withProvision(anActionProvision()
+                .withRequest(requested)
+                .withProvision(aPropertyProvision()
+                    .withProvidingAction(first)
+                    .withRequest(P1)
+                    .withOffer(P1))
+                .withProvision(aPropertyProvision()
+                    .withProvidingAction(second)
+                    .withRequest(P2)
+                    .withOffer(P2))))));
+  }
+
+  @Test
+  public static class FingerprintPlan {
+
+    @Test
+    public void returnEqualFingerprintsForDifferentGroupingOfSameAtomicActions() {
+      final Plan p1 = plan(Action.compose(A1, A2), A3);
+      final Plan p2 = plan(A1, Action.compose(A2, A3));
+      assertNotEquals(p1, p2);
+      final PlanFingerprinter pf = new PlanFingerprinter();
+      assertEquals(pf.fingerprint(p1), pf.fingerprint(p2));
+    }
+
+    @Test
+    public void returnDifferentFingerprintsForDifferentAtomicActions() {
+      final Plan p1 = plan(Action.compose(A1, A2), A3);
+      final Plan p2 = plan(A1, A3);
+      final PlanFingerprinter pf = new PlanFingerprinter();
+      assertNotEquals(pf.fingerprint(p1), pf.fingerprint(p2));
+    }
+
+    @Test
+    public void returnDifferentFingerprintsForDifferentWiringOfSameAtomicActions() {
+      final Action a4 = make(aMinimalAction()
+          .withFunctionality(F1, F2)
+          .withEffects(aPropositionSet().withCleared(P1)));
+      final Action a5 = make(aMinimalAction()
+          .withFunctionality(F1, F2)
+          .withEffects(aPropositionSet().withCleared(P2)));
+      final Plan p1 = plan(a4, a5);
+      final Plan p2 = plan(a5, a4);
+      final PlanFingerprinter pf = new PlanFingerprinter();
+      assertNotEquals(pf.fingerprint(p1), pf.fingerprint(p2));
+    }
+
+    @Test
+    public void returnDifferentFingerprintsForDifferentPropertyProviders() {
+      final Widget w = make(aMinimalWidget().withPublic(P1, P2));
+      final Action a4 = make(aMinimalAction()
+          .withWidget(aMinimalWidget().withPublic(P1, P2))
+          .withFunctionality(F1)
+          .withPre(aPropositionSet().withFilled(P1, P2)));
+      final Action a5 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(P1, P2)));
+      final Action a6 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(P1, P2).withCleared(P3)));
+      final Plan p1 = propertyPlan(a4, a5, a6);
+      final Plan p2 = propertyPlan(a4, a6, a5);
+      final PlanFingerprinter pf = new PlanFingerprinter();
+      assertNotEquals(pf.fingerprint(p1), pf.fingerprint(p2));
+    }
+
+    @Test
+    public void returnEqualFingerprintsAcrossFingerprinters() {
+      final Plan p = plan(A1, A3);
+      assertEquals(new PlanFingerprinter().fingerprint(p), new PlanFingerprinter().fingerprint(p));
+    }
+
+    @Test
+    public void returnSumOfLevelFingerprints() {
+      final Action a4 = make(aMinimalAction()
+          .withFunctionality(F1)
+          .withPre(aPropositionSet().withCleared(P1)));
+
+      final Plan p = new Plan(make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withProvidingAction(a4)
+                  .withOffer(F1)
+                  .withRequest(F1)))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(anActionProvision()
+                  .withRequest(a4)
+                  .withPrecursor(A1)))));
+
+      final PlanFingerprinter pf = new PlanFingerprinter();
+      final Graph g = p.getGraph();
+      final PlanFingerprint fp = pf.fingerprint(0, g.getInitialLevel()).plus(pf.fingerprint(1, g.getExtensionLevel(0)));
+      assertEquals(pf.fingerprint(p), fp);
+    }
+
+  }
+
+  @Test
+  public static class FingerprintLevel {
+
+    @Test
+    public void returnDifferentFingerprintsForDifferentIndexes() {
+      final Level l = plan(A1, A3).getGraph().getInitialLevel();
+      final PlanFingerprinter pf = new PlanFingerprinter();
+      assertNotEquals(pf.fingerprint(0, l), pf.fingerprint(1, l));
+    }
+
+  }
+
+}
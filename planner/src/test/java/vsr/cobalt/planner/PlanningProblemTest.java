@@ -9,7 +9,9 @@ package vsr.cobalt.planner;
 
 import java.util.Objects;
 
+import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.Test;
+import vsr.cobalt.models.Identifier;
 import vsr.cobalt.models.Mashup;
 
 import static org.testng.Assert.assertEquals;
@@ -45,14 +47,20 @@ public class PlanningProblemTest {
     assertEquals(p.getMaxDepth(), Integer.MAX_VALUE);
   }
 
+  @Test
+  public void defaultToNoWidgetConstraints() {
+    final PlanningProblem p = new PlanningProblem(null);
+    assertEquals(p.getWidgetConstraints(), WidgetConstraints.none());
+  }
+
   @Test
   public static class Equality {
 
     @Test
-    public void hashCodeFromMashupAndDepthRange() {
+    public void hashCodeFromMashupDepthRangeAndWidgetConstraints() {
       final Mashup m = make(aMinimalMashup());
       final PlanningProblem p = new PlanningProblem(m, 1, 2);
-      assertEquals(p.hashCode(), Objects.hash(m, 1, 2));
+      assertEquals(p.hashCode(), Objects.hash(m, 1, 2, WidgetConstraints.none()));
     }
 
     @Test
@@ -97,6 +105,17 @@ public class PlanningProblemTest {
       assertNotEquals(p1, p2);
     }
 
+    @Test
+    public void notEqualWhenWidgetConstraintsDiffer() {
+      final Mashup m = make(aMinimalMashup());
+
+      final PlanningProblem p1 = new PlanningProblem(m, 1, 1);
+      final PlanningProblem p2 = new PlanningProblem(m, 1, 1, new WidgetConstraints(
+          ImmutableSet.<Identifier>of(), ImmutableSet.<Identifier>of(), 1));
+
+      assertNotEquals(p1, p2);
+    }
+
     @Test
     public void equalWhenMashupAndDepthRangeEqual() {
       final Mashup m = make(aMinimalMashup());
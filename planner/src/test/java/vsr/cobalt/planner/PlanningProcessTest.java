@@ -11,33 +11,41 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import org.testng.annotations.Test;
 import vsr.cobalt.models.Action;
 import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
 import vsr.cobalt.models.Mashup;
 import vsr.cobalt.models.Property;
 import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
 import vsr.cobalt.planner.graph.Graph;
 import vsr.cobalt.planner.graph.InitialLevel;
 
 import static java.util.Arrays.asList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
 import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
 import static vsr.cobalt.models.makers.MashupMaker.aMinimalMashup;
 import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
 import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
 import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
 import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
 import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
@@ -45,6 +53,7 @@ import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
 import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
 import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
 import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
 
 @Test
 public class PlanningProcessTest {
@@ -315,6 +324,27 @@ public class PlanningProcessTest {
   @Test
   public static class Advance {
 
+    @Test
+    public void reportStepToListener() throws Exception {
+      final Mashup m = make(aMinimalMashup());
+      final PlanningProblem pp = new PlanningProblem(m, 1, 2);
+
+      final Plan p = new Plan(minimalGraph(make(aMinimalFunctionality().withIdentifier("f2"))));
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.extractPlans(any(Graph.class), anyInt())).thenReturn(Iterators.forArray(p, p));
+
+      final PlanCollector pc = mock(PlanCollector.class);
+      when(pc.collect(any(Plan.class))).thenReturn(PlanCollector.Result.CONTINUE);
+
+      final PlanningListener pl = mock(PlanningListener.class);
+
+      final PlanningProcess pt = new PlanningProcess(mp, pc, pp, GRAPHS.get(0), pl);
+      pt.advance();
+
+      verify(pl).planningAdvanced(eq(1), eq(2), anyLong());
+    }
+
     @Test(expectedExceptions = PlanningException.class,
         expectedExceptionsMessageRegExp = "planning process is already done")
     public void throwWhenDone() throws Exception {
@@ -387,6 +417,60 @@ public class PlanningProcessTest {
       assertSame(pt.getGraph(), g);
     }
 
+    @Test
+    public void skipSearchBelowEstimatedMinPlanDepth() throws Exception {
+      final Mashup m = make(aMinimalMashup());
+      final PlanningProblem pp = new PlanningProblem(m, 1, 3);
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.extendGraph(GRAPHS.get(0))).thenReturn(GRAPHS.get(1));
+      when(mp.extendGraph(GRAPHS.get(1))).thenReturn(GRAPHS.get(2));
+      when(mp.extractPlans(any(Graph.class), anyInt())).thenReturn(Iterators.<Plan>emptyIterator());
+
+      final PlanDepthEstimator pde = mock(PlanDepthEstimator.class);
+      when(pde.estimateMinDepth(GRAPHS.get(0))).thenReturn(3);
+
+      final PlanCollector pc = mock(PlanCollector.class);
+
+      final PlanningProcess pt = new PlanningProcess(mp, pc, pp, GRAPHS.get(0),
+          mock(PlanningListener.class), pde);
+      pt.advance();
+      pt.advance();
+      pt.advance();
+
+      assertEquals(pt.getMinPlanDepth(), 3);
+      assertSame(pt.getGraph(), GRAPHS.get(2));
+      verify(mp, never()).extractPlans(any(Graph.class), eq(1));
+      verify(mp, never()).extractPlans(any(Graph.class), eq(2));
+      verify(mp).extractPlans(GRAPHS.get(2), 3);
+    }
+
+    @Test
+    public void failWhenEstimatedMinPlanDepthExceedsMaxDepth() throws Exception {
+      final Mashup m = make(aMinimalMashup());
+      final PlanningProblem pp = new PlanningProblem(m, 1, 2);
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+
+      final PlanDepthEstimator pde = mock(PlanDepthEstimator.class);
+      when(pde.estimateMinDepth(GRAPHS.get(0))).thenReturn(3);
+
+      final PlanCollector pc = mock(PlanCollector.class);
+
+      final PlanningProcess pt = new PlanningProcess(mp, pc, pp, GRAPHS.get(0),
+          mock(PlanningListener.class), pde);
+
+      try {
+        pt.advance();
+        fail();
+      } catch (final PlanningException ex) {
+        assertEquals(ex.getMessage(), "estimated minimum plan depth exceeds maximum depth");
+      }
+
+      assertTrue(pt.isDone());
+      verify(mp, never()).extendGraph(any(Graph.class));
+    }
+
     @Test
     public void searchPlansOfMinDepthOnFirstSearch() throws Exception {
       final Mashup m = make(aMinimalMashup());
@@ -403,6 +487,39 @@ public class PlanningProcessTest {
       verify(mp).extractPlans(GRAPHS.get(2), 1);
     }
 
+    @Test
+    public void restrictCreatedGraphToAllowedWidgets() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withRequest(f)
+          .withOffer(f)
+          .withProvidingAction(aMinimalAction()
+              .withWidget(aMinimalWidget().withIdentifier("w1"))
+              .withFunctionality(f)));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withRequest(f)
+          .withOffer(f)
+          .withProvidingAction(aMinimalAction()
+              .withWidget(aMinimalWidget().withIdentifier("w2"))
+              .withFunctionality(f)));
+
+      final Mashup m = new Mashup(setOf(f));
+      final WidgetConstraints wc = new WidgetConstraints(ImmutableSet.<Identifier>of(),
+          ImmutableSet.of(Identifier.create("w2")), WidgetConstraints.UNLIMITED);
+      final PlanningProblem pp = new PlanningProblem(m, 1, 1, wc);
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.createGraph(m)).thenReturn(make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp1, fp2))));
+      when(mp.extractPlans(any(Graph.class), anyInt())).thenReturn(Iterators.<Plan>emptyIterator());
+
+      final PlanningProcess pt = new PlanningProcess(mp, mock(PlanCollector.class), pp);
+      pt.advance();
+
+      assertEquals(pt.getGraph(), make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp1))));
+    }
+
     @Test
     public void collectExtractedPlans() throws Exception {
       final Mashup m = make(aMinimalMashup());
@@ -476,6 +593,30 @@ public class PlanningProcessTest {
       verify(pc, never()).collect(p2);
     }
 
+    @Test
+    public void closePlansWhenPlanCollectorRequestsStop() throws Exception {
+      final Mashup m = make(aMinimalMashup());
+      final PlanningProblem pp = new PlanningProblem(m, 1, 3);
+
+      // not the actual plan to be found in the planning graph
+      final Plan p = new Plan(minimalGraph(make(aMinimalFunctionality())));
+
+      final CloseablePlanIterator it = mock(CloseablePlanIterator.class);
+      when(it.hasNext()).thenReturn(true);
+      when(it.next()).thenReturn(p);
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.extractPlans(GRAPHS.get(0), 1)).thenReturn(it);
+
+      final PlanCollector pc = mock(PlanCollector.class);
+      when(pc.collect(p)).thenReturn(PlanCollector.Result.STOP);
+
+      final PlanningProcess pt = new PlanningProcess(mp, pc, pp, GRAPHS.get(0));
+      pt.advance();
+
+      verify(it).close();
+    }
+
   }
 
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.planner.graph.makers.PropertyProvisionMaker.aPropertyProvision;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class WidgetConstraintsTest {
+
+  private static final Identifier w1 = Identifier.create("w1");
+
+  private static final Identifier w2 = Identifier.create("w2");
+
+  @Test(expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "expecting maxWidgets >= 1")
+  public void rejectMaxWidgetsWhenLessThanOne() {
+    new WidgetConstraints(ImmutableSet.<Identifier>of(), ImmutableSet.<Identifier>of(), 0);
+  }
+
+  @Test
+  public void noneDoesNotConstrainWidgets() {
+    final WidgetConstraints wc = WidgetConstraints.none();
+    assertFalse(wc.restrictsWidgets());
+    assertFalse(wc.hasWidgetBudget());
+  }
+
+  @Test
+  public static class IsAllowed {
+
+    @Test
+    public void allowAnyWidgetWhenNoneIsExplicitlyAllowed() {
+      final WidgetConstraints wc = new WidgetConstraints(ImmutableSet.<Identifier>of(),
+          ImmutableSet.<Identifier>of(), WidgetConstraints.UNLIMITED);
+      assertTrue(wc.isAllowed(widget(w1)));
+    }
+
+    @Test
+    public void allowOnlyExplicitlyAllowedWidgets() {
+      final WidgetConstraints wc = new WidgetConstraints(ImmutableSet.of(w1), ImmutableSet.<Identifier>of(),
+          WidgetConstraints.UNLIMITED);
+      assertTrue(wc.isAllowed(widget(w1)));
+      assertFalse(wc.isAllowed(widget(w2)));
+    }
+
+    @Test
+    public void rejectDeniedWidgetsEvenWhenAllowed() {
+      final WidgetConstraints wc = new WidgetConstraints(ImmutableSet.of(w1), ImmutableSet.of(w1),
+          WidgetConstraints.UNLIMITED);
+      assertFalse(wc.isAllowed(widget(w1)));
+    }
+
+  }
+
+  @Test
+  public static class IsWithinBudget {
+
+    @Test
+    public void countDistinctWidgetsOfAllLevels() {
+      final Graph g = createGraph();
+      final WidgetConstraints wc1 = new WidgetConstraints(ImmutableSet.<Identifier>of(),
+          ImmutableSet.<Identifier>of(), 1);
+      final WidgetConstraints wc2 = new WidgetConstraints(ImmutableSet.<Identifier>of(),
+          ImmutableSet.<Identifier>of(), 2);
+      assertFalse(wc1.isWithinBudget(g));
+      assertTrue(wc2.isWithinBudget(g));
+    }
+
+    static Graph createGraph() {
+      final Functionality f = make(aMinimalFunctionality());
+      final Property p = make(aMinimalProperty());
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(make(aMinimalWidget().withIdentifier(w1).withPublic(p)))
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withFilled(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(make(aMinimalWidget().withIdentifier(w2).withPublic(p)))
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      return make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withProvidingAction(a1)
+                  .withOffer(f)
+                  .withRequest(f)))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(anActionProvision()
+                  .withRequest(a1)
+                  .withProvision(aPropertyProvision()
+                      .withRequest(p)
+                      .withOffer(p)
+                      .withProvidingAction(a2)))));
+    }
+
+  }
+
+  @Test
+  public static class RestrictLastLevel {
+
+    private static final WidgetConstraints DENY_W2 = new WidgetConstraints(ImmutableSet.<Identifier>of(),
+        ImmutableSet.of(w2), WidgetConstraints.UNLIMITED);
+
+    @Test
+    public void removeFunctionalityProvisionsOfWidgetsNotAllowed() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(aMinimalAction().withWidget(widget(w1)).withFunctionality(f))
+          .withOffer(f)
+          .withRequest(f));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(aMinimalAction().withWidget(widget(w2)).withFunctionality(f))
+          .withOffer(f)
+          .withRequest(f));
+
+      final Graph g = make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp1, fp2)));
+
+      assertEquals(DENY_W2.restrictLastLevel(g), make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp1))));
+    }
+
+    @Test
+    public void removeActionProvisionsOfWidgetsNotAllowed() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+      final Property p = make(aMinimalProperty());
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(make(aMinimalWidget().withIdentifier(w1).withPublic(p)))
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withFilled(p)));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withProvision(aPropertyProvision()
+              .withRequest(p)
+              .withOffer(p)
+              .withProvidingAction(aMinimalAction()
+                  .withWidget(make(aMinimalWidget().withIdentifier(w1).withPublic(p)))
+                  .withEffects(aPropositionSet().withFilled(p)))));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(a1)
+          .withProvision(aPropertyProvision()
+              .withRequest(p)
+              .withOffer(p)
+              .withProvidingAction(aMinimalAction()
+                  .withWidget(make(aMinimalWidget().withIdentifier(w2).withPublic(p)))
+                  .withEffects(aPropositionSet().withFilled(p)))));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withProvidingAction(a1)
+                  .withOffer(f)
+                  .withRequest(f)))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(ap1, ap2)));
+
+      assertEquals(DENY_W2.restrictLastLevel(g).getLastLevel(), make(anExtensionLevel().withProvision(ap1)));
+    }
+
+    @Test
+    public void returnGivenGraphWhenNotRestrictingWidgets() throws Exception {
+      final Graph g = IsWithinBudget.createGraph();
+      assertSame(WidgetConstraints.none().restrictLastLevel(g), g);
+    }
+
+    @Test(expectedExceptions = PlanningException.class,
+        expectedExceptionsMessageRegExp = "cannot realize all mashup functionalities")
+    public void rejectGraphWhenFunctionalityIsOnlyRealizedByWidgetsNotAllowed() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withProvidingAction(aMinimalAction().withWidget(widget(w2)).withFunctionality(f))
+                  .withOffer(f)
+                  .withRequest(f))));
+
+      DENY_W2.restrictLastLevel(g);
+    }
+
+  }
+
+  private static Widget widget(final Identifier id) {
+    return make(aMinimalWidget().withIdentifier(id));
+  }
+
+}
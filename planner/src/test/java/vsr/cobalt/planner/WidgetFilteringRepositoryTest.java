@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner;
+
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.PublishedProperty;
+import vsr.cobalt.models.RealizedFunctionality;
+import vsr.cobalt.models.Widget;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class WidgetFilteringRepositoryTest {
+
+  private static final Widget w1 = make(aMinimalWidget().withIdentifier("w1"));
+
+  private static final Widget w2 = make(aMinimalWidget().withIdentifier("w2"));
+
+  private static final WidgetConstraints denyW2 = new WidgetConstraints(ImmutableSet.<Identifier>of(),
+      ImmutableSet.of(w2.getIdentifier()), WidgetConstraints.UNLIMITED);
+
+  @Test
+  public void filterRealizedFunctionalitiesOfExcludedWidgets() {
+    final Functionality f = make(aMinimalFunctionality());
+
+    final Action a1 = make(aMinimalAction().withWidget(w1).withFunctionality(f));
+    final Action a2 = make(aMinimalAction().withWidget(w2).withFunctionality(f));
+
+    final RealizedFunctionality rf1 = new RealizedFunctionality(f, a1);
+    final RealizedFunctionality rf2 = new RealizedFunctionality(f, a2);
+
+    final Repository r = mock(Repository.class);
+    when(r.findCompatibleOffers(f)).thenReturn(setOf(rf1, rf2));
+
+    final WidgetFilteringRepository wfr = new WidgetFilteringRepository(r, denyW2);
+
+    assertEquals(wfr.findCompatibleOffers(f), setOf(rf1));
+  }
+
+  @Test
+  public void filterPublishedPropertiesOfExcludedWidgets() {
+    final Property p = make(aMinimalProperty());
+
+    final Widget pw1 = make(aMinimalWidget().withIdentifier(w1.getIdentifier()).withPublic(p));
+    final Widget pw2 = make(aMinimalWidget().withIdentifier(w2.getIdentifier()).withPublic(p));
+
+    final Action a1 = make(aMinimalAction().withWidget(pw1).withEffects(aPropositionSet().withFilled(p)));
+    final Action a2 = make(aMinimalAction().withWidget(pw2).withEffects(aPropositionSet().withFilled(p)));
+
+    final PublishedProperty pp1 = new PublishedProperty(p, a1);
+    final PublishedProperty pp2 = new PublishedProperty(p, a2);
+
+    final Repository r = mock(Repository.class);
+    when(r.findCompatibleOffers(p)).thenReturn(setOf(pp1, pp2));
+
+    final WidgetFilteringRepository wfr = new WidgetFilteringRepository(r, denyW2);
+
+    assertEquals(wfr.findCompatibleOffers(p), setOf(pp1));
+  }
+
+  @Test
+  public void returnNoActionsOfExcludedWidgets() {
+    final Repository r = mock(Repository.class);
+    final WidgetFilteringRepository wfr = new WidgetFilteringRepository(r, denyW2);
+    assertTrue(wfr.getWidgetActions(w2).isEmpty());
+    verifyZeroInteractions(r);
+  }
+
+  @Test
+  public void returnActionsOfAllowedWidgets() {
+    final Action a = make(aMinimalAction().withWidget(w1));
+    final Repository r = mock(Repository.class);
+    when(r.getWidgetActions(w1)).thenReturn(setOf(a));
+    final WidgetFilteringRepository wfr = new WidgetFilteringRepository(r, denyW2);
+    assertEquals(wfr.getWidgetActions(w1), setOf(a));
+    verify(r).getWidgetActions(w1);
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class DeduplicatingPlanCollectorTest {
+
+  private static Plan plan(final String identifier) {
+    final Functionality f = make(aMinimalFunctionality().withIdentifier(identifier));
+    return new Plan(make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withRequest(f)
+                .withOffer(f)
+                .withProvidingAction(aMinimalAction().withFunctionality(f))))));
+  }
+
+  private static PlanCollector collector() {
+    final PlanCollector pc = mock(PlanCollector.class);
+    when(pc.collect(any(Plan.class))).thenReturn(PlanCollector.Result.CONTINUE);
+    return pc;
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting capacity >= 1")
+    public void rejectCapacityLessThanOne() {
+      new DeduplicatingPlanCollector(null, 0);
+    }
+
+  }
+
+  @Test
+  public static class Collect {
+
+    @Test
+    public void dropEquivalentPlans() {
+      final PlanCollector c = collector();
+      final DeduplicatingPlanCollector pc = new DeduplicatingPlanCollector(c);
+      pc.collect(plan("a"));
+      pc.collect(plan("a"));
+      verify(c, times(1)).collect(plan("a"));
+    }
+
+    @Test
+    public void passOnDistinctPlans() {
+      final PlanCollector c = collector();
+      final DeduplicatingPlanCollector pc = new DeduplicatingPlanCollector(c);
+      pc.collect(plan("a"));
+      pc.collect(plan("b"));
+      verify(c).collect(plan("a"));
+      verify(c).collect(plan("b"));
+    }
+
+    @Test
+    public void forgetLeastRecentPlansWhenCapacityIsExceeded() {
+      final PlanCollector c = collector();
+      final DeduplicatingPlanCollector pc = new DeduplicatingPlanCollector(c, 1);
+      pc.collect(plan("a"));
+      pc.collect(plan("b"));
+      pc.collect(plan("a"));
+      verify(c, times(2)).collect(plan("a"));
+    }
+
+    @Test
+    public void passOnResultOfCollector() {
+      final PlanCollector c = mock(PlanCollector.class);
+      when(c.collect(any(Plan.class))).thenReturn(PlanCollector.Result.STOP);
+      final DeduplicatingPlanCollector pc = new DeduplicatingPlanCollector(c);
+      assertEquals(pc.collect(plan("a")), PlanCollector.Result.STOP);
+    }
+
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class LevelLimitingPlanCollectorTest {
+
+  /**
+   * Create a plan of depth 2.
+   */
+  private static Plan deeperPlan() {
+    final Functionality f = make(aMinimalFunctionality());
+
+    final Property p = make(aMinimalProperty());
+
+    final Action a1 = make(aMinimalAction()
+        .withFunctionality(f)
+        .withPre(aPropositionSet().withCleared(p)));
+
+    final Action a2 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p)));
+
+    return new Plan(make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withRequest(f)
+                .withOffer(f)
+                .withProvidingAction(a1)))
+        .withExtensionLevel(anExtensionLevel()
+            .withProvision(anActionProvision()
+                .withRequest(a1)
+                .withPrecursor(a2)))));
+  }
+
+  private static PlanCollector collector(final PlanCollector.Result result) {
+    final PlanCollector pc = mock(PlanCollector.class);
+    when(pc.collect(any(Plan.class))).thenReturn(result);
+    return pc;
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting limit >= 1")
+    public void rejectLimitLessThanOne() {
+      new LevelLimitingPlanCollector(null, 0);
+    }
+
+  }
+
+  @Test
+  public static class Collect {
+
+    @Test
+    public void skipLevelWhenLimitIsReached() {
+      final Plan p = new Plan(make(aMinimalGraph()));
+      final LevelLimitingPlanCollector pc = new LevelLimitingPlanCollector(collector(PlanCollector.Result.CONTINUE), 2);
+      assertEquals(pc.collect(p), PlanCollector.Result.CONTINUE);
+      assertEquals(pc.collect(p), PlanCollector.Result.SKIP_LEVEL);
+    }
+
+    @Test
+    public void resetLimitWithNextLevel() {
+      final Plan p = new Plan(make(aMinimalGraph()));
+      final LevelLimitingPlanCollector pc = new LevelLimitingPlanCollector(collector(PlanCollector.Result.CONTINUE), 1);
+      assertEquals(pc.collect(p), PlanCollector.Result.SKIP_LEVEL);
+      assertEquals(pc.collect(deeperPlan()), PlanCollector.Result.SKIP_LEVEL);
+    }
+
+    @Test
+    public void passOnStop() {
+      final Plan p = new Plan(make(aMinimalGraph()));
+      final LevelLimitingPlanCollector pc = new LevelLimitingPlanCollector(collector(PlanCollector.Result.STOP), 1);
+      assertEquals(pc.collect(p), PlanCollector.Result.STOP);
+    }
+
+  }
+
+}
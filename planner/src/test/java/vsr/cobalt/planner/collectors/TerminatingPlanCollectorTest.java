@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import org.testng.annotations.Test;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class TerminatingPlanCollectorTest {
+
+  private static PlanCollector collector() {
+    final PlanCollector pc = mock(PlanCollector.class);
+    when(pc.collect(any(Plan.class))).thenReturn(PlanCollector.Result.CONTINUE);
+    return pc;
+  }
+
+  private static class FakeTicker extends Ticker {
+
+    private long nanos;
+
+    public void advance(final long time, final TimeUnit unit) {
+      nanos += unit.toNanos(time);
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting budget >= 1")
+    public void rejectBudgetLessThanOne() {
+      new TerminatingPlanCollector(null, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting timeout >= 0")
+    public void rejectNegativeTimeout() {
+      new TerminatingPlanCollector(null, 1, -1, TimeUnit.SECONDS);
+    }
+
+  }
+
+  @Test
+  public static class Collect {
+
+    @Test
+    public void stopWhenBudgetIsExhausted() {
+      final Plan p = new Plan(make(aMinimalGraph()));
+      final TerminatingPlanCollector pc = new TerminatingPlanCollector(collector(), 2);
+      assertEquals(pc.collect(p), PlanCollector.Result.CONTINUE);
+      assertEquals(pc.collect(p), PlanCollector.Result.STOP);
+    }
+
+    @Test
+    public void stopWhenDeadlineHasPassed() {
+      final Plan p = new Plan(make(aMinimalGraph()));
+      final FakeTicker t = new FakeTicker();
+      final TerminatingPlanCollector pc = new TerminatingPlanCollector(collector(), 10, 1, TimeUnit.SECONDS, t);
+      assertEquals(pc.collect(p), PlanCollector.Result.CONTINUE);
+      t.advance(1, TimeUnit.SECONDS);
+      assertEquals(pc.collect(p), PlanCollector.Result.STOP);
+    }
+
+    @Test
+    public void dropPlansAfterTermination() {
+      final Plan p = new Plan(make(aMinimalGraph()));
+      final FakeTicker t = new FakeTicker();
+      final PlanCollector c = collector();
+      final TerminatingPlanCollector pc = new TerminatingPlanCollector(c, 10, 1, TimeUnit.SECONDS, t);
+      t.advance(1, TimeUnit.SECONDS);
+      assertEquals(pc.collect(p), PlanCollector.Result.STOP);
+      verify(c, never()).collect(p);
+    }
+
+  }
+
+}
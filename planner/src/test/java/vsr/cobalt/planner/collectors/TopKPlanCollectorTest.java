@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.collectors;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCollector;
+import vsr.cobalt.planner.extractors.ProvisionCostFunction;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class TopKPlanCollectorTest {
+
+  /**
+   * Order plans by the identifier of their only requested functionality.
+   */
+  private static final Comparator<Plan> ORDER = new Comparator<Plan>() {
+    @Override
+    public int compare(final Plan p1, final Plan p2) {
+      return getIdentifier(p1).compareTo(getIdentifier(p2));
+    }
+  };
+
+  private static Plan plan(final String identifier) {
+    final Functionality f = make(aMinimalFunctionality().withIdentifier(identifier));
+    return new Plan(make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withRequest(f)
+                .withOffer(f)
+                .withProvidingAction(aMinimalAction().withFunctionality(f))))));
+  }
+
+  private static String getIdentifier(final Plan plan) {
+    return plan.getGraph().getInitialLevel().getRequestedFunctionalities().iterator().next().getIdentifier().toString();
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting capacity >= 1")
+    public void rejectCapacityLessThanOne() {
+      new TopKPlanCollector(0, ORDER);
+    }
+
+  }
+
+  @Test
+  public static class Collect {
+
+    @Test
+    public void keepBestPlans() {
+      final TopKPlanCollector pc = new TopKPlanCollector(2, ORDER);
+      final Plan a = plan("a");
+      final Plan b = plan("b");
+      final Plan c = plan("c");
+      pc.collect(c);
+      pc.collect(a);
+      pc.collect(b);
+      assertEquals(pc.getPlans(), Arrays.asList(a, b));
+    }
+
+    @Test
+    public void keepAllPlansWhenBelowCapacity() {
+      final TopKPlanCollector pc = new TopKPlanCollector(3, ORDER);
+      final Plan a = plan("a");
+      final Plan b = plan("b");
+      pc.collect(b);
+      pc.collect(a);
+      assertEquals(pc.getPlans(), Arrays.asList(a, b));
+    }
+
+    @Test
+    public void keepPlansWithLeastCost() {
+      final ProvisionCostFunction cf = new ProvisionCostFunction() {
+        @Override
+        public double getCost(final FunctionalityProvision provision) {
+          return -provision.getRequest().getIdentifier().toString().charAt(0);
+        }
+
+        @Override
+        public double getCost(final ActionProvision provision) {
+          return 0;
+        }
+      };
+      final TopKPlanCollector pc = new TopKPlanCollector(1, cf);
+      final Plan a = plan("a");
+      final Plan b = plan("b");
+      pc.collect(a);
+      pc.collect(b);
+      assertEquals(pc.getPlans(), Arrays.asList(b));
+    }
+
+    @Test
+    public void continueCollecting() {
+      final TopKPlanCollector pc = new TopKPlanCollector(1, ORDER);
+      assertEquals(pc.collect(plan("a")), PlanCollector.Result.CONTINUE);
+      assertEquals(pc.collect(plan("b")), PlanCollector.Result.CONTINUE);
+    }
+
+  }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.dag;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class PlanDagTest {
+
+  @Test
+  public static class Create {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting maxDepth >= 1")
+    public void rejectMaxDepthLessThanOne() {
+      final Graph g = make(aMinimalGraph());
+      PlanDag.create(g, 0);
+    }
+
+    @Test
+    public void shareChoicesForSameActionInSameLevel() {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Property p = make(aMinimalProperty().withName("p"));
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f1, f2)
+          .withPre(aPropositionSet().withCleared(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p)));
+
+      final Action a3 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p))
+          .withPre(aPropositionSet().withFilled(p)));
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withPrecursor(a2));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(a1)
+          .withPrecursor(a3));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp1, fp2))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap1, ap2)));
+
+      final PlanDag dag = PlanDag.create(g);
+
+      assertEquals(dag.getFunctionalityChoices().size(), 2);
+      assertEquals(dag.getActionChoices().size(), 1);
+
+      final ChoiceNode<Action, ActionProvision> c = dag.getActionChoices().get(0);
+      assertEquals(c.getRequest(), a1);
+      assertEquals(c.getLevel(), 1);
+
+      // ap2 is excluded because a3 cannot be satisfied
+      assertEquals(c.getAlternatives().size(), 1);
+      assertEquals(c.getAlternatives().get(0).getProvision(), ap1);
+
+      for (final ChoiceNode<Functionality, FunctionalityProvision> fc : dag.getFunctionalityChoices()) {
+        assertEquals(fc.getAlternatives().size(), 1);
+        assertEquals(fc.getAlternatives().get(0).getRequirements(), ImmutableList.of(c));
+      }
+    }
+
+    @Test
+    public void excludeProvisionsExceedingMaxDepth() {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Property p = make(aMinimalProperty().withName("p"));
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withCleared(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p)));
+
+      final FunctionalityProvision fp = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f)
+          .withRequest(f));
+
+      final ActionProvision ap = make(anActionProvision()
+          .withRequest(a1)
+          .withPrecursor(a2));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap)));
+
+      assertFalse(PlanDag.create(g, 2).isEmpty());
+      assertTrue(PlanDag.create(g, 1).isEmpty());
+    }
+
+    @Test
+    public void annotateMutexActions() {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Property p = make(aMinimalProperty().withName("p"));
+
+      final Widget w = make(aMinimalWidget().withPublic(p));
+
+      // a1 and a2 mutex by definition
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f1)
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f2)
+          .withPre(aPropositionSet().withCleared(p)));
+
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withCleared(p)));
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(a2)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final ActionProvision ap = make(anActionProvision()
+          .withRequest(a2)
+          .withPrecursor(a3));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp1, fp2))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap)));
+
+      final PlanDag dag = PlanDag.create(g);
+
+      assertEquals(dag.getMutexes(), ImmutableList.of(new ActionMutex(0, a1, a2)));
+    }
+
+  }
+
+}
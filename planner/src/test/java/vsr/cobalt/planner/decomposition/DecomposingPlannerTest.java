@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.decomposition;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.MashupPlanner;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class DecomposingPlannerTest {
+
+  private static final Functionality F1 = make(aMinimalFunctionality().withIdentifier("f1"));
+
+  private static final Functionality F2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+  private static final Mashup M1 = new Mashup(setOf(F1));
+
+  private static final Mashup M2 = new Mashup(setOf(F2));
+
+  private static final Mashup MASHUP = new Mashup(setOf(F1, F2));
+
+  private static Graph graph(final Functionality f, final Action a) {
+    return make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withRequest(f)
+                .withOffer(f)
+                .withProvidingAction(a))));
+  }
+
+  private static Action action(final Functionality f, final String widget) {
+    return make(aMinimalAction()
+        .withWidget(aMinimalWidget().withIdentifier(widget))
+        .withFunctionality(f));
+  }
+
+  private static GoalDecomposer decomposer(final Set<Widget> widgets1, final Set<Widget> widgets2) {
+    final GoalDecomposer gd = mock(GoalDecomposer.class);
+    final List<Set<Widget>> ws = ImmutableList.of(widgets1, widgets2);
+    when(gd.decompose(MASHUP)).thenReturn(new Decomposition(ImmutableList.of(M1, M2), ws));
+    return gd;
+  }
+
+  private static GoalDecomposer decomposer() {
+    return decomposer(Collections.<Widget>emptySet(), Collections.<Widget>emptySet());
+  }
+
+  /**
+   * Make the planner provide the given plans for a mashup with a satisfied graph.
+   */
+  private static void providePlans(final MashupPlanner planner, final Mashup mashup, final Plan... plans)
+      throws Exception {
+    final Graph g = plans[0].getGraph();
+    when(planner.createGraph(mashup)).thenReturn(g);
+    when(planner.extractPlans(g, 1)).thenReturn(Iterators.forArray(plans));
+  }
+
+  private static DecomposingPlanner planner(final MashupPlanner planner, final GoalDecomposer decomposer) {
+    return new DecomposingPlanner(planner, decomposer, MoreExecutors.sameThreadExecutor());
+  }
+
+  @Test
+  public static class Plan_ {
+
+    @Test
+    public void combinePlansOfAllComponents() throws Exception {
+      final Action a1 = action(F1, "w1");
+      final Action a1x = action(F1, "w1x");
+      final Action a2 = action(F2, "w2");
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      providePlans(mp, M1, new Plan(graph(F1, a1)), new Plan(graph(F1, a1x)));
+      providePlans(mp, M2, new Plan(graph(F2, a2)));
+
+      final List<Plan> ps = Lists.newArrayList(planner(mp, decomposer()).plan(new PlanningProblem(MASHUP, 1, 1)));
+
+      assertEquals(ps.size(), 2);
+      assertEquals(ps.get(0).getGraph().getInitialLevel().getRequiredActions(), setOf(a1, a2));
+      assertEquals(ps.get(1).getGraph().getInitialLevel().getRequiredActions(), setOf(a1x, a2));
+    }
+
+    @Test
+    public void skipConflictingPlansOfComponentsSharingWidgets() throws Exception {
+      final Property p = make(aMinimalProperty());
+      final Widget w = make(aMinimalWidget().withPublic(p));
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(F1)
+          .withPre(aPropositionSet().withCleared(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(F2)
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withCleared(p)));
+
+      // a1 is mutex with a2
+      final Graph g1 = graph(F1, a1).extendWith(make(anExtensionLevel()
+          .withProvision(anActionProvision()
+              .withRequest(a1)
+              .withPrecursor(a3))));
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.createGraph(M1)).thenReturn(graph(F1, a1));
+      when(mp.extendGraph(graph(F1, a1))).thenReturn(g1);
+      when(mp.extractPlans(graph(F1, a1), 1)).thenReturn(Collections.<Plan>emptyIterator());
+      when(mp.extractPlans(g1, 2)).thenReturn(Iterators.forArray(new Plan(g1)));
+      providePlans(mp, M2, new Plan(graph(F2, a2)));
+
+      final Iterator<Plan> ps = planner(mp, decomposer(setOf(w), setOf(w)))
+          .plan(new PlanningProblem(MASHUP, 1, 2));
+
+      assertFalse(ps.hasNext());
+    }
+
+    @Test
+    public void rejectCombinedPlansBelowMinimumDepth() throws Exception {
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      providePlans(mp, M1, new Plan(graph(F1, action(F1, "w1"))));
+      providePlans(mp, M2, new Plan(graph(F2, action(F2, "w2"))));
+
+      final Iterator<Plan> ps = planner(mp, decomposer()).plan(new PlanningProblem(MASHUP, 2, 2));
+
+      assertFalse(ps.hasNext());
+    }
+
+    @Test(expectedExceptions = PlanningException.class,
+        expectedExceptionsMessageRegExp = "cannot realize all mashup functionalities")
+    public void failWhenAnyComponentFails() throws Exception {
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      providePlans(mp, M1, new Plan(graph(F1, action(F1, "w1"))));
+      when(mp.createGraph(M2)).thenThrow(new PlanningException("cannot realize all mashup functionalities"));
+
+      planner(mp, decomposer()).plan(new PlanningProblem(MASHUP, 1, 1));
+    }
+
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.decomposition;
+
+import java.util.HashSet;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.PublishedProperty;
+import vsr.cobalt.models.RealizedFunctionality;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.Repository;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.TypeMaker.aMinimalType;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class GoalDecomposerTest {
+
+  private static final Functionality F1 = make(aMinimalFunctionality().withIdentifier("f1"));
+
+  private static final Functionality F2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+  private static final Mashup MASHUP = new Mashup(setOf(F1, F2));
+
+  private static Property property(final String name, final String type) {
+    return make(aMinimalProperty().withName(name).withType(aMinimalType().withIdentifier(type)));
+  }
+
+  private static Widget widget(final String id) {
+    return make(aMinimalWidget().withIdentifier(id));
+  }
+
+  private static Action action(final Functionality f, final Widget w, final Property p) {
+    return make(aMinimalAction()
+        .withWidget(w)
+        .withFunctionality(f)
+        .withPre(aPropositionSet().withFilled(p)));
+  }
+
+  private static Repository repository(final Action a1, final Action a2) {
+    final Repository r = mock(Repository.class);
+    when(r.findCompatibleOffers(F1)).thenReturn(setOf(new RealizedFunctionality(F1, a1)));
+    when(r.findCompatibleOffers(F2)).thenReturn(setOf(new RealizedFunctionality(F2, a2)));
+    return r;
+  }
+
+  @Test
+  public static class Decompose {
+
+    @Test
+    public void partitionFunctionalitiesWithoutCommonPropertyTypes() {
+      final Action a1 = action(F1, widget("w1"), property("p1", "t1"));
+      final Action a2 = action(F2, widget("w2"), property("p2", "t2"));
+
+      final Decomposition d = new GoalDecomposer(repository(a1, a2)).decompose(MASHUP);
+
+      assertEquals(d.size(), 2);
+      assertEquals(new HashSet<>(d.getComponents()), setOf(new Mashup(setOf(F1)), new Mashup(setOf(F2))));
+      assertFalse(d.hasSharedWidgets());
+    }
+
+    @Test
+    public void keepFunctionalitiesWithCommonPropertyType() {
+      final Action a1 = action(F1, widget("w1"), property("p1", "t"));
+      final Action a2 = action(F2, widget("w2"), property("p2", "t"));
+
+      final Decomposition d = new GoalDecomposer(repository(a1, a2)).decompose(MASHUP);
+
+      assertEquals(d.size(), 1);
+      assertEquals(d.getComponents().get(0), MASHUP);
+    }
+
+    @Test
+    public void followPublishersOfRequiredProperties() {
+      final Property p1 = property("p1", "t1");
+      final Action a1 = action(F1, widget("w1"), p1);
+      final Action a2 = action(F2, widget("w2"), property("p2", "t2"));
+
+      // publishes p1 but requires a property of the same type as a2
+      final Action a3 = make(aMinimalAction()
+          .withWidget(aMinimalWidget().withIdentifier("w3").withPublic(p1))
+          .withPre(aPropositionSet().withFilled(property("p3", "t2")))
+          .withEffects(aPropositionSet().withFilled(p1)));
+
+      final Repository r = repository(a1, a2);
+      when(r.findCompatibleOffers(p1)).thenReturn(setOf(new PublishedProperty(p1, a3)));
+
+      assertEquals(new GoalDecomposer(r).decompose(MASHUP).size(), 1);
+    }
+
+    @Test
+    public void recordWidgetsSharedByComponents() {
+      final Widget w = widget("w");
+      final Action a1 = action(F1, w, property("p1", "t1"));
+      final Action a2 = action(F2, w, property("p2", "t2"));
+
+      final Decomposition d = new GoalDecomposer(repository(a1, a2)).decompose(MASHUP);
+
+      assertEquals(d.size(), 2);
+      assertTrue(d.sharesWidgets(0, 1));
+      assertTrue(d.hasSharedWidgets());
+    }
+
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.planner.graph.ActionProvision;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class ActionProvisionLibraryTest {
+
+  private static final ActionProvisionLibrary.Entry ENTRY = new ActionProvisionLibrary.Entry(
+      Collections.<Action, Set<ActionProvision>>emptyMap(),
+      Collections.<ActionProvision>emptySet());
+
+  private static Action action(final String widget) {
+    return make(aMinimalAction().withWidget(aMinimalWidget().withIdentifier(widget)));
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting capacity >= 1")
+    public void rejectCapacityLessThanOne() {
+      new ActionProvisionLibrary(0);
+    }
+
+  }
+
+  @Test
+  public static class Put {
+
+    @Test
+    public void evictLeastRecentlyUsedEntry() {
+      final Action a1 = action("w1");
+      final Action a2 = action("w2");
+      final Action a3 = action("w3");
+
+      final ActionProvisionLibrary apl = new ActionProvisionLibrary(2);
+      apl.put(a1, ENTRY);
+      apl.put(a2, ENTRY);
+      apl.get(a1);
+      apl.put(a3, ENTRY);
+
+      assertSame(apl.get(a1), ENTRY);
+      assertNull(apl.get(a2));
+      assertEquals(apl.size(), 2);
+    }
+
+  }
+
+  @Test
+  public static class Invalidate {
+
+    @Test
+    public void discardAllEntries() {
+      final ActionProvisionLibrary apl = new ActionProvisionLibrary();
+      apl.put(action("w1"), ENTRY);
+      apl.invalidate();
+      assertEquals(apl.size(), 0);
+    }
+
+  }
+
+}
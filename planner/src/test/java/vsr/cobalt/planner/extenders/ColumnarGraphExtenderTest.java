@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.GraphExtender;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.GraphDictionary;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class ColumnarGraphExtenderTest {
+
+  private static final Functionality f = make(aMinimalFunctionality());
+
+  private static final Property p = make(aMinimalProperty());
+
+  private static final Action a1 = make(aMinimalAction()
+      .withFunctionality(f)
+      .withPre(aPropositionSet().withCleared(p)));
+
+  private static final Action a2 = make(aMinimalAction()
+      .withPre(aPropositionSet().withFilled(p))
+      .withEffects(aPropositionSet().withCleared(p)));
+
+  private static final Action a3 = make(aMinimalAction()
+      .withEffects(aPropositionSet().withFilled(p)));
+
+  private static final Graph graph = make(aGraph()
+      .withInitialLevel(anInitialLevel()
+          .withProvision(aFunctionalityProvision()
+              .withProvidingAction(a1)
+              .withOffer(f)
+              .withRequest(f))));
+
+  private static final ActionProvision ap1 = make(anActionProvision()
+      .withRequest(a1)
+      .withPrecursor(a2));
+
+  private static final ActionProvision ap2 = make(anActionProvision()
+      .withRequest(a2)
+      .withPrecursor(a3));
+
+  @Test
+  public static class ExtendGraph {
+
+    @Test
+    public void storeAddedLevelCompactly() throws Exception {
+      final Graph g1 = graph.extendWith(new ExtensionLevel(setOf(ap1)));
+
+      final GraphExtender ge = mock(GraphExtender.class);
+      when(ge.extendGraph(graph)).thenReturn(g1);
+
+      final Graph g = new ColumnarGraphExtender(ge).extendGraph(graph);
+
+      assertTrue(g.getLastExtensionLevel().isCompact());
+      assertEquals(g, g1);
+    }
+
+    @Test
+    public void shareDictionaryOfGraph() throws Exception {
+      final GraphDictionary d = new GraphDictionary();
+      final Graph g1 = graph.extendWith(ExtensionLevel.createCompact(setOf(ap1), d));
+      final Graph g2 = g1.extendWith(new ExtensionLevel(setOf(ap2)));
+
+      final GraphExtender ge = mock(GraphExtender.class);
+      when(ge.extendGraph(g1)).thenReturn(g2);
+
+      final Graph g = new ColumnarGraphExtender(ge).extendGraph(g1);
+
+      assertSame(g.getLastExtensionLevel().getDictionary(), d);
+      assertEquals(g, g2);
+    }
+
+  }
+
+}
@@ -11,18 +11,26 @@ import org.testng.annotations.Test;
 import vsr.cobalt.models.Action;
 import vsr.cobalt.models.Functionality;
 import vsr.cobalt.models.Property;
+import vsr.cobalt.models.PublishedProperty;
 import vsr.cobalt.models.Widget;
 import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.Repository;
+import vsr.cobalt.planner.extenders.providers.ComposingPropertyProvisionProvider;
 import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
 import vsr.cobalt.planner.extenders.providers.PropertyProvisionProvider;
 import vsr.cobalt.planner.graph.ExtensionLevel;
 import vsr.cobalt.planner.graph.Graph;
 import vsr.cobalt.planner.graph.PropertyProvision;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -203,6 +211,40 @@ public class DefaultGraphExtenderTest {
       assertEquals(xg.getLastLevel(), xl);
     }
 
+    @Test
+    public void reportExtensionToListener() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+      final Property p = make(aMinimalProperty());
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f)
+          .withPre(aPropositionSet()
+              .withCleared(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withEffects(aPropositionSet()
+              .withCleared(p)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f)
+                  .withOffer(f)
+                  .withProvidingAction(a1))));
+
+      final PrecursorActionProvider pap = mock(PrecursorActionProvider.class);
+      when(pap.getPrecursorActionsFor(a1)).thenReturn(setOf(a2));
+
+      final PlanningListener pl = mock(PlanningListener.class);
+
+      final DefaultGraphExtender gx = new DefaultGraphExtender(pap, NO_PROPERTIES, NO_CYCLES, pl);
+      gx.extendGraph(g);
+
+      verify(pl).provisionsProvided(eq(pap.getClass()), eq(1), eq(1), anyLong());
+      verify(pl).cyclicDependenciesChecked(eq(1), eq(0), anyLong());
+      verify(pl).graphExtended(eq(2), eq(1), eq(0), eq(0), eq(1), anyLong());
+    }
+
     @Test
     public void extendWithoutPrecursorActions() throws Exception {
       final Functionality f = make(aMinimalFunctionality());
@@ -802,4 +844,188 @@ public class DefaultGraphExtenderTest {
 
   }
 
+  @Test
+  public static class ExtendGraphUsingLibrary {
+
+    @Test
+    public void deriveActionProvisionsOnlyOnce() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+
+      final Widget w = make(aMinimalWidget().withPublic(p2));
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f)
+          .withPre(aPropositionSet()
+              .withCleared(p1)
+              .withFilled(p2)));
+
+      // a precursor for a1
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet()
+              .withCleared(p1)));
+
+      // a property provider for a1
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet()
+              .withFilled(p2)));
+
+      final PropertyProvision pp = make(aPropertyProvision()
+          .withRequest(p2)
+          .withOffer(p2)
+          .withProvidingAction(a3));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f)
+                  .withOffer(f)
+                  .withProvidingAction(a1))));
+
+      final PrecursorActionProvider pap = mock(PrecursorActionProvider.class);
+      when(pap.getPrecursorActionsFor(a1)).thenReturn(setOf(a2));
+
+      final PropertyProvisionProvider ppr = mock(PropertyProvisionProvider.class);
+      when(ppr.getProvisionsFor(setOf(p2))).thenReturn(setOf(pp));
+
+      final PlanningListener pl = NoOpPlanningListener.getInstance();
+      final ActionProvisionLibrary apl = new ActionProvisionLibrary();
+
+      final Graph xg1 = new DefaultGraphExtender(pap, ppr, NO_CYCLES, pl, apl).extendGraph(g);
+      final Graph xg2 = new DefaultGraphExtender(pap, ppr, NO_CYCLES, pl, apl).extendGraph(g);
+
+      final ExtensionLevel xl = make(anExtensionLevel()
+          .withProvision(anActionProvision()
+              .withRequest(a1)
+              .withPrecursor(a2)
+              .withProvision(pp)));
+
+      assertEquals(xg1.getLastLevel(), xl);
+      assertEquals(xg2.getLastLevel(), xl);
+      verify(pap, times(1)).getPrecursorActionsFor(a1);
+      verify(ppr, times(1)).getProvisionsFor(anySetOf(Property.class));
+    }
+
+    @Test
+    public void checkLibraryEntriesForCyclicDependencies() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f)
+          .withPre(aPropositionSet()
+              .withCleared(p1)));
+
+      final Action a2 = make(aMinimalAction()
+          .withEffects(aPropositionSet()
+              .withCleared(p1)));
+
+      // will cause cyclic dependency with a1
+      final Action a3 = Action.compose(a1, make(aMinimalAction()
+          .withPre(aPropositionSet()
+              .withCleared(p2))));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f)
+                  .withOffer(f)
+                  .withProvidingAction(a1))));
+
+      final PrecursorActionProvider pap = mock(PrecursorActionProvider.class);
+      when(pap.getPrecursorActionsFor(a1)).thenReturn(setOf(a2, a3));
+
+      final CyclicDependencyDetector cdd = mock(CyclicDependencyDetector.class);
+      when(cdd.createsCyclicDependencyVia(a3, a1, g)).thenReturn(true);
+
+      final PlanningListener pl = NoOpPlanningListener.getInstance();
+      final ActionProvisionLibrary apl = new ActionProvisionLibrary();
+
+      new DefaultGraphExtender(pap, NO_PROPERTIES, NO_CYCLES, pl, apl).extendGraph(g);
+      final Graph xg = new DefaultGraphExtender(pap, NO_PROPERTIES, cdd, pl, apl).extendGraph(g);
+
+      final ExtensionLevel xl = make(anExtensionLevel()
+          .withProvision(anActionProvision()
+              .withRequest(a1)
+              .withPrecursor(a2)));
+
+      assertEquals(xg.getLastLevel(), xl);
+    }
+
+    @Test
+    public void deriveSameActionProvisionsWhenComposingPropertyProvisions() throws Exception {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+
+      final Widget w = make(aMinimalWidget().withPublic(p1, p2));
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f1)
+          .withPre(aPropositionSet()
+              .withFilled(p1)));
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f2)
+          .withPre(aPropositionSet()
+              .withFilled(p2)));
+
+      // composable property providers for a1 and a2
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet()
+              .withFilled(p1)));
+
+      final Action a4 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet()
+              .withFilled(p2)));
+
+      final Graph g1 = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f1)
+                  .withOffer(f1)
+                  .withProvidingAction(a1))));
+
+      final Graph g2 = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f1)
+                  .withOffer(f1)
+                  .withProvidingAction(a1))
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f2)
+                  .withOffer(f2)
+                  .withProvidingAction(a2))));
+
+      final Repository r = mock(Repository.class);
+      when(r.findCompatibleOffers(p1)).thenReturn(setOf(new PublishedProperty(p1, a3)));
+      when(r.findCompatibleOffers(p2)).thenReturn(setOf(new PublishedProperty(p2, a4)));
+
+      final PropertyProvisionProvider ppr = new ComposingPropertyProvisionProvider(r);
+
+      final PlanningListener pl = NoOpPlanningListener.getInstance();
+      final ActionProvisionLibrary apl = new ActionProvisionLibrary();
+
+      // would derive a library entry for a1 without the composite of a3 and a4
+      new DefaultGraphExtender(NO_PRECURSORS, ppr, NO_CYCLES, pl, apl).extendGraph(g1);
+
+      assertEquals(new DefaultGraphExtender(NO_PRECURSORS, ppr, NO_CYCLES, pl, apl).extendGraph(g2),
+          new DefaultGraphExtender(NO_PRECURSORS, ppr, NO_CYCLES).extendGraph(g2));
+    }
+
+  }
+
 }
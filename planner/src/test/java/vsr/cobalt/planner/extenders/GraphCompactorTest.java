@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.planner.graph.makers.PropertyProvisionMaker.aPropertyProvision;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class GraphCompactorTest {
+
+  private static final Functionality f = make(aMinimalFunctionality());
+
+  private static final Property p = make(aMinimalProperty().withName("p"));
+
+  private static final Property q = make(aMinimalProperty().withName("q"));
+
+  private static final Property r = make(aMinimalProperty().withName("r"));
+
+  private static final Widget w = make(aMinimalWidget().withIdentifier("w").withPublic(p, q, r));
+
+  private static Action anEnabledAction() {
+    return make(aMinimalAction()
+        .withWidget(w)
+        .withFunctionality(f));
+  }
+
+  private static Action aRequiringAction(final Property property) {
+    return make(aMinimalAction()
+        .withWidget(w)
+        .withFunctionality(f)
+        .withPre(aPropositionSet().withFilled(property)));
+  }
+
+  private static FunctionalityProvision aProvisionOf(final Action action) {
+    return make(aFunctionalityProvision()
+        .withProvidingAction(action)
+        .withOffer(f)
+        .withRequest(f));
+  }
+
+  private static ActionProvision aProvisionOf(final Action request, final Property property, final Action provider) {
+    return make(anActionProvision()
+        .withRequest(request)
+        .withProvision(aPropertyProvision()
+            .withRequest(property)
+            .withOffer(property)
+            .withProvidingAction(provider)));
+  }
+
+  /**
+   * Create a graph whose provisions cannot be part of any plan when requiring action a3.
+   * <pre>
+   *   a1 &lt;- a3 (unsatisfiable)
+   *   a2 &lt;- a4 &lt;- a5
+   * </pre>
+   */
+  private static Graph createGraphWithDeadProvisions() {
+    final Action a1 = aRequiringAction(p);
+    final Action a2 = aRequiringAction(q);
+    final Action a3 = make(aMinimalAction()
+        .withWidget(w)
+        .withPre(aPropositionSet().withFilled(r))
+        .withEffects(aPropositionSet().withFilled(p)));
+    final Action a4 = make(aMinimalAction()
+        .withWidget(w)
+        .withPre(aPropositionSet().withFilled(r))
+        .withEffects(aPropositionSet().withFilled(q)));
+    final Action a5 = make(aMinimalAction()
+        .withWidget(w)
+        .withEffects(aPropositionSet().withFilled(r)));
+
+    return make(aGraph()
+        .withInitialLevel(anInitialLevel().withProvision(aProvisionOf(a1), aProvisionOf(a2)))
+        .withExtensionLevel(anExtensionLevel().withProvision(aProvisionOf(a1, p, a3), aProvisionOf(a2, q, a4)))
+        .withExtensionLevel(anExtensionLevel().withProvision(aProvisionOf(a4, r, a5))));
+  }
+
+  @Test
+  public static class Compact {
+
+    @Test
+    public void returnGivenGraphWhenNothingIsDead() throws Exception {
+      final Action a1 = aRequiringAction(p);
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(aProvisionOf(a1)))
+          .withExtensionLevel(anExtensionLevel().withProvision(aProvisionOf(a1, p, a2))));
+
+      final PlanningListener l = mock(PlanningListener.class);
+      final GraphCompactor gc = new GraphCompactor(l);
+
+      assertSame(gc.compact(g), g);
+      verify(l, never()).graphCompacted(anyInt(), anyInt(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void keepLastLevelRequiringUnsatisfiedActions() throws Exception {
+      final Action a1 = aRequiringAction(p);
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withPre(aPropositionSet().withFilled(q))
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(aProvisionOf(a1)))
+          .withExtensionLevel(anExtensionLevel().withProvision(aProvisionOf(a1, p, a2))));
+
+      final GraphCompactor gc = new GraphCompactor();
+
+      assertSame(gc.compact(g), g);
+    }
+
+    @Test
+    public void removeProvisionsRequiringUnsatisfiableActions() throws Exception {
+      final Action a2 = aRequiringAction(q);
+      final Action a4 = make(aMinimalAction()
+          .withWidget(w)
+          .withPre(aPropositionSet().withFilled(r))
+          .withEffects(aPropositionSet().withFilled(q)));
+      final Action a5 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(r)));
+
+      final Graph g = createGraphWithDeadProvisions();
+
+      final Graph xg = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(aProvisionOf(a2)))
+          .withExtensionLevel(anExtensionLevel().withProvision(aProvisionOf(a2, q, a4)))
+          .withExtensionLevel(anExtensionLevel().withProvision(aProvisionOf(a4, r, a5))));
+
+      final GraphCompactor gc = new GraphCompactor();
+
+      assertEquals(gc.compact(g), xg);
+    }
+
+    @Test
+    public void markGraphAsCompacted() throws Exception {
+      final GraphCompactor gc = new GraphCompactor();
+      final Graph g = createGraphWithDeadProvisions();
+      assertFalse(g.isCompacted());
+      assertTrue(gc.compact(g).isCompacted());
+    }
+
+    @Test
+    public void removeProvisionsRequiringMutexActions() throws Exception {
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withFilled(p, q)));
+      final Action a2 = anEnabledAction();
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p)));
+      final Action a4 = make(aMinimalAction()
+          .withWidget(w)
+          .withPre(aPropositionSet().withCleared(p))
+          .withEffects(aPropositionSet().withFilled(q)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(aProvisionOf(a1), aProvisionOf(a2)))
+          .withExtensionLevel(anExtensionLevel().withProvision(make(anActionProvision()
+              .withRequest(a1)
+              .withProvision(aPropertyProvision()
+                  .withRequest(p)
+                  .withOffer(p)
+                  .withProvidingAction(a3))
+              .withProvision(aPropertyProvision()
+                  .withRequest(q)
+                  .withOffer(q)
+                  .withProvidingAction(a4))))));
+
+      final Graph xg = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(aProvisionOf(a2))));
+
+      final GraphCompactor gc = new GraphCompactor();
+
+      assertEquals(gc.compact(g), xg);
+    }
+
+    @Test(expectedExceptions = PlanningException.class,
+        expectedExceptionsMessageRegExp = "cannot satisfy functionality .*")
+    public void rejectGraphWhenFunctionalityCannotBeSatisfied() throws Exception {
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withFilled(p, q)));
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p)));
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withPre(aPropositionSet().withCleared(p))
+          .withEffects(aPropositionSet().withFilled(q)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(aProvisionOf(a1)))
+          .withExtensionLevel(anExtensionLevel().withProvision(make(anActionProvision()
+              .withRequest(a1)
+              .withProvision(aPropertyProvision()
+                  .withRequest(p)
+                  .withOffer(p)
+                  .withProvidingAction(a2))
+              .withProvision(aPropertyProvision()
+                  .withRequest(q)
+                  .withOffer(q)
+                  .withProvidingAction(a3))))));
+
+      final GraphCompactor gc = new GraphCompactor();
+      gc.compact(g);
+    }
+
+    @Test
+    public void reportRemovedProvisionsAndActions() throws Exception {
+      final Graph g = createGraphWithDeadProvisions();
+
+      final PlanningListener l = mock(PlanningListener.class);
+      final GraphCompactor gc = new GraphCompactor(l);
+
+      gc.compact(g);
+
+      // removed provisions: a1 in the initial level, a1 <- a3 in the first extension level
+      // removed actions: a1 in the initial level, a3 in the first extension level
+      verify(l).graphCompacted(eq(3), eq(2), eq(2), anyLong());
+    }
+
+  }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.extenders.providers.FunctionalityProvisionProvider;
+import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
+import vsr.cobalt.planner.extenders.providers.PropertyProvisionProvider;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.PropertyProvision;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.emptySet;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class IncrementalGraphUpdaterTest {
+
+  private static final Functionality F1 = make(aMinimalFunctionality().withIdentifier("f1"));
+
+  private static final Functionality F2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+  private static final Property P = make(aMinimalProperty());
+
+  /**
+   * Realizes F1, requires P cleared.
+   */
+  private static final Action A1 = make(aMinimalAction()
+      .withWidget(aMinimalWidget().withIdentifier("w1"))
+      .withFunctionality(F1)
+      .withPre(aPropositionSet().withCleared(P)));
+
+  /**
+   * Realizes F2, requires P cleared.
+   */
+  private static final Action A2 = make(aMinimalAction()
+      .withWidget(aMinimalWidget().withIdentifier("w2"))
+      .withFunctionality(F2)
+      .withPre(aPropositionSet().withCleared(P)));
+
+  /**
+   * Precursor of A1.
+   */
+  private static final Action A3 = make(aMinimalAction()
+      .withWidget(aMinimalWidget().withIdentifier("w1"))
+      .withEffects(aPropositionSet().withCleared(P)));
+
+  /**
+   * Precursor of A2.
+   */
+  private static final Action A4 = make(aMinimalAction()
+      .withWidget(aMinimalWidget().withIdentifier("w2"))
+      .withEffects(aPropositionSet().withCleared(P)));
+
+  private static final FunctionalityProvision FP1 = make(aFunctionalityProvision()
+      .withRequest(F1)
+      .withOffer(F1)
+      .withProvidingAction(A1));
+
+  private static final FunctionalityProvision FP2 = make(aFunctionalityProvision()
+      .withRequest(F2)
+      .withOffer(F2)
+      .withProvidingAction(A2));
+
+  private static final ActionProvision AP1 = make(anActionProvision()
+      .withRequest(A1)
+      .withPrecursor(A3));
+
+  private static final ActionProvision AP2 = make(anActionProvision()
+      .withRequest(A2)
+      .withPrecursor(A4));
+
+  private static PrecursorActionProvider precursorActionProvider() {
+    final PrecursorActionProvider pap = mock(PrecursorActionProvider.class);
+    when(pap.getPrecursorActionsFor(any(Action.class))).thenReturn(emptySet(Action.class));
+    when(pap.getPrecursorActionsFor(A1)).thenReturn(setOf(A3));
+    when(pap.getPrecursorActionsFor(A2)).thenReturn(setOf(A4));
+    return pap;
+  }
+
+  private static PropertyProvisionProvider propertyProvisionProvider() {
+    final PropertyProvisionProvider ppp = mock(PropertyProvisionProvider.class);
+    when(ppp.getProvisionsFor(anySetOf(Property.class))).thenReturn(emptySet(PropertyProvision.class));
+    return ppp;
+  }
+
+  private static FunctionalityProvisionProvider functionalityProvisionProvider() {
+    final FunctionalityProvisionProvider fpp = mock(FunctionalityProvisionProvider.class);
+    when(fpp.getProvisionsFor(anySetOf(Functionality.class))).thenReturn(emptySet(FunctionalityProvision.class));
+    when(fpp.getProvisionsFor(setOf(F2))).thenReturn(setOf(FP2));
+    return fpp;
+  }
+
+  private static DefaultGraphExtender extender(final PrecursorActionProvider pap) {
+    return new DefaultGraphExtender(pap, propertyProvisionProvider(), new PathWalkingCyclicDependencyDetector());
+  }
+
+  private static IncrementalGraphUpdater updater(final FunctionalityProvisionProvider fpp,
+                                                 final PrecursorActionProvider pap) {
+    return new IncrementalGraphUpdater(fpp, extender(pap));
+  }
+
+  @Test
+  public static class UpdateGraph {
+
+    @Test
+    public void pruneProvisionsOfRemovedFunctionalities() throws Exception {
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(FP1, FP2))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(AP1, AP2)));
+
+      final FunctionalityProvisionProvider fpp = functionalityProvisionProvider();
+      final PrecursorActionProvider pap = precursorActionProvider();
+
+      final Graph ug = updater(fpp, pap).updateGraph(g, new Mashup(setOf(F1)));
+
+      final Graph xg = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(FP1))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(AP1)));
+
+      assertEquals(ug, xg);
+      verify(fpp, never()).getProvisionsFor(anySetOf(Functionality.class));
+      verify(pap, never()).getPrecursorActionsFor(any(Action.class));
+    }
+
+    @Test
+    public void extendOnlyForAddedFunctionalities() throws Exception {
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(FP1))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(AP1)));
+
+      final PrecursorActionProvider pap = precursorActionProvider();
+
+      final Graph ug = updater(functionalityProvisionProvider(), pap).updateGraph(g, new Mashup(setOf(F1, F2)));
+
+      final Graph xg = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(FP1, FP2))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(AP1, AP2)));
+
+      assertEquals(ug, xg);
+      verify(pap, never()).getPrecursorActionsFor(A1);
+    }
+
+    @Test
+    public void truncateGraphWhenSatisfiedEarlier() throws Exception {
+      final Functionality f3 = make(aMinimalFunctionality().withIdentifier("f3"));
+
+      final FunctionalityProvision fp3 = make(aFunctionalityProvision()
+          .withRequest(f3)
+          .withOffer(f3)
+          .withProvidingAction(aMinimalAction().withFunctionality(f3)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(FP1, fp3))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(AP1)));
+
+      final Graph ug = updater(functionalityProvisionProvider(), precursorActionProvider())
+          .updateGraph(g, new Mashup(setOf(f3)));
+
+      assertEquals(ug, make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp3))));
+    }
+
+    @Test
+    public void reconsiderPrecursorsRejectedForPreviousGraph() throws Exception {
+      final Property q = make(aMinimalProperty().withName("q"));
+
+      // realizes F1, requires P cleared
+      final Action a1 = make(aMinimalAction()
+          .withWidget(aMinimalWidget().withIdentifier("w1"))
+          .withFunctionality(F1)
+          .withPre(aPropositionSet().withCleared(P)));
+
+      // realizes F2, requires P cleared and clears Q
+      final Action a2 = make(aMinimalAction()
+          .withWidget(aMinimalWidget().withIdentifier("w1"))
+          .withFunctionality(F2)
+          .withPre(aPropositionSet().withCleared(P))
+          .withEffects(aPropositionSet().withCleared(q)));
+
+      // precursor of a1 and a2, requires Q cleared
+      final Action a3 = make(aMinimalAction()
+          .withWidget(aMinimalWidget().withIdentifier("w1"))
+          .withPre(aPropositionSet().withCleared(q))
+          .withEffects(aPropositionSet().withCleared(P)));
+
+      // precursor of a3
+      final Action a4 = make(aMinimalAction()
+          .withWidget(aMinimalWidget().withIdentifier("w1"))
+          .withEffects(aPropositionSet().withCleared(q)));
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withRequest(F1)
+          .withOffer(F1)
+          .withProvidingAction(a1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withRequest(F2)
+          .withOffer(F2)
+          .withProvidingAction(a2));
+
+      final FunctionalityProvisionProvider fpp = mock(FunctionalityProvisionProvider.class);
+      when(fpp.getProvisionsFor(setOf(F1))).thenReturn(setOf(fp1));
+      when(fpp.getProvisionsFor(setOf(F1, F2))).thenReturn(setOf(fp1, fp2));
+
+      final PrecursorActionProvider pap = mock(PrecursorActionProvider.class);
+      when(pap.getPrecursorActionsFor(a1)).thenReturn(setOf(a3));
+      when(pap.getPrecursorActionsFor(a2)).thenReturn(setOf(a3));
+      when(pap.getPrecursorActionsFor(a3)).thenReturn(setOf(a2, a4));
+
+      final DefaultGraphFactory gf = new DefaultGraphFactory(fpp);
+      final DefaultGraphExtender gx = extender(pap);
+
+      // precursor a2 of a3 is rejected because a2 depends on a3
+      final Graph g = gx.extendGraph(gx.extendGraph(gf.createGraph(new Mashup(setOf(F1, F2)))));
+
+      final Graph ug = new IncrementalGraphUpdater(fpp, gx).updateGraph(g, new Mashup(setOf(F1)));
+
+      assertEquals(ug, gx.extendGraph(gx.extendGraph(gf.createGraph(new Mashup(setOf(F1))))));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting an uncompacted graph")
+    public void rejectCompactedGraph() throws Exception {
+      final Graph g = Graph.createCompacted(make(anInitialLevel().withProvision(FP1)))
+          .extendWith(make(anExtensionLevel().withProvision(AP1)));
+
+      updater(functionalityProvisionProvider(), precursorActionProvider())
+          .updateGraph(g, new Mashup(setOf(F1, F2)));
+    }
+
+    @Test(expectedExceptions = PlanningException.class,
+        expectedExceptionsMessageRegExp = "cannot realize all mashup functionalities")
+    public void rejectAddedFunctionalitiesWhichCannotBeRealized() throws Exception {
+      final Functionality f3 = make(aMinimalFunctionality().withIdentifier("f3"));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(FP1)));
+
+      updater(functionalityProvisionProvider(), precursorActionProvider())
+          .updateGraph(g, new Mashup(setOf(F1, f3)));
+    }
+
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extenders;
+
+import com.google.common.collect.Sets;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.PublishedProperty;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.Repository;
+import vsr.cobalt.planner.extenders.providers.ComposingPropertyProvisionProvider;
+import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
+import vsr.cobalt.planner.extractors.BackwardChainingPlanExtractor;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.emptySet;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class LazyGraphExtenderTest {
+
+  private static final Functionality f = make(aMinimalFunctionality());
+
+  private static final Property p = make(aMinimalProperty());
+
+  private static final Action a1 = make(aMinimalAction()
+      .withFunctionality(f)
+      .withPre(aPropositionSet().withCleared(p)));
+
+  private static final Action a2 = make(aMinimalAction()
+      .withEffects(aPropositionSet().withCleared(p)));
+
+  private static final Graph graph = make(aGraph()
+      .withInitialLevel(anInitialLevel()
+          .withProvision(aFunctionalityProvision()
+              .withProvidingAction(a1)
+              .withOffer(f)
+              .withRequest(f))));
+
+  private static final ActionProvision ap = make(anActionProvision()
+      .withRequest(a1)
+      .withPrecursor(a2));
+
+  private static DefaultGraphExtender perActionExtender() {
+    final DefaultGraphExtender dge = mock(DefaultGraphExtender.class);
+    when(dge.derivesProvisionsPerAction()).thenReturn(true);
+    return dge;
+  }
+
+  @Test
+  public static class ExtendGraph {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "cannot extend satisfied graph")
+    public void rejectSatisfiedGraph() throws Exception {
+      final LazyGraphExtender lge = new LazyGraphExtender(mock(DefaultGraphExtender.class));
+      lge.extendGraph(make(aMinimalGraph()));
+    }
+
+    @Test
+    public void extendWithLazyLevel() throws Exception {
+      final DefaultGraphExtender dge = perActionExtender();
+      when(dge.getActionProvisionsFor(setOf(a1), graph)).thenReturn(setOf(ap));
+
+      final LazyGraphExtender lge = new LazyGraphExtender(dge);
+      final Graph g = lge.extendGraph(graph);
+
+      assertFalse(g.getLastExtensionLevel().isMaterialized());
+      assertEquals(g, graph.extendWith(new ExtensionLevel(setOf(ap))));
+    }
+
+    @Test(expectedExceptions = PlanningException.class,
+        expectedExceptionsMessageRegExp = "cannot satisfy any action")
+    public void failWhenNoActionCanBeSatisfied() throws Exception {
+      final DefaultGraphExtender dge = perActionExtender();
+      when(dge.getActionProvisionsFor(setOf(a1), graph)).thenReturn(emptySet(ActionProvision.class));
+
+      final LazyGraphExtender lge = new LazyGraphExtender(dge);
+      lge.extendGraph(graph);
+    }
+
+    @Test
+    public void reportCreatedProvisionsToListener() throws Exception {
+      final DefaultGraphExtender dge = perActionExtender();
+      when(dge.getActionProvisionsFor(setOf(a1), graph)).thenReturn(setOf(ap));
+
+      final PlanningListener l = mock(PlanningListener.class);
+
+      final LazyGraphExtender lge = new LazyGraphExtender(dge, l);
+      lge.extendGraph(graph);
+
+      verify(l).graphExtended(eq(2), eq(0), eq(0), eq(0), eq(1), anyLong());
+    }
+
+    @Test
+    public void createAllProvisionsOfPreviousLazyLevel() throws Exception {
+      final Property q = make(aMinimalProperty().withName("q"));
+
+      final Action a3 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p))
+          .withPre(aPropositionSet().withCleared(q)));
+
+      final Action a4 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(q)));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withPrecursor(a3));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(a3)
+          .withPrecursor(a4));
+
+      final DefaultGraphExtender dge = perActionExtender();
+      when(dge.getActionProvisionsFor(setOf(a1), graph)).thenReturn(setOf(ap1));
+
+      final LazyGraphExtender lge = new LazyGraphExtender(dge);
+      final Graph g1 = lge.extendGraph(graph);
+
+      when(dge.getActionProvisionsFor(setOf(a3), g1)).thenReturn(setOf(ap2));
+      final Graph g2 = lge.extendGraph(g1);
+
+      // only the last level remains lazy
+      assertTrue(g2.getExtensionLevel(0).isMaterialized());
+      assertFalse(g2.getLastExtensionLevel().isMaterialized());
+    }
+
+    @Test
+    public void extendEagerlyWhenComposingPropertyProvisions() throws Exception {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+
+      final Widget w = make(aMinimalWidget().withPublic(p1, p2));
+
+      final Action r1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f1)
+          .withPre(aPropositionSet()
+              .withFilled(p1)));
+
+      final Action r2 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f2)
+          .withPre(aPropositionSet()
+              .withFilled(p2)));
+
+      // composable property providers for r1 and r2
+      final Action pa1 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet()
+              .withFilled(p1)));
+
+      final Action pa2 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet()
+              .withFilled(p2)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f1)
+                  .withOffer(f1)
+                  .withProvidingAction(r1))
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f2)
+                  .withOffer(f2)
+                  .withProvidingAction(r2))));
+
+      final Repository r = mock(Repository.class);
+      when(r.findCompatibleOffers(p1)).thenReturn(setOf(new PublishedProperty(p1, pa1)));
+      when(r.findCompatibleOffers(p2)).thenReturn(setOf(new PublishedProperty(p2, pa2)));
+
+      final PrecursorActionProvider pap = mock(PrecursorActionProvider.class);
+      when(pap.getPrecursorActionsFor(any(Action.class))).thenReturn(emptySet(Action.class));
+
+      final CyclicDependencyDetector cdd = mock(CyclicDependencyDetector.class);
+
+      final DefaultGraphExtender dge = new DefaultGraphExtender(pap, new ComposingPropertyProvisionProvider(r), cdd);
+
+      final Graph lazy = new LazyGraphExtender(dge).extendGraph(g);
+      final Graph eager = dge.extendGraph(g);
+
+      assertEquals(lazy, eager);
+      assertEquals(Sets.newHashSet(new BackwardChainingPlanExtractor().extractPlans(lazy, 2)),
+          Sets.newHashSet(new BackwardChainingPlanExtractor().extractPlans(eager, 2)));
+    }
+
+  }
+
+}
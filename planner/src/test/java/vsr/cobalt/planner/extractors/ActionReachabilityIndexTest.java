@@ -13,7 +13,9 @@ import vsr.cobalt.models.Functionality;
 import vsr.cobalt.models.Property;
 import vsr.cobalt.models.Widget;
 import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
 import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.GraphDictionary;
 import vsr.cobalt.planner.graph.PropertyProvision;
 
 import static org.testng.Assert.assertFalse;
@@ -30,6 +32,7 @@ import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
 import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
 import static vsr.cobalt.planner.graph.makers.PropertyProvisionMaker.aPropertyProvision;
 import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
 
 @Test
 public class ActionReachabilityIndexTest {
@@ -168,6 +171,50 @@ public class ActionReachabilityIndexTest {
       assertTrue(index.isReachable(g.getInitialLevel(), request));
     }
 
+    @Test
+    public void enableActionProvisionOfCompactLevel() {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Property p = make(aMinimalProperty());
+
+      final Widget w = make(aMinimalWidget().withPublic(p));
+
+      final Action request = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withFilled(p)));
+
+      final Action enabledPrecursor = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      final Action precursor = make(aMinimalAction()
+          .withWidget(w)
+          .withPre(aPropositionSet().withCleared(p))
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(request)
+          .withPrecursor(enabledPrecursor));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(request)
+          .withPrecursor(precursor));
+
+      final Graph g = Graph.create(make(anInitialLevel()
+          .withProvision(aFunctionalityProvision()
+              .withProvidingAction(request)
+              .withOffer(f)
+              .withRequest(f))))
+          .extendWith(ExtensionLevel.createCompact(setOf(ap1, ap2), new GraphDictionary()));
+
+      final ActionReachabilityIndex index = new ActionReachabilityIndex(g);
+
+      assertTrue(index.isReachable(g.getInitialLevel(), request));
+      assertTrue(index.isReachable(g.getLastLevel(), enabledPrecursor));
+      assertFalse(index.isReachable(g.getLastLevel(), precursor));
+    }
+
     @Test
     public void doNotEnableActionProvisionWhenPrecursorCannotBeEnabled() {
       final Functionality f = make(aMinimalFunctionality());
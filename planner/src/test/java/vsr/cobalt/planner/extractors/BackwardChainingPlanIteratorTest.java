@@ -16,10 +16,23 @@ import vsr.cobalt.models.Functionality;
 import vsr.cobalt.models.Property;
 import vsr.cobalt.models.Widget;
 import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningListener;
 import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ActionProvisionSource;
+import vsr.cobalt.planner.graph.ExtensionLevel;
 import vsr.cobalt.planner.graph.FunctionalityProvision;
 import vsr.cobalt.planner.graph.Graph;
-
+import vsr.cobalt.planner.graph.GraphDictionary;
+import vsr.cobalt.planner.graph.InitialLevel;
+import vsr.cobalt.planner.graph.PropertyProvision;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
@@ -70,11 +83,136 @@ public class BackwardChainingPlanIteratorTest {
       assertEquals(pi.getMaxDepth(), g.getDepth());
     }
 
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting maxWidgets >= 1")
+    public void rejectMaxWidgetsWhenLessThanOne() {
+      final Graph g = make(aMinimalGraph());
+      new BackwardChainingPlanIterator(g, 1, 1, false, NoOpPlanningListener.getInstance(), 0);
+    }
+
   }
 
   @Test
   public static class Iteration {
 
+    @Test
+    public void dropEquivalentPlansWhenDeduplicating() {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+      final Property p3 = make(aMinimalProperty().withName("p3"));
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f1)
+          .withEffects(aPropositionSet().withCleared(p1)));
+
+      final Action a2 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p2)));
+
+      final Action a3 = make(aMinimalAction()
+          .withFunctionality(f2)
+          .withEffects(aPropositionSet().withCleared(p3)));
+
+      // all combinations except the one of fp1 and fp3 require the same atomic actions
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(Action.compose(a1, a2))
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp3 = make(aFunctionalityProvision()
+          .withProvidingAction(a3)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final FunctionalityProvision fp4 = make(aFunctionalityProvision()
+          .withProvidingAction(Action.compose(a2, a3))
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(fp1, fp2, fp3, fp4)));
+
+      assertEquals(Sets.newHashSet(new BackwardChainingPlanIterator(g, 1, 1, false)).size(), 4);
+      assertEquals(Sets.newHashSet(new BackwardChainingPlanIterator(g, 1, 1, true)).size(), 2);
+    }
+
+    @Test
+    public void reportStatisticsToListenerWhenExhausted() {
+      final Functionality f = make(aMinimalFunctionality());
+      final Property p = make(aMinimalProperty());
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withCleared(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f)
+                  .withOffer(f)
+                  .withProvidingAction(a1)))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(anActionProvision()
+                  .withRequest(a1)
+                  .withPrecursor(a2))));
+
+      final PlanningListener pl = mock(PlanningListener.class);
+      final BackwardChainingPlanIterator pi = new BackwardChainingPlanIterator(g, 2, 2, false, pl);
+
+      pi.next();
+      verify(pl, never()).plansExtracted(anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyLong());
+
+      assertFalse(pi.hasNext());
+      verify(pl).plansExtracted(eq(2), eq(1), eq(2), eq(0), eq(1), anyLong());
+    }
+
+    @Test
+    public void reportStatisticsToListenerWhenClosed() {
+      final Functionality f = make(aMinimalFunctionality());
+      final Property p = make(aMinimalProperty());
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withCleared(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f)
+                  .withOffer(f)
+                  .withProvidingAction(a1)))
+          .withExtensionLevel(anExtensionLevel()
+              .withProvision(anActionProvision()
+                  .withRequest(a1)
+                  .withPrecursor(a2))));
+
+      final PlanningListener pl = mock(PlanningListener.class);
+      final BackwardChainingPlanIterator pi = new BackwardChainingPlanIterator(g, 2, 2, false, pl);
+
+      pi.next();
+      pi.close();
+      verify(pl).plansExtracted(eq(2), anyInt(), anyInt(), anyInt(), eq(1), anyLong());
+
+      // the final statistics are reported once
+      pi.close();
+      assertFalse(pi.hasNext());
+      verify(pl).plansExtracted(anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyLong());
+    }
+
     @Test
     public void considerAllFunctionalityProvisions() {
       final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
@@ -384,6 +522,378 @@ public class BackwardChainingPlanIteratorTest {
       assertFalse(pi.hasNext());
     }
 
+    @Test
+    public void ignorePlansExceedingWidgetBudget() {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Widget w1 = make(aMinimalWidget().withIdentifier("w1"));
+      final Widget w2 = make(aMinimalWidget().withIdentifier("w2"));
+
+      final Action a1 = make(aMinimalAction().withWidget(w1).withFunctionality(f1));
+      final Action a2 = make(aMinimalAction().withWidget(w2).withFunctionality(f1));
+      final Action a3 = make(aMinimalAction().withWidget(w1).withFunctionality(f2));
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(a2)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp3 = make(aFunctionalityProvision()
+          .withProvidingAction(a3)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(fp1, fp2, fp3)));
+
+      final Graph g1 = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(fp1, fp3)));
+
+      final BackwardChainingPlanIterator pi = new BackwardChainingPlanIterator(g, 1, 1, false,
+          NoOpPlanningListener.getInstance(), 1);
+
+      final Set<Plan> xps = setOf(new Plan(g1));
+      final Set<Plan> ps = Sets.newHashSet(pi);
+
+      assertEquals(ps, xps);
+    }
+
+    @Test
+    public void ignorePlansExceedingWidgetBudgetWithExtensionLevels() {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Property p = make(aMinimalProperty().withName("p"));
+
+      final Widget w1 = make(aMinimalWidget().withIdentifier("w1").withPublic(p));
+      final Widget w2 = make(aMinimalWidget().withIdentifier("w2").withPublic(p));
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w1)
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withFilled(p)));
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w2)
+          .withEffects(aPropositionSet().withFilled(p)));
+
+      final FunctionalityProvision fp = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f)
+          .withRequest(f));
+
+      final ActionProvision ap = make(anActionProvision()
+          .withRequest(a1)
+          .withProvision(aPropertyProvision()
+              .withRequest(p)
+              .withOffer(p)
+              .withProvidingAction(a2)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap)));
+
+      final BackwardChainingPlanIterator pi1 = new BackwardChainingPlanIterator(g, 1, 2, false,
+          NoOpPlanningListener.getInstance(), 1);
+      final BackwardChainingPlanIterator pi2 = new BackwardChainingPlanIterator(g, 1, 2, false,
+          NoOpPlanningListener.getInstance(), 2);
+
+      assertFalse(pi1.hasNext());
+      assertEquals(Sets.newHashSet(pi2), setOf(new Plan(g)));
+    }
+
+    @Test
+    public void skipCombinationsWithConflictingProvisions() {
+      final Graph g = createGraphWithConflict();
+
+      final BackwardChainingPlanIterator pi = new BackwardChainingPlanIterator(g, 1, 2);
+
+      final Set<Plan> xps = setOf(
+          new Plan(make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp2, fp3)))),
+          new Plan(make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp2, fp4)))));
+
+      final Set<Plan> ps = Sets.newHashSet(pi);
+
+      assertEquals(ps, xps);
+    }
+
+    @Test
+    public void findPlansWithoutConflict() {
+      final Graph g = createGraphWithConflict();
+
+      final BackwardChainingPlanIterator pi = new BackwardChainingPlanIterator(g, 1, 3);
+
+      final Set<Plan> xps = setOf(
+          new Plan(make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp2, fp3)))),
+          new Plan(make(aGraph().withInitialLevel(anInitialLevel().withProvision(fp2, fp4)))),
+          new Plan(make(aGraph()
+              .withInitialLevel(anInitialLevel().withProvision(fp1, fp3))
+              .withExtensionLevel(anExtensionLevel().withProvision(ap1))
+              .withExtensionLevel(anExtensionLevel().withProvision(ap2)))),
+          new Plan(make(aGraph()
+              .withInitialLevel(anInitialLevel().withProvision(fp1, fp4))
+              .withExtensionLevel(anExtensionLevel().withProvision(ap1))
+              .withExtensionLevel(anExtensionLevel().withProvision(ap2)))));
+
+      final Set<Plan> ps = Sets.newHashSet(pi);
+
+      assertEquals(ps, xps);
+    }
+
+    @Test
+    public void findPlansInLazyGraphWithoutCreatingAllProvisions() {
+      final Graph g = createLazyGraph(createGraphWithConflict());
+
+      final BackwardChainingPlanIterator pi = new BackwardChainingPlanIterator(g, 1, 3);
+
+      final Set<Plan> xps = Sets.newHashSet(new BackwardChainingPlanIterator(createGraphWithConflict(), 1, 3));
+      final Set<Plan> ps = Sets.newHashSet(pi);
+
+      assertEquals(ps, xps);
+      assertFalse(g.getLastExtensionLevel().isMaterialized());
+    }
+
+    @Test
+    public void findSamePlansInDefaultAndCompactGraph() {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+
+      final Widget w = make(aMinimalWidget().withPublic(p1, p2));
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f)
+          .withPre(aPropositionSet().withFilled(p1, p2)));
+
+      // a2 and a3 mutex by definition
+      // a2 and a4 not mutex
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p1)));
+
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p2))
+          .withPre(aPropositionSet().withCleared(p1)));
+
+      final Action a4 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p2)));
+
+      final Action a5 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withCleared(p1)));
+
+      final FunctionalityProvision fp = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f)
+          .withRequest(f));
+
+      final PropertyProvision pp = make(aPropertyProvision()
+          .withRequest(p1)
+          .withOffer(p1)
+          .withProvidingAction(a2));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withProvision(pp, make(aPropertyProvision()
+              .withRequest(p2)
+              .withOffer(p2)
+              .withProvidingAction(a3))));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(a1)
+          .withProvision(pp, make(aPropertyProvision()
+              .withRequest(p2)
+              .withOffer(p2)
+              .withProvidingAction(a4))));
+
+      final ActionProvision ap3 = make(anActionProvision()
+          .withRequest(a3)
+          .withPrecursor(a5));
+
+      final InitialLevel il = make(anInitialLevel().withProvision(fp));
+
+      final Graph g = Graph.create(il)
+          .extendWith(new ExtensionLevel(setOf(ap1, ap2)))
+          .extendWith(new ExtensionLevel(setOf(ap3)));
+
+      // the mutex and reachability checks of compact levels use action identifiers
+      final GraphDictionary d = new GraphDictionary();
+      final Graph cg = Graph.create(il)
+          .extendWith(ExtensionLevel.createCompact(setOf(ap1, ap2), d))
+          .extendWith(ExtensionLevel.createCompact(setOf(ap3), d));
+
+      final Set<Plan> xps = setOf(new Plan(Graph.create(il).extendWith(new ExtensionLevel(setOf(ap2)))));
+
+      assertEquals(Sets.newHashSet(new BackwardChainingPlanIterator(g)), xps);
+      assertEquals(Sets.newHashSet(new BackwardChainingPlanIterator(cg)), xps);
+    }
+
+    @Test
+    public void ignorePlansWithActionsBeingMutexInLazyGraph() {
+      final Functionality f1 = make(aFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aFunctionality().withIdentifier("f2"));
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+
+      final Widget w = make(aMinimalWidget().withPublic(p1, p2));
+
+      // a1 and a2 mutex by definition
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f1)
+          .withEffects(aPropositionSet().withFilled(p2))
+          .withPre(aPropositionSet().withFilled(p1)));
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f2)
+          .withPre(aPropositionSet().withCleared(p2)));
+
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p1)));
+
+      final Action a4 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withCleared(p2)));
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(a2)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withProvision(aPropertyProvision()
+              .withRequest(p1)
+              .withOffer(p1)
+              .withProvidingAction(a3)));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(a2)
+          .withPrecursor(a4));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp1, fp2))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap1, ap2)));
+
+      final BackwardChainingPlanIterator pi = new BackwardChainingPlanIterator(createLazyGraph(g));
+
+      assertFalse(pi.hasNext());
+    }
+
+    private FunctionalityProvision fp1;
+    private FunctionalityProvision fp2;
+    private FunctionalityProvision fp3;
+    private FunctionalityProvision fp4;
+    private ActionProvision ap1;
+    private ActionProvision ap2;
+
+    /**
+     * Create a graph where functionality f1 is provided by an action a1 requiring two extension levels, or by an
+     * enabled action a2. Functionality f2 is provided by one of two enabled actions a3 and a4. Every combination
+     * including a1 becomes a conflict when the maximum depth is less than 3.
+     */
+    private Graph createGraphWithConflict() {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+      final Property p3 = make(aMinimalProperty().withName("p3"));
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f1)
+          .withPre(aPropositionSet().withCleared(p1)));
+
+      final Action a2 = make(aMinimalAction().withFunctionality(f1));
+
+      final Action a3 = make(aMinimalAction().withFunctionality(f2));
+
+      final Action a4 = make(aMinimalAction()
+          .withFunctionality(f2)
+          .withEffects(aPropositionSet().withCleared(p3)));
+
+      final Action a5 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p1))
+          .withPre(aPropositionSet().withCleared(p2)));
+
+      final Action a6 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p2)));
+
+      fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(a2)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      fp3 = make(aFunctionalityProvision()
+          .withProvidingAction(a3)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      fp4 = make(aFunctionalityProvision()
+          .withProvidingAction(a4)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withPrecursor(a5));
+
+      ap2 = make(anActionProvision()
+          .withRequest(a5)
+          .withPrecursor(a6));
+
+      return make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp1, fp2, fp3, fp4))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap1))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap2)));
+    }
+
+  }
+
+  /**
+   * Create a graph with lazy extension levels having the provisions of another graph's extension levels.
+   *
+   * @param graph a graph
+   *
+   * @return a lazy graph
+   */
+  private static Graph createLazyGraph(final Graph graph) {
+    Graph g = Graph.create(graph.getInitialLevel());
+    for (final ExtensionLevel xl : graph.getExtensionLevels()) {
+      g = g.extendWith(ExtensionLevel.createLazy(xl.getRequestedActions(), new ActionProvisionSource() {
+        @Override
+        public Set<ActionProvision> getActionProvisionsFor(final Action action) {
+          return xl.getActionProvisionsByRequestedAction(action);
+        }
+      }));
+    }
+    return g;
   }
 
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class BestFirstPlanIteratorTest {
+
+  private static final FunctionalityProvision FP1;
+
+  private static final FunctionalityProvision FP2;
+
+  private static final FunctionalityProvision FP3;
+
+  private static final FunctionalityProvision FP4;
+
+  private static final ActionProvision AP1;
+
+  private static final ActionProvision AP2;
+
+  /**
+   * A graph where functionality f1 is provided by an action requiring two extension levels, or by an enabled action.
+   * Functionality f2 is provided by one of two enabled actions.
+   */
+  private static final Graph GRAPH;
+
+  static {
+    final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+    final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+    final Property p1 = make(aMinimalProperty().withName("p1"));
+    final Property p2 = make(aMinimalProperty().withName("p2"));
+    final Property p3 = make(aMinimalProperty().withName("p3"));
+
+    final Action a1 = make(aMinimalAction()
+        .withFunctionality(f1)
+        .withPre(aPropositionSet().withCleared(p1)));
+
+    final Action a2 = make(aMinimalAction().withFunctionality(f1));
+
+    final Action a3 = make(aMinimalAction().withFunctionality(f2));
+
+    final Action a4 = make(aMinimalAction()
+        .withFunctionality(f2)
+        .withEffects(aPropositionSet().withCleared(p3)));
+
+    final Action a5 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p1))
+        .withPre(aPropositionSet().withCleared(p2)));
+
+    final Action a6 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p2)));
+
+    FP1 = make(aFunctionalityProvision()
+        .withProvidingAction(a1)
+        .withOffer(f1)
+        .withRequest(f1));
+
+    FP2 = make(aFunctionalityProvision()
+        .withProvidingAction(a2)
+        .withOffer(f1)
+        .withRequest(f1));
+
+    FP3 = make(aFunctionalityProvision()
+        .withProvidingAction(a3)
+        .withOffer(f2)
+        .withRequest(f2));
+
+    FP4 = make(aFunctionalityProvision()
+        .withProvidingAction(a4)
+        .withOffer(f2)
+        .withRequest(f2));
+
+    AP1 = make(anActionProvision()
+        .withRequest(a1)
+        .withPrecursor(a5));
+
+    AP2 = make(anActionProvision()
+        .withRequest(a5)
+        .withPrecursor(a6));
+
+    GRAPH = make(aGraph()
+        .withInitialLevel(anInitialLevel().withProvision(FP1, FP2, FP3, FP4))
+        .withExtensionLevel(anExtensionLevel().withProvision(AP1))
+        .withExtensionLevel(anExtensionLevel().withProvision(AP2)));
+  }
+
+  private static ProvisionCostFunction costFunction(final Map<FunctionalityProvision, Double> costs) {
+    return new ProvisionCostFunction() {
+      @Override
+      public double getCost(final FunctionalityProvision provision) {
+        return costs.get(provision);
+      }
+
+      @Override
+      public double getCost(final ActionProvision provision) {
+        return 1;
+      }
+    };
+  }
+
+  private static double getTotalCost(final Plan plan, final ProvisionCostFunction costFunction) {
+    double cost = 0;
+    final Graph g = plan.getGraph();
+    for (final FunctionalityProvision fp : g.getInitialLevel().getFunctionalityProvisions()) {
+      cost += costFunction.getCost(fp);
+    }
+    for (int i = 0; i < g.getExtensionDepth(); i += 1) {
+      for (final ActionProvision ap : g.getExtensionLevel(i).getActionProvisions()) {
+        cost += costFunction.getCost(ap);
+      }
+    }
+    return cost;
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting minDepth >= 1")
+    public void rejectMinDepthWhenLessThanOne() {
+      final Graph g = make(aMinimalGraph());
+      new BestFirstPlanIterator(g, null, 0, 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting minDepth <= maxDepth")
+    public void rejectMinDepthWhenGreaterThanMaxDepth() {
+      final Graph g = make(aMinimalGraph());
+      new BestFirstPlanIterator(g, null, 2, 1);
+    }
+
+  }
+
+  @Test
+  public static class Iteration {
+
+    @Test
+    public void findSamePlansAsBackwardChaining() {
+      final ProvisionCostFunction cf = costFunction(ImmutableMap.of(FP1, 0.0, FP2, 3.0, FP3, 1.0, FP4, 2.0));
+      final BestFirstPlanIterator pi = new BestFirstPlanIterator(GRAPH, cf);
+      assertEquals(Sets.newHashSet(pi), Sets.newHashSet(new BackwardChainingPlanIterator(GRAPH)));
+    }
+
+    @Test
+    public void orderPlansByTotalCost() {
+      final ProvisionCostFunction cf = costFunction(ImmutableMap.of(FP1, 0.0, FP2, 3.0, FP3, 1.0, FP4, 2.0));
+      final BestFirstPlanIterator pi = new BestFirstPlanIterator(GRAPH, cf);
+
+      final List<Plan> ps = Lists.newArrayList(pi);
+      assertEquals(ps.size(), 4);
+
+      final List<Double> cs = Lists.newArrayList();
+      for (final Plan p : ps) {
+        cs.add(getTotalCost(p, cf));
+      }
+
+      assertEquals(cs, Lists.newArrayList(3.0, 4.0, 4.0, 5.0));
+    }
+
+    @Test
+    public void considerDepthRange() {
+      final ProvisionCostFunction cf = costFunction(ImmutableMap.of(FP1, 0.0, FP2, 3.0, FP3, 1.0, FP4, 2.0));
+      final BestFirstPlanIterator pi = new BestFirstPlanIterator(GRAPH, cf, 1, 2);
+
+      final List<Plan> ps = Lists.newArrayList(pi);
+
+      assertEquals(ps, Lists.newArrayList(
+          new Plan(make(aGraph().withInitialLevel(anInitialLevel().withProvision(FP2, FP3)))),
+          new Plan(make(aGraph().withInitialLevel(anInitialLevel().withProvision(FP2, FP4))))));
+    }
+
+  }
+
+}
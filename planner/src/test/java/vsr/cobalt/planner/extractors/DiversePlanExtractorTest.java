@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+import vsr.cobalt.planner.Plan;
+
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.planner.extractors.RandomPlanExtractorTest.GRAPH;
+import static vsr.cobalt.planner.extractors.RandomPlanExtractorTest.getWidgets;
+
+@Test
+public class DiversePlanExtractorTest {
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting poolSize >= 1")
+    public void rejectPoolSizeLessThanOne() {
+      new DiversePlanExtractor(1, 0, new Random(), 1);
+    }
+
+  }
+
+  @Test
+  public static class ExtractPlans {
+
+    @Test
+    public void maximizeDistinctWidgets() {
+      for (int seed = 0; seed < 20; seed += 1) {
+        final DiversePlanExtractor px = new DiversePlanExtractor(2, 4, new Random(seed), 100);
+        final List<Plan> ps = Lists.newArrayList(px.extractPlans(GRAPH, 1));
+        assertEquals(ps.size(), 2);
+        assertEquals(getWidgets(ps).size(), 3);
+      }
+    }
+
+    @Test
+    public void extractAllPlansWhenSampleSizeExceedsPlanCount() {
+      final DiversePlanExtractor px = new DiversePlanExtractor(10, new Random(0));
+      assertEquals(Lists.newArrayList(px.extractPlans(GRAPH, 1)).size(), 4);
+    }
+
+  }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.math.BigInteger;
+
+import com.google.common.collect.Iterators;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.PlanCount;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aFunctionality;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.planner.graph.makers.PropertyProvisionMaker.aPropertyProvision;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class DynamicProgrammingPlanCounterTest {
+
+  /**
+   * A graph where functionality f1 is provided by an action requiring two extension levels, or by an enabled action.
+   * Functionality f2 is provided by one of two enabled actions.
+   */
+  private static final Graph GRAPH;
+
+  /**
+   * A graph with a single plan of depth 2, because another combination of provisions requires mutex actions.
+   */
+  private static final Graph MUTEX_GRAPH;
+
+  static {
+    {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+      final Property p3 = make(aMinimalProperty().withName("p3"));
+
+      final Action a1 = make(aMinimalAction()
+          .withFunctionality(f1)
+          .withPre(aPropositionSet().withCleared(p1)));
+
+      final Action a2 = make(aMinimalAction().withFunctionality(f1));
+
+      final Action a3 = make(aMinimalAction().withFunctionality(f2));
+
+      final Action a4 = make(aMinimalAction()
+          .withFunctionality(f2)
+          .withEffects(aPropositionSet().withCleared(p3)));
+
+      final Action a5 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p1))
+          .withPre(aPropositionSet().withCleared(p2)));
+
+      final Action a6 = make(aMinimalAction()
+          .withEffects(aPropositionSet().withCleared(p2)));
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(a2)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp3 = make(aFunctionalityProvision()
+          .withProvidingAction(a3)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final FunctionalityProvision fp4 = make(aFunctionalityProvision()
+          .withProvidingAction(a4)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withPrecursor(a5));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(a5)
+          .withPrecursor(a6));
+
+      GRAPH = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp1, fp2, fp3, fp4))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap1))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap2)));
+    }
+
+    {
+      final Functionality f1 = make(aFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aFunctionality().withIdentifier("f2"));
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+      final Property p3 = make(aMinimalProperty().withName("p3"));
+
+      final Widget w = make(aMinimalWidget().withPublic(p1, p2, p3));
+
+      // a1 and a3 mutex by definition
+
+      final Action a1 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f1)
+          .withEffects(aPropositionSet().withFilled(p3))
+          .withPre(aPropositionSet().withFilled(p1)));
+
+      final Action a2 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f2)
+          .withPre(aPropositionSet().withFilled(p2)));
+
+      final Action a3 = make(aMinimalAction()
+          .withWidget(w)
+          .withFunctionality(f2)
+          .withPre(aPropositionSet().withCleared(p3)));
+
+      final Action a4 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p1)));
+
+      final Action a5 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withFilled(p2)));
+
+      final Action a6 = make(aMinimalAction()
+          .withWidget(w)
+          .withEffects(aPropositionSet().withCleared(p3)));
+
+      final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+          .withProvidingAction(a1)
+          .withOffer(f1)
+          .withRequest(f1));
+
+      final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+          .withProvidingAction(a2)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final FunctionalityProvision fp3 = make(aFunctionalityProvision()
+          .withProvidingAction(a3)
+          .withOffer(f2)
+          .withRequest(f2));
+
+      final ActionProvision ap1 = make(anActionProvision()
+          .withRequest(a1)
+          .withProvision(aPropertyProvision()
+              .withRequest(p1)
+              .withOffer(p1)
+              .withProvidingAction(a4)));
+
+      final ActionProvision ap2 = make(anActionProvision()
+          .withRequest(a2)
+          .withProvision(aPropertyProvision()
+              .withRequest(p2)
+              .withOffer(p2)
+              .withProvidingAction(a5)));
+
+      final ActionProvision ap3 = make(anActionProvision()
+          .withRequest(a3)
+          .withPrecursor(a6));
+
+      MUTEX_GRAPH = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(fp1, fp2, fp3))
+          .withExtensionLevel(anExtensionLevel().withProvision(ap1, ap2, ap3)));
+    }
+  }
+
+  private static PlanCount exactly(final int count) {
+    return new PlanCount(BigInteger.valueOf(count), true);
+  }
+
+  private static PlanCount atMost(final int count) {
+    return new PlanCount(BigInteger.valueOf(count), false);
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting budget >= 0")
+    public void rejectNegativeBudget() {
+      new DynamicProgrammingPlanCounter(-1);
+    }
+
+  }
+
+  @Test
+  public static class CountPlans {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting depth >= 1")
+    public void rejectDepthLessThanOne() {
+      final Graph g = make(aMinimalGraph());
+      new DynamicProgrammingPlanCounter().countPlans(g, 0);
+    }
+
+    @Test
+    public void countSamePlansAsBackwardChaining() {
+      final DynamicProgrammingPlanCounter pc = new DynamicProgrammingPlanCounter();
+      for (int d = 1; d <= 4; d += 1) {
+        final int n = Iterators.size(new BackwardChainingPlanIterator(GRAPH, d, d));
+        assertEquals(pc.countPlans(GRAPH, d), exactly(n));
+      }
+    }
+
+    @Test
+    public void excludePlansWithMutexActions() {
+      final DynamicProgrammingPlanCounter pc = new DynamicProgrammingPlanCounter();
+      assertEquals(pc.countPlans(MUTEX_GRAPH, 2), exactly(1));
+    }
+
+    @Test
+    public void fallBackToUpperBoundWhenBudgetIsExhausted() {
+      final DynamicProgrammingPlanCounter pc = new DynamicProgrammingPlanCounter(0);
+      assertEquals(pc.countPlans(GRAPH, 1), atMost(2));
+      assertEquals(pc.countPlans(GRAPH, 2), atMost(0));
+      assertEquals(pc.countPlans(GRAPH, 3), atMost(2));
+    }
+
+    @Test
+    public void ignoreMutexActionsInUpperBound() {
+      final DynamicProgrammingPlanCounter pc = new DynamicProgrammingPlanCounter(0);
+      assertEquals(pc.countPlans(MUTEX_GRAPH, 2), atMost(2));
+    }
+
+  }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.CloseablePlanIterator;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.WidgetConstraints;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.InitialLevel;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class FrontierPreservingPlanExtractorTest {
+
+  /**
+   * Graphs of depth 1, 2, and 3, each being an extension of its predecessor. Functionality f1 is provided by an action
+   * requiring two extension levels, or by an enabled action. Functionality f2 is provided by one of two enabled
+   * actions.
+   */
+  private static final Graph[] GRAPHS;
+
+  /**
+   * A graph of depth 2, whose compaction has {@code GRAPHS[2]} as extension.
+   */
+  private static final Graph UNCOMPACTED_GRAPH;
+
+  static {
+    final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+    final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+    final Property p1 = make(aMinimalProperty().withName("p1"));
+    final Property p2 = make(aMinimalProperty().withName("p2"));
+    final Property p3 = make(aMinimalProperty().withName("p3"));
+
+    final Action a1 = make(aMinimalAction()
+        .withFunctionality(f1)
+        .withPre(aPropositionSet().withCleared(p1)));
+
+    final Action a2 = make(aMinimalAction().withFunctionality(f1));
+
+    final Action a3 = make(aMinimalAction().withFunctionality(f2));
+
+    final Action a4 = make(aMinimalAction()
+        .withFunctionality(f2)
+        .withEffects(aPropositionSet().withCleared(p3)));
+
+    final Action a5 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p1))
+        .withPre(aPropositionSet().withCleared(p2)));
+
+    final Action a6 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p2)));
+
+    final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+        .withProvidingAction(a1)
+        .withOffer(f1)
+        .withRequest(f1));
+
+    final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+        .withProvidingAction(a2)
+        .withOffer(f1)
+        .withRequest(f1));
+
+    final FunctionalityProvision fp3 = make(aFunctionalityProvision()
+        .withProvidingAction(a3)
+        .withOffer(f2)
+        .withRequest(f2));
+
+    final FunctionalityProvision fp4 = make(aFunctionalityProvision()
+        .withProvidingAction(a4)
+        .withOffer(f2)
+        .withRequest(f2));
+
+    final ActionProvision ap1 = make(anActionProvision()
+        .withRequest(a1)
+        .withPrecursor(a5));
+
+    final ActionProvision ap2 = make(anActionProvision()
+        .withRequest(a5)
+        .withPrecursor(a6));
+
+    final InitialLevel il = make(anInitialLevel().withProvision(fp1, fp2, fp3, fp4));
+    final ExtensionLevel xl1 = make(anExtensionLevel().withProvision(ap1));
+    final ExtensionLevel xl2 = make(anExtensionLevel().withProvision(ap2));
+
+    final Graph g1 = Graph.create(il);
+    final Graph g2 = g1.extendWith(xl1);
+    final Graph g3 = g2.extendWith(xl2);
+
+    GRAPHS = new Graph[]{g1, g2, g3};
+
+    // no provision of the last level provides action a7, so a compactor removes provision ap3
+    final Action a7 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p1))
+        .withPre(aPropositionSet().withCleared(p3)));
+
+    final ActionProvision ap3 = make(anActionProvision()
+        .withRequest(a1)
+        .withPrecursor(a7));
+
+    UNCOMPACTED_GRAPH = g1.extendWith(make(anExtensionLevel().withProvision(ap1, ap3)));
+  }
+
+  private static Set<Plan> extractFromScratch(final Graph graph, final int depth) {
+    return Sets.newHashSet(new BackwardChainingPlanIterator(graph, depth, depth));
+  }
+
+  @Test
+  public static class ExtractPlans {
+
+    @Test
+    public void extractSamePlansAsFromScratch() {
+      final FrontierPreservingPlanExtractor px = new FrontierPreservingPlanExtractor();
+      for (int i = 0; i < GRAPHS.length; i += 1) {
+        final Graph g = GRAPHS[i];
+        final int d = i + 1;
+        assertEquals(Sets.newHashSet(px.extractPlans(g, d)), extractFromScratch(g, d));
+      }
+    }
+
+    @Test
+    public void extractSamePlansAsFromScratchWhenPlansNotConsumed() {
+      final FrontierPreservingPlanExtractor px = new FrontierPreservingPlanExtractor();
+      final Iterator<Plan> ps = px.extractPlans(GRAPHS[0], 1);
+      ps.next();
+      px.extractPlans(GRAPHS[1], 2);
+      assertEquals(Sets.newHashSet(px.extractPlans(GRAPHS[2], 3)), extractFromScratch(GRAPHS[2], 3));
+    }
+
+    @Test
+    public void resumeWhenPreviousGraphHasBeenCompacted() {
+      final PlanningListener pl = mock(PlanningListener.class);
+      final FrontierPreservingPlanExtractor px = new FrontierPreservingPlanExtractor(pl, WidgetConstraints.UNLIMITED);
+      px.extractPlans(UNCOMPACTED_GRAPH, 2);
+      final Set<Plan> ps = Sets.newHashSet(px.extractPlans(GRAPHS[2], 3));
+      assertEquals(ps, extractFromScratch(GRAPHS[2], 3));
+      // the initial level's four combinations are not enumerated again, a search from scratch enumerates eight
+      verify(pl).plansExtracted(eq(3), anyInt(), eq(4), anyInt(), eq(2), anyLong());
+    }
+
+    @Test
+    public void reportStatisticsWhenClosedAndWhenFrontierIsCompleted() {
+      final PlanningListener pl = mock(PlanningListener.class);
+      final FrontierPreservingPlanExtractor px = new FrontierPreservingPlanExtractor(pl, WidgetConstraints.UNLIMITED);
+      final CloseablePlanIterator ps = px.extractPlans(GRAPHS[0], 1);
+      ps.next();
+      ps.close();
+      verify(pl).plansExtracted(eq(1), anyInt(), anyInt(), anyInt(), eq(1), anyLong());
+      // the remaining search of depth 1 is reported when resuming from its frontier
+      assertEquals(Sets.newHashSet(px.extractPlans(GRAPHS[1], 2)), extractFromScratch(GRAPHS[1], 2));
+      verify(pl, times(2)).plansExtracted(eq(1), anyInt(), anyInt(), anyInt(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void extractFromScratchWhenDepthIsNotSuccessive() {
+      final FrontierPreservingPlanExtractor px = new FrontierPreservingPlanExtractor();
+      px.extractPlans(GRAPHS[2], 3);
+      assertEquals(Sets.newHashSet(px.extractPlans(GRAPHS[2], 1)), extractFromScratch(GRAPHS[2], 1));
+    }
+
+    @Test
+    public void findDeeperPlans() {
+      final FrontierPreservingPlanExtractor px = new FrontierPreservingPlanExtractor();
+      px.extractPlans(GRAPHS[0], 1);
+      px.extractPlans(GRAPHS[1], 2);
+      final Set<Plan> ps = Sets.newHashSet(px.extractPlans(GRAPHS[2], 3));
+      assertEquals(ps.size(), 2);
+      for (final Plan p : ps) {
+        assertEquals(p.getGraph().getDepth(), 3);
+      }
+    }
+
+  }
+
+}
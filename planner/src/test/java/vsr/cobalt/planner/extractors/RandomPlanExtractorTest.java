@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.extractors;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.graph.Level;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class RandomPlanExtractorTest {
+
+  /**
+   * A graph where functionality f1 is provided by actions of widgets w1 and w2, and functionality f2 is provided by
+   * actions of widgets w1 and w3. All actions are enabled, resulting in four plans of depth 1.
+   */
+  static final Graph GRAPH;
+
+  static {
+    final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+    final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+    final Widget w1 = make(aMinimalWidget().withIdentifier("w1"));
+    final Widget w2 = make(aMinimalWidget().withIdentifier("w2"));
+    final Widget w3 = make(aMinimalWidget().withIdentifier("w3"));
+
+    final Action a1 = make(aMinimalAction().withWidget(w1).withFunctionality(f1));
+    final Action a2 = make(aMinimalAction().withWidget(w2).withFunctionality(f1));
+    final Action a3 = make(aMinimalAction().withWidget(w1).withFunctionality(f2));
+    final Action a4 = make(aMinimalAction().withWidget(w3).withFunctionality(f2));
+
+    final FunctionalityProvision fp1 = make(aFunctionalityProvision()
+        .withProvidingAction(a1)
+        .withOffer(f1)
+        .withRequest(f1));
+
+    final FunctionalityProvision fp2 = make(aFunctionalityProvision()
+        .withProvidingAction(a2)
+        .withOffer(f1)
+        .withRequest(f1));
+
+    final FunctionalityProvision fp3 = make(aFunctionalityProvision()
+        .withProvidingAction(a3)
+        .withOffer(f2)
+        .withRequest(f2));
+
+    final FunctionalityProvision fp4 = make(aFunctionalityProvision()
+        .withProvidingAction(a4)
+        .withOffer(f2)
+        .withRequest(f2));
+
+    GRAPH = make(aGraph()
+        .withInitialLevel(anInitialLevel().withProvision(fp1, fp2, fp3, fp4)));
+  }
+
+  static Set<Widget> getWidgets(final Iterable<Plan> plans) {
+    final Set<Widget> ws = Sets.newHashSet();
+    for (final Plan p : plans) {
+      for (final Level l : p.getGraph().getLevels()) {
+        for (final Action a : l.getRequiredActions()) {
+          ws.add(a.getWidget());
+        }
+      }
+    }
+    return ws;
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting sampleSize >= 1")
+    public void rejectSampleSizeLessThanOne() {
+      new RandomPlanExtractor(0, new Random());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting budget >= 0")
+    public void rejectNegativeBudget() {
+      new RandomPlanExtractor(1, new Random(), -1);
+    }
+
+  }
+
+  @Test
+  public static class ExtractPlans {
+
+    @Test
+    public void extractAllPlansWhenSampleSizeExceedsPlanCount() {
+      final RandomPlanExtractor px = new RandomPlanExtractor(10, new Random(0));
+      final List<Plan> ps = Lists.newArrayList(px.extractPlans(GRAPH, 1));
+      assertEquals(ps.size(), 4);
+      assertEquals(Sets.newHashSet(ps), Sets.newHashSet(new BackwardChainingPlanIterator(GRAPH, 1, 1)));
+    }
+
+    @Test
+    public void extractDistinctPlans() {
+      final RandomPlanExtractor px = new RandomPlanExtractor(3, new Random(0));
+      final List<Plan> ps = Lists.newArrayList(px.extractPlans(GRAPH, 1));
+      assertEquals(ps.size(), 3);
+      assertEquals(Sets.newHashSet(ps).size(), 3);
+    }
+
+    @Test
+    public void drawPlansUniformly() {
+      final RandomPlanExtractor px = new RandomPlanExtractor(1, new Random(0));
+      final Map<Plan, Integer> ns = new HashMap<>();
+      for (int i = 0; i < 400; i += 1) {
+        final Plan p = Iterators.getOnlyElement(px.extractPlans(GRAPH, 1));
+        ns.put(p, ns.containsKey(p) ? ns.get(p) + 1 : 1);
+      }
+      assertEquals(ns.size(), 4);
+      for (final int n : ns.values()) {
+        assertTrue(n > 50);
+      }
+    }
+
+    @Test
+    public void fallBackToBackwardChainingWhenBudgetIsExhausted() {
+      final RandomPlanExtractor px = new RandomPlanExtractor(2, new Random(0), 0);
+      assertEquals(Lists.newArrayList(px.extractPlans(GRAPH, 1)),
+          Lists.newArrayList(Iterators.limit(new BackwardChainingPlanIterator(GRAPH, 1, 1), 2)));
+    }
+
+  }
+
+}
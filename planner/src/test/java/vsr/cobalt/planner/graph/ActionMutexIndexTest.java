@@ -7,6 +7,8 @@
 
 package vsr.cobalt.planner.graph;
 
+import java.util.Set;
+
 import org.testng.annotations.Test;
 import vsr.cobalt.models.Action;
 import vsr.cobalt.models.Functionality;
@@ -28,6 +30,7 @@ import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
 import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
 import static vsr.cobalt.planner.graph.makers.PropertyProvisionMaker.aPropertyProvision;
 import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
 
 @Test
 public class ActionMutexIndexTest {
@@ -286,4 +289,99 @@ public class ActionMutexIndexTest {
 
   }
 
+  @Test
+  public static class HasMutexActions {
+
+    private static final Action a1;
+
+    private static final Action a2;
+
+    private static final Action a3;
+
+    private static final InitialLevel il;
+
+    private static final Set<ActionProvision> aps;
+
+    static {
+      final Functionality f = make(aMinimalFunctionality());
+
+      final Property p1 = make(aMinimalProperty().withName("p1"));
+      final Property p2 = make(aMinimalProperty().withName("p2"));
+
+      final Widget w1 = make(aMinimalWidget()
+          .withIdentifier("w1")
+          .withPublic(p1, p2));
+
+      final Widget w2 = make(aMinimalWidget()
+          .withIdentifier("w2")
+          .withPublic(p1, p2));
+
+      final Action request = make(aMinimalAction()
+          .withWidget(w1)
+          .withFunctionality(f)
+          .withPre(aPropositionSet()
+              .withFilled(p1, p2)));
+
+      // a1 and a2 are mutex, because a2 requires p1 cleared by a1
+      a1 = make(aMinimalAction()
+          .withWidget(w2)
+          .withEffects(aPropositionSet()
+              .withFilled(p1)));
+
+      a2 = make(aMinimalAction()
+          .withWidget(w2)
+          .withEffects(aPropositionSet()
+              .withFilled(p2))
+          .withPre(aPropositionSet()
+              .withCleared(p1)));
+
+      a3 = make(aMinimalAction()
+          .withWidget(w2)
+          .withEffects(aPropositionSet()
+              .withFilled(p2)));
+
+      il = make(anInitialLevel()
+          .withProvision(aFunctionalityProvision()
+              .withRequest(f)
+              .withOffer(f)
+              .withProvidingAction(request)));
+
+      final PropertyProvision pp1 = make(aPropertyProvision()
+          .withRequest(p1)
+          .withOffer(p1)
+          .withProvidingAction(a1));
+
+      aps = setOf(
+          make(anActionProvision()
+              .withRequest(request)
+              .withProvision(pp1, make(aPropertyProvision()
+                  .withRequest(p2)
+                  .withOffer(p2)
+                  .withProvidingAction(a2)))),
+          make(anActionProvision()
+              .withRequest(request)
+              .withProvision(pp1, make(aPropertyProvision()
+                  .withRequest(p2)
+                  .withOffer(p2)
+                  .withProvidingAction(a3)))));
+    }
+
+    public void returnTrueWhenAnyTwoActionsAreMutex() {
+      final Graph g = Graph.create(il).extendWith(new ExtensionLevel(aps));
+      final ActionMutexIndex ami = new ActionMutexIndex(g);
+      assertTrue(ami.hasMutexActions(g.getLastLevel(), setOf(a1, a2, a3)));
+      assertFalse(ami.hasMutexActions(g.getLastLevel(), setOf(a1, a3)));
+    }
+
+    public void returnTrueWhenAnyTwoActionsAreMutexInCompactLevel() {
+      final Graph g = Graph.create(il).extendWith(ExtensionLevel.createCompact(aps, new GraphDictionary()));
+      final ActionMutexIndex ami = new ActionMutexIndex(g);
+      assertTrue(ami.hasMutexActions(g.getLastLevel(), setOf(a2, a1)));
+      assertTrue(ami.hasMutexActions(g.getLastLevel(), g.getLastLevel().getRequiredActions()));
+      assertFalse(ami.hasMutexActions(g.getLastLevel(), setOf(a1, a3)));
+      assertFalse(ami.hasMutexActions(g.getLastLevel(), setOf(a2)));
+    }
+
+  }
+
 }
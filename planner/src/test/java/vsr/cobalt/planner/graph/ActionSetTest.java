@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.graph;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aFunctionality;
+import static vsr.cobalt.testing.Assert.assertEmpty;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class ActionSetTest {
+
+  private static Action action(final String functionality) {
+    return make(aMinimalAction().withFunctionality(aFunctionality().withIdentifier(functionality)));
+  }
+
+  private static final Action a1 = action("f1");
+
+  private static final Action a2 = action("f2");
+
+  private static final Action a3 = action("f3");
+
+  @Test
+  public static class CopyOf {
+
+    @Test
+    public void containGivenActions() {
+      final ActionSet as = ActionSet.copyOf(setOf(a1, a2), new GraphDictionary());
+      assertEquals(as, setOf(a1, a2));
+      assertEquals(setOf(a1, a2), as);
+      assertEquals(as.hashCode(), setOf(a1, a2).hashCode());
+      assertFalse(as.contains(a3));
+    }
+
+    @Test
+    public void reuseSetOfSameDictionary() {
+      final GraphDictionary d = new GraphDictionary();
+      final ActionSet as = ActionSet.copyOf(setOf(a1), d);
+      assertTrue(ActionSet.copyOf(as, d) == as);
+    }
+
+    @Test
+    public void ignoreUnknownActionsWhenCopyingKnownActions() {
+      final GraphDictionary d = new GraphDictionary();
+      d.getActionId(a1);
+      assertEquals(ActionSet.copyOfKnown(setOf(a1, a2), d), setOf(a1));
+      assertEquals(d.getActionCount(), 1);
+    }
+
+  }
+
+  @Test
+  public static class HashCode {
+
+    @Test
+    public void returnSameHashAsOtherSets() {
+      final ActionSet as = ActionSet.copyOf(setOf(a1, a2, a3), new GraphDictionary());
+      final int h = as.hashCode();
+      assertEquals(h, setOf(a1, a2, a3).hashCode());
+      assertEquals(as.hashCode(), h);
+    }
+
+  }
+
+  @Test
+  public static class Intersects {
+
+    @Test
+    public void returnTrueWhenHavingCommonAction() {
+      final GraphDictionary d = new GraphDictionary();
+      assertTrue(ActionSet.copyOf(setOf(a1, a2), d).intersects(ActionSet.copyOf(setOf(a2, a3), d)));
+    }
+
+    @Test
+    public void returnFalseWhenDisjoint() {
+      final GraphDictionary d = new GraphDictionary();
+      assertTrue(ActionSet.copyOf(setOf(a1, a2), d).isDisjoint(ActionSet.copyOf(setOf(a3), d)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting sets of the same dictionary")
+    public void rejectSetOfOtherDictionary() {
+      ActionSet.copyOf(setOf(a1), new GraphDictionary()).intersects(ActionSet.copyOf(setOf(a1), new GraphDictionary()));
+    }
+
+  }
+
+  @Test
+  public static class Union {
+
+    @Test
+    public void containActionsOfBothSets() {
+      final GraphDictionary d = new GraphDictionary();
+      final ActionSet as = ActionSet.copyOf(setOf(a1, a2), d).union(ActionSet.copyOf(setOf(a2, a3), d));
+      assertEquals(as, setOf(a1, a2, a3));
+    }
+
+  }
+
+  @Test
+  public static class Intersection {
+
+    @Test
+    public void containCommonActions() {
+      final GraphDictionary d = new GraphDictionary();
+      final ActionSet as = ActionSet.copyOf(setOf(a1, a2), d).intersection(ActionSet.copyOf(setOf(a2, a3), d));
+      assertEquals(as, setOf(a2));
+    }
+
+    @Test
+    public void returnEmptySetWhenDisjoint() {
+      final GraphDictionary d = new GraphDictionary();
+      assertEmpty(ActionSet.copyOf(setOf(a1), d).intersection(ActionSet.copyOf(setOf(a3), d)));
+    }
+
+  }
+
+  @Test
+  public static class ContainsAll {
+
+    @Test
+    public void returnTrueForSubset() {
+      final GraphDictionary d = new GraphDictionary();
+      assertTrue(ActionSet.copyOf(setOf(a1, a2, a3), d).containsAll(ActionSet.copyOf(setOf(a1, a3), d)));
+    }
+
+    @Test
+    public void returnFalseForOtherSet() {
+      final GraphDictionary d = new GraphDictionary();
+      assertFalse(ActionSet.copyOf(setOf(a1, a2), d).containsAll(ActionSet.copyOf(setOf(a1, a3), d)));
+    }
+
+  }
+
+}
@@ -15,10 +15,14 @@ import vsr.cobalt.models.Property;
 import vsr.cobalt.models.Widget;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
 import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
@@ -58,6 +62,182 @@ public class ExtensionLevelTest {
 
   }
 
+  @Test
+  public static class CreateLazy {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting one or more candidate actions")
+    public void rejectEmptySetOfCandidateActions() {
+      ExtensionLevel.createLazy(emptySet(Action.class), mock(ActionProvisionSource.class));
+    }
+
+    @Test
+    public void createProvisionsOfRequestedActionOnlyOnce() {
+      final ActionProvision ap = make(aMinimalActionProvision());
+      final Action a = ap.getRequestedAction();
+
+      final ActionProvisionSource aps = mock(ActionProvisionSource.class);
+      when(aps.getActionProvisionsFor(a)).thenReturn(setOf(ap));
+
+      final ExtensionLevel xl = ExtensionLevel.createLazy(setOf(a), aps);
+
+      assertEquals(xl.getActionProvisionsByRequestedAction(a), setOf(ap));
+      assertEquals(xl.getActionProvisionsByRequestedAction(a), setOf(ap));
+      verify(aps, times(1)).getActionProvisionsFor(a);
+      assertFalse(xl.isMaterialized());
+    }
+
+    @Test
+    public void doNotCreateProvisionsOfNonCandidateActions() {
+      final ActionProvision ap = make(aMinimalActionProvision());
+      final Action a = make(aMinimalAction()
+          .withWidget(aWidget().withIdentifier("w")));
+
+      final ActionProvisionSource aps = mock(ActionProvisionSource.class);
+
+      final ExtensionLevel xl = ExtensionLevel.createLazy(setOf(ap.getRequestedAction()), aps);
+
+      assertEmpty(xl.getActionProvisionsByRequestedAction(a));
+      verify(aps, never()).getActionProvisionsFor(a);
+    }
+
+    @Test
+    public void checkExtensionWithoutCreatingProvisions() {
+      final ActionProvision ap = make(aMinimalActionProvision());
+      final Action a = ap.getRequestedAction();
+
+      final ActionProvisionSource aps = mock(ActionProvisionSource.class);
+
+      final ExtensionLevel xl = ExtensionLevel.createLazy(setOf(a), aps);
+
+      final Level l = mock(Level.class);
+      when(l.getRequiredActions()).thenReturn(setOf(a));
+
+      assertTrue(xl.canExtendOn(l));
+      verify(aps, never()).getActionProvisionsFor(a);
+    }
+
+    @Test
+    public void equalToLevelHavingAllCreatedProvisions() {
+      final ActionProvision ap = make(aMinimalActionProvision());
+      final Action a = ap.getRequestedAction();
+
+      final ActionProvisionSource aps = mock(ActionProvisionSource.class);
+      when(aps.getActionProvisionsFor(a)).thenReturn(setOf(ap));
+
+      final ExtensionLevel xl = ExtensionLevel.createLazy(setOf(a), aps);
+
+      assertEquals(xl, new ExtensionLevel(setOf(ap)));
+      assertTrue(xl.isMaterialized());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class,
+        expectedExceptionsMessageRegExp = "expecting one or more provisions")
+    public void rejectMaterializationWithoutProvisions() {
+      final Action a = make(aMinimalAction());
+
+      final ActionProvisionSource aps = mock(ActionProvisionSource.class);
+      when(aps.getActionProvisionsFor(a)).thenReturn(emptySet(ActionProvision.class));
+
+      ExtensionLevel.createLazy(setOf(a), aps).getActionProvisions();
+    }
+
+  }
+
+  @Test
+  public static class CreateCompact {
+
+    private static final Property p1 = make(aProperty().withName("p1"));
+
+    private static final Property p2 = make(aProperty().withName("p2"));
+
+    private static final Widget w = make(aMinimalWidget().withPublic(p2));
+
+    private static final Action request1 = make(aMinimalAction()
+        .withWidget(w)
+        .withPre(aPropositionSet()
+            .withCleared(p1)
+            .withFilled(p2)));
+
+    private static final Action request2 = make(aMinimalAction()
+        .withWidget(w)
+        .withPre(aPropositionSet().withFilled(p2)));
+
+    private static final Action precursor = make(aMinimalAction()
+        .withWidget(w)
+        .withEffects(aPropositionSet().withCleared(p1)));
+
+    private static final Action provider = make(aMinimalAction()
+        .withWidget(w)
+        .withEffects(aPropositionSet().withFilled(p2)));
+
+    private static final ActionProvision ap1 = make(anActionProvision()
+        .withRequest(request1)
+        .withPrecursor(precursor)
+        .withProvision(aPropertyProvision()
+            .withProvidingAction(provider)
+            .withRequest(p2)
+            .withOffer(p2)));
+
+    private static final ActionProvision ap2 = make(anActionProvision()
+        .withRequest(request2)
+        .withProvision(aPropertyProvision()
+            .withProvidingAction(provider)
+            .withRequest(p2)
+            .withOffer(p2)));
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting one or more provisions")
+    public void rejectEmptySet() {
+      ExtensionLevel.createCompact(emptySet(ActionProvision.class), new GraphDictionary());
+    }
+
+    @Test
+    public void equalToLevelHavingSameProvisions() {
+      final ExtensionLevel xl = ExtensionLevel.createCompact(setOf(ap1, ap2), new GraphDictionary());
+      final ExtensionLevel other = new ExtensionLevel(setOf(ap1, ap2));
+
+      assertTrue(xl.isCompact());
+      assertEquals(xl, other);
+      assertEquals(other, xl);
+      assertEquals(xl.hashCode(), other.hashCode());
+    }
+
+    @Test
+    public void createProvisionsOfRequestedAction() {
+      final ExtensionLevel xl = ExtensionLevel.createCompact(setOf(ap1, ap2), new GraphDictionary());
+
+      assertEquals(xl.getActionProvisionsByRequestedAction(request1), setOf(ap1));
+      assertEquals(xl.getActionProvisionsByRequestedAction(request2), setOf(ap2));
+      assertEmpty(xl.getActionProvisionsByRequestedAction(provider));
+    }
+
+    @Test
+    public void returnRequestedAndRequiredActions() {
+      final ExtensionLevel xl = ExtensionLevel.createCompact(setOf(ap1, ap2), new GraphDictionary());
+
+      assertEquals(xl.getRequestedActions(), setOf(request1, request2));
+      assertEquals(xl.getRequiredActions(), setOf(precursor, provider));
+    }
+
+    @Test
+    public void shareDictionaryWithOtherLevels() {
+      final GraphDictionary d = new GraphDictionary();
+      final ExtensionLevel xl1 = ExtensionLevel.createCompact(setOf(ap1), d);
+      final ExtensionLevel xl2 = ExtensionLevel.createCompact(setOf(ap2), d);
+
+      assertSame(xl1.getDictionary(), xl2.getDictionary());
+      assertEquals(d.getActionCount(), 4);
+      assertEquals(d.getPropertyCount(), 1);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void preventModificationOfActionProvisions() {
+      ExtensionLevel.createCompact(setOf(ap1), new GraphDictionary()).getActionProvisions().add(ap2);
+    }
+
+  }
+
   @Test
   public static class GetActionProvisions {
 
@@ -198,6 +378,48 @@ public class ExtensionLevelTest {
 
   }
 
+  @Test
+  public static class GetRequestedActionsRequiringAny {
+
+    private static final Property p = make(aMinimalProperty());
+
+    private static final Action request1 = make(aMinimalAction()
+        .withPre(aPropositionSet().withCleared(p)));
+
+    private static final Action request2 = make(aMinimalAction()
+        .withPre(aPropositionSet().withCleared(p))
+        .withEffects(aPropositionSet().withFilled(p)));
+
+    private static final Action precursor1 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p)));
+
+    private static final Action precursor2 = make(aMinimalAction()
+        .withPre(aPropositionSet().withFilled(p))
+        .withEffects(aPropositionSet().withCleared(p)));
+
+    private static final ActionProvision ap1 = make(anActionProvision()
+        .withRequest(request1)
+        .withPrecursor(precursor1));
+
+    private static final ActionProvision ap2 = make(anActionProvision()
+        .withRequest(request2)
+        .withPrecursor(precursor2));
+
+    @Test
+    public void returnRequestedActionsOfProvisionsRequiringAnyAction() {
+      final ExtensionLevel xl = new ExtensionLevel(setOf(ap1, ap2));
+      assertEquals(xl.getRequestedActionsRequiringAny(setOf(precursor2, request1)), setOf(request2));
+    }
+
+    @Test
+    public void returnRequestedActionsOfCompactLevel() {
+      final ExtensionLevel xl = ExtensionLevel.createCompact(setOf(ap1, ap2), new GraphDictionary());
+      assertEquals(xl.getRequestedActionsRequiringAny(setOf(precursor1, precursor2)), setOf(request1, request2));
+      assertEmpty(xl.getRequestedActionsRequiringAny(setOf(request1)));
+    }
+
+  }
+
   @Test
   public static class CanExtendOn {
 
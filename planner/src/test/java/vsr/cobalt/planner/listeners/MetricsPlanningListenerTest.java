@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.listeners;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.planner.extenders.providers.BasicPropertyProvisionProvider;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@Test
+public class MetricsPlanningListenerTest {
+
+  @Test
+  public static class GraphExtended {
+
+    @Test
+    public void feedCountersAndTimer() {
+      final MetricsPlanningListener.Registry r = mock(MetricsPlanningListener.Registry.class);
+      new MetricsPlanningListener(r).graphExtended(3, 4, 5, 2, 3, 100);
+      verify(r).time("graph.extend", 100);
+      verify(r).count("graph.extend.candidates", 4);
+      verify(r).count("graph.extend.combinations", 5);
+      verify(r).count("graph.extend.combinations.pruned", 2);
+      verify(r).count("graph.extend.provisions", 3);
+    }
+
+  }
+
+  @Test
+  public static class ProvisionsProvided {
+
+    @Test
+    public void nameMetricsAfterProvider() {
+      final MetricsPlanningListener.Registry r = mock(MetricsPlanningListener.Registry.class);
+      new MetricsPlanningListener(r).provisionsProvided(BasicPropertyProvisionProvider.class, 2, 7, 100);
+      verify(r).time("provider.BasicPropertyProvisionProvider", 100);
+      verify(r).count("provider.BasicPropertyProvisionProvider.requests", 2);
+      verify(r).count("provider.BasicPropertyProvisionProvider.provisions", 7);
+    }
+
+  }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.sat;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class SatSolverTest {
+
+  private static int[] newVariables(final SatSolver s, final int n) {
+    final int[] vs = new int[n];
+    for (int i = 0; i < n; i += 1) {
+      vs[i] = s.newVariable();
+    }
+    return vs;
+  }
+
+  /**
+   * Count all models by blocking each model found.
+   */
+  private static int countModels(final SatSolver s) {
+    int n = 0;
+    while (s.solve()) {
+      n += 1;
+      final int[] ls = new int[s.getVariables()];
+      for (int v = 1; v <= ls.length; v += 1) {
+        ls[v - 1] = s.getValue(v) ? -v : v;
+      }
+      s.addClause(ls);
+    }
+    return n;
+  }
+
+  @Test
+  public static class AddClause {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting literals of existing variables")
+    public void rejectUnknownVariable() {
+      final SatSolver s = new SatSolver();
+      s.newVariable();
+      s.addClause(1, -2);
+    }
+
+    @Test
+    public void returnFalseWhenAddingEmptyClause() {
+      final SatSolver s = new SatSolver();
+      assertFalse(s.addClause());
+    }
+
+    @Test
+    public void returnFalseWhenUnitClausesContradict() {
+      final SatSolver s = new SatSolver();
+      final int x = s.newVariable();
+      assertTrue(s.addClause(x));
+      assertFalse(s.addClause(-x));
+    }
+
+  }
+
+  @Test
+  public static class Solve {
+
+    @Test
+    public void findModelSatisfyingAllClauses() {
+      final SatSolver s = new SatSolver();
+      final int[] x = newVariables(s, 3);
+      s.addClause(x[0], x[1]);
+      s.addClause(-x[0], x[2]);
+      s.addClause(-x[1], -x[2]);
+      s.addClause(-x[1]);
+      assertTrue(s.solve());
+      assertTrue(s.getValue(x[0]));
+      assertFalse(s.getValue(x[1]));
+      assertTrue(s.getValue(x[2]));
+    }
+
+    @Test
+    public void proveUnsatisfiablePigeonHoleFormula() {
+      // 5 pigeons do not fit into 4 holes
+      final int pigeons = 5;
+      final int holes = 4;
+      final SatSolver s = new SatSolver();
+      final int[][] x = new int[pigeons][];
+      for (int i = 0; i < pigeons; i += 1) {
+        x[i] = newVariables(s, holes);
+        s.addClause(x[i]);
+      }
+      for (int h = 0; h < holes; h += 1) {
+        for (int i = 0; i < pigeons; i += 1) {
+          for (int j = i + 1; j < pigeons; j += 1) {
+            s.addClause(-x[i][h], -x[j][h]);
+          }
+        }
+      }
+      assertFalse(s.solve());
+      assertTrue(s.getConflicts() > 0);
+    }
+
+    @Test
+    public void enumerateAllModelsUsingBlockingClauses() {
+      final SatSolver s = new SatSolver();
+      final int[] x = newVariables(s, 4);
+      // exactly one of four
+      s.addClause(x);
+      for (int i = 0; i < x.length; i += 1) {
+        for (int j = i + 1; j < x.length; j += 1) {
+          s.addClause(-x[i], -x[j]);
+        }
+      }
+      assertEquals(countModels(s), 4);
+    }
+
+    @Test
+    public void enumerateModelsOfUnconstrainedVariables() {
+      final SatSolver s = new SatSolver();
+      newVariables(s, 3);
+      assertEquals(countModels(s), 8);
+    }
+
+    @Test
+    public void enumerateSameModelsAsExhaustiveSearch() {
+      final Random r = new Random(0);
+      final int n = 8;
+      for (int k = 0; k < 50; k += 1) {
+        final int[][] cs = new int[30][3];
+        for (final int[] c : cs) {
+          for (int i = 0; i < c.length; i += 1) {
+            c[i] = (1 + r.nextInt(n)) * (r.nextBoolean() ? 1 : -1);
+          }
+        }
+
+        int expected = 0;
+        for (int m = 0; m < 1 << n; m += 1) {
+          boolean sat = true;
+          for (final int[] c : cs) {
+            boolean csat = false;
+            for (final int l : c) {
+              csat |= ((m >> (Math.abs(l) - 1)) & 1) == (l > 0 ? 1 : 0);
+            }
+            sat &= csat;
+          }
+          if (sat) {
+            expected += 1;
+          }
+        }
+
+        final SatSolver s = new SatSolver();
+        newVariables(s, n);
+        for (final int[] c : cs) {
+          s.addClause(c);
+        }
+        assertEquals(countModels(s), expected);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.planner.search.Fixture.A0;
+import static vsr.cobalt.planner.search.Fixture.A1;
+import static vsr.cobalt.planner.search.Fixture.A2;
+import static vsr.cobalt.planner.search.Fixture.B1;
+import static vsr.cobalt.planner.search.Fixture.P;
+import static vsr.cobalt.planner.search.Fixture.precursorActionProvider;
+import static vsr.cobalt.planner.search.Fixture.propertyProvisionProvider;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class EnablingCostHeuristicTest {
+
+  private static EnablingCostHeuristic heuristic(final EnablingCostHeuristic.Combination combination) {
+    return new EnablingCostHeuristic(precursorActionProvider(), propertyProvisionProvider(), combination);
+  }
+
+  @Test
+  public static class Estimate {
+
+    @Test
+    public void returnZeroForEnabledAction() {
+      assertEquals(heuristic(EnablingCostHeuristic.Combination.MAX).estimate(A0), 0);
+    }
+
+    @Test
+    public void countLevelsOfPrecursorChain() {
+      final EnablingCostHeuristic h = heuristic(EnablingCostHeuristic.Combination.MAX);
+      assertEquals(h.estimate(A1), 1);
+      assertEquals(h.estimate(A2), 2);
+      assertEquals(h.estimate(B1), 1);
+    }
+
+    @Test
+    public void returnInfiniteForActionWhichCannotBeEnabled() {
+      final Action a = make(aMinimalAction()
+          .withPre(aPropositionSet().withFilled(P)));
+      assertEquals(heuristic(EnablingCostHeuristic.Combination.MAX).estimate(a), EnablingCostHeuristic.INFINITE);
+    }
+
+    @Test
+    public void useMaximumOfActions() {
+      assertEquals(heuristic(EnablingCostHeuristic.Combination.MAX).estimate(setOf(A1, A2)), 2);
+    }
+
+    @Test
+    public void useSumOfActions() {
+      assertEquals(heuristic(EnablingCostHeuristic.Combination.ADD).estimate(setOf(A1, A2)), 3);
+    }
+
+    @Test
+    public void exploreActionsOnlyOnce() {
+      final PrecursorActionProvider pap = precursorActionProvider();
+      final EnablingCostHeuristic h = new EnablingCostHeuristic(pap, propertyProvisionProvider(),
+          EnablingCostHeuristic.Combination.MAX);
+      h.estimate(A2);
+      h.estimate(A2);
+      h.estimate(B1);
+      verify(pap, times(1)).getPrecursorActionsFor(B1);
+    }
+
+    @Test
+    public void reuseCostsOfEntirelyExploredActions() {
+      final EnablingCostHeuristic h = heuristic(EnablingCostHeuristic.Combination.ADD);
+      assertEquals(h.estimate(B1), 1);
+      assertEquals(h.estimate(A2), 2);
+      assertEquals(h.estimate(A1), 1);
+    }
+
+    @Test
+    public void estimateConcurrently() throws Exception {
+      final EnablingCostHeuristic h = heuristic(EnablingCostHeuristic.Combination.MAX);
+      final ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        final List<Future<Integer>> fs = new ArrayList<>();
+        for (int i = 0; i < 16; i += 1) {
+          fs.add(executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+              return h.estimate(A2);
+            }
+          }));
+        }
+        for (final Future<Integer> f : fs) {
+          assertEquals(f.get().intValue(), 2);
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+  }
+
+  @Test
+  public static class EstimateWithinBound {
+
+    @Test
+    public void returnEstimateBelowBound() {
+      assertEquals(heuristic(EnablingCostHeuristic.Combination.MAX).estimate(A2, 3), 2);
+    }
+
+    @Test
+    public void capEstimateAtBound() {
+      assertEquals(heuristic(EnablingCostHeuristic.Combination.MAX).estimate(A2, 1), 1);
+    }
+
+    @Test
+    public void doNotExploreActionsBeyondBound() {
+      final PrecursorActionProvider pap = precursorActionProvider();
+      final EnablingCostHeuristic h = new EnablingCostHeuristic(pap, propertyProvisionProvider(),
+          EnablingCostHeuristic.Combination.MAX);
+      h.estimate(A2, 1);
+      verify(pap, never()).getPrecursorActionsFor(B1);
+    }
+
+    @Test
+    public void returnInfiniteForActionWhichCannotBeEnabled() {
+      final Action a = make(aMinimalAction()
+          .withPre(aPropositionSet().withFilled(P)));
+      assertEquals(heuristic(EnablingCostHeuristic.Combination.MAX).estimate(a, 1), EnablingCostHeuristic.INFINITE);
+    }
+
+    @Test
+    public void returnExactEstimateAfterBoundedEstimate() {
+      final EnablingCostHeuristic h = heuristic(EnablingCostHeuristic.Combination.MAX);
+      h.estimate(A2, 1);
+      assertEquals(h.estimate(A2), 2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting bound >= 0")
+    public void rejectNegativeBound() {
+      heuristic(EnablingCostHeuristic.Combination.MAX).estimate(A2, -1);
+    }
+
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
+import vsr.cobalt.planner.extenders.providers.PropertyProvisionProvider;
+import vsr.cobalt.planner.graph.PropertyProvision;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.testing.Utilities.emptySet;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+/**
+ * A functionality realized by two actions: {@link #A1} is enabled by the enabled precursor {@link #A0}, whereas
+ * {@link #A2} requires the precursor {@link #B1}, which in turn is enabled by the enabled precursor {@link #B0}.
+ */
+final class Fixture {
+
+  static final Functionality F = make(aMinimalFunctionality());
+
+  static final Property P = make(aMinimalProperty().withName("p"));
+
+  static final Property Q = make(aMinimalProperty().withName("q"));
+
+  static final Property R = make(aMinimalProperty().withName("r"));
+
+  static final Action A0 = make(aMinimalAction()
+      .withEffects(aPropositionSet().withCleared(P)));
+
+  static final Action A1 = make(aMinimalAction()
+      .withFunctionality(F)
+      .withPre(aPropositionSet().withCleared(P)));
+
+  static final Action B0 = make(aMinimalAction()
+      .withEffects(aPropositionSet().withCleared(R)));
+
+  static final Action B1 = make(aMinimalAction()
+      .withPre(aPropositionSet().withCleared(R))
+      .withEffects(aPropositionSet().withCleared(Q)));
+
+  static final Action A2 = make(aMinimalAction()
+      .withFunctionality(F)
+      .withPre(aPropositionSet().withCleared(Q)));
+
+  private Fixture() {
+  }
+
+  static PrecursorActionProvider precursorActionProvider() {
+    final PrecursorActionProvider pap = mock(PrecursorActionProvider.class);
+    when(pap.getPrecursorActionsFor(any(Action.class))).thenReturn(emptySet(Action.class));
+    when(pap.getPrecursorActionsFor(A1)).thenReturn(setOf(A0));
+    when(pap.getPrecursorActionsFor(A2)).thenReturn(setOf(B1));
+    when(pap.getPrecursorActionsFor(B1)).thenReturn(setOf(B0));
+    return pap;
+  }
+
+  static PropertyProvisionProvider propertyProvisionProvider() {
+    final PropertyProvisionProvider ppp = mock(PropertyProvisionProvider.class);
+    when(ppp.getProvisionsFor(anySetOf(Property.class))).thenReturn(emptySet(PropertyProvision.class));
+    return ppp;
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.planner.GraphFactory;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.extenders.CyclicDependencyDetector;
+import vsr.cobalt.planner.extenders.DefaultGraphExtender;
+import vsr.cobalt.planner.extenders.PathWalkingCyclicDependencyDetector;
+import vsr.cobalt.planner.extractors.BackwardChainingPlanExtractor;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.planner.search.Fixture.A1;
+import static vsr.cobalt.planner.search.Fixture.A2;
+import static vsr.cobalt.planner.search.Fixture.F;
+import static vsr.cobalt.planner.search.Fixture.precursorActionProvider;
+import static vsr.cobalt.planner.search.Fixture.propertyProvisionProvider;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class HeuristicSearchPlannerTest {
+
+  private static final Mashup MASHUP = new Mashup(setOf(F));
+
+  private static final Graph GRAPH = make(aGraph()
+      .withInitialLevel(anInitialLevel()
+          .withProvision(aFunctionalityProvision()
+              .withRequest(F)
+              .withOffer(F)
+              .withProvidingAction(A1))
+          .withProvision(aFunctionalityProvision()
+              .withRequest(F)
+              .withOffer(F)
+              .withProvidingAction(A2))));
+
+  private static DefaultGraphExtender extender() {
+    final CyclicDependencyDetector cdd = new PathWalkingCyclicDependencyDetector();
+    return new DefaultGraphExtender(precursorActionProvider(), propertyProvisionProvider(), cdd);
+  }
+
+  private static HeuristicSearchPlanner planner(final EnablingCostHeuristic.Combination combination,
+                                                final SearchStrategy strategy) throws Exception {
+    final GraphFactory gf = mock(GraphFactory.class);
+    when(gf.createGraph(MASHUP)).thenReturn(GRAPH);
+    final EnablingCostHeuristic h = new EnablingCostHeuristic(precursorActionProvider(), propertyProvisionProvider(),
+        combination);
+    return new HeuristicSearchPlanner(gf, extender(), h, strategy);
+  }
+
+  private static List<Plan> plan(final HeuristicSearchPlanner planner, final int minDepth, final int maxDepth)
+      throws Exception {
+    return Lists.newArrayList(planner.plan(new PlanningProblem(MASHUP, minDepth, maxDepth)));
+  }
+
+  private static List<Integer> depths(final List<Plan> plans) {
+    final List<Integer> ds = Lists.newArrayList();
+    for (final Plan p : plans) {
+      ds.add(p.getGraph().getDepth());
+    }
+    return ds;
+  }
+
+  @Test
+  public static class Plan_ {
+
+    @Test
+    public void findPlansInOrderOfDepthUsingAStar() throws Exception {
+      final HeuristicSearchPlanner hsp = planner(EnablingCostHeuristic.Combination.MAX, SearchStrategy.A_STAR);
+      assertEquals(depths(plan(hsp, 1, 3)), Lists.newArrayList(2, 3));
+    }
+
+    @Test
+    public void findAllPlansUsingGreedySearch() throws Exception {
+      final HeuristicSearchPlanner hsp = planner(EnablingCostHeuristic.Combination.ADD, SearchStrategy.GREEDY);
+      assertEquals(depths(plan(hsp, 1, 3)), Lists.newArrayList(2, 3));
+    }
+
+    @Test
+    public void respectMaximumDepth() throws Exception {
+      final HeuristicSearchPlanner hsp = planner(EnablingCostHeuristic.Combination.MAX, SearchStrategy.A_STAR);
+      assertEquals(depths(plan(hsp, 1, 2)), Lists.newArrayList(2));
+    }
+
+    @Test
+    public void respectMinimumDepth() throws Exception {
+      final HeuristicSearchPlanner hsp = planner(EnablingCostHeuristic.Combination.MAX, SearchStrategy.A_STAR);
+      assertEquals(depths(plan(hsp, 3, 3)), Lists.newArrayList(3));
+    }
+
+    @Test
+    public void findSamePlansAsExtractedFromGraph() throws Exception {
+      final DefaultGraphExtender gx = extender();
+      final Graph g = gx.extendGraph(gx.extendGraph(GRAPH));
+      final Set<Plan> expected = new HashSet<>();
+      final BackwardChainingPlanExtractor x = new BackwardChainingPlanExtractor();
+      expected.addAll(Lists.newArrayList(x.extractPlans(g, 2)));
+      expected.addAll(Lists.newArrayList(x.extractPlans(g, 3)));
+
+      final HeuristicSearchPlanner hsp = planner(EnablingCostHeuristic.Combination.MAX, SearchStrategy.A_STAR);
+      final List<Plan> ps = plan(hsp, 1, 3);
+
+      assertEquals(new HashSet<>(ps), expected);
+      assertTrue(ps.size() == expected.size());
+    }
+
+  }
+
+}
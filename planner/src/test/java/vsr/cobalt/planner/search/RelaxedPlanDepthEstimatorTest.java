@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.search;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.PlanDepthEstimator;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.testng.Assert.assertEquals;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aFunctionality;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.planner.search.Fixture.A0;
+import static vsr.cobalt.planner.search.Fixture.A1;
+import static vsr.cobalt.planner.search.Fixture.A2;
+import static vsr.cobalt.planner.search.Fixture.F;
+import static vsr.cobalt.planner.search.Fixture.P;
+import static vsr.cobalt.planner.search.Fixture.precursorActionProvider;
+import static vsr.cobalt.planner.search.Fixture.propertyProvisionProvider;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class RelaxedPlanDepthEstimatorTest {
+
+  private static RelaxedPlanDepthEstimator estimator() {
+    return new RelaxedPlanDepthEstimator(new EnablingCostHeuristic(precursorActionProvider(),
+        propertyProvisionProvider(), EnablingCostHeuristic.Combination.MAX));
+  }
+
+  private static FunctionalityProvision provision(final Functionality functionality, final Action action) {
+    return make(aFunctionalityProvision()
+        .withProvidingAction(action)
+        .withOffer(functionality)
+        .withRequest(functionality));
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting an admissible heuristic")
+    public void rejectInadmissibleHeuristic() {
+      new RelaxedPlanDepthEstimator(new EnablingCostHeuristic(precursorActionProvider(),
+          propertyProvisionProvider(), EnablingCostHeuristic.Combination.ADD));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting maxDepth >= 1")
+    public void rejectMaxDepthLessThanOne() {
+      new RelaxedPlanDepthEstimator(new EnablingCostHeuristic(precursorActionProvider(),
+          propertyProvisionProvider(), EnablingCostHeuristic.Combination.MAX), 0);
+    }
+
+  }
+
+  @Test
+  public static class EstimateMinDepth {
+
+    @Test
+    public void useCheapestProvisionOfFunctionality() {
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(provision(F, A1), provision(F, A2))));
+
+      assertEquals(estimator().estimateMinDepth(g), 2);
+    }
+
+    @Test
+    public void useMostExpensiveFunctionality() {
+      final Functionality f = make(aFunctionality().withIdentifier("f"));
+      final Action a = make(aMinimalAction().withFunctionality(f));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(provision(F, A2), provision(f, a))));
+
+      assertEquals(estimator().estimateMinDepth(g), 3);
+    }
+
+    @Test
+    public void returnOneWhenAllProvidingActionsAreEnabled() {
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(provision(F, make(aMinimalAction()
+              .withFunctionality(F)
+              .withEffects(A0.getEffects()))))));
+
+      assertEquals(estimator().estimateMinDepth(g), 1);
+    }
+
+    @Test
+    public void returnUnreachableWhenFunctionalityCannotBeEnabled() {
+      final Action a = make(aMinimalAction()
+          .withFunctionality(F)
+          .withPre(aPropositionSet().withFilled(P)));
+
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(provision(F, a))));
+
+      assertEquals(estimator().estimateMinDepth(g), PlanDepthEstimator.UNREACHABLE);
+    }
+
+    @Test
+    public void exceedMaxDepthWhenProvidingActionsRequireMoreLevels() {
+      final Graph g = make(aGraph()
+          .withInitialLevel(anInitialLevel().withProvision(provision(F, A2))));
+
+      final RelaxedPlanDepthEstimator e = new RelaxedPlanDepthEstimator(new EnablingCostHeuristic(
+          precursorActionProvider(), propertyProvisionProvider(), EnablingCostHeuristic.Combination.MAX), 1);
+
+      assertEquals(e.estimateMinDepth(g), 2);
+    }
+
+  }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.planner.graph.ExtensionLevel;
+import vsr.cobalt.planner.graph.Graph;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aFunctionality;
+import static vsr.cobalt.models.makers.InteractionMaker.anInteraction;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.planner.graph.makers.PropertyProvisionMaker.aPropertyProvision;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class GraphSnapshotTest {
+
+  private static final Functionality f = make(aFunctionality().withIdentifier(URI.create("urn:f")));
+
+  private static final Functionality g = make(aFunctionality().withIdentifier("g"));
+
+  private static final Property p1 = make(aMinimalProperty().withName("p1"));
+
+  private static final Property p2 = make(aMinimalProperty().withName("p2"));
+
+  private static final Property p3 = make(aMinimalProperty().withName("p3"));
+
+  private static final Widget w = make(aMinimalWidget()
+      .withIdentifier(URI.create("urn:w"))
+      .withPublic(p2));
+
+  private static final Action a1 = make(aMinimalAction()
+      .withWidget(w)
+      .withFunctionality(f)
+      .withInteraction(anInteraction().withInstruction("click"))
+      .withPre(aPropositionSet()
+          .withCleared(p1)
+          .withFilled(p2)));
+
+  private static final Action a2 = make(aMinimalAction()
+      .withWidget(w)
+      .withFunctionality(g));
+
+  private static final Action composite = Action.compose(a1, a2);
+
+  private static final Action precursor1 = make(aMinimalAction()
+      .withWidget(w)
+      .withEffects(aPropositionSet().withCleared(p1)));
+
+  private static final Action precursor2 = make(aMinimalAction()
+      .withWidget(w)
+      .withEffects(aPropositionSet().withCleared(p1, p3)));
+
+  private static final Action provider = make(aMinimalAction()
+      .withWidget(w)
+      .withEffects(aPropositionSet().withFilled(p2)));
+
+  private static final Graph graph = make(aGraph()
+      .withInitialLevel(anInitialLevel()
+          .withProvision(aFunctionalityProvision()
+              .withProvidingAction(composite)
+              .withOffer(f)
+              .withRequest(f)))
+      .withExtensionLevel(anExtensionLevel()
+          .withProvision(anActionProvision()
+              .withRequest(composite)
+              .withPrecursor(precursor1)
+              .withProvision(aPropertyProvision()
+                  .withProvidingAction(provider)
+                  .withRequest(p2)
+                  .withOffer(p2)))
+          .withProvision(anActionProvision()
+              .withRequest(composite)
+              .withPrecursor(precursor2)
+              .withProvision(aPropertyProvision()
+                  .withProvidingAction(provider)
+                  .withRequest(p2)
+                  .withOffer(p2)))));
+
+  private static byte[] write(final Graph graph) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GraphSnapshotWriter.write(graph, out);
+    return out.toByteArray();
+  }
+
+  private static Graph read(final byte[] bytes) throws IOException {
+    return new GraphSnapshotReader(ByteBuffer.wrap(bytes)).readGraph();
+  }
+
+  @Test
+  public static class Write {
+
+    @Test(expectedExceptions = IllegalStateException.class,
+        expectedExceptionsMessageRegExp = "expecting an initial level")
+    public void rejectExtensionLevelBeforeInitialLevel() throws Exception {
+      final GraphSnapshotWriter w = new GraphSnapshotWriter(new ByteArrayOutputStream());
+      w.writeExtensionLevel(graph.getLastExtensionLevel());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class,
+        expectedExceptionsMessageRegExp = "initial level already written")
+    public void rejectSecondInitialLevel() throws Exception {
+      final GraphSnapshotWriter w = new GraphSnapshotWriter(new ByteArrayOutputStream());
+      w.writeInitialLevel(graph.getInitialLevel());
+      w.writeInitialLevel(graph.getInitialLevel());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class,
+        expectedExceptionsMessageRegExp = "snapshot already finished")
+    public void rejectLevelsAfterFinish() throws Exception {
+      final GraphSnapshotWriter w = new GraphSnapshotWriter(new ByteArrayOutputStream());
+      w.writeInitialLevel(graph.getInitialLevel());
+      w.finish();
+      w.writeExtensionLevel(graph.getLastExtensionLevel());
+    }
+
+  }
+
+  @Test
+  public static class ReadGraph {
+
+    @Test
+    public void returnEqualGraph() throws Exception {
+      assertEquals(read(write(graph)), graph);
+    }
+
+    @Test
+    public void returnEqualMinimalGraph() throws Exception {
+      final Graph g = make(aMinimalGraph());
+      assertEquals(read(write(g)), g);
+    }
+
+    @Test
+    public void keepCompositeActions() throws Exception {
+      final Graph g = read(write(graph));
+      final Action a = g.getInitialLevel().getFunctionalityProvisions().iterator().next().getProvidingAction();
+      assertEquals(a.getAtomicActions(), composite.getAtomicActions());
+    }
+
+    @Test
+    public void decodeExtensionLevelsLazily() throws Exception {
+      final Graph g = read(write(graph));
+      final ExtensionLevel xl = g.getLastExtensionLevel();
+      assertFalse(xl.isMaterialized());
+      assertEquals(xl.getActionProvisionsByRequestedAction(composite),
+          graph.getLastExtensionLevel().getActionProvisionsByRequestedAction(composite));
+    }
+
+    @Test
+    public void readMappedFile() throws Exception {
+      final Path path = Files.createTempFile("graph", ".snapshot");
+      try {
+        try (final OutputStream out = Files.newOutputStream(path)) {
+          GraphSnapshotWriter.write(graph, out);
+        }
+        assertEquals(GraphSnapshotReader.map(path).readGraph(), graph);
+      } finally {
+        Files.delete(path);
+      }
+    }
+
+    @Test(expectedExceptions = IOException.class,
+        expectedExceptionsMessageRegExp = "unsupported snapshot version 2")
+    public void rejectUnsupportedVersion() throws Exception {
+      final byte[] bs = write(graph);
+      bs[7] = 2;
+      read(bs);
+    }
+
+    @Test(expectedExceptions = IOException.class,
+        expectedExceptionsMessageRegExp = "not a graph snapshot")
+    public void rejectUnfinishedSnapshot() throws Exception {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new GraphSnapshotWriter(out).writeInitialLevel(graph.getInitialLevel());
+      read(out.toByteArray());
+    }
+
+  }
+
+}
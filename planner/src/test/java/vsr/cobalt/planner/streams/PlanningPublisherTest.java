@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.planner.streams;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.CloseablePlanIterator;
+import vsr.cobalt.planner.MashupPlanner;
+import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.WidgetConstraints;
+import vsr.cobalt.planner.graph.Graph;
+
+import static java.util.Arrays.asList;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.MashupMaker.aMinimalMashup;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.models.makers.WidgetMaker.aMinimalWidget;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+
+@Test
+public class PlanningPublisherTest {
+
+  private static final Mashup MASHUP = make(aMinimalMashup());
+
+  private static final Plan P1 = plan("f1");
+
+  private static final Plan P2 = plan("f2");
+
+  private static Plan plan(final String identifier) {
+    final Functionality f = make(aMinimalFunctionality().withIdentifier(identifier));
+    return new Plan(make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withRequest(f)
+                .withOffer(f)
+                .withProvidingAction(aMinimalAction().withFunctionality(f))))));
+  }
+
+  /**
+   * Create a planner with a satisfied graph of depth 1, providing the given plans.
+   */
+  private static MashupPlanner planner(final Plan... plans) throws Exception {
+    final Graph g = make(aMinimalGraph());
+    final MashupPlanner mp = mock(MashupPlanner.class);
+    when(mp.createGraph(MASHUP)).thenReturn(g);
+    when(mp.extractPlans(g, 1)).thenReturn(Iterators.forArray(plans));
+    return mp;
+  }
+
+  private static PlanningPublisher publisher(final MashupPlanner planner, final Executor executor) {
+    return new PlanningPublisher(planner, new PlanningProblem(MASHUP, 1, 2), executor);
+  }
+
+  private static Executor sameThreadExecutor() {
+    return MoreExecutors.sameThreadExecutor();
+  }
+
+  /**
+   * Records all signals.
+   */
+  private static class RecordingSubscriber implements Subscriber<Plan> {
+
+    private final List<Plan> plans = new ArrayList<>();
+
+    private Subscription subscription;
+
+    private Throwable error;
+
+    private int completions;
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(final Plan plan) {
+      plans.add(plan);
+    }
+
+    @Override
+    public void onError(final Throwable error) {
+      this.error = error;
+    }
+
+    @Override
+    public void onComplete() {
+      completions += 1;
+    }
+
+  }
+
+  /**
+   * Runs tasks only when asked to.
+   */
+  private static class QueueingExecutor implements Executor {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(final Runnable task) {
+      tasks.add(task);
+    }
+
+    public void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove().run();
+      }
+    }
+
+  }
+
+  @Test
+  public static class Subscribe {
+
+    @Test(expectedExceptions = NullPointerException.class,
+        expectedExceptionsMessageRegExp = "expecting subscriber")
+    public void rejectNullSubscriber() {
+      publisher(null, sameThreadExecutor()).subscribe(null);
+    }
+
+    @Test
+    public void doNotPlanBeforeRequest() throws Exception {
+      final MashupPlanner mp = planner(P1);
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(mp, sameThreadExecutor()).subscribe(s);
+      verify(mp, never()).createGraph(any(Mashup.class));
+    }
+
+    @Test
+    public void signalErrorToSecondSubscriber() throws Exception {
+      final PlanningPublisher pp = publisher(planner(P1), sameThreadExecutor());
+      final RecordingSubscriber s1 = new RecordingSubscriber();
+      final RecordingSubscriber s2 = new RecordingSubscriber();
+      pp.subscribe(s1);
+      pp.subscribe(s2);
+      assertEquals(s2.error.getMessage(), "expecting single subscriber");
+    }
+
+  }
+
+  @Test
+  public static class Request {
+
+    @Test
+    public void deliverOnlyRequestedPlans() throws Exception {
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(planner(P1, P2), sameThreadExecutor()).subscribe(s);
+      s.subscription.request(1);
+      assertEquals(s.plans, asList(P1));
+      s.subscription.request(1);
+      assertEquals(s.plans, asList(P1, P2));
+      assertEquals(s.completions, 0);
+    }
+
+    @Test
+    public void completeWhenNoMorePlans() throws Exception {
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(planner(P1, P2), sameThreadExecutor()).subscribe(s);
+      s.subscription.request(Long.MAX_VALUE);
+      assertEquals(s.plans, asList(P1, P2));
+      assertEquals(s.completions, 1);
+    }
+
+    @Test
+    public void accumulateDemandWhenRequestedWhileDelivering() throws Exception {
+      final List<Plan> ps = new ArrayList<>();
+      publisher(planner(P1, P2), sameThreadExecutor()).subscribe(new RecordingSubscriber() {
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+          this.subscription = subscription;
+          subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final Plan plan) {
+          ps.add(plan);
+          subscription.request(1);
+        }
+      });
+      assertEquals(ps, asList(P1, P2));
+    }
+
+    @Test
+    public void runOnExecutor() throws Exception {
+      final QueueingExecutor x = new QueueingExecutor();
+      final MashupPlanner mp = planner(P1);
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(mp, x).subscribe(s);
+      s.subscription.request(1);
+      verify(mp, never()).createGraph(any(Mashup.class));
+      x.runAll();
+      assertEquals(s.plans, asList(P1));
+    }
+
+    @Test
+    public void signalErrorWhenRequestingLessThanOne() throws Exception {
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(planner(P1), sameThreadExecutor()).subscribe(s);
+      s.subscription.request(0);
+      assertEquals(s.error.getMessage(), "expecting n >= 1");
+      assertTrue(s.plans.isEmpty());
+    }
+
+    @Test
+    public void signalErrorWhenPlannerThrows() throws Exception {
+      final PlanningException ex = new PlanningException();
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.createGraph(MASHUP)).thenThrow(ex);
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(mp, sameThreadExecutor()).subscribe(s);
+      s.subscription.request(1);
+      assertEquals(s.error, ex);
+    }
+
+    @Test
+    public void deliverNothingAfterCancel() throws Exception {
+      final MashupPlanner mp = planner(P1, P2);
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(mp, sameThreadExecutor()).subscribe(s);
+      s.subscription.request(1);
+      s.subscription.cancel();
+      s.subscription.request(1);
+      assertEquals(s.plans, asList(P1));
+      assertEquals(s.completions, 0);
+    }
+
+    @Test
+    public void closePlansWhenCancelled() throws Exception {
+      final CloseablePlanIterator it = mock(CloseablePlanIterator.class);
+      when(it.hasNext()).thenReturn(true);
+      when(it.next()).thenReturn(P1);
+
+      final Graph g = make(aMinimalGraph());
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.createGraph(MASHUP)).thenReturn(g);
+      when(mp.extractPlans(g, 1)).thenReturn(it);
+
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(mp, sameThreadExecutor()).subscribe(s);
+      s.subscription.request(1);
+      verify(it, never()).close();
+
+      s.subscription.cancel();
+      verify(it).close();
+    }
+
+    @Test
+    public void skipPlansExceedingWidgetBudget() throws Exception {
+      final Functionality f1 = make(aMinimalFunctionality().withIdentifier("f1"));
+      final Functionality f2 = make(aMinimalFunctionality().withIdentifier("f2"));
+
+      // uses two widgets
+      final Plan p = new Plan(make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f1)
+                  .withOffer(f1)
+                  .withProvidingAction(aMinimalAction()
+                      .withWidget(aMinimalWidget().withIdentifier("w1"))
+                      .withFunctionality(f1)))
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f2)
+                  .withOffer(f2)
+                  .withProvidingAction(aMinimalAction()
+                      .withWidget(aMinimalWidget().withIdentifier("w2"))
+                      .withFunctionality(f2))))));
+
+      final WidgetConstraints wc = new WidgetConstraints(ImmutableSet.<Identifier>of(),
+          ImmutableSet.<Identifier>of(), 1);
+
+      final RecordingSubscriber s = new RecordingSubscriber();
+      new PlanningPublisher(planner(p, P1), new PlanningProblem(MASHUP, 1, 1, wc), sameThreadExecutor())
+          .subscribe(s);
+      s.subscription.request(Long.MAX_VALUE);
+      assertEquals(s.plans, asList(P1));
+      assertEquals(s.completions, 1);
+    }
+
+    @Test
+    public void extendGraphOnlyWhenPlansOfNextDepthAreRequested() throws Exception {
+      final Functionality f = make(aMinimalFunctionality());
+      final Property p = make(aMinimalProperty());
+
+      // not satisfied, hence extendable
+      final Graph g1 = make(aGraph()
+          .withInitialLevel(anInitialLevel()
+              .withProvision(aFunctionalityProvision()
+                  .withRequest(f)
+                  .withOffer(f)
+                  .withProvidingAction(aMinimalAction()
+                      .withFunctionality(f)
+                      .withPre(aPropositionSet().withCleared(p))))));
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.createGraph(MASHUP)).thenReturn(g1);
+      when(mp.extractPlans(any(Graph.class), anyInt())).thenReturn(Iterators.forArray(P1));
+      final RecordingSubscriber s = new RecordingSubscriber();
+      publisher(mp, sameThreadExecutor()).subscribe(s);
+      s.subscription.request(1);
+      verify(mp, never()).extendGraph(any(Graph.class));
+      assertFalse(s.plans.isEmpty());
+    }
+
+  }
+
+}
@@ -18,6 +18,7 @@ import vsr.cobalt.models.RealizedFunctionality;
 import vsr.cobalt.models.Type;
 import vsr.cobalt.models.Widget;
 import vsr.cobalt.planner.Repository;
+import vsr.cobalt.repository.semantic.catalog.OffHeapActionCatalog;
 import vsr.cobalt.repository.semantic.finders.CompatibleResourceFinder;
 import vsr.cobalt.repository.semantic.finders.RequestOfferDistanceFinder;
 import vsr.cobalt.repository.semantic.finders.WidgetActionFinder;
@@ -49,6 +50,19 @@ public class SemanticRepository implements Repository {
     compatibleResourceFinder = new CompatibleResourceFinder(dataset, cacheSize);
   }
 
+  /**
+   * Create a semantic repository keeping the actions of all widgets in an off-heap catalog.
+   *
+   * @param dataset   a transactional dataset
+   * @param cacheSize the cache size of offers and distances
+   * @param catalog   a catalog of widget actions
+   */
+  public SemanticRepository(final Dataset dataset, final int cacheSize, final OffHeapActionCatalog catalog) {
+    widgetActionFinder = new WidgetActionFinder(dataset, catalog);
+    requestOfferDistanceFinder = new RequestOfferDistanceFinder(dataset, cacheSize);
+    compatibleResourceFinder = new CompatibleResourceFinder(dataset, cacheSize);
+  }
+
   /**
    * Create a semantic repository using the default cache size {@link #DEFAULT_CACHE_SIZE}.
    *
@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.repository.semantic.catalog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Interaction;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.Proposition;
+import vsr.cobalt.models.PropositionSet;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.repository.semantic.utils.CappedLinkedHashMap;
+
+/**
+ * Keeps the actions of widgets as fixed-layout records in direct byte buffers, outside of the garbage collected heap.
+ * <p/>
+ * The records of a widget have the same layout and are stored contiguously:
+ * <pre>
+ * record := widget:int preFilled:long[words] preCleared:long[words] effectsFilled:long[words]
+ *           effectsCleared:long[words] functionalityCount:short interactionCount:short
+ *           functionality:int[maxFunctionalities] interaction:int[maxInteractions]
+ * </pre>
+ * Pre-conditions and effects are bitsets over the properties used by the widget's actions, and {@code words} is the
+ * number of longs needed for all of them. Widgets, properties, functionalities and interactions are kept on the heap
+ * once, and are referenced by their identifiers.
+ * <p/>
+ * Actions are created from their records when asked for. Planners ask for the actions of the same widgets over and
+ * over while building a graph, so the actions of recently decoded widgets are kept on the heap, up to a capped number
+ * of widgets.
+ *
+ * @author Erik Wienhold
+ */
+public class OffHeapActionCatalog {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+  public static final int DEFAULT_DECODED_CAPACITY = 32;
+
+  private final int segmentSize;
+
+  /**
+   * Direct buffers holding the records, the last one receiving new records.
+   */
+  private final List<ByteBuffer> segments = new ArrayList<>();
+
+  private final Dictionary<Widget> widgets = new Dictionary<>();
+
+  private final Dictionary<Property> properties = new Dictionary<>();
+
+  private final Dictionary<Functionality> functionalities = new Dictionary<>();
+
+  private final Dictionary<Interaction> interactions = new Dictionary<>();
+
+  private final Map<Widget, Entry> entries = new HashMap<>();
+
+  /**
+   * The actions of recently decoded widgets.
+   */
+  private final Map<Widget, Set<Action>> decoded;
+
+  private int actionCount;
+
+  /**
+   * @param segmentSize     the size of each direct buffer, records of a widget needing more space get their own
+   *                        buffer
+   * @param decodedCapacity the maximum number of widgets whose decoded actions are kept on the heap
+   */
+  public OffHeapActionCatalog(final int segmentSize, final int decodedCapacity) {
+    if (segmentSize < 1) {
+      throw new IllegalArgumentException("expecting positive segment size");
+    }
+    this.segmentSize = segmentSize;
+    decoded = new CappedLinkedHashMap<>(decodedCapacity);
+  }
+
+  /**
+   * Create a catalog keeping the decoded actions of up to {@link #DEFAULT_DECODED_CAPACITY} widgets.
+   *
+   * @param segmentSize the size of each direct buffer, records of a widget needing more space get their own buffer
+   */
+  public OffHeapActionCatalog(final int segmentSize) {
+    this(segmentSize, DEFAULT_DECODED_CAPACITY);
+  }
+
+  /**
+   * Create a catalog using the default segment size {@link #DEFAULT_SEGMENT_SIZE}.
+   */
+  public OffHeapActionCatalog() {
+    this(DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * @return the number of widgets in the catalog
+   */
+  public synchronized int getWidgetCount() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of actions in the catalog
+   */
+  public synchronized int getActionCount() {
+    return actionCount;
+  }
+
+  /**
+   * @return the number of bytes allocated outside of the heap
+   */
+  public synchronized long getAllocatedBytes() {
+    long n = 0;
+    for (final ByteBuffer s : segments) {
+      n += s.capacity();
+    }
+    return n;
+  }
+
+  /**
+   * @param widget a widget
+   *
+   * @return true when the catalog contains the widget's actions, false otherwise
+   */
+  public synchronized boolean containsWidget(final Widget widget) {
+    return entries.containsKey(widget);
+  }
+
+  /**
+   * Get the actions of a widget, creating each action from its record unless recently decoded.
+   *
+   * @param widget a widget
+   *
+   * @return the widget's actions, which may be shared and must not be modified, null when the widget is not in the
+   * catalog
+   */
+  public synchronized Set<Action> getWidgetActions(final Widget widget) {
+    Set<Action> as = decoded.get(widget);
+    if (as != null) {
+      return as;
+    }
+    final Entry e = entries.get(widget);
+    if (e == null) {
+      return null;
+    }
+    as = new HashSet<>();
+    for (int i = 0; i < e.count; i += 1) {
+      as.add(readAction(e, e.offset + i * e.recordSize));
+    }
+    decoded.put(widget, as);
+    return as;
+  }
+
+  /**
+   * Add the actions of a widget.
+   *
+   * @param widget  a widget not in the catalog
+   * @param actions a set of atomic actions of the widget
+   */
+  public synchronized void putWidgetActions(final Widget widget, final Set<Action> actions) {
+    if (entries.containsKey(widget)) {
+      throw new IllegalArgumentException("widget already in catalog");
+    }
+
+    final List<Integer> ps = new ArrayList<>();
+    final Map<Property, Integer> bits = new HashMap<>();
+    int maxFunctionalities = 0;
+    int maxInteractions = 0;
+    for (final Action a : actions) {
+      if (!a.getWidget().equals(widget)) {
+        throw new IllegalArgumentException("expecting actions of the given widget");
+      }
+      if (a.getAtomicActions().size() != 1 || !a.getAtomicActions().contains(a)) {
+        throw new IllegalArgumentException("expecting atomic actions");
+      }
+      addBits(a.getPreConditions(), bits, ps);
+      addBits(a.getEffects(), bits, ps);
+      maxFunctionalities = Math.max(maxFunctionalities, a.getRealizedFunctionalities().size());
+      maxInteractions = Math.max(maxInteractions, a.getInteractions().size());
+    }
+
+    final int words = (ps.size() + 63) / 64;
+    final int recordSize = 4 + 4 * 8 * words + 2 + 2 + 4 * maxFunctionalities + 4 * maxInteractions;
+    final int[] propertyIds = new int[ps.size()];
+    for (int i = 0; i < propertyIds.length; i += 1) {
+      propertyIds[i] = ps.get(i);
+    }
+
+    final int widgetId = widgets.getId(widget);
+    if (actions.isEmpty()) {
+      entries.put(widget, new Entry(-1, 0, 0, recordSize, words, maxFunctionalities, propertyIds));
+      return;
+    }
+    final ByteBuffer segment = allocate(recordSize * actions.size());
+    final Entry e = new Entry(segments.size() - 1, segment.position(), actions.size(), recordSize, words,
+        maxFunctionalities, propertyIds);
+
+    int offset = e.offset;
+    for (final Action a : actions) {
+      writeAction(segment, offset, widgetId, words, maxFunctionalities, bits, a);
+      offset += recordSize;
+    }
+    segment.position(offset);
+
+    entries.put(widget, e);
+    actionCount += actions.size();
+  }
+
+  private void addBits(final PropositionSet propositions, final Map<Property, Integer> bits,
+                       final List<Integer> propertyIds) {
+    for (final Proposition p : propositions) {
+      if (!bits.containsKey(p.getProperty())) {
+        bits.put(p.getProperty(), propertyIds.size());
+        propertyIds.add(properties.getId(p.getProperty()));
+      }
+    }
+  }
+
+  /**
+   * Get a segment with enough remaining space, positioned at the start of that space.
+   *
+   * @param size the number of bytes needed
+   *
+   * @return a segment
+   */
+  private ByteBuffer allocate(final int size) {
+    if (!segments.isEmpty()) {
+      final ByteBuffer last = segments.get(segments.size() - 1);
+      if (last.remaining() >= size) {
+        return last;
+      }
+    }
+    final ByteBuffer s = ByteBuffer.allocateDirect(Math.max(size, segmentSize));
+    segments.add(s);
+    return s;
+  }
+
+  private void writeAction(final ByteBuffer segment, final int offset, final int widgetId, final int words,
+                           final int maxFunctionalities, final Map<Property, Integer> bits, final Action action) {
+    int p = offset;
+    segment.putInt(p, widgetId);
+    p += 4;
+    p = writeBitsets(segment, p, words, bits, action.getPreConditions());
+    p = writeBitsets(segment, p, words, bits, action.getEffects());
+    segment.putShort(p, (short) action.getRealizedFunctionalities().size());
+    segment.putShort(p + 2, (short) action.getInteractions().size());
+    p += 4;
+    int i = 0;
+    for (final Functionality f : action.getRealizedFunctionalities()) {
+      segment.putInt(p + 4 * i, functionalities.getId(f));
+      i += 1;
+    }
+    p += 4 * maxFunctionalities;
+    i = 0;
+    for (final Interaction x : action.getInteractions()) {
+      segment.putInt(p + 4 * i, interactions.getId(x));
+      i += 1;
+    }
+  }
+
+  /**
+   * Write the filled and the cleared bitset of a proposition set.
+   *
+   * @return the offset after both bitsets
+   */
+  private static int writeBitsets(final ByteBuffer segment, final int offset, final int words,
+                                  final Map<Property, Integer> bits, final PropositionSet propositions) {
+    final long[] filled = new long[words];
+    final long[] cleared = new long[words];
+    for (final Proposition p : propositions) {
+      final int bit = bits.get(p.getProperty());
+      final long[] set = p.isFilled() ? filled : cleared;
+      set[bit / 64] |= 1L << (bit % 64);
+    }
+    int p = offset;
+    for (final long w : filled) {
+      segment.putLong(p, w);
+      p += 8;
+    }
+    for (final long w : cleared) {
+      segment.putLong(p, w);
+      p += 8;
+    }
+    return p;
+  }
+
+  private Action readAction(final Entry entry, final int offset) {
+    final ByteBuffer segment = segments.get(entry.segment);
+    final Widget w = widgets.get(segment.getInt(offset));
+    int p = offset + 4;
+    final PropositionSet pre = readBitsets(segment, p, entry);
+    p += 2 * 8 * entry.words;
+    final PropositionSet effects = readBitsets(segment, p, entry);
+    p += 2 * 8 * entry.words;
+    final int nf = segment.getShort(p);
+    final int ni = segment.getShort(p + 2);
+    p += 4;
+    final Set<Functionality> fs = new HashSet<>();
+    for (int i = 0; i < nf; i += 1) {
+      fs.add(functionalities.get(segment.getInt(p + 4 * i)));
+    }
+    p += 4 * entry.maxFunctionalities;
+    final Set<Interaction> is = new HashSet<>();
+    for (int i = 0; i < ni; i += 1) {
+      is.add(interactions.get(segment.getInt(p + 4 * i)));
+    }
+    return Action.create(w, pre, effects, fs, is);
+  }
+
+  private PropositionSet readBitsets(final ByteBuffer segment, final int offset, final Entry entry) {
+    final Set<Proposition> ps = new HashSet<>();
+    for (int i = 0; i < entry.words; i += 1) {
+      addPropositions(ps, segment.getLong(offset + 8 * i), 64 * i, true, entry);
+      addPropositions(ps, segment.getLong(offset + 8 * (entry.words + i)), 64 * i, false, entry);
+    }
+    return new PropositionSet(ps);
+  }
+
+  private void addPropositions(final Set<Proposition> propositions, final long word, final int base,
+                               final boolean filled, final Entry entry) {
+    long w = word;
+    while (w != 0) {
+      final int bit = Long.numberOfTrailingZeros(w);
+      propositions.add(new Proposition(properties.get(entry.properties[base + bit]), filled));
+      w &= w - 1;
+    }
+  }
+
+  /**
+   * The location and layout of a widget's records.
+   */
+  private static class Entry {
+
+    public final int segment;
+
+    public final int offset;
+
+    public final int count;
+
+    public final int recordSize;
+
+    public final int words;
+
+    public final int maxFunctionalities;
+
+    /**
+     * The property identifiers of each bit.
+     */
+    public final int[] properties;
+
+    public Entry(final int segment, final int offset, final int count, final int recordSize,
+                 final int words, final int maxFunctionalities, final int[] properties) {
+      this.segment = segment;
+      this.offset = offset;
+      this.count = count;
+      this.recordSize = recordSize;
+      this.words = words;
+      this.maxFunctionalities = maxFunctionalities;
+      this.properties = properties;
+    }
+
+  }
+
+  /**
+   * Values with dense identifiers in the order of their first use.
+   *
+   * @param <T> the type of values
+   */
+  private static class Dictionary<T> {
+
+    private final Map<T, Integer> ids = new HashMap<>();
+
+    private final List<T> values = new ArrayList<>();
+
+    public int getId(final T value) {
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = values.size();
+        ids.put(value, id);
+        values.add(value);
+      }
+      return id;
+    }
+
+    public T get(final int id) {
+      return values.get(id);
+    }
+
+  }
+
+}
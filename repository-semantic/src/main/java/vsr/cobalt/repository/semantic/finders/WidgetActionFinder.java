@@ -17,6 +17,7 @@ import com.hp.hpl.jena.rdf.model.Resource;
 import vsr.cobalt.models.Action;
 import vsr.cobalt.models.Widget;
 import vsr.cobalt.repository.semantic.Ontology;
+import vsr.cobalt.repository.semantic.catalog.OffHeapActionCatalog;
 import vsr.cobalt.repository.semantic.internalizers.CachingResourceInternalizers;
 import vsr.cobalt.repository.semantic.utils.CappedLinkedHashMap;
 import vsr.cobalt.repository.semantic.utils.NodeToResourceMapper;
@@ -32,9 +33,27 @@ public class WidgetActionFinder {
 
   private final CappedLinkedHashMap<Widget, Set<Action>> cache;
 
+  /**
+   * A catalog keeping the actions of all found widgets, null when using only the capped cache.
+   */
+  private final OffHeapActionCatalog catalog;
+
   public WidgetActionFinder(final Dataset dataset, final int cacheSize) {
     this.dataset = dataset;
     cache = new CappedLinkedHashMap<>(cacheSize);
+    catalog = null;
+  }
+
+  /**
+   * Create a finder keeping the actions of every found widget in an off-heap catalog instead of a capped cache.
+   *
+   * @param dataset a transactional dataset
+   * @param catalog a catalog of widget actions
+   */
+  public WidgetActionFinder(final Dataset dataset, final OffHeapActionCatalog catalog) {
+    this.dataset = dataset;
+    cache = null;
+    this.catalog = catalog;
   }
 
   public WidgetActionFinder(final Dataset dataset) {
@@ -42,6 +61,10 @@ public class WidgetActionFinder {
   }
 
   public Set<Action> findWidgetActions(final Widget widget) {
+    if (catalog != null) {
+      return findCatalogedWidgetActions(widget);
+    }
+
     Set<Action> actions = cache.get(widget);
 
     if (actions == null) {
@@ -52,6 +75,17 @@ public class WidgetActionFinder {
     return actions;
   }
 
+  private Set<Action> findCatalogedWidgetActions(final Widget widget) {
+    Set<Action> actions = catalog.getWidgetActions(widget);
+
+    if (actions == null) {
+      actions = getWidgetActions(widget);
+      catalog.putWidgetActions(widget, actions);
+    }
+
+    return actions;
+  }
+
   private Set<Action> getWidgetActions(final Widget widget) {
     dataset.begin(ReadWrite.READ);
     try {
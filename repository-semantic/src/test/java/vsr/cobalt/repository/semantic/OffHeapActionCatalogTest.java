@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.repository.semantic;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.models.PropositionSet;
+import vsr.cobalt.models.Widget;
+import vsr.cobalt.repository.semantic.catalog.OffHeapActionCatalog;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.InteractionMaker.anInteraction;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.repository.semantic.Models.functionality;
+import static vsr.cobalt.repository.semantic.Models.property;
+import static vsr.cobalt.repository.semantic.Models.type;
+import static vsr.cobalt.repository.semantic.Models.widget;
+import static vsr.cobalt.testing.Assert.assertEmpty;
+import static vsr.cobalt.testing.Utilities.emptySet;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class OffHeapActionCatalogTest {
+
+  private static final Property p1 = property(1, type(1));
+
+  private static final Property p2 = property(2, type(2));
+
+  private static final Widget w = widget(1, p2);
+
+  private static final Action a1 = make(aMinimalAction()
+      .withWidget(w)
+      .withFunctionality(functionality(1), functionality(2))
+      .withInteraction(anInteraction().withInstruction("i1"))
+      .withPre(aPropositionSet()
+          .withCleared(p1)
+          .withFilled(p2)));
+
+  private static final Action a2 = make(aMinimalAction()
+      .withWidget(w)
+      .withEffects(aPropositionSet()
+          .withCleared(p2)
+          .withFilled(p1)));
+
+  @Test
+  public void returnNullForUnknownWidget() {
+    final OffHeapActionCatalog c = new OffHeapActionCatalog();
+    assertNull(c.getWidgetActions(w));
+    assertFalse(c.containsWidget(w));
+  }
+
+  @Test
+  public void returnEqualActions() {
+    final OffHeapActionCatalog c = new OffHeapActionCatalog();
+    c.putWidgetActions(w, setOf(a1, a2));
+    assertEquals(c.getWidgetActions(w), setOf(a1, a2));
+    assertEquals(c.getActionCount(), 2);
+  }
+
+  @Test
+  public void keepWidgetsWithoutActions() {
+    final OffHeapActionCatalog c = new OffHeapActionCatalog();
+    c.putWidgetActions(w, emptySet(Action.class));
+    assertTrue(c.containsWidget(w));
+    assertEmpty(c.getWidgetActions(w));
+  }
+
+  @Test
+  public void encodePropositionsOfManyProperties() {
+    final Set<Property> cleared = new HashSet<>();
+    final Set<Property> filled = new HashSet<>();
+    for (int i = 0; i < 100; i += 1) {
+      (i % 3 == 0 ? filled : cleared).add(property(i, type(1)));
+    }
+    final Action a = make(aMinimalAction()
+        .withWidget(w)
+        .withPre(new PropositionSet(cleared, filled)));
+
+    final OffHeapActionCatalog c = new OffHeapActionCatalog();
+    c.putWidgetActions(w, setOf(a));
+    assertEquals(c.getWidgetActions(w), setOf(a));
+  }
+
+  @Test
+  public void allocateSegmentForWidgetsExceedingSegmentSize() {
+    final Widget w2 = widget(2);
+    final Action a3 = make(aMinimalAction().withWidget(w2));
+
+    final OffHeapActionCatalog c = new OffHeapActionCatalog(16);
+    c.putWidgetActions(w, setOf(a1, a2));
+    c.putWidgetActions(w2, setOf(a3));
+
+    assertEquals(c.getWidgetActions(w), setOf(a1, a2));
+    assertEquals(c.getWidgetActions(w2), setOf(a3));
+    assertTrue(c.getAllocatedBytes() > 32);
+  }
+
+  @Test
+  public void reuseActionsOfRecentlyDecodedWidget() {
+    final OffHeapActionCatalog c = new OffHeapActionCatalog();
+    c.putWidgetActions(w, setOf(a1, a2));
+    assertSame(c.getWidgetActions(w), c.getWidgetActions(w));
+  }
+
+  @Test
+  public void decodeActionsAgainWhenNoLongerKept() {
+    final Widget w2 = widget(2);
+    final Action a3 = make(aMinimalAction().withWidget(w2));
+
+    final OffHeapActionCatalog c = new OffHeapActionCatalog(OffHeapActionCatalog.DEFAULT_SEGMENT_SIZE, 1);
+    c.putWidgetActions(w, setOf(a1, a2));
+    c.putWidgetActions(w2, setOf(a3));
+
+    final Set<Action> as = c.getWidgetActions(w);
+    assertEquals(c.getWidgetActions(w2), setOf(a3));
+    assertNotSame(c.getWidgetActions(w), as);
+    assertEquals(c.getWidgetActions(w), setOf(a1, a2));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "widget already in catalog")
+  public void rejectWidgetAlreadyInCatalog() {
+    final OffHeapActionCatalog c = new OffHeapActionCatalog();
+    c.putWidgetActions(w, setOf(a1));
+    c.putWidgetActions(w, setOf(a2));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "expecting actions of the given widget")
+  public void rejectActionsOfOtherWidgets() {
+    new OffHeapActionCatalog().putWidgetActions(widget(2), setOf(a1));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "expecting atomic actions")
+  public void rejectCompositeActions() {
+    final Action a = make(aMinimalAction()
+        .withWidget(w)
+        .withFunctionality(functionality(3)));
+    new OffHeapActionCatalog().putWidgetActions(w, setOf(Action.compose(a2, a)));
+  }
+
+}
@@ -19,6 +19,7 @@ import vsr.cobalt.models.Interaction;
 import vsr.cobalt.models.Property;
 import vsr.cobalt.models.Type;
 import vsr.cobalt.models.Widget;
+import vsr.cobalt.repository.semantic.catalog.OffHeapActionCatalog;
 import vsr.cobalt.repository.semantic.finders.WidgetActionFinder;
 import vsr.cobalt.repository.semantic.internalizers.CachingResourceInternalizers;
 
@@ -91,6 +92,18 @@ public class WidgetActionFinderTest {
     assertEquals(a, x);
   }
 
+  @Test
+  public void keepActionsInCatalog() {
+    final Widget w = widget(1);
+    final OffHeapActionCatalog c = new OffHeapActionCatalog();
+    final WidgetActionFinder f = new WidgetActionFinder(loadDataset("widget-actions.ttl"), c);
+
+    final Set<Action> actions = f.findWidgetActions(w);
+
+    assertEquals(c.getWidgetActions(w), actions);
+    assertEquals(f.findWidgetActions(w), finder.findWidgetActions(w));
+  }
+
   @Test
   public void defaultToEmptyPreConditions() {
     final Widget w = widget(2);
@@ -11,6 +11,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import com.hp.hpl.jena.tdb.sys.Names;
+import vsr.cobalt.planner.extenders.ActionProvisionLibrary;
+import vsr.cobalt.service.planner.GraphCache;
 
 /**
  * @author Erik Wienhold
@@ -59,6 +61,35 @@ public final class Config {
 
   };
 
+  public static final Property<Integer> graphCacheCapacity = new Property<Integer>("graphCacheCapacity") {
+
+    @Override
+    public Integer parse(final String value) {
+      return Integer.parseInt(value);
+    }
+
+    @Override
+    public Integer getDefault() {
+      return GraphCache.DEFAULT_CAPACITY;
+    }
+
+  };
+
+  public static final Property<Integer> actionProvisionLibraryCapacity =
+      new Property<Integer>("actionProvisionLibraryCapacity") {
+
+        @Override
+        public Integer parse(final String value) {
+          return Integer.parseInt(value);
+        }
+
+        @Override
+        public Integer getDefault() {
+          return ActionProvisionLibrary.DEFAULT_CAPACITY;
+        }
+
+      };
+
   public static <T> T get(final Property<T> property) {
     final String value = System.getProperty(property.getName());
     if (value == null) {
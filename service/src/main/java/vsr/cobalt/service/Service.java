@@ -13,6 +13,7 @@ import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.tdb.TDBFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import vsr.cobalt.service.planner.PlannerService;
 
 /**
  * @author Erik Wienhold
@@ -55,6 +56,8 @@ public class Service {
       logger.info("seed dataset {}", dir);
       final DatasetSeeder dsb = new DatasetSeeder(dataset, Config.get(Config.widgetDir));
       dsb.seedDataset();
+      // cached graphs do not reflect the seeded widgets
+      PlannerService.getInstance().invalidateCaches();
     }
   }
 
@@ -15,6 +15,7 @@ import java.util.Enumeration;
 import java.util.List;
 import javax.json.Json;
 import javax.json.JsonWriter;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -27,12 +28,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import vsr.cobalt.models.Functionality;
 import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.dag.PlanDag;
 import vsr.cobalt.service.planner.ActionCompositionStrategy;
 import vsr.cobalt.service.planner.PlannerFailure;
 import vsr.cobalt.service.planner.PlannerJob;
 import vsr.cobalt.service.planner.PlannerRequest;
 import vsr.cobalt.service.planner.PlannerResponse;
 import vsr.cobalt.service.planner.PlannerService;
+import vsr.cobalt.service.serialization.CachingJsonSerializers;
 import vsr.cobalt.service.serialization.deserializers.JsonPlannerRequestDeserializer;
 import vsr.cobalt.service.serialization.json.RefJsonWriter;
 import vsr.cobalt.service.serialization.serializers.JsonPlannerResponseSerializer;
@@ -51,6 +54,8 @@ public class PlannerServlet extends HttpServlet {
   private static final String JSON_POINTER_TRUE = "true";
   private static final String JSON_POINTER_FALSE = "false";
 
+  private static final String PLAN_DAG = "planDag";
+
   @Override
   public void doOptions(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
     response.setStatus(HttpServletResponse.SC_OK);
@@ -104,7 +109,10 @@ public class PlannerServlet extends HttpServlet {
     response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
     response.setContentType(acceptedMediaType.toString());
 
-    if (acceptJsonPointer) {
+    if (res.isSuccess() && res.getPlanDag() != null) {
+      // plan DAGs reference shared choices by identifier, thus JSON pointers are not required
+      serializePlanDagUsingStreamingJson(res.getPlanDag(), response.getWriter());
+    } else if (acceptJsonPointer) {
       serializeResponseUsingJsonPointer(res, response.getWriter());
     } else {
       serializeResponseUsingCanonicalJson(res, response.getWriter());
@@ -149,6 +157,14 @@ public class PlannerServlet extends HttpServlet {
     new RefJsonWriter(writer).write(new JsonPlannerResponseSerializer().serialize(response));
   }
 
+  private void serializePlanDagUsingStreamingJson(final PlanDag dag, final Writer writer) {
+    final JsonGenerator g = Json.createGenerator(writer);
+    g.writeStartObject();
+    CachingJsonSerializers.planDags.write(PLAN_DAG, dag, g);
+    g.writeEnd();
+    g.close();
+  }
+
   private void logPlannerRequest(final PlannerRequest request) {
     final PlanningProblem pp = request.getPlanningProblem();
     final ActionCompositionStrategy acs = request.getActionCompositionStrategy();
@@ -158,12 +174,19 @@ public class PlannerServlet extends HttpServlet {
       fns.add(fn.getIdentifier().toString());
     }
 
-    logger.info("planner request: planDepth=[{}..{}], actionComposition=({}, {}, {}), mashup=[{}]",
-        pp.getMinDepth(), pp.getMaxDepth(),
-        acs.getPrecursorCompositionStrategy(),
-        acs.composeFunctionalityProviders(),
-        acs.composePropertyProviders(),
-        Joiner.on(", ").join(fns));
+    if (acs.isAuto()) {
+      logger.info("planner request: planDepth=[{}..{}], actionComposition=AUTO({}), mashup=[{}]",
+          pp.getMinDepth(), pp.getMaxDepth(),
+          acs.getMinPlans(),
+          Joiner.on(", ").join(fns));
+    } else {
+      logger.info("planner request: planDepth=[{}..{}], actionComposition=({}, {}, {}), mashup=[{}]",
+          pp.getMinDepth(), pp.getMaxDepth(),
+          acs.getPrecursorCompositionStrategy(),
+          acs.composeFunctionalityProviders(),
+          acs.composePropertyProviders(),
+          Joiner.on(", ").join(fns));
+    }
   }
 
 }
@@ -7,32 +7,80 @@
 
 package vsr.cobalt.service.planner;
 
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.collect.ImmutableList;
+
 /**
  * @author Erik Wienhold
  */
 public class ActionCompositionStrategy {
 
+  public static final int DEFAULT_MIN_PLANS = 1;
+
   private final static ActionCompositionStrategy DEFAULT =
       new ActionCompositionStrategy(PrecursorCompositionStrategy.NONE, false, false);
 
+  /**
+   * The strategies an automatic strategy escalates through, from the cheapest to the richest composition.
+   */
+  private final static List<ActionCompositionStrategy> ESCALATION = ImmutableList.of(
+      new ActionCompositionStrategy(PrecursorCompositionStrategy.NONE, false, false),
+      new ActionCompositionStrategy(PrecursorCompositionStrategy.MINIMAL, false, false),
+      new ActionCompositionStrategy(PrecursorCompositionStrategy.EXTENDED_ATOMIC, false, false),
+      new ActionCompositionStrategy(PrecursorCompositionStrategy.EXTENDED_MINIMAL, false, false),
+      new ActionCompositionStrategy(PrecursorCompositionStrategy.EXTENDED_MINIMAL, true, true));
+
   private final PrecursorCompositionStrategy precursorCompositionStrategy;
 
   private final boolean composeFunctionalityProviders;
 
   private final boolean composePropertyProviders;
 
+  private final boolean auto;
+
+  private final int minPlans;
+
   public ActionCompositionStrategy(final PrecursorCompositionStrategy precursorCompositionStrategy,
                                    final boolean composeFunctionalityProviders,
                                    final boolean composePropertyProviders) {
+    this(precursorCompositionStrategy, composeFunctionalityProviders, composePropertyProviders, false,
+        DEFAULT_MIN_PLANS);
+  }
+
+  private ActionCompositionStrategy(final PrecursorCompositionStrategy precursorCompositionStrategy,
+                                    final boolean composeFunctionalityProviders,
+                                    final boolean composePropertyProviders,
+                                    final boolean auto, final int minPlans) {
+    if (minPlans < 1) {
+      throw new IllegalArgumentException("expecting minPlans >= 1");
+    }
     this.precursorCompositionStrategy = precursorCompositionStrategy;
     this.composeFunctionalityProviders = composeFunctionalityProviders;
     this.composePropertyProviders = composePropertyProviders;
+    this.auto = auto;
+    this.minPlans = minPlans;
   }
 
   public static ActionCompositionStrategy getDefault() {
     return DEFAULT;
   }
 
+  /**
+   * Create a strategy which plans with the cheapest composition first and escalates to richer compositions only
+   * when too few plans are found.
+   *
+   * @param minPlans the minimum number of plans satisfying a request
+   *
+   * @return an automatic strategy
+   */
+  public static ActionCompositionStrategy auto(final int minPlans) {
+    final ActionCompositionStrategy first = ESCALATION.get(0);
+    return new ActionCompositionStrategy(first.precursorCompositionStrategy, first.composeFunctionalityProviders,
+        first.composePropertyProviders, true, minPlans);
+  }
+
   public PrecursorCompositionStrategy getPrecursorCompositionStrategy() {
     return precursorCompositionStrategy;
   }
@@ -45,4 +93,46 @@ public class ActionCompositionStrategy {
     return composePropertyProviders;
   }
 
+  /**
+   * @return true when escalating through the strategies of {@link #getEscalation()}, false otherwise
+   */
+  public boolean isAuto() {
+    return auto;
+  }
+
+  /**
+   * @return the minimum number of plans before an automatic strategy stops escalating
+   */
+  public int getMinPlans() {
+    return minPlans;
+  }
+
+  /**
+   * @return the strategies to plan with in order, a single strategy unless automatic
+   */
+  public List<ActionCompositionStrategy> getEscalation() {
+    return auto ? ESCALATION : ImmutableList.of(this);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(precursorCompositionStrategy, composeFunctionalityProviders, composePropertyProviders, auto,
+        minPlans);
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return super.equals(other)
+        || other instanceof ActionCompositionStrategy
+        && equals((ActionCompositionStrategy) other);
+  }
+
+  private boolean equals(final ActionCompositionStrategy other) {
+    return precursorCompositionStrategy == other.precursorCompositionStrategy
+        && composeFunctionalityProviders == other.composeFunctionalityProviders
+        && composePropertyProviders == other.composePropertyProviders
+        && auto == other.auto
+        && minPlans == other.minPlans;
+  }
+
 }
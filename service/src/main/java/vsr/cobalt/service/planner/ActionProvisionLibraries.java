@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import vsr.cobalt.planner.extenders.ActionProvisionLibrary;
+
+/**
+ * Action provision libraries by composition strategy, because the provisions depend on the providers in use.
+ *
+ * @author Erik Wienhold
+ */
+public class ActionProvisionLibraries {
+
+  private final int capacity;
+
+  private final Map<ActionCompositionStrategy, ActionProvisionLibrary> libraries = new HashMap<>();
+
+  /**
+   * @param capacity the capacity of each library
+   */
+  public ActionProvisionLibraries(final int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Get the library for a composition strategy, creating it when necessary.
+   *
+   * @param strategy a composition strategy, must not be automatic
+   *
+   * @return the strategy's library
+   */
+  public ActionProvisionLibrary get(final ActionCompositionStrategy strategy) {
+    if (strategy.isAuto()) {
+      throw new IllegalArgumentException("expecting a strategy which is not automatic");
+    }
+    synchronized (libraries) {
+      ActionProvisionLibrary apl = libraries.get(strategy);
+      if (apl == null) {
+        apl = new ActionProvisionLibrary(capacity);
+        libraries.put(strategy, apl);
+      }
+      return apl;
+    }
+  }
+
+  /**
+   * Discard the provisions of all libraries.
+   */
+  public void invalidate() {
+    synchronized (libraries) {
+      for (final ActionProvisionLibrary apl : libraries.values()) {
+        apl.invalidate();
+      }
+    }
+  }
+
+}
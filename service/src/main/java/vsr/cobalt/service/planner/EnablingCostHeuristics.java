@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
+import vsr.cobalt.planner.extenders.providers.PropertyProvisionProvider;
+import vsr.cobalt.planner.search.EnablingCostHeuristic;
+
+/**
+ * Enabling cost heuristics by composition strategy and combination, because the estimates depend on the providers in
+ * use. Sharing a heuristic between jobs retains the costs, options, and property providers it has explored.
+ *
+ * @author Erik Wienhold
+ */
+public class EnablingCostHeuristics {
+
+  private final Map<Key, EnablingCostHeuristic> heuristics = new HashMap<>();
+
+  /**
+   * Get the heuristic for a composition strategy and combination, creating it with the given providers when
+   * necessary.
+   *
+   * @param strategy                  a composition strategy, must not be automatic
+   * @param combination               how to combine the costs of requirements
+   * @param precursorActionProvider   a provider of precursor actions according to the strategy
+   * @param propertyProvisionProvider a provider of property provisions according to the strategy
+   *
+   * @return the heuristic
+   */
+  public EnablingCostHeuristic get(final ActionCompositionStrategy strategy,
+                                   final EnablingCostHeuristic.Combination combination,
+                                   final PrecursorActionProvider precursorActionProvider,
+                                   final PropertyProvisionProvider propertyProvisionProvider) {
+    if (strategy.isAuto()) {
+      throw new IllegalArgumentException("expecting a strategy which is not automatic");
+    }
+    final Key key = new Key(strategy, combination);
+    synchronized (heuristics) {
+      EnablingCostHeuristic h = heuristics.get(key);
+      if (h == null) {
+        h = new EnablingCostHeuristic(precursorActionProvider, propertyProvisionProvider, combination);
+        heuristics.put(key, h);
+      }
+      return h;
+    }
+  }
+
+  /**
+   * Discard all heuristics.
+   */
+  public void invalidate() {
+    synchronized (heuristics) {
+      heuristics.clear();
+    }
+  }
+
+  private static class Key {
+
+    private final ActionCompositionStrategy strategy;
+
+    private final EnablingCostHeuristic.Combination combination;
+
+    public Key(final ActionCompositionStrategy strategy, final EnablingCostHeuristic.Combination combination) {
+      this.strategy = strategy;
+      this.combination = combination;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(strategy, combination);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      return super.equals(other)
+          || other instanceof Key
+          && equals((Key) other);
+    }
+
+    private boolean equals(final Key other) {
+      return strategy.equals(other.strategy)
+          && combination == other.combination;
+    }
+
+  }
+
+}
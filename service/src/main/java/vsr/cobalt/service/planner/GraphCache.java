@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.google.common.collect.Sets;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.planner.GraphUpdater;
+import vsr.cobalt.planner.MashupPlanner;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.graph.Graph;
+
+/**
+ * Shares planning graphs across planner jobs.
+ * <p/>
+ * Graphs are cached by goal mashup and action composition strategy, because those determine the graph of any depth.
+ * Each entry holds the deepest graph built so far, which is extended when a job requires a deeper graph. Jobs for the
+ * same key wait for each other, so a graph is never built twice concurrently, whereas jobs for different keys build
+ * their graphs in parallel.
+ * <p/>
+ * When a graph updater is given, the graph of a mashup not yet cached is derived from the cached graph of the most
+ * similar mashup using the same composition strategy, as is typical when a goal mashup is edited and planned again.
+ * Only uncompacted graphs can be updated (see {@link GraphUpdater#updateGraph(Graph, Mashup)}), thus this requires a
+ * planner which does not compact its graphs. Planner jobs therefore cache uncompacted graphs and compact the returned
+ * graph themselves.
+ * <p/>
+ * The cache holds a limited number of entries and evicts the least recently used entry. It must be invalidated when
+ * the repository changes, because cached graphs reflect the repository at the time they were built.
+ *
+ * @author Erik Wienhold
+ */
+public class GraphCache {
+
+  public static final int DEFAULT_CAPACITY = 64;
+
+  private final int capacity;
+
+  private final Map<Key, Entry> entries;
+
+  /**
+   * @param capacity the maximum number of cached graphs
+   */
+  public GraphCache(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("expecting capacity >= 1");
+    }
+    this.capacity = capacity;
+    entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+        return size() > GraphCache.this.capacity;
+      }
+    };
+  }
+
+  public GraphCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @return the maximum number of cached graphs
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of cached graphs
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Get a graph reaching a given depth, creating or extending the cached graph when necessary.
+   * <p/>
+   * The returned graph may be deeper than requested. It is shallower when it is satisfied, or when it cannot be
+   * extended any further, in which case the caller encounters the same error when extending the graph itself.
+   *
+   * @param mashup   a goal mashup
+   * @param strategy the action composition strategy of the planner
+   * @param depth    the required depth
+   * @param planner  a planner creating and extending the graph according to the composition strategy
+   *
+   * @return a graph for the given goal mashup
+   *
+   * @throws PlanningException when the graph cannot be created
+   */
+  public Graph getGraph(final Mashup mashup, final ActionCompositionStrategy strategy, final int depth,
+                        final MashupPlanner planner) throws PlanningException {
+    return getGraph(mashup, strategy, depth, planner, null);
+  }
+
+  /**
+   * Get a graph reaching a given depth, creating, updating, or extending a cached graph when necessary.
+   *
+   * @param mashup   a goal mashup
+   * @param strategy the action composition strategy of the planner
+   * @param depth    the required depth
+   * @param planner  a planner creating and extending the graph according to the composition strategy
+   * @param updater  an updater deriving the graph from the uncompacted graph of a similar mashup, or null to create
+   *                 the graph from scratch
+   *
+   * @return a graph for the given goal mashup
+   *
+   * @throws PlanningException when the graph cannot be created
+   * @see #getGraph(Mashup, ActionCompositionStrategy, int, MashupPlanner)
+   */
+  public Graph getGraph(final Mashup mashup, final ActionCompositionStrategy strategy, final int depth,
+                        final MashupPlanner planner, final GraphUpdater updater) throws PlanningException {
+    final Key key = new Key(mashup, strategy);
+    final Entry e = getEntry(key);
+    // concurrent jobs for the same key wait for the graph built by the first one
+    synchronized (e) {
+      if (e.graph == null) {
+        e.graph = createGraph(key, planner, updater);
+      }
+      try {
+        while (e.graph.getDepth() < depth && !e.graph.isSatisfied()) {
+          e.graph = planner.extendGraph(e.graph);
+        }
+      } catch (final PlanningException ignored) {
+        // keep the graph built so far
+      }
+      return e.graph;
+    }
+  }
+
+  /**
+   * Discard all cached graphs. Graphs currently being built are returned to the waiting jobs, but not cached.
+   */
+  public void invalidate() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private Graph createGraph(final Key key, final MashupPlanner planner, final GraphUpdater updater)
+      throws PlanningException {
+    if (updater != null) {
+      final Graph similar = findSimilarGraph(key);
+      if (similar != null) {
+        try {
+          return updater.updateGraph(similar, key.mashup);
+        } catch (final PlanningException ignored) {
+          // let the planner report why the graph cannot be created
+        }
+      }
+    }
+    return planner.createGraph(key.mashup);
+  }
+
+  /**
+   * Find the uncompacted cached graph of the mashup sharing the most functionalities with a key's mashup, preferring
+   * the fewest differing functionalities.
+   *
+   * @param key a key
+   *
+   * @return an uncompacted graph using the same composition strategy, null when none shares any functionality
+   */
+  private Graph findSimilarGraph(final Key key) {
+    Graph similar = null;
+    int maxCommon = 0;
+    int minDiff = Integer.MAX_VALUE;
+    synchronized (entries) {
+      for (final Map.Entry<Key, Entry> e : entries.entrySet()) {
+        final Key k = e.getKey();
+        final Graph g = e.getValue().graph;
+        if (g == null || g.isCompacted() || !k.strategy.equals(key.strategy)) {
+          continue;
+        }
+        final int common = Sets.intersection(k.mashup.getFunctionalities(), key.mashup.getFunctionalities()).size();
+        final int diff = Sets.symmetricDifference(k.mashup.getFunctionalities(),
+            key.mashup.getFunctionalities()).size();
+        if (common > maxCommon || (common == maxCommon && common > 0 && diff < minDiff)) {
+          similar = g;
+          maxCommon = common;
+          minDiff = diff;
+        }
+      }
+    }
+    return similar;
+  }
+
+  private Entry getEntry(final Key key) {
+    synchronized (entries) {
+      Entry e = entries.get(key);
+      if (e == null) {
+        e = new Entry();
+        entries.put(key, e);
+      }
+      return e;
+    }
+  }
+
+  private static class Key {
+
+    private final Mashup mashup;
+
+    private final ActionCompositionStrategy strategy;
+
+    public Key(final Mashup mashup, final ActionCompositionStrategy strategy) {
+      this.mashup = mashup;
+      this.strategy = strategy;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(mashup, strategy);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      return super.equals(other)
+          || other instanceof Key
+          && equals((Key) other);
+    }
+
+    private boolean equals(final Key other) {
+      return mashup.equals(other.mashup)
+          && strategy.equals(other.strategy);
+    }
+
+  }
+
+  private static class Entry {
+
+    /**
+     * The deepest graph built so far, null when not yet created. Written while holding the entry's monitor, but may be
+     * read without it to derive the graph of another entry.
+     */
+    private volatile Graph graph;
+
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import vsr.cobalt.planner.PlanningListener;
+
+/**
+ * Logs planning events at debug level, with timings in milliseconds.
+ *
+ * @author Erik Wienhold
+ */
+public class LoggingPlanningListener implements PlanningListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(LoggingPlanningListener.class);
+
+  /**
+   * @return true when events would be logged, false otherwise
+   */
+  public static boolean isEnabled() {
+    return logger.isDebugEnabled();
+  }
+
+  @Override
+  public void graphCreated(final int functionalities, final int provisions, final long nanos) {
+    logger.debug("created graph with {} provisions for {} functionalities in {} ms",
+        provisions, functionalities, millis(nanos));
+  }
+
+  @Override
+  public void provisionsProvided(final Class<?> provider, final int requests, final int provisions,
+                                 final long nanos) {
+    logger.debug("{} provided {} provisions for {} requests in {} ms",
+        provider.getSimpleName(), provisions, requests, millis(nanos));
+  }
+
+  @Override
+  public void cyclicDependenciesChecked(final int checks, final int cycles, final long nanos) {
+    logger.debug("detected {} cyclic dependencies in {} checks in {} ms", cycles, checks, millis(nanos));
+  }
+
+  @Override
+  public void graphExtended(final int depth, final int candidates, final int combinations,
+                            final int prunedCombinations, final int provisions, final long nanos) {
+    logger.debug("extended graph to depth {} with {} provisions from {} candidates and {} combinations "
+            + "({} pruned) in {} ms",
+        depth, provisions, candidates, combinations, prunedCombinations, millis(nanos));
+  }
+
+  @Override
+  public void graphCompacted(final int depth, final int removedProvisions, final int removedActions,
+                             final long nanos) {
+    logger.debug("compacted graph of depth {} removing {} provisions and {} actions in {} ms",
+        depth, removedProvisions, removedActions, millis(nanos));
+  }
+
+  @Override
+  public void plansExtracted(final int maxDepth, final int frames, final int combinations, final int conflicts,
+                             final int plans, final long nanos) {
+    logger.debug("extracted {} plans up to depth {} with {} frames, {} combinations and {} conflicts in {} ms",
+        plans, maxDepth, frames, combinations, conflicts, millis(nanos));
+  }
+
+  @Override
+  public void planningAdvanced(final int depth, final int plans, final long nanos) {
+    logger.debug("collected {} plans of depth {} in {} ms", plans, depth, millis(nanos));
+  }
+
+  private static long millis(final long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+}
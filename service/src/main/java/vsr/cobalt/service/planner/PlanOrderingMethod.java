@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+/**
+ * How to order the plans of each depth. {@link #CHEAPEST} enumerates every plan in the order of non-decreasing cost,
+ * i.e. the distance of offered functionalities and property types to the requested ones.
+ *
+ * @author Erik Wienhold
+ */
+public enum PlanOrderingMethod {
+  NONE,
+  CHEAPEST
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+/**
+ * How to order the plans extracted from a planning graph.
+ *
+ * @author Erik Wienhold
+ */
+public class PlanOrderingStrategy {
+
+  public static final int DEFAULT_LIMIT = 10;
+
+  private final static PlanOrderingStrategy DEFAULT = new PlanOrderingStrategy(PlanOrderingMethod.NONE, DEFAULT_LIMIT);
+
+  private final PlanOrderingMethod method;
+
+  private final int limit;
+
+  public PlanOrderingStrategy(final PlanOrderingMethod method, final int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("expecting limit >= 1");
+    }
+    this.method = method;
+    this.limit = limit;
+  }
+
+  public static PlanOrderingStrategy getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @return the ordering method, {@link PlanOrderingMethod#NONE} to extract plans in no particular order
+   */
+  public PlanOrderingMethod getMethod() {
+    return method;
+  }
+
+  /**
+   * @return the maximum number of plans to extract in order for each depth
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+}
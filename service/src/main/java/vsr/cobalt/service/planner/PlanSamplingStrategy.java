@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+/**
+ * @author Erik Wienhold
+ */
+public class PlanSamplingStrategy {
+
+  public static final int DEFAULT_SAMPLE_SIZE = 10;
+
+  private final static PlanSamplingStrategy DEFAULT =
+      new PlanSamplingStrategy(PlanSamplingMethod.NONE, DEFAULT_SAMPLE_SIZE);
+
+  private final PlanSamplingMethod method;
+
+  private final int sampleSize;
+
+  public PlanSamplingStrategy(final PlanSamplingMethod method, final int sampleSize) {
+    if (sampleSize < 1) {
+      throw new IllegalArgumentException("expecting sample size >= 1");
+    }
+    this.method = method;
+    this.sampleSize = sampleSize;
+  }
+
+  public static PlanSamplingStrategy getDefault() {
+    return DEFAULT;
+  }
+
+  public PlanSamplingMethod getMethod() {
+    return method;
+  }
+
+  /**
+   * @return the maximum number of plans to sample for each depth
+   */
+  public int getSampleSize() {
+    return sampleSize;
+  }
+
+}
@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+/**
+ * @author Erik Wienhold
+ */
+public enum PlanSearchMethod {
+  NONE,
+  A_STAR,
+  GREEDY
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner;
+
+/**
+ * How to search plans heuristically instead of extracting them from a planning graph.
+ *
+ * @author Erik Wienhold
+ */
+public class PlanSearchStrategy {
+
+  public static final int DEFAULT_LIMIT = 10;
+
+  private final static PlanSearchStrategy DEFAULT =
+      new PlanSearchStrategy(PlanSearchMethod.NONE, PlanSearchHeuristic.MAX, DEFAULT_LIMIT);
+
+  private final PlanSearchMethod method;
+
+  private final PlanSearchHeuristic heuristic;
+
+  private final int limit;
+
+  public PlanSearchStrategy(final PlanSearchMethod method, final PlanSearchHeuristic heuristic, final int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("expecting limit >= 1");
+    }
+    this.method = method;
+    this.heuristic = heuristic;
+    this.limit = limit;
+  }
+
+  public static PlanSearchStrategy getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @return the search method, {@link PlanSearchMethod#NONE} to extract plans from a planning graph
+   */
+  public PlanSearchMethod getMethod() {
+    return method;
+  }
+
+  public PlanSearchHeuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * @return the maximum number of plans to search
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+}
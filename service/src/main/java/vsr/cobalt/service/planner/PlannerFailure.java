@@ -7,7 +7,11 @@
 
 package vsr.cobalt.service.planner;
 
+import java.util.Map;
+
 import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCount;
+import vsr.cobalt.planner.dag.PlanDag;
 
 /**
  * @author Erik Wienhold
@@ -35,4 +39,14 @@ public class PlannerFailure implements PlannerResponse {
     return failure;
   }
 
+  @Override
+  public Map<Integer, PlanCount> getPlanCounts() {
+    return null;
+  }
+
+  @Override
+  public PlanDag getPlanDag() {
+    return null;
+  }
+
 }
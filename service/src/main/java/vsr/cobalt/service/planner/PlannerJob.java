@@ -7,19 +7,39 @@
 
 package vsr.cobalt.service.planner;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 
+import com.google.common.collect.Iterables;
 import vsr.cobalt.planner.DefaultMashupPlanner;
-import vsr.cobalt.planner.GraphExtender;
 import vsr.cobalt.planner.GraphFactory;
+import vsr.cobalt.planner.GraphUpdater;
 import vsr.cobalt.planner.Plan;
 import vsr.cobalt.planner.PlanCollector;
+import vsr.cobalt.planner.PlanDepthEstimator;
+import vsr.cobalt.planner.PlanCount;
+import vsr.cobalt.planner.PlanCounter;
 import vsr.cobalt.planner.PlanExtractor;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.PlanningListener;
+import vsr.cobalt.planner.PlanningProblem;
 import vsr.cobalt.planner.PlanningProcess;
 import vsr.cobalt.planner.Repository;
+import vsr.cobalt.planner.WidgetConstraints;
+import vsr.cobalt.planner.WidgetFilteringRepository;
+import vsr.cobalt.planner.dag.PlanDag;
+import vsr.cobalt.planner.extenders.ActionProvisionLibrary;
+import vsr.cobalt.planner.extenders.CompactingGraphExtender;
 import vsr.cobalt.planner.extenders.DefaultGraphExtender;
 import vsr.cobalt.planner.extenders.DefaultGraphFactory;
+import vsr.cobalt.planner.extenders.GraphCompactor;
+import vsr.cobalt.planner.extenders.IncrementalGraphUpdater;
 import vsr.cobalt.planner.extenders.PathWalkingCyclicDependencyDetector;
 import vsr.cobalt.planner.extenders.providers.BasicFunctionalityProvisionProvider;
 import vsr.cobalt.planner.extenders.providers.BasicPrecursorActionProvider;
@@ -31,7 +51,21 @@ import vsr.cobalt.planner.extenders.providers.ComposingPropertyProvisionProvider
 import vsr.cobalt.planner.extenders.providers.FunctionalityProvisionProvider;
 import vsr.cobalt.planner.extenders.providers.PrecursorActionProvider;
 import vsr.cobalt.planner.extenders.providers.PropertyProvisionProvider;
-import vsr.cobalt.planner.extractors.BackwardChainingPlanExtractor;
+import vsr.cobalt.planner.extractors.BestFirstPlanExtractor;
+import vsr.cobalt.planner.extractors.DiversePlanExtractor;
+import vsr.cobalt.planner.extractors.DynamicProgrammingPlanCounter;
+import vsr.cobalt.planner.extractors.FrontierPreservingPlanExtractor;
+import vsr.cobalt.planner.extractors.ProvisionCostFunction;
+import vsr.cobalt.planner.extractors.RandomPlanExtractor;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.planner.listeners.NoOpPlanningListener;
+import vsr.cobalt.planner.search.EnablingCostHeuristic;
+import vsr.cobalt.planner.search.HeuristicSearchPlanner;
+import vsr.cobalt.planner.search.RelaxedPlanDepthEstimator;
+import vsr.cobalt.planner.search.SearchStrategy;
+import vsr.cobalt.service.planner.distance.FunctionalityProvisionDistanceMeter;
+import vsr.cobalt.service.planner.distance.PropertyProvisionDistanceMeter;
+import vsr.cobalt.service.planner.distance.ProvisionDistanceCostFunction;
 
 /**
  * @author Erik Wienhold
@@ -42,14 +76,138 @@ public class PlannerJob {
 
   private final Repository repository;
 
-  public PlannerJob(final PlannerRequest request, final Repository repository) {
+  private final GraphCache graphCache;
+
+  private final ActionProvisionLibrary library;
+
+  private final ActionProvisionLibraries libraries;
+
+  private final EnablingCostHeuristics heuristics;
+
+  private final PlanningListener listener;
+
+  /**
+   * @param request    a planner request
+   * @param repository a repository
+   * @param graphCache a cache of graphs shared with other jobs, or null to build graphs from scratch
+   * @param library    a library of action provisions shared with other jobs using the same composition strategy, or
+   *                   null to derive action provisions from scratch
+   */
+  public PlannerJob(final PlannerRequest request, final Repository repository, final GraphCache graphCache,
+                    final ActionProvisionLibrary library) {
+    this(request, repository, graphCache, library, null, null);
+  }
+
+  /**
+   * @param request    a planner request
+   * @param repository a repository
+   * @param graphCache a cache of graphs shared with other jobs, or null to build graphs from scratch
+   * @param libraries  libraries of action provisions shared with other jobs, or null to derive action provisions from
+   *                   scratch
+   */
+  public PlannerJob(final PlannerRequest request, final Repository repository, final GraphCache graphCache,
+                    final ActionProvisionLibraries libraries) {
+    this(request, repository, graphCache, libraries, null);
+  }
+
+  /**
+   * @param request    a planner request
+   * @param repository a repository
+   * @param graphCache a cache of graphs shared with other jobs, or null to build graphs from scratch
+   * @param libraries  libraries of action provisions shared with other jobs, or null to derive action provisions from
+   *                   scratch
+   * @param heuristics heuristics shared with other jobs, or null to explore actions from scratch
+   */
+  public PlannerJob(final PlannerRequest request, final Repository repository, final GraphCache graphCache,
+                    final ActionProvisionLibraries libraries, final EnablingCostHeuristics heuristics) {
+    this(request, repository, graphCache, getLibrary(libraries, request.getActionCompositionStrategy()), libraries,
+        heuristics);
+  }
+
+  private PlannerJob(final PlannerRequest request, final Repository repository, final GraphCache graphCache,
+                     final ActionProvisionLibrary library, final ActionProvisionLibraries libraries,
+                     final EnablingCostHeuristics heuristics) {
     this.request = request;
-    this.repository = repository;
+    final WidgetConstraints wc = request.getPlanningProblem().getWidgetConstraints();
+    if (wc.restrictsWidgets()) {
+      // graphs, action provisions, and heuristics shared with other jobs may contain widgets not allowed for this
+      // request
+      this.repository = new WidgetFilteringRepository(repository, wc);
+      this.graphCache = null;
+      this.library = null;
+      this.libraries = null;
+      this.heuristics = null;
+    } else {
+      this.repository = repository;
+      this.graphCache = graphCache;
+      this.library = library;
+      this.libraries = libraries;
+      this.heuristics = heuristics;
+    }
+    listener = LoggingPlanningListener.isEnabled()
+        ? new LoggingPlanningListener()
+        : NoOpPlanningListener.getInstance();
+  }
+
+  /**
+   * Create a job planning a single stage of an automatic composition strategy, sharing the repository and caches
+   * with the given job.
+   *
+   * @param job      the job using an automatic composition strategy
+   * @param strategy the composition strategy of the stage
+   */
+  private PlannerJob(final PlannerJob job, final ActionCompositionStrategy strategy) {
+    request = job.request.withActionCompositionStrategy(strategy);
+    repository = job.repository;
+    graphCache = job.graphCache;
+    library = getLibrary(job.libraries, strategy);
+    libraries = job.libraries;
+    heuristics = job.heuristics;
+    listener = job.listener;
+  }
+
+  /**
+   * @param request    a planner request
+   * @param repository a repository
+   * @param graphCache a cache of graphs shared with other jobs, or null to build graphs from scratch
+   */
+  public PlannerJob(final PlannerRequest request, final Repository repository, final GraphCache graphCache) {
+    this(request, repository, graphCache, (ActionProvisionLibrary) null);
+  }
+
+  public PlannerJob(final PlannerRequest request, final Repository repository) {
+    this(request, repository, null);
   }
 
   public PlannerResponse run() {
+    // a request selects at most one of the following modes (see PlannerRequest.Builder)
+    if (request.getActionCompositionStrategy().isAuto()) {
+      return escalate();
+    }
+
+    if (request.isCountOnly()) {
+      return count();
+    }
+
+    if (request.isFactored()) {
+      return factor();
+    }
+
+    if (request.getPlanSearchStrategy().getMethod() != PlanSearchMethod.NONE) {
+      return search();
+    }
+
+    final DefaultMashupPlanner planner = createPlanner();
+
+    final Graph graph;
+    try {
+      graph = createGraph(planner);
+    } catch (final PlanningException ex) {
+      return new PlannerFailure(ex);
+    }
+
     final Collection<Plan> plans = new ArrayList<>();
-    final PlanningProcess process = createPlanningTask(createPlanner(), createPlanCollector(plans));
+    final PlanningProcess process = createPlanningTask(planner, createPlanCollector(plans), graph);
 
     while (!process.isDone()) {
       try {
@@ -65,6 +223,171 @@ public class PlannerJob {
     return new PlannerSuccess(plans);
   }
 
+  /**
+   * Plan with each composition strategy of an automatic strategy in turn, until the response of a strategy has the
+   * minimum number of plans. Later strategies compose more actions and are more expensive.
+   *
+   * @return the response of the first sufficient strategy, or of the richest strategy
+   */
+  private PlannerResponse escalate() {
+    final ActionCompositionStrategy acs = request.getActionCompositionStrategy();
+    PlannerResponse response = null;
+    for (final ActionCompositionStrategy s : acs.getEscalation()) {
+      response = new PlannerJob(this, s).run();
+      if (isSufficient(response, acs.getMinPlans())) {
+        break;
+      }
+    }
+    return response;
+  }
+
+  /**
+   * Check if a response has some minimum number of plans. A plan DAG is sufficient when not empty, because it does
+   * not tell its number of plans.
+   *
+   * @param response a response
+   * @param minPlans the minimum number of plans
+   *
+   * @return true when the response has enough plans, false otherwise
+   */
+  private static boolean isSufficient(final PlannerResponse response, final int minPlans) {
+    if (!response.isSuccess()) {
+      return false;
+    }
+    if (response.getPlanDag() != null) {
+      return !response.getPlanDag().isEmpty();
+    }
+    BigInteger n = BigInteger.valueOf(Iterables.size(response.getPlans()));
+    for (final PlanCount pc : response.getPlanCounts().values()) {
+      n = n.add(pc.getCount());
+    }
+    return n.compareTo(BigInteger.valueOf(minPlans)) >= 0;
+  }
+
+  /**
+   * Count the plans for each depth within the requested range, without extracting any plans.
+   *
+   * @return a response with plan counts by depth
+   */
+  private PlannerResponse count() {
+    final DefaultMashupPlanner planner = createPlanner();
+    final PlanningProblem problem = request.getPlanningProblem();
+    final Map<Integer, PlanCount> counts = new TreeMap<>();
+
+    try {
+      Graph graph = createGraph(planner);
+      // depth may overflow when max depth is reached
+      for (int depth = problem.getMinDepth(); depth > 0 && depth <= problem.getMaxDepth(); depth += 1) {
+        graph = extendGraph(planner, graph, depth);
+        // a satisfied graph has no plans beyond its depth
+        if (graph.getDepth() < depth) {
+          break;
+        }
+        counts.put(depth, planner.countPlans(graph, depth));
+      }
+    } catch (final PlanningException ex) {
+      // it's only a failure when there are no counts
+      if (counts.isEmpty()) {
+        return new PlannerFailure(ex);
+      }
+    }
+
+    return new PlannerSuccess(Collections.<Plan>emptyList(), counts);
+  }
+
+  /**
+   * Build a single plan DAG factoring all plans up to the requested maximum depth.
+   *
+   * @return a response with a plan DAG
+   */
+  private PlannerResponse factor() {
+    final DefaultMashupPlanner planner = createPlanner();
+    final PlanningProblem problem = request.getPlanningProblem();
+
+    Graph graph;
+    try {
+      graph = createGraph(planner);
+    } catch (final PlanningException ex) {
+      return new PlannerFailure(ex);
+    }
+
+    try {
+      graph = extendGraph(planner, graph, problem.getMaxDepth());
+    } catch (final PlanningException ex) {
+      // the graph cannot be extended further, use the graph so far
+    }
+
+    return new PlannerSuccess(PlanDag.create(graph, Math.min(graph.getDepth(), problem.getMaxDepth())));
+  }
+
+  /**
+   * Search plans heuristically without building a planning graph.
+   *
+   * @return a response with at most as many plans as the search limit
+   */
+  private PlannerResponse search() {
+    final int limit = request.getPlanSearchStrategy().getLimit();
+    final Collection<Plan> plans = new ArrayList<>();
+
+    try {
+      final Iterator<Plan> it = createSearchPlanner().plan(request.getPlanningProblem());
+      while (plans.size() < limit && it.hasNext()) {
+        plans.add(it.next());
+      }
+    } catch (final Exception ex) {
+      // it's only a failure when there are no plans
+      if (plans.isEmpty()) {
+        return new PlannerFailure(ex);
+      }
+    }
+
+    return new PlannerSuccess(plans);
+  }
+
+  /**
+   * Create a graph for the requested goal mashup. A cached graph may already be extended up to the requested maximum
+   * depth.
+   * <p/>
+   * The cache keeps uncompacted graphs, so that the graph of a mashup not yet cached can be derived from the cached
+   * graph of a similar mashup. The cached graph is compacted for this job, like the planner compacts the graphs it
+   * extends.
+   *
+   * @param planner a planner
+   *
+   * @return a graph
+   *
+   * @throws PlanningException when the graph cannot be created
+   */
+  private Graph createGraph(final DefaultMashupPlanner planner) throws PlanningException {
+    final PlanningProblem problem = request.getPlanningProblem();
+    if (graphCache == null) {
+      return planner.createGraph(problem.getGoalMashup());
+    }
+    final Graph graph = graphCache.getGraph(problem.getGoalMashup(), request.getActionCompositionStrategy(),
+        problem.getMaxDepth(), createUncompactingPlanner(), createGraphUpdater());
+    return new GraphCompactor(listener).compact(graph);
+  }
+
+  /**
+   * Extend a graph until it reaches a given depth or is satisfied.
+   *
+   * @param planner a planner
+   * @param graph   a graph
+   * @param depth   the target depth
+   *
+   * @return the extended graph
+   *
+   * @throws PlanningException when the graph cannot be extended
+   */
+  private Graph extendGraph(final DefaultMashupPlanner planner, final Graph graph, final int depth)
+      throws PlanningException {
+    Graph g = graph;
+    while (g.getDepth() < depth && !g.isSatisfied()) {
+      g = planner.extendGraph(g);
+    }
+    return g;
+  }
+
   private PlanCollector createPlanCollector(final Collection<Plan> plans) {
     return new PlanCollector() {
       @Override
@@ -75,23 +398,100 @@ public class PlannerJob {
     };
   }
 
-  private PlanningProcess createPlanningTask(final DefaultMashupPlanner planner, final PlanCollector collector) {
-    return planner.createPlanningProcess(request.getPlanningProblem(), collector);
+  private PlanningProcess createPlanningTask(final DefaultMashupPlanner planner, final PlanCollector collector,
+                                             final Graph graph) {
+    return new PlanningProcess(planner, collector, request.getPlanningProblem(), graph, listener,
+        createPlanDepthEstimator());
+  }
+
+  private PlanDepthEstimator createPlanDepthEstimator() {
+    return new RelaxedPlanDepthEstimator(getHeuristic(EnablingCostHeuristic.Combination.MAX),
+        request.getPlanningProblem().getMaxDepth());
+  }
+
+  private static ActionProvisionLibrary getLibrary(final ActionProvisionLibraries libraries,
+                                                  final ActionCompositionStrategy strategy) {
+    // an automatic strategy plans with the libraries of its stages
+    if (libraries == null || strategy.isAuto()) {
+      return null;
+    }
+    return libraries.get(strategy);
   }
 
   private DefaultMashupPlanner createPlanner() {
-    return new DefaultMashupPlanner(createGraphFactory(), createGraphExtender(), createPlanExtractor());
+    return new DefaultMashupPlanner(createGraphFactory(),
+        new CompactingGraphExtender(createGraphExtender(), new GraphCompactor(listener)), createPlanExtractor(),
+        createPlanCounter());
+  }
+
+  /**
+   * Create a planner building the uncompacted graphs of the graph cache.
+   *
+   * @return a planner not compacting its graphs
+   */
+  private DefaultMashupPlanner createUncompactingPlanner() {
+    return new DefaultMashupPlanner(createGraphFactory(), createGraphExtender(), createPlanExtractor(),
+        createPlanCounter());
+  }
+
+  private GraphUpdater createGraphUpdater() {
+    return new IncrementalGraphUpdater(createFunctionalityProvisionProvider(), createGraphExtender());
+  }
+
+  private HeuristicSearchPlanner createSearchPlanner() {
+    return new HeuristicSearchPlanner(createGraphFactory(), createGraphExtender(), createHeuristic(),
+        createSearchStrategy());
+  }
+
+  private EnablingCostHeuristic createHeuristic() {
+    switch (request.getPlanSearchStrategy().getHeuristic()) {
+    case MAX:
+      return getHeuristic(EnablingCostHeuristic.Combination.MAX);
+    case ADD:
+      return getHeuristic(EnablingCostHeuristic.Combination.ADD);
+    default:
+      throw new RuntimeException("unsupported plan search heuristic");
+    }
+  }
+
+  /**
+   * Get a heuristic shared with other jobs, or create one for this job only.
+   *
+   * @param combination how to combine the costs of requirements
+   *
+   * @return a heuristic using the providers of the requested composition strategy
+   */
+  private EnablingCostHeuristic getHeuristic(final EnablingCostHeuristic.Combination combination) {
+    if (heuristics == null) {
+      return new EnablingCostHeuristic(createPrecursorActionProvider(), createPropertyProvisionProvider(),
+          combination);
+    }
+    return heuristics.get(request.getActionCompositionStrategy(), combination, createPrecursorActionProvider(),
+        createPropertyProvisionProvider());
+  }
+
+  private SearchStrategy createSearchStrategy() {
+    switch (request.getPlanSearchStrategy().getMethod()) {
+    case A_STAR:
+      return SearchStrategy.A_STAR;
+    case GREEDY:
+      return SearchStrategy.GREEDY;
+    default:
+      throw new RuntimeException("unsupported plan search method");
+    }
   }
 
   private GraphFactory createGraphFactory() {
-    return new DefaultGraphFactory(createFunctionalityProvisionProvider());
+    return new DefaultGraphFactory(createFunctionalityProvisionProvider(), listener);
   }
 
-  private GraphExtender createGraphExtender() {
+  private DefaultGraphExtender createGraphExtender() {
     return new DefaultGraphExtender(
         createPrecursorActionProvider(),
         createPropertyProvisionProvider(),
-        new PathWalkingCyclicDependencyDetector());
+        new PathWalkingCyclicDependencyDetector(),
+        listener,
+        library);
   }
 
   private FunctionalityProvisionProvider createFunctionalityProvisionProvider() {
@@ -139,7 +539,32 @@ public class PlannerJob {
   }
 
   private PlanExtractor createPlanExtractor() {
-    return new BackwardChainingPlanExtractor();
+    final PlanOrderingStrategy pos = request.getPlanOrderingStrategy();
+    if (pos.getMethod() == PlanOrderingMethod.CHEAPEST) {
+      return new BestFirstPlanExtractor(createProvisionCostFunction(), pos.getLimit());
+    }
+    final PlanSamplingStrategy pss = request.getPlanSamplingStrategy();
+    switch (pss.getMethod()) {
+    case NONE:
+      // the planner is used by a single planning process, which can resume each depth from the previous one
+      return new FrontierPreservingPlanExtractor(listener,
+          request.getPlanningProblem().getWidgetConstraints().getMaxWidgets());
+    case UNIFORM:
+      return new RandomPlanExtractor(pss.getSampleSize(), new Random());
+    case DIVERSE:
+      return new DiversePlanExtractor(pss.getSampleSize(), new Random());
+    default:
+      throw new RuntimeException("unsupported plan sampling method");
+    }
+  }
+
+  private ProvisionCostFunction createProvisionCostFunction() {
+    return new ProvisionDistanceCostFunction(new FunctionalityProvisionDistanceMeter(repository),
+        new PropertyProvisionDistanceMeter(repository));
+  }
+
+  private PlanCounter createPlanCounter() {
+    return new DynamicProgrammingPlanCounter();
   }
 
 }
@@ -9,6 +9,7 @@ package vsr.cobalt.service.planner;
 
 import vsr.cobalt.models.Mashup;
 import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.WidgetConstraints;
 
 /**
  * @author Erik Wienhold
@@ -23,17 +24,56 @@ public final class PlannerRequest {
 
   private final ActionCompositionStrategy compositionStrategy;
 
-  public PlannerRequest(final Mashup goalMashup, final int minDepth, final int maxDepth,
-                        final ActionCompositionStrategy compositionStrategy) {
-    if (goalMashup == null) {
-      throw new IllegalArgumentException("expecting some goal mashup");
-    }
-    problem = new PlanningProblem(goalMashup, minDepth, maxDepth);
+  private final boolean countOnly;
+
+  private final PlanSamplingStrategy samplingStrategy;
+
+  private final boolean factored;
+
+  private final PlanSearchStrategy searchStrategy;
+
+  private final PlanOrderingStrategy orderingStrategy;
+
+  /**
+   * Create a request for plans using the default action composition strategy.
+   *
+   * @param goalMashup a goal mashup
+   * @param minDepth   the minimum plan depth
+   * @param maxDepth   the maximum plan depth
+   */
+  public PlannerRequest(final Mashup goalMashup, final int minDepth, final int maxDepth) {
+    this(new Builder(goalMashup, minDepth, maxDepth));
+  }
+
+  private PlannerRequest(final Builder builder) {
+    this(createPlanningProblem(builder.goalMashup, builder.minDepth, builder.maxDepth, builder.widgetConstraints),
+        builder.compositionStrategy, builder.countOnly, builder.samplingStrategy, builder.factored,
+        builder.searchStrategy, builder.orderingStrategy);
+  }
+
+  private PlannerRequest(final PlanningProblem problem, final ActionCompositionStrategy compositionStrategy,
+                         final boolean countOnly, final PlanSamplingStrategy samplingStrategy,
+                         final boolean factored, final PlanSearchStrategy searchStrategy,
+                         final PlanOrderingStrategy orderingStrategy) {
+    this.problem = problem;
     this.compositionStrategy = compositionStrategy;
+    this.countOnly = countOnly;
+    this.samplingStrategy = samplingStrategy;
+    this.factored = factored;
+    this.searchStrategy = searchStrategy;
+    this.orderingStrategy = orderingStrategy;
   }
 
-  public PlannerRequest(final Mashup goalMashup, final int minDepth, final int maxDepth) {
-    this(goalMashup, minDepth, maxDepth, ActionCompositionStrategy.getDefault());
+  /**
+   * Create a request which only differs in its action composition strategy.
+   *
+   * @param strategy an action composition strategy
+   *
+   * @return a request using the given strategy
+   */
+  public PlannerRequest withActionCompositionStrategy(final ActionCompositionStrategy strategy) {
+    return new PlannerRequest(problem, strategy, countOnly, samplingStrategy, factored, searchStrategy,
+        orderingStrategy);
   }
 
   public PlanningProblem getPlanningProblem() {
@@ -44,4 +84,137 @@ public final class PlannerRequest {
     return compositionStrategy;
   }
 
+  /**
+   * @return true when only the number of plans per depth is requested, false when plans are requested
+   */
+  public boolean isCountOnly() {
+    return countOnly;
+  }
+
+  public PlanSamplingStrategy getPlanSamplingStrategy() {
+    return samplingStrategy;
+  }
+
+  /**
+   * @return true when all plans are requested as a single plan DAG, false when plans are requested individually
+   */
+  public boolean isFactored() {
+    return factored;
+  }
+
+  public PlanSearchStrategy getPlanSearchStrategy() {
+    return searchStrategy;
+  }
+
+  public PlanOrderingStrategy getPlanOrderingStrategy() {
+    return orderingStrategy;
+  }
+
+  /**
+   * Builds planner requests. Counting plans, factoring plans, and searching plans are exclusive modes, and plans can
+   * only be sampled or ordered when none of them is requested, because each mode determines how plans are obtained.
+   * Sampling and ordering are exclusive as well, because an ordering enumerates every plan.
+   */
+  public static final class Builder {
+
+    private final Mashup goalMashup;
+
+    private final int minDepth;
+
+    private final int maxDepth;
+
+    private ActionCompositionStrategy compositionStrategy = ActionCompositionStrategy.getDefault();
+
+    private boolean countOnly;
+
+    private PlanSamplingStrategy samplingStrategy = PlanSamplingStrategy.getDefault();
+
+    private boolean factored;
+
+    private PlanSearchStrategy searchStrategy = PlanSearchStrategy.getDefault();
+
+    private PlanOrderingStrategy orderingStrategy = PlanOrderingStrategy.getDefault();
+
+    private WidgetConstraints widgetConstraints = WidgetConstraints.none();
+
+    /**
+     * @param goalMashup a goal mashup
+     * @param minDepth   the minimum plan depth
+     * @param maxDepth   the maximum plan depth
+     */
+    public Builder(final Mashup goalMashup, final int minDepth, final int maxDepth) {
+      this.goalMashup = goalMashup;
+      this.minDepth = minDepth;
+      this.maxDepth = maxDepth;
+    }
+
+    public Builder withActionCompositionStrategy(final ActionCompositionStrategy compositionStrategy) {
+      this.compositionStrategy = compositionStrategy;
+      return this;
+    }
+
+    public Builder withCountOnly(final boolean countOnly) {
+      this.countOnly = countOnly;
+      return this;
+    }
+
+    public Builder withPlanSamplingStrategy(final PlanSamplingStrategy samplingStrategy) {
+      this.samplingStrategy = samplingStrategy;
+      return this;
+    }
+
+    public Builder withFactored(final boolean factored) {
+      this.factored = factored;
+      return this;
+    }
+
+    public Builder withPlanSearchStrategy(final PlanSearchStrategy searchStrategy) {
+      this.searchStrategy = searchStrategy;
+      return this;
+    }
+
+    public Builder withPlanOrderingStrategy(final PlanOrderingStrategy orderingStrategy) {
+      this.orderingStrategy = orderingStrategy;
+      return this;
+    }
+
+    public Builder withWidgetConstraints(final WidgetConstraints widgetConstraints) {
+      this.widgetConstraints = widgetConstraints;
+      return this;
+    }
+
+    /**
+     * @return a new request
+     *
+     * @throws IllegalArgumentException when the request combines exclusive modes
+     */
+    public PlannerRequest build() {
+      final boolean searching = searchStrategy.getMethod() != PlanSearchMethod.NONE;
+      final int modes = (countOnly ? 1 : 0) + (factored ? 1 : 0) + (searching ? 1 : 0);
+      if (modes > 1) {
+        throw new IllegalArgumentException("expecting at most one of count only, factored, and plan search");
+      }
+      final boolean sampling = samplingStrategy.getMethod() != PlanSamplingMethod.NONE;
+      if (modes > 0 && sampling) {
+        throw new IllegalArgumentException("expecting plan sampling only without count only, factored, or plan "
+            + "search");
+      }
+      if ((modes > 0 || sampling) && orderingStrategy.getMethod() != PlanOrderingMethod.NONE) {
+        throw new IllegalArgumentException("expecting plan ordering only without count only, factored, plan "
+            + "search, or plan sampling");
+      }
+      return new PlannerRequest(this);
+    }
+
+  }
+
+  private static PlanningProblem createPlanningProblem(final Mashup goalMashup, final int minDepth,
+                                                       final int maxDepth,
+                                                       final WidgetConstraints widgetConstraints) {
+    if (goalMashup == null) {
+      throw new IllegalArgumentException("expecting some goal mashup");
+    }
+    return new PlanningProblem(goalMashup, minDepth, maxDepth, widgetConstraints);
+  }
+
 }
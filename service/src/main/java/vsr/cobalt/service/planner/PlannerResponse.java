@@ -7,7 +7,11 @@
 
 package vsr.cobalt.service.planner;
 
+import java.util.Map;
+
 import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCount;
+import vsr.cobalt.planner.dag.PlanDag;
 
 /**
  * @author Erik Wienhold
@@ -20,4 +24,8 @@ public interface PlannerResponse {
 
   Throwable getCause();
 
+  Map<Integer, PlanCount> getPlanCounts();
+
+  PlanDag getPlanDag();
+
 }
@@ -11,6 +11,7 @@ import vsr.cobalt.planner.Repository;
 import vsr.cobalt.planner.graph.FunctionalityProvision;
 import vsr.cobalt.planner.graph.PropertyProvision;
 import vsr.cobalt.repository.semantic.SemanticRepository;
+import vsr.cobalt.service.Config;
 import vsr.cobalt.service.Service;
 import vsr.cobalt.service.planner.distance.FunctionalityProvisionDistanceMeter;
 import vsr.cobalt.service.planner.distance.PropertyProvisionDistanceMeter;
@@ -23,6 +24,13 @@ public class PlannerService {
 
   private static final PlannerService INSTANCE = new PlannerService();
 
+  private final GraphCache graphCache = new GraphCache(Config.get(Config.graphCacheCapacity));
+
+  private final ActionProvisionLibraries libraries =
+      new ActionProvisionLibraries(Config.get(Config.actionProvisionLibraryCapacity));
+
+  private final EnablingCostHeuristics heuristics = new EnablingCostHeuristics();
+
   private Repository repository;
 
   private PlannerService() {
@@ -33,7 +41,16 @@ public class PlannerService {
   }
 
   public PlannerJob createJob(final PlannerRequest request) {
-    return new PlannerJob(request, getRepository());
+    return new PlannerJob(request, getRepository(), graphCache, libraries, heuristics);
+  }
+
+  /**
+   * Discard all cached graphs, action provisions, and heuristics. Must be called whenever the repository changes.
+   */
+  public void invalidateCaches() {
+    graphCache.invalidate();
+    libraries.invalidate();
+    heuristics.invalidate();
   }
 
   public ProvisionDistanceMeter<PropertyProvision> getPropertyDistanceMeter() {
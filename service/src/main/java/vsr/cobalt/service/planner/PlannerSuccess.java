@@ -7,7 +7,12 @@
 
 package vsr.cobalt.service.planner;
 
+import java.util.Collections;
+import java.util.Map;
+
 import vsr.cobalt.planner.Plan;
+import vsr.cobalt.planner.PlanCount;
+import vsr.cobalt.planner.dag.PlanDag;
 
 /**
  * @author Erik Wienhold
@@ -16,8 +21,27 @@ public final class PlannerSuccess implements PlannerResponse {
 
   private final Iterable<Plan> plans;
 
-  public PlannerSuccess(final Iterable<Plan> plans) {
+  private final Map<Integer, PlanCount> planCounts;
+
+  private final PlanDag planDag;
+
+  public PlannerSuccess(final Iterable<Plan> plans, final Map<Integer, PlanCount> planCounts,
+                        final PlanDag planDag) {
     this.plans = plans;
+    this.planCounts = planCounts;
+    this.planDag = planDag;
+  }
+
+  public PlannerSuccess(final Iterable<Plan> plans, final Map<Integer, PlanCount> planCounts) {
+    this(plans, planCounts, null);
+  }
+
+  public PlannerSuccess(final PlanDag planDag) {
+    this(Collections.<Plan>emptyList(), Collections.<Integer, PlanCount>emptyMap(), planDag);
+  }
+
+  public PlannerSuccess(final Iterable<Plan> plans) {
+    this(plans, Collections.<Integer, PlanCount>emptyMap());
   }
 
   @Override
@@ -35,4 +59,14 @@ public final class PlannerSuccess implements PlannerResponse {
     return null;
   }
 
+  @Override
+  public Map<Integer, PlanCount> getPlanCounts() {
+    return planCounts;
+  }
+
+  @Override
+  public PlanDag getPlanDag() {
+    return planDag;
+  }
+
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.planner.distance;
+
+import vsr.cobalt.planner.extractors.ProvisionCostFunction;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.planner.graph.PropertyProvision;
+
+/**
+ * Uses provision distances as costs. The cost of an action provision is the sum of the distances of its property
+ * provisions.
+ *
+ * @author Erik Wienhold
+ */
+public class ProvisionDistanceCostFunction implements ProvisionCostFunction {
+
+  private final ProvisionDistanceMeter<FunctionalityProvision> functionalityDistanceMeter;
+
+  private final ProvisionDistanceMeter<PropertyProvision> propertyDistanceMeter;
+
+  public ProvisionDistanceCostFunction(final ProvisionDistanceMeter<FunctionalityProvision> functionalityDistanceMeter,
+                                       final ProvisionDistanceMeter<PropertyProvision> propertyDistanceMeter) {
+    this.functionalityDistanceMeter = functionalityDistanceMeter;
+    this.propertyDistanceMeter = propertyDistanceMeter;
+  }
+
+  @Override
+  public double getCost(final FunctionalityProvision provision) {
+    return functionalityDistanceMeter.measureDistance(provision);
+  }
+
+  @Override
+  public double getCost(final ActionProvision provision) {
+    double cost = 0;
+    for (final PropertyProvision pp : provision.getPropertyProvisions()) {
+      cost += propertyDistanceMeter.measureDistance(pp);
+    }
+    return cost;
+  }
+
+}
@@ -30,6 +30,7 @@ import vsr.cobalt.service.serialization.serializers.JsonPlanSerializer;
 import vsr.cobalt.service.serialization.serializers.JsonPropertyProvisionSerializer;
 import vsr.cobalt.service.serialization.serializers.JsonPropertySerializer;
 import vsr.cobalt.service.serialization.serializers.JsonWidgetSerializer;
+import vsr.cobalt.service.serialization.serializers.StreamingJsonPlanDagSerializer;
 
 /**
  * @author Erik Wienhold
@@ -48,6 +49,8 @@ public final class CachingJsonSerializers {
   public static final CachingJsonSerializer<FunctionalityProvision> functionalityProvisions;
   public static final CachingJsonSerializer<Widget> widgets;
 
+  public static final StreamingJsonPlanDagSerializer planDags;
+
   static {
     interactions = new CachingJsonSerializer<>(new JsonInteractionSerializer());
     properties = new CachingJsonSerializer<>(new JsonPropertySerializer());
@@ -69,5 +72,7 @@ public final class CachingJsonSerializers {
     extensionLevels = new CachingJsonSerializer<>(new JsonExtensionLevelSerializer(actionProvisions));
 
     plans = new CachingJsonSerializer<>(new JsonPlanSerializer(initialLevels, extensionLevels));
+    planDags = new StreamingJsonPlanDagSerializer(functionalities, actions, functionalityProvisions,
+        actionProvisions);
   }
 }
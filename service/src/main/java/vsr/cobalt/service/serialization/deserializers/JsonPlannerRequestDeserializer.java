@@ -9,6 +9,8 @@ package vsr.cobalt.service.serialization.deserializers;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.net.URI;
+import java.util.HashSet;
 import java.util.Set;
 import javax.json.Json;
 import javax.json.JsonArray;
@@ -25,9 +27,18 @@ import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFLanguages;
+import vsr.cobalt.models.Identifier;
 import vsr.cobalt.models.Mashup;
+import vsr.cobalt.planner.WidgetConstraints;
 import vsr.cobalt.repository.semantic.internalizers.models.MashupInternalizer;
 import vsr.cobalt.service.planner.ActionCompositionStrategy;
+import vsr.cobalt.service.planner.PlanOrderingMethod;
+import vsr.cobalt.service.planner.PlanOrderingStrategy;
+import vsr.cobalt.service.planner.PlanSamplingMethod;
+import vsr.cobalt.service.planner.PlanSamplingStrategy;
+import vsr.cobalt.service.planner.PlanSearchHeuristic;
+import vsr.cobalt.service.planner.PlanSearchMethod;
+import vsr.cobalt.service.planner.PlanSearchStrategy;
 import vsr.cobalt.service.planner.PlannerRequest;
 import vsr.cobalt.service.planner.PrecursorCompositionStrategy;
 
@@ -45,6 +56,21 @@ public class JsonPlannerRequestDeserializer {
   private static final String precursorActions = "precursorActions";
   private static final String functionalityProviders = "functionalityProviders";
   private static final String propertyProviders = "propertyProviders";
+  private static final String auto = "auto";
+  private static final String minPlans = "minPlans";
+  private static final String countOnly = "countOnly";
+  private static final String planSampling = "planSampling";
+  private static final String method = "method";
+  private static final String size = "size";
+  private static final String factored = "factored";
+  private static final String planSearch = "planSearch";
+  private static final String heuristic = "heuristic";
+  private static final String limit = "limit";
+  private static final String planOrdering = "planOrdering";
+  private static final String widgets = "widgets";
+  private static final String allow = "allow";
+  private static final String deny = "deny";
+  private static final String max = "max";
 
   public PlannerRequest deserialize(final JsonStructure objOrAry) {
     if (objOrAry instanceof JsonArray) {
@@ -57,8 +83,22 @@ public class JsonPlannerRequestDeserializer {
     final int maxDepth = getMaxDepth(obj);
     final Mashup mashup = getMashup(obj);
     final ActionCompositionStrategy compositionStrategy = getCompositionStrategy(obj);
+    final boolean countOnly = getCountOnly(obj);
+    final PlanSamplingStrategy samplingStrategy = getSamplingStrategy(obj);
+    final boolean factored = getFactored(obj);
+    final PlanSearchStrategy searchStrategy = getSearchStrategy(obj);
+    final PlanOrderingStrategy orderingStrategy = getOrderingStrategy(obj);
+    final WidgetConstraints widgetConstraints = getWidgetConstraints(obj);
 
-    return new PlannerRequest(mashup, minDepth, maxDepth, compositionStrategy);
+    return new PlannerRequest.Builder(mashup, minDepth, maxDepth)
+        .withActionCompositionStrategy(compositionStrategy)
+        .withCountOnly(countOnly)
+        .withPlanSamplingStrategy(samplingStrategy)
+        .withFactored(factored)
+        .withPlanSearchStrategy(searchStrategy)
+        .withPlanOrderingStrategy(orderingStrategy)
+        .withWidgetConstraints(widgetConstraints)
+        .build();
   }
 
   private Mashup getMashup(final JsonObject obj) {
@@ -114,6 +154,14 @@ public class JsonPlannerRequestDeserializer {
     return val;
   }
 
+  private boolean getCountOnly(final JsonObject obj) {
+    final Boolean val = getBoolean(obj, countOnly, false);
+    if (val == null) {
+      throw new IllegalArgumentException("expecting count only to be a boolean");
+    }
+    return val;
+  }
+
   private ActionCompositionStrategy getCompositionStrategy(final JsonObject obj) {
     final JsonValue val = obj.get(actionComposition);
     if (val == null || val == JsonValue.NULL) {
@@ -123,6 +171,17 @@ public class JsonPlannerRequestDeserializer {
       throw new IllegalArgumentException("expecting an object specifying the action composition strategy");
     }
     final JsonObject obj2 = (JsonObject) val;
+    final Boolean isAuto = getBoolean(obj2, auto, false);
+    if (isAuto == null) {
+      throw new IllegalArgumentException("expecting auto to be a boolean");
+    }
+    if (isAuto) {
+      final Integer n = getInt(obj2, minPlans, ActionCompositionStrategy.DEFAULT_MIN_PLANS);
+      if (n == null) {
+        throw new IllegalArgumentException("expecting minimum number of plans to be an integer");
+      }
+      return ActionCompositionStrategy.auto(n);
+    }
     final PrecursorCompositionStrategy a = parsePrecursorCompositionSrategy(getString(obj2, precursorActions, "none"));
     final boolean b = getBoolean(obj2, functionalityProviders, false);
     final boolean c = getBoolean(obj2, propertyProviders, false);
@@ -137,6 +196,142 @@ public class JsonPlannerRequestDeserializer {
     }
   }
 
+  private boolean getFactored(final JsonObject obj) {
+    final Boolean val = getBoolean(obj, factored, false);
+    if (val == null) {
+      throw new IllegalArgumentException("expecting factored to be a boolean");
+    }
+    return val;
+  }
+
+  private PlanSamplingStrategy getSamplingStrategy(final JsonObject obj) {
+    final JsonValue val = obj.get(planSampling);
+    if (val == null || val == JsonValue.NULL) {
+      return PlanSamplingStrategy.getDefault();
+    }
+    if (!(val instanceof JsonObject)) {
+      throw new IllegalArgumentException("expecting an object specifying the plan sampling strategy");
+    }
+    final JsonObject obj2 = (JsonObject) val;
+    final PlanSamplingMethod m = parsePlanSamplingMethod(getString(obj2, method, "NONE"));
+    final Integer n = getInt(obj2, size, PlanSamplingStrategy.DEFAULT_SAMPLE_SIZE);
+    if (n == null) {
+      throw new IllegalArgumentException("expecting sample size to be an integer");
+    }
+    return new PlanSamplingStrategy(m, n);
+  }
+
+  private PlanSamplingMethod parsePlanSamplingMethod(final String s) {
+    try {
+      return PlanSamplingMethod.valueOf(s);
+    } catch (final Exception ex) {
+      throw new IllegalArgumentException("unsupported plan sampling method", ex);
+    }
+  }
+
+  private PlanSearchStrategy getSearchStrategy(final JsonObject obj) {
+    final JsonValue val = obj.get(planSearch);
+    if (val == null || val == JsonValue.NULL) {
+      return PlanSearchStrategy.getDefault();
+    }
+    if (!(val instanceof JsonObject)) {
+      throw new IllegalArgumentException("expecting an object specifying the plan search strategy");
+    }
+    final JsonObject obj2 = (JsonObject) val;
+    final PlanSearchMethod m = parsePlanSearchMethod(getString(obj2, method, "NONE"));
+    final PlanSearchHeuristic h = parsePlanSearchHeuristic(getString(obj2, heuristic, "MAX"));
+    final Integer n = getInt(obj2, limit, PlanSearchStrategy.DEFAULT_LIMIT);
+    if (n == null) {
+      throw new IllegalArgumentException("expecting search limit to be an integer");
+    }
+    return new PlanSearchStrategy(m, h, n);
+  }
+
+  private PlanSearchMethod parsePlanSearchMethod(final String s) {
+    try {
+      return PlanSearchMethod.valueOf(s);
+    } catch (final Exception ex) {
+      throw new IllegalArgumentException("unsupported plan search method", ex);
+    }
+  }
+
+  private PlanSearchHeuristic parsePlanSearchHeuristic(final String s) {
+    try {
+      return PlanSearchHeuristic.valueOf(s);
+    } catch (final Exception ex) {
+      throw new IllegalArgumentException("unsupported plan search heuristic", ex);
+    }
+  }
+
+  private PlanOrderingStrategy getOrderingStrategy(final JsonObject obj) {
+    final JsonValue val = obj.get(planOrdering);
+    if (val == null || val == JsonValue.NULL) {
+      return PlanOrderingStrategy.getDefault();
+    }
+    if (!(val instanceof JsonObject)) {
+      throw new IllegalArgumentException("expecting an object specifying the plan ordering strategy");
+    }
+    final JsonObject obj2 = (JsonObject) val;
+    final PlanOrderingMethod m = parsePlanOrderingMethod(getString(obj2, method, "NONE"));
+    final Integer n = getInt(obj2, limit, PlanOrderingStrategy.DEFAULT_LIMIT);
+    if (n == null) {
+      throw new IllegalArgumentException("expecting ordering limit to be an integer");
+    }
+    return new PlanOrderingStrategy(m, n);
+  }
+
+  private PlanOrderingMethod parsePlanOrderingMethod(final String s) {
+    try {
+      return PlanOrderingMethod.valueOf(s);
+    } catch (final Exception ex) {
+      throw new IllegalArgumentException("unsupported plan ordering method", ex);
+    }
+  }
+
+  private WidgetConstraints getWidgetConstraints(final JsonObject obj) {
+    final JsonValue val = obj.get(widgets);
+    if (val == null || val == JsonValue.NULL) {
+      return WidgetConstraints.none();
+    }
+    if (!(val instanceof JsonObject)) {
+      throw new IllegalArgumentException("expecting an object specifying the widget constraints");
+    }
+    final JsonObject obj2 = (JsonObject) val;
+    final Set<Identifier> a = getIdentifiers(obj2, allow);
+    final Set<Identifier> d = getIdentifiers(obj2, deny);
+    final Integer n = getInt(obj2, max, WidgetConstraints.UNLIMITED);
+    if (n == null) {
+      throw new IllegalArgumentException("expecting maximum number of widgets to be an integer");
+    }
+    return new WidgetConstraints(a, d, n);
+  }
+
+  private Set<Identifier> getIdentifiers(final JsonObject obj, final String key) {
+    final JsonValue val = obj.get(key);
+    final Set<Identifier> ids = new HashSet<>();
+    if (val == null || val == JsonValue.NULL) {
+      return ids;
+    }
+    if (!(val instanceof JsonArray)) {
+      throw new IllegalArgumentException("expecting an array of widget URIs");
+    }
+    for (final JsonValue v : (JsonArray) val) {
+      if (!(v instanceof JsonString)) {
+        throw new IllegalArgumentException("expecting an array of widget URIs");
+      }
+      ids.add(parseIdentifier(((JsonString) v).getString()));
+    }
+    return ids;
+  }
+
+  private Identifier parseIdentifier(final String s) {
+    try {
+      return Identifier.create(URI.create(s));
+    } catch (final Exception ex) {
+      throw new IllegalArgumentException("invalid widget URI", ex);
+    }
+  }
+
   private Integer getInt(final JsonObject obj, final String key, final int defaultValue) {
     final JsonValue val = obj.get(key);
     if (val == null || val == JsonValue.NULL) {
@@ -7,9 +7,12 @@
 
 package vsr.cobalt.service.serialization.serializers;
 
+import java.util.Map;
 import javax.json.Json;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonObjectBuilder;
 
+import vsr.cobalt.planner.PlanCount;
 import vsr.cobalt.service.planner.PlannerResponse;
 import vsr.cobalt.service.serialization.CachingJsonSerializers;
 import vsr.cobalt.service.serialization.JsonSerializer;
@@ -21,16 +24,34 @@ public class JsonPlannerResponseSerializer extends JsonSerializer<PlannerRespons
 
   private static final String message = "message";
   private static final String plans = "plans";
+  private static final String planCounts = "planCounts";
+  private static final String depth = "depth";
+  private static final String count = "count";
+  private static final String exact = "exact";
 
   @Override
   public JsonObjectBuilder build(final PlannerResponse response) {
     final JsonObjectBuilder obj = Json.createObjectBuilder();
     if (response.isSuccess()) {
       obj.add(plans, CachingJsonSerializers.plans.serializeAll(response.getPlans()));
+      if (!response.getPlanCounts().isEmpty()) {
+        obj.add(planCounts, buildPlanCounts(response.getPlanCounts()));
+      }
     } else {
       obj.add(message, response.getCause().getMessage());
     }
     return obj;
   }
 
+  private static JsonArrayBuilder buildPlanCounts(final Map<Integer, PlanCount> pcs) {
+    final JsonArrayBuilder ary = Json.createArrayBuilder();
+    for (final Map.Entry<Integer, PlanCount> e : pcs.entrySet()) {
+      ary.add(Json.createObjectBuilder()
+          .add(depth, e.getKey())
+          .add(count, e.getValue().getCount())
+          .add(exact, e.getValue().isExact()));
+    }
+    return ary;
+  }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service.serialization.serializers;
+
+import java.util.List;
+import javax.json.stream.JsonGenerator;
+
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.planner.dag.ActionMutex;
+import vsr.cobalt.planner.dag.ChoiceNode;
+import vsr.cobalt.planner.dag.PlanDag;
+import vsr.cobalt.planner.dag.ProvisionNode;
+import vsr.cobalt.planner.graph.ActionProvision;
+import vsr.cobalt.planner.graph.FunctionalityProvision;
+import vsr.cobalt.service.serialization.JsonSerializer;
+
+/**
+ * Writes a plan DAG to a JSON generator, one node at a time, instead of building the whole JSON structure in memory.
+ * <p/>
+ * Action choices are written as an array ordered by their identifier. Provisions reference their required choices by
+ * identifier.
+ *
+ * @author Erik Wienhold
+ */
+public class StreamingJsonPlanDagSerializer {
+
+  private static final String actionChoices = "actionChoices";
+  private static final String actions = "actions";
+  private static final String action = "action";
+  private static final String actionProvision = "actionProvision";
+  private static final String alternatives = "alternatives";
+  private static final String functionality = "functionality";
+  private static final String functionalityChoices = "functionalityChoices";
+  private static final String functionalityProvision = "functionalityProvision";
+  private static final String id = "id";
+  private static final String level = "level";
+  private static final String maxDepth = "maxDepth";
+  private static final String mutexes = "mutexes";
+  private static final String requires = "requires";
+
+  private final JsonSerializer<Functionality> functionalitySerializer;
+
+  private final JsonSerializer<Action> actionSerializer;
+
+  private final JsonSerializer<FunctionalityProvision> functionalityProvisionSerializer;
+
+  private final JsonSerializer<ActionProvision> actionProvisionSerializer;
+
+  public StreamingJsonPlanDagSerializer(final JsonSerializer<Functionality> functionalitySerializer,
+                                        final JsonSerializer<Action> actionSerializer,
+                                        final JsonSerializer<FunctionalityProvision> functionalityProvisionSerializer,
+                                        final JsonSerializer<ActionProvision> actionProvisionSerializer) {
+    this.functionalitySerializer = functionalitySerializer;
+    this.actionSerializer = actionSerializer;
+    this.functionalityProvisionSerializer = functionalityProvisionSerializer;
+    this.actionProvisionSerializer = actionProvisionSerializer;
+  }
+
+  /**
+   * Write a plan DAG as the value of an object member.
+   *
+   * @param name      the member name
+   * @param dag       a plan DAG
+   * @param generator a generator within an object context
+   */
+  public void write(final String name, final PlanDag dag, final JsonGenerator generator) {
+    generator.writeStartObject(name);
+    writeMembers(dag, generator);
+    generator.writeEnd();
+  }
+
+  /**
+   * Write a plan DAG as an object.
+   *
+   * @param dag       a plan DAG
+   * @param generator a generator
+   */
+  public void write(final PlanDag dag, final JsonGenerator generator) {
+    generator.writeStartObject();
+    writeMembers(dag, generator);
+    generator.writeEnd();
+  }
+
+  private void writeMembers(final PlanDag dag, final JsonGenerator generator) {
+    generator.write(maxDepth, dag.getMaxDepth());
+
+    generator.writeStartArray(functionalityChoices);
+    for (final ChoiceNode<Functionality, FunctionalityProvision> c : dag.getFunctionalityChoices()) {
+      generator.writeStartObject()
+          .write(id, c.getId())
+          .write(level, c.getLevel())
+          .write(functionality, functionalitySerializer.serialize(c.getRequest()))
+          .writeStartArray(alternatives);
+      for (final ProvisionNode<FunctionalityProvision> pn : c.getAlternatives()) {
+        generator.writeStartObject()
+            .write(functionalityProvision, functionalityProvisionSerializer.serialize(pn.getProvision()));
+        writeRequirements(pn.getRequirements(), generator);
+        generator.writeEnd();
+      }
+      generator.writeEnd().writeEnd();
+    }
+    generator.writeEnd();
+
+    generator.writeStartArray(actionChoices);
+    for (final ChoiceNode<Action, ActionProvision> c : dag.getActionChoices()) {
+      generator.writeStartObject()
+          .write(id, c.getId())
+          .write(level, c.getLevel())
+          .write(action, actionSerializer.serialize(c.getRequest()))
+          .writeStartArray(alternatives);
+      for (final ProvisionNode<ActionProvision> pn : c.getAlternatives()) {
+        generator.writeStartObject()
+            .write(actionProvision, actionProvisionSerializer.serialize(pn.getProvision()));
+        writeRequirements(pn.getRequirements(), generator);
+        generator.writeEnd();
+      }
+      generator.writeEnd().writeEnd();
+    }
+    generator.writeEnd();
+
+    if (!dag.getMutexes().isEmpty()) {
+      generator.writeStartArray(mutexes);
+      for (final ActionMutex m : dag.getMutexes()) {
+        generator.writeStartObject()
+            .write(level, m.getLevel())
+            .writeStartArray(actions)
+            .write(actionSerializer.serialize(m.getFirst()))
+            .write(actionSerializer.serialize(m.getSecond()))
+            .writeEnd()
+            .writeEnd();
+      }
+      generator.writeEnd();
+    }
+  }
+
+  private void writeRequirements(final List<ChoiceNode<Action, ActionProvision>> requirements,
+                                 final JsonGenerator generator) {
+    if (!requirements.isEmpty()) {
+      generator.writeStartArray(requires);
+      for (final ChoiceNode<Action, ActionProvision> c : requirements) {
+        generator.write(c.getId());
+      }
+      generator.writeEnd();
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+import vsr.cobalt.service.planner.ActionCompositionStrategy;
+import vsr.cobalt.service.planner.PrecursorCompositionStrategy;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class ActionCompositionStrategyTest {
+
+  @Test(expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "expecting minPlans >= 1")
+  public void rejectMinPlansWhenLessThanOne() {
+    ActionCompositionStrategy.auto(0);
+  }
+
+  @Test
+  public void escalateOnlyToItselfWhenNotAutomatic() {
+    final ActionCompositionStrategy s = new ActionCompositionStrategy(PrecursorCompositionStrategy.MINIMAL, true,
+        false);
+    assertEquals(s.getEscalation().size(), 1);
+    assertEquals(s.getEscalation().get(0), s);
+  }
+
+  @Test
+  public void escalateFromCheapestToRichestComposition() {
+    final List<ActionCompositionStrategy> ss = ActionCompositionStrategy.auto(1).getEscalation();
+    assertEquals(ss.get(0), ActionCompositionStrategy.getDefault());
+    assertEquals(ss.get(ss.size() - 1),
+        new ActionCompositionStrategy(PrecursorCompositionStrategy.EXTENDED_MINIMAL, true, true));
+    for (final ActionCompositionStrategy s : ss) {
+      assertFalse(s.isAuto());
+    }
+  }
+
+  @Test
+  public void notEqualToStrategyOfFirstStage() {
+    final ActionCompositionStrategy s = ActionCompositionStrategy.auto(1);
+    assertTrue(s.isAuto());
+    assertNotEquals(s, s.getEscalation().get(0));
+  }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2014, Erik Wienhold
+ * All rights reserved.
+ *
+ * Licensed under the BSD 3-Clause License.
+ */
+
+package vsr.cobalt.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+import vsr.cobalt.models.Action;
+import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Mashup;
+import vsr.cobalt.models.Property;
+import vsr.cobalt.planner.GraphUpdater;
+import vsr.cobalt.planner.MashupPlanner;
+import vsr.cobalt.planner.PlanningException;
+import vsr.cobalt.planner.graph.Graph;
+import vsr.cobalt.service.planner.ActionCompositionStrategy;
+import vsr.cobalt.service.planner.GraphCache;
+import vsr.cobalt.service.planner.PrecursorCompositionStrategy;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static vsr.cobalt.models.makers.ActionMaker.aMinimalAction;
+import static vsr.cobalt.models.makers.FunctionalityMaker.aMinimalFunctionality;
+import static vsr.cobalt.models.makers.MashupMaker.aMinimalMashup;
+import static vsr.cobalt.models.makers.PropertyMaker.aMinimalProperty;
+import static vsr.cobalt.models.makers.PropositionSetMaker.aPropositionSet;
+import static vsr.cobalt.planner.graph.makers.ActionProvisionMaker.anActionProvision;
+import static vsr.cobalt.planner.graph.makers.ExtensionLevelMaker.anExtensionLevel;
+import static vsr.cobalt.planner.graph.makers.FunctionalityProvisionMaker.aFunctionalityProvision;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aGraph;
+import static vsr.cobalt.planner.graph.makers.GraphMaker.aMinimalGraph;
+import static vsr.cobalt.planner.graph.makers.InitialLevelMaker.anInitialLevel;
+import static vsr.cobalt.testing.Utilities.make;
+import static vsr.cobalt.testing.Utilities.setOf;
+
+@Test
+public class GraphCacheTest {
+
+  private static final Mashup MASHUP = make(aMinimalMashup());
+
+  private static final ActionCompositionStrategy STRATEGY = ActionCompositionStrategy.getDefault();
+
+  /**
+   * An unsatisfied graph of depth 1.
+   */
+  private static final Graph G1;
+
+  /**
+   * A satisfied extension of {@link #G1}.
+   */
+  private static final Graph G2;
+
+  static {
+    final Functionality f = make(aMinimalFunctionality());
+
+    final Property p = make(aMinimalProperty());
+
+    final Action a1 = make(aMinimalAction()
+        .withFunctionality(f)
+        .withPre(aPropositionSet().withCleared(p)));
+
+    final Action a2 = make(aMinimalAction()
+        .withEffects(aPropositionSet().withCleared(p)));
+
+    G2 = make(aGraph()
+        .withInitialLevel(anInitialLevel()
+            .withProvision(aFunctionalityProvision()
+                .withRequest(f)
+                .withOffer(f)
+                .withProvidingAction(a1)))
+        .withExtensionLevel(anExtensionLevel()
+            .withProvision(anActionProvision()
+                .withRequest(a1)
+                .withPrecursor(a2))));
+
+    G1 = Graph.create(G2.getInitialLevel());
+  }
+
+  private static MashupPlanner planner() throws Exception {
+    final MashupPlanner mp = mock(MashupPlanner.class);
+    when(mp.createGraph(MASHUP)).thenReturn(G1);
+    when(mp.extendGraph(G1)).thenReturn(G2);
+    return mp;
+  }
+
+  @Test
+  public static class New {
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting capacity >= 1")
+    public void rejectCapacityLessThanOne() {
+      new GraphCache(0);
+    }
+
+  }
+
+  @Test
+  public static class GetGraph {
+
+    @Test
+    public void createGraphOnlyOnce() throws Exception {
+      final MashupPlanner mp = planner();
+      final GraphCache gc = new GraphCache();
+      assertSame(gc.getGraph(MASHUP, STRATEGY, 1, mp), G1);
+      assertSame(gc.getGraph(MASHUP, STRATEGY, 1, mp), G1);
+      verify(mp, times(1)).createGraph(MASHUP);
+    }
+
+    @Test
+    public void extendCachedGraphToReachDepth() throws Exception {
+      final MashupPlanner mp = planner();
+      final GraphCache gc = new GraphCache();
+      gc.getGraph(MASHUP, STRATEGY, 1, mp);
+      assertSame(gc.getGraph(MASHUP, STRATEGY, 2, mp), G2);
+      verify(mp, times(1)).createGraph(MASHUP);
+    }
+
+    @Test
+    public void returnDeeperGraphWhenCached() throws Exception {
+      final MashupPlanner mp = planner();
+      final GraphCache gc = new GraphCache();
+      gc.getGraph(MASHUP, STRATEGY, 2, mp);
+      assertSame(gc.getGraph(MASHUP, STRATEGY, 1, mp), G2);
+    }
+
+    @Test
+    public void returnGraphBuiltSoFarWhenExtensionFails() throws Exception {
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.createGraph(MASHUP)).thenReturn(G1);
+      when(mp.extendGraph(G1)).thenThrow(new PlanningException());
+      final GraphCache gc = new GraphCache();
+      assertSame(gc.getGraph(MASHUP, STRATEGY, 2, mp), G1);
+    }
+
+    @Test
+    public void cacheGraphsByCompositionStrategy() throws Exception {
+      final MashupPlanner mp = planner();
+      final GraphCache gc = new GraphCache();
+      gc.getGraph(MASHUP, STRATEGY, 1, mp);
+      gc.getGraph(MASHUP, new ActionCompositionStrategy(PrecursorCompositionStrategy.MINIMAL, true, true), 1, mp);
+      gc.getGraph(MASHUP, new ActionCompositionStrategy(PrecursorCompositionStrategy.NONE, false, false), 1, mp);
+      verify(mp, times(2)).createGraph(MASHUP);
+      assertEquals(gc.size(), 2);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedGraph() throws Exception {
+      final MashupPlanner mp = planner();
+      final ActionCompositionStrategy s = new ActionCompositionStrategy(PrecursorCompositionStrategy.MINIMAL,
+          false, false);
+      final GraphCache gc = new GraphCache(1);
+      gc.getGraph(MASHUP, STRATEGY, 1, mp);
+      gc.getGraph(MASHUP, s, 1, mp);
+      gc.getGraph(MASHUP, STRATEGY, 1, mp);
+      verify(mp, times(3)).createGraph(MASHUP);
+      assertEquals(gc.size(), 1);
+    }
+
+    @Test
+    public void buildGraphOnceForConcurrentRequests() throws Exception {
+      final CountDownLatch entered = new CountDownLatch(1);
+      final CountDownLatch released = new CountDownLatch(1);
+
+      final MashupPlanner mp = mock(MashupPlanner.class);
+      when(mp.createGraph(MASHUP)).thenAnswer(new Answer<Graph>() {
+        @Override
+        public Graph answer(final InvocationOnMock invocation) throws Throwable {
+          entered.countDown();
+          released.await();
+          return G1;
+        }
+      });
+
+      final GraphCache gc = new GraphCache();
+      final Callable<Graph> task = new Callable<Graph>() {
+        @Override
+        public Graph call() throws Exception {
+          return gc.getGraph(MASHUP, STRATEGY, 1, mp);
+        }
+      };
+
+      final ExecutorService x = Executors.newFixedThreadPool(2);
+      try {
+        final Future<Graph> f1 = x.submit(task);
+        entered.await();
+        final Future<Graph> f2 = x.submit(task);
+        released.countDown();
+        assertSame(f1.get(), G1);
+        assertSame(f2.get(), G1);
+      } finally {
+        x.shutdown();
+      }
+
+      verify(mp, times(1)).createGraph(any(Mashup.class));
+    }
+
+    @Test
+    public void updateGraphOfSimilarMashup() throws Exception {
+      final Mashup m = new Mashup(setOf(make(aMinimalFunctionality()),
+          make(aMinimalFunctionality().withIdentifier("other"))));
+      final Graph g = make(aMinimalGraph());
+
+      final MashupPlanner mp = planner();
+      final GraphUpdater gu = mock(GraphUpdater.class);
+      when(gu.updateGraph(G2, m)).thenReturn(g);
+
+      final GraphCache gc = new GraphCache();
+      gc.getGraph(MASHUP, STRATEGY, 2, mp, gu);
+
+      assertSame(gc.getGraph(m, STRATEGY, 1, mp, gu), g);
+      verify(mp, never()).createGraph(m);
+    }
+
+    @Test
+    public void createGraphWhenSimilarGraphIsCompacted() throws Exception {
+      final Mashup m = new Mashup(setOf(make(aMinimalFunctionality()),
+          make(aMinimalFunctionality().withIdentifier("other"))));
+
+      final MashupPlanner mp = planner();
+      when(mp.createGraph(MASHUP)).thenReturn(Graph.createCompacted(G1.getInitialLevel()));
+      when(mp.createGraph(m)).thenReturn(G1);
+      final GraphUpdater gu = mock(GraphUpdater.class);
+
+      final GraphCache gc = new GraphCache();
+      gc.getGraph(MASHUP, STRATEGY, 1, mp, gu);
+
+      assertSame(gc.getGraph(m, STRATEGY, 1, mp, gu), G1);
+      verify(gu, never()).updateGraph(any(Graph.class), any(Mashup.class));
+    }
+
+    @Test
+    public void createGraphWhenUpdateFails() throws Exception {
+      final Mashup m = new Mashup(setOf(make(aMinimalFunctionality()),
+          make(aMinimalFunctionality().withIdentifier("other"))));
+
+      final MashupPlanner mp = planner();
+      when(mp.createGraph(m)).thenReturn(G1);
+      final GraphUpdater gu = mock(GraphUpdater.class);
+      when(gu.updateGraph(any(Graph.class), any(Mashup.class))).thenThrow(new PlanningException());
+
+      final GraphCache gc = new GraphCache();
+      gc.getGraph(MASHUP, STRATEGY, 1, mp, gu);
+
+      assertSame(gc.getGraph(m, STRATEGY, 1, mp, gu), G1);
+    }
+
+  }
+
+  @Test
+  public static class Invalidate {
+
+    @Test
+    public void discardCachedGraphs() throws Exception {
+      final MashupPlanner mp = planner();
+      final GraphCache gc = new GraphCache();
+      gc.getGraph(MASHUP, STRATEGY, 1, mp);
+      gc.invalidate();
+      assertEquals(gc.size(), 0);
+      gc.getGraph(MASHUP, STRATEGY, 1, mp);
+      verify(mp, times(2)).createGraph(MASHUP);
+    }
+
+  }
+
+}
@@ -21,12 +21,21 @@ import javax.json.JsonStructure;
 
 import org.testng.annotations.Test;
 import vsr.cobalt.models.Functionality;
+import vsr.cobalt.models.Identifier;
 import vsr.cobalt.models.Mashup;
 import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.planner.WidgetConstraints;
+import vsr.cobalt.service.planner.ActionCompositionStrategy;
+import vsr.cobalt.service.planner.PlanOrderingMethod;
+import vsr.cobalt.service.planner.PlanSamplingMethod;
+import vsr.cobalt.service.planner.PlanSearchHeuristic;
+import vsr.cobalt.service.planner.PlanSearchMethod;
 import vsr.cobalt.service.planner.PlannerRequest;
 import vsr.cobalt.service.serialization.deserializers.JsonPlannerRequestDeserializer;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static vsr.cobalt.models.makers.FunctionalityMaker.aFunctionality;
 import static vsr.cobalt.testing.Utilities.make;
 import static vsr.cobalt.testing.Utilities.setOf;
@@ -116,6 +125,14 @@ public class JsonPlannerRequestDeserializerTest {
       d.deserialize(obj);
     }
 
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting at most one of count only, factored, and plan search")
+    public void rejectCountOnlyAndFactored() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/count-only-and-factored.json");
+      d.deserialize(obj);
+    }
+
     @Test
     public void parseRequest() throws Exception {
       final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
@@ -152,6 +169,111 @@ public class JsonPlannerRequestDeserializerTest {
       assertEquals(r.getPlanningProblem().getMaxDepth(), Integer.MAX_VALUE);
     }
 
+    @Test
+    public void defaultToRequestingPlans() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/valid.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertFalse(r.isCountOnly());
+    }
+
+    @Test
+    public void parseCountOnly() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/count-only.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertTrue(r.isCountOnly());
+    }
+
+    @Test
+    public void defaultToIndividualPlans() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/valid.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertFalse(r.isFactored());
+    }
+
+    @Test
+    public void parseFactored() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/factored.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertTrue(r.isFactored());
+    }
+
+    @Test
+    public void defaultToNoPlanSampling() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/valid.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertEquals(r.getPlanSamplingStrategy().getMethod(), PlanSamplingMethod.NONE);
+    }
+
+    @Test
+    public void parsePlanSampling() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/plan-sampling.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertEquals(r.getPlanSamplingStrategy().getMethod(), PlanSamplingMethod.DIVERSE);
+      assertEquals(r.getPlanSamplingStrategy().getSampleSize(), 5);
+    }
+
+    @Test
+    public void parseCheapestPlanOrdering() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/cheapest-plans.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertEquals(r.getPlanOrderingStrategy().getMethod(), PlanOrderingMethod.CHEAPEST);
+      assertEquals(r.getPlanOrderingStrategy().getLimit(), 3);
+      assertEquals(r.getPlanSamplingStrategy().getMethod(), PlanSamplingMethod.NONE);
+    }
+
+    @Test
+    public void defaultToNoPlanSearch() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/valid.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertEquals(r.getPlanSearchStrategy().getMethod(), PlanSearchMethod.NONE);
+    }
+
+    @Test
+    public void parsePlanSearch() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/plan-search.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertEquals(r.getPlanSearchStrategy().getMethod(), PlanSearchMethod.GREEDY);
+      assertEquals(r.getPlanSearchStrategy().getHeuristic(), PlanSearchHeuristic.ADD);
+      assertEquals(r.getPlanSearchStrategy().getLimit(), 5);
+    }
+
+    @Test
+    public void parseAutomaticActionComposition() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/auto-composition.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertEquals(r.getActionCompositionStrategy(), ActionCompositionStrategy.auto(3));
+    }
+
+    @Test
+    public void defaultToNoWidgetConstraints() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/valid.json");
+      final PlannerRequest r = d.deserialize(obj);
+      assertEquals(r.getPlanningProblem().getWidgetConstraints(), WidgetConstraints.none());
+    }
+
+    @Test
+    public void parseWidgetConstraints() throws Exception {
+      final JsonPlannerRequestDeserializer d = new JsonPlannerRequestDeserializer();
+      final JsonStructure obj = load("request/widgets.json");
+      final PlannerRequest r = d.deserialize(obj);
+      final WidgetConstraints wc = r.getPlanningProblem().getWidgetConstraints();
+      assertEquals(wc.getAllowedWidgets(), setOf(Identifier.create(new URI("urn:example:widget:1")),
+          Identifier.create(new URI("urn:example:widget:2"))));
+      assertEquals(wc.getDeniedWidgets(), setOf(Identifier.create(new URI("urn:example:widget:3"))));
+      assertEquals(wc.getMaxWidgets(), 2);
+    }
+
   }
 
 }
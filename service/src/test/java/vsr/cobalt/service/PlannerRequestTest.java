@@ -10,9 +10,19 @@ package vsr.cobalt.service;
 import org.testng.annotations.Test;
 import vsr.cobalt.models.Mashup;
 import vsr.cobalt.planner.PlanningProblem;
+import vsr.cobalt.service.planner.ActionCompositionStrategy;
+import vsr.cobalt.service.planner.PlanOrderingMethod;
+import vsr.cobalt.service.planner.PlanOrderingStrategy;
+import vsr.cobalt.service.planner.PlanSamplingMethod;
+import vsr.cobalt.service.planner.PlanSamplingStrategy;
+import vsr.cobalt.service.planner.PlanSearchHeuristic;
+import vsr.cobalt.service.planner.PlanSearchMethod;
+import vsr.cobalt.service.planner.PlanSearchStrategy;
 import vsr.cobalt.service.planner.PlannerRequest;
+import vsr.cobalt.service.planner.PrecursorCompositionStrategy;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static vsr.cobalt.models.makers.MashupMaker.aMinimalMashup;
 import static vsr.cobalt.testing.Utilities.make;
 
@@ -35,6 +45,83 @@ public class PlannerRequestTest {
       assertEquals(r.getPlanningProblem(), new PlanningProblem(m, 1, 2));
     }
 
+    @Test
+    public void replaceActionCompositionStrategy() {
+      final Mashup m = make(aMinimalMashup());
+      final PlannerRequest r1 = new PlannerRequest.Builder(m, 1, 2)
+          .withActionCompositionStrategy(ActionCompositionStrategy.auto(1))
+          .withCountOnly(true)
+          .build();
+      final ActionCompositionStrategy s = new ActionCompositionStrategy(PrecursorCompositionStrategy.MINIMAL, true,
+          false);
+      final PlannerRequest r2 = r1.withActionCompositionStrategy(s);
+      assertEquals(r2.getActionCompositionStrategy(), s);
+      assertEquals(r2.getPlanningProblem(), r1.getPlanningProblem());
+      assertEquals(r2.isCountOnly(), r1.isCountOnly());
+    }
+
+  }
+
+  @Test
+  public static class Build {
+
+    @Test
+    public void defaultToIndividualPlans() {
+      final PlannerRequest r = new PlannerRequest.Builder(make(aMinimalMashup()), 1, 2).build();
+      assertEquals(r.getActionCompositionStrategy(), ActionCompositionStrategy.getDefault());
+      assertFalse(r.isCountOnly());
+      assertFalse(r.isFactored());
+      assertEquals(r.getPlanSamplingStrategy().getMethod(), PlanSamplingMethod.NONE);
+      assertEquals(r.getPlanSearchStrategy().getMethod(), PlanSearchMethod.NONE);
+      assertEquals(r.getPlanOrderingStrategy().getMethod(), PlanOrderingMethod.NONE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting at most one of count only, factored, and plan search")
+    public void rejectCountOnlyAndFactored() {
+      new PlannerRequest.Builder(make(aMinimalMashup()), 1, 2)
+          .withCountOnly(true)
+          .withFactored(true)
+          .build();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting at most one of count only, factored, and plan search")
+    public void rejectFactoredAndPlanSearch() {
+      new PlannerRequest.Builder(make(aMinimalMashup()), 1, 2)
+          .withFactored(true)
+          .withPlanSearchStrategy(new PlanSearchStrategy(PlanSearchMethod.GREEDY, PlanSearchHeuristic.MAX, 1))
+          .build();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting plan sampling only without count only, factored, or plan search")
+    public void rejectPlanSamplingWhenCountingOnly() {
+      new PlannerRequest.Builder(make(aMinimalMashup()), 1, 2)
+          .withCountOnly(true)
+          .withPlanSamplingStrategy(new PlanSamplingStrategy(PlanSamplingMethod.UNIFORM, 1))
+          .build();
+    }
+
+    @Test
+    public void orderIndividualPlans() {
+      final PlannerRequest r = new PlannerRequest.Builder(make(aMinimalMashup()), 1, 2)
+          .withPlanOrderingStrategy(new PlanOrderingStrategy(PlanOrderingMethod.CHEAPEST, 3))
+          .build();
+      assertEquals(r.getPlanOrderingStrategy().getMethod(), PlanOrderingMethod.CHEAPEST);
+      assertEquals(r.getPlanOrderingStrategy().getLimit(), 3);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "expecting plan ordering only without count only, factored, plan search, "
+            + "or plan sampling")
+    public void rejectPlanOrderingWhenSampling() {
+      new PlannerRequest.Builder(make(aMinimalMashup()), 1, 2)
+          .withPlanSamplingStrategy(new PlanSamplingStrategy(PlanSamplingMethod.DIVERSE, 1))
+          .withPlanOrderingStrategy(new PlanOrderingStrategy(PlanOrderingMethod.CHEAPEST, 1))
+          .build();
+    }
+
   }
 
 }
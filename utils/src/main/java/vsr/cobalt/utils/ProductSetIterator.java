@@ -8,10 +8,16 @@
 package vsr.cobalt.utils;
 
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
-import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.UnmodifiableIterator;
 
 /**
  * Iterator over each product set of a set of sets.
@@ -32,19 +38,45 @@ import com.google.common.collect.ImmutableList;
  *  {1,3,6},
  *  {1,5,6}} =: A x B x C
  * </pre>
+ * Combinations can be excluded by specifying a subset which must not be contained. Because the first counter changes
+ * most frequently, any combination containing an excluded subset is skipped together with all its successors which
+ * only differ in counters less significant than the least significant counter having a value of the excluded subset.
+ * <p/>
+ * Only minimal excluded sets are kept, i.e. a set is not kept when it contains another excluded set, and each set is
+ * indexed by one of its elements. Thus a combination is only compared with the excluded sets indexed by its elements.
  */
-public class ProductSetIterator<E> extends AbstractIterator<Set<E>> {
+public class ProductSetIterator<E> extends UnmodifiableIterator<Set<E>> {
 
   /**
    * The counters created from each set.
    */
   private final ImmutableList<Counter<E>> counters;
 
+  /**
+   * The minimal sets whose supersets should be skipped, each indexed by one of its elements.
+   */
+  private final SetMultimap<E, Set<E>> excluded = HashMultimap.create();
+
+  /**
+   * Indicate when the empty set is excluded, which excludes every combination.
+   */
+  private boolean excludeAll;
+
   /**
    * Indicate when iteration is done.
    */
   private boolean done;
 
+  /**
+   * The combination of the current counter values when already computed by {@link #hasNext()}, null otherwise.
+   */
+  private Set<E> pending;
+
+  /**
+   * Indicate when the counters still hold the combination returned last.
+   */
+  private boolean returned;
+
   public ProductSetIterator(final Set<? extends Set<E>> sets) {
     for (final Set<E> set : sets) {
       if (set.isEmpty()) {
@@ -56,24 +88,146 @@ public class ProductSetIterator<E> extends AbstractIterator<Set<E>> {
     done = sets.isEmpty();
   }
 
+  /**
+   * Exclude all combinations which are supersets of a given set in future calls to {@link #next()}, including a
+   * combination already computed by {@link #hasNext()}.
+   *
+   * @param set a set whose supersets should be excluded
+   */
+  public void excludeSuperSetsOf(final Set<E> set) {
+    if (pending != null && pending.containsAll(set)) {
+      // compute the next combination again, now skipping the pending one
+      pending = null;
+    }
+
+    if (set.isEmpty()) {
+      excludeAll = true;
+      excluded.clear();
+      return;
+    }
+
+    if (findExcludedSubSet(set) != null) {
+      return;
+    }
+
+    // supersets of the given set are no longer needed
+    final Iterator<Map.Entry<E, Set<E>>> it = excluded.entries().iterator();
+    while (it.hasNext()) {
+      if (it.next().getValue().containsAll(set)) {
+        it.remove();
+      }
+    }
+
+    excluded.put(set.iterator().next(), ImmutableSet.copyOf(set));
+  }
+
   @Override
-  protected Set<E> computeNext() {
-    if (done) {
-      return endOfData();
+  public boolean hasNext() {
+    if (pending == null) {
+      pending = computeNext();
     }
+    return pending != null;
+  }
 
-    final Set<E> values = new HashSet<>(counters.size());
+  @Override
+  public Set<E> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Set<E> values = pending;
+    pending = null;
+    returned = true;
+    return values;
+  }
 
-    done = true;
+  /**
+   * Compute the next combination not containing any excluded set.
+   *
+   * @return the next combination, null when done
+   */
+  private Set<E> computeNext() {
+    if (returned) {
+      returned = false;
+      increment(0);
+    }
+    while (!done) {
+      final Set<E> values = getValues();
+      final Set<E> subset = findExcludedSubSet(values);
+      if (subset == null) {
+        return values;
+      }
+      skip(subset);
+    }
+    return null;
+  }
 
+  /**
+   * @return the combination of the current counter values
+   */
+  private Set<E> getValues() {
+    final Set<E> values = new HashSet<>(counters.size());
     for (final Counter<E> counter : counters) {
       values.add(counter.getValue());
-      done = done && counter.increment();
     }
-
     return values;
   }
 
+  /**
+   * Find an excluded set contained in a combination.
+   *
+   * @param values a combination
+   *
+   * @return an excluded subset of the combination, null when the combination is not excluded
+   */
+  private Set<E> findExcludedSubSet(final Set<E> values) {
+    if (excludeAll) {
+      return ImmutableSet.of();
+    }
+    for (final E value : values) {
+      for (final Set<E> subset : excluded.get(value)) {
+        if (values.containsAll(subset)) {
+          return subset;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Skip all combinations which contain an excluded subset of the current combination, by resetting all counters
+   * below the least significant counter having a value of the excluded subset and incrementing that counter.
+   *
+   * @param subset an excluded subset of the current combination
+   */
+  private void skip(final Set<E> subset) {
+    for (int i = 0; i < counters.size(); i += 1) {
+      if (subset.contains(counters.get(i).getValue())) {
+        for (int j = 0; j < i; j += 1) {
+          counters.get(j).reset();
+        }
+        increment(i);
+        return;
+      }
+    }
+    // an empty subset excludes every combination
+    done = true;
+  }
+
+  /**
+   * Increment the counter at a given position and carry over into more significant counters when necessary.
+   *
+   * @param position the position of the counter to increment
+   */
+  private void increment(final int position) {
+    done = true;
+    for (int i = position; i < counters.size(); i += 1) {
+      if (!counters.get(i).increment()) {
+        done = false;
+        break;
+      }
+    }
+  }
+
   private static <E> ImmutableList<Counter<E>> createCounters(final Set<? extends Set<E>> sets) {
     final ImmutableList.Builder<Counter<E>> counters = ImmutableList.builder();
     for (final Set<E> set : sets) {
@@ -111,6 +265,13 @@ public class ProductSetIterator<E> extends AbstractIterator<Set<E>> {
       return values.get(index);
     }
 
+    /**
+     * Reset the counter to its first value.
+     */
+    public void reset() {
+      index = 0;
+    }
+
     /**
      * Increment the counter and wrap around when necessary.
      *
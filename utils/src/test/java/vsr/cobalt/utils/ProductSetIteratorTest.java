@@ -13,6 +13,7 @@ import com.google.common.collect.Sets;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static vsr.cobalt.testing.Utilities.emptySet;
 import static vsr.cobalt.testing.Utilities.setOf;
 
@@ -59,4 +60,88 @@ public class ProductSetIteratorTest {
     assertEquals(ps, xps);
   }
 
+  @Test
+  public void excludeSuperSetsOfExcludedSet() {
+    final Set<Set<Integer>> s = setOf(setOf(0, 1), setOf(2, 3), setOf(4, 5));
+
+    final Set<Set<Integer>> xps = setOf(
+        setOf(0, 2, 4), setOf(0, 2, 5),
+        setOf(1, 2, 4), setOf(1, 2, 5),
+        setOf(1, 3, 4), setOf(1, 3, 5));
+
+    final ProductSetIterator<Integer> it = new ProductSetIterator<>(s);
+    it.excludeSuperSetsOf(setOf(0, 3));
+
+    final Set<Set<Integer>> ps = Sets.newHashSet(it);
+
+    assertEquals(ps, xps);
+  }
+
+  @Test
+  public void excludeSuperSetsDuringIteration() {
+    final Set<Set<Integer>> s = setOf(setOf(0, 1), setOf(2, 3));
+
+    final ProductSetIterator<Integer> it = new ProductSetIterator<>(s);
+
+    int n = 0;
+    int m = 0;
+    while (it.hasNext()) {
+      final Set<Integer> p = it.next();
+      n += 1;
+      if (p.contains(2)) {
+        m += 1;
+        it.excludeSuperSetsOf(setOf(2));
+      }
+    }
+
+    assertEquals(n, 3);
+    assertEquals(m, 1);
+  }
+
+  @Test
+  public void excludeCombinationAlreadyComputedByHasNext() {
+    final Set<Set<Integer>> s = setOf(setOf(0, 1), setOf(2, 3));
+
+    final ProductSetIterator<Integer> it = new ProductSetIterator<>(s);
+
+    final Set<Set<Integer>> ps = Sets.newHashSet();
+    while (it.hasNext()) {
+      // exclude before taking the combination computed by hasNext()
+      it.excludeSuperSetsOf(setOf(2));
+      if (it.hasNext()) {
+        ps.add(it.next());
+      }
+    }
+
+    assertEquals(ps, setOf(setOf(0, 3), setOf(1, 3)));
+  }
+
+  @Test
+  public void excludeSuperSetsOfSubsetOfExcludedSet() {
+    final Set<Set<Integer>> s = setOf(setOf(0, 1), setOf(2, 3), setOf(4, 5));
+
+    final Set<Set<Integer>> xps = setOf(
+        setOf(1, 2, 4), setOf(1, 2, 5),
+        setOf(1, 3, 4), setOf(1, 3, 5));
+
+    final ProductSetIterator<Integer> it = new ProductSetIterator<>(s);
+    it.excludeSuperSetsOf(setOf(0, 3));
+    it.excludeSuperSetsOf(setOf(0));
+    it.excludeSuperSetsOf(setOf(0, 2, 4));
+
+    final Set<Set<Integer>> ps = Sets.newHashSet(it);
+
+    assertEquals(ps, xps);
+  }
+
+  @Test
+  public void excludeEverythingWhenExcludingEmptySet() {
+    final Set<Set<Integer>> s = setOf(setOf(0, 1), setOf(2, 3));
+
+    final ProductSetIterator<Integer> it = new ProductSetIterator<>(s);
+    it.excludeSuperSetsOf(emptySet(Integer.class));
+
+    assertFalse(it.hasNext());
+  }
+
 }